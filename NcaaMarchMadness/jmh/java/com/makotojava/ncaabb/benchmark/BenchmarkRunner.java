@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.benchmark;
+
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.makotojava.ncaabb.generation.Networks;
+
+/**
+ * Runs the benchmarks in this package, and writes the results as JSON (so they can be
+ * compared from one run to the next to spot regressions).
+ *
+ * Takes the same command line arguments as JMH itself (for example, <code>-f 1 -wi 3 -i 5</code>,
+ * or a regex to run only some of the benchmarks). On top of the JMH defaults:
+ * <ul>
+ * <li>The results are written as JSON to {@link #DEFAULT_RESULT_FILE} (unless <code>-rff</code>
+ * says otherwise).</li>
+ * <li>The architectures are the ones in {@link Networks#getNetworks()} (unless
+ * <code>-p architecture=...</code> says otherwise), so a networks file is honored.</li>
+ * </ul>
+ *
+ * @author J Steven Perry
+ *
+ */
+public class BenchmarkRunner {
+
+  private static final Logger log = Logger.getLogger(BenchmarkRunner.class);
+
+  /**
+   * Where the results go by default
+   */
+  public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+  /**
+   * The name of the architecture parameter of the benchmarks that have one
+   */
+  private static final String ARCHITECTURE_PARAMETER = "architecture";
+
+  public static void main(String[] args) {
+    try {
+      CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+      ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(commandLineOptions)
+          .resultFormat(ResultFormatType.JSON);
+      if (commandLineOptions.getIncludes().isEmpty()) {
+        optionsBuilder.include(BenchmarkRunner.class.getPackage().getName() + "\\..*Benchmark");
+      }
+      if (!commandLineOptions.getResult().hasValue()) {
+        optionsBuilder.result(DEFAULT_RESULT_FILE);
+      }
+      if (!commandLineOptions.getParameter(ARCHITECTURE_PARAMETER).hasValue()) {
+        optionsBuilder.param(ARCHITECTURE_PARAMETER, computeArchitectures());
+      }
+      new Runner(optionsBuilder.build()).run();
+    } catch (CommandLineOptionException | RunnerException e) {
+      String message = "Error running benchmarks: " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+  }
+
+  /**
+   * @return String[] - every architecture in {@link Networks#getNetworks()}, NxNx...xN.
+   */
+  private static String[] computeArchitectures() {
+    int[][] networks = Networks.getNetworks();
+    String[] ret = new String[networks.length];
+    for (int networkIndex = 0; networkIndex < networks.length; networkIndex++) {
+      ret[networkIndex] = SyntheticSeason.formatArchitecture(networks[networkIndex]);
+    }
+    return ret;
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.neuroph.core.data.DataSetRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.makotojava.ncaabb.generation.DataCreator;
+import com.makotojava.ncaabb.model.NormalizedData;
+import com.makotojava.ncaabb.model.SeasonData;
+import com.makotojava.ncaabb.util.StatsUtils;
+
+/**
+ * Benchmarks the feature path: turning raw SeasonData into network input, one stat, one
+ * matchup, and one DataSetRow at a time.
+ *
+ * Each invocation moves on to the next matchup of the {@link SyntheticSeason}, so the JIT
+ * can't just fold a constant input away.
+ *
+ * @author J Steven Perry
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FeatureBenchmark {
+
+  /**
+   * Every home team against every other team
+   */
+  private static final int NUMBER_OF_MATCHUPS =
+      SyntheticSeason.NUMBER_OF_TEAMS * (SyntheticSeason.NUMBER_OF_TEAMS - 1);
+
+  private SyntheticSeason syntheticSeason;
+  private BigDecimal[] rawValues;
+  private BigDecimal minValue;
+  private BigDecimal maxValue;
+  private int matchupIndex;
+
+  @Setup
+  public void setUp() {
+    syntheticSeason = new SyntheticSeason();
+    rawValues = new BigDecimal[SyntheticSeason.NUMBER_OF_TEAMS];
+    for (int teamIndex = 0; teamIndex < rawValues.length; teamIndex++) {
+      rawValues[teamIndex] = syntheticSeason.getSeasonData().get(teamIndex).getAvgPointsPerGame();
+    }
+    minValue = syntheticSeason.getSeasonAnalytics().getMinAvgPointsPg();
+    maxValue = syntheticSeason.getSeasonAnalytics().getMaxAvgPointsPg();
+  }
+
+  /**
+   * A single stat.
+   */
+  @Benchmark
+  public BigDecimal statsUtilsNormalize() {
+    return StatsUtils.normalize(rawValues[nextMatchupIndex() % rawValues.length], minValue, maxValue);
+  }
+
+  /**
+   * A single matchup, the way the DataCreator does it (one FeatureNormalizer for the whole year).
+   */
+  @Benchmark
+  public double[] normalizedDataAsInputAndOutput() {
+    int matchup = nextMatchupIndex();
+    return new NormalizedData(syntheticSeason.getFeatureNormalizer(), syntheticSeason.getHomeTeam(matchup),
+        syntheticSeason.getAwayTeam(matchup)).asInputAndOutput();
+  }
+
+  /**
+   * A single matchup, building the FeatureNormalizer from the SeasonAnalytics every time
+   * (which is what the SeasonAnalytics constructor does).
+   */
+  @Benchmark
+  public double[] normalizedDataAsInputAndOutputFromSeasonAnalytics() {
+    int matchup = nextMatchupIndex();
+    return new NormalizedData(syntheticSeason.getSeasonAnalytics(), syntheticSeason.getHomeTeam(matchup),
+        syntheticSeason.getAwayTeam(matchup)).asInputAndOutput();
+  }
+
+  /**
+   * A single simulation DataSetRow, with one FeatureNormalizer for the whole year.
+   */
+  @Benchmark
+  public DataSetRow processAsDataSetRowForSimulation() {
+    int matchup = nextMatchupIndex();
+    SeasonData homeTeam = syntheticSeason.getHomeTeam(matchup);
+    SeasonData awayTeam = syntheticSeason.getAwayTeam(matchup);
+    return DataCreator.processAsDataSetRowForSimulation(syntheticSeason.getFeatureNormalizer(), homeTeam, awayTeam);
+  }
+
+  /**
+   * A single simulation DataSetRow, building the FeatureNormalizer from the SeasonAnalytics
+   * every time.
+   */
+  @Benchmark
+  public DataSetRow processAsDataSetRowForSimulationFromSeasonAnalytics() {
+    int matchup = nextMatchupIndex();
+    SeasonData homeTeam = syntheticSeason.getHomeTeam(matchup);
+    SeasonData awayTeam = syntheticSeason.getAwayTeam(matchup);
+    return DataCreator.processAsDataSetRowForSimulation(syntheticSeason.getSeasonAnalytics(), homeTeam, awayTeam);
+  }
+
+  private int nextMatchupIndex() {
+    int ret = matchupIndex;
+    matchupIndex = (matchupIndex + 1) % NUMBER_OF_MATCHUPS;
+    return ret;
+  }
+
+}
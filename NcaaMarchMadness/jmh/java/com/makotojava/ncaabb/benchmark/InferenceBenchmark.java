@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.util.NetworkUtils;
+
+/**
+ * Benchmarks a single forward pass (one matchup, one network) for each network
+ * architecture, through Neuroph and through the flat engine.
+ *
+ * The architectures default to the ones built into {@link com.makotojava.ncaabb.generation.Networks};
+ * {@link BenchmarkRunner} replaces them with whatever {@link com.makotojava.ncaabb.generation.Networks#getNetworks()}
+ * says (so a networks file is honored).
+ *
+ * @author J Steven Perry
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InferenceBenchmark {
+
+  /**
+   * The number of different inputs to cycle through
+   */
+  private static final int NUMBER_OF_INPUTS = 1024;
+
+  /**
+   * The hidden layers of the network, NxNx...xN
+   */
+  @Param({ "92x23", "23x30x10", "92x23x12x4", "92x23x30x12x4" })
+  public String architecture;
+
+  private double[][] networkInputs;
+  private MultiLayerPerceptron network;
+  private FlatMlpNetwork flatNetwork;
+  private FlatMlpNetwork.Workspace workspace;
+  private int inputIndex;
+
+  @Setup
+  public void setUp() {
+    networkInputs = new SyntheticSeason().createNetworkInputs(NUMBER_OF_INPUTS);
+    List<Integer> neuronLayerDescriptor = SyntheticSeason.parseArchitecture(architecture);
+    network = SyntheticSeason.createNetwork(neuronLayerDescriptor, new Random(SyntheticSeason.SEED));
+    flatNetwork = SyntheticSeason.createFlatNetwork(neuronLayerDescriptor, new Random(SyntheticSeason.SEED));
+    workspace = flatNetwork.createWorkspace();
+  }
+
+  @Benchmark
+  public double[] networkUtilsRunNetwork() {
+    return NetworkUtils.runNetwork(network, nextInput());
+  }
+
+  @Benchmark
+  public double[] flatNetworkCalculate() {
+    return flatNetwork.calculate(nextInput(), workspace);
+  }
+
+  private double[] nextInput() {
+    double[] ret = networkInputs[inputIndex];
+    inputIndex = (inputIndex + 1) % NUMBER_OF_INPUTS;
+    return ret;
+  }
+
+}
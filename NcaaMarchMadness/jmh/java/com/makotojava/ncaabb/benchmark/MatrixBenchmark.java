@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.makotojava.ncaabb.dao.DataSnapshot;
+import com.makotojava.ncaabb.dao.SeasonAnalyticsSnapshotDao;
+import com.makotojava.ncaabb.dao.SeasonDataSnapshotDao;
+import com.makotojava.ncaabb.generation.Networks;
+import com.makotojava.ncaabb.simulation.GameSimulationResult;
+import com.makotojava.ncaabb.simulation.TournamentMatrixPredictor;
+import com.makotojava.ncaabb.util.NetworkProperties;
+
+/**
+ * Benchmarks computing the whole tournament matrix (every team in the field against every
+ * other team, through every network in the ensemble) for several ensemble sizes.
+ *
+ * The TournamentMatrixPredictor gets its data from the snapshot DAOs, backed by a
+ * {@link SyntheticSeason}, so no database is involved. The ensemble cycles through the
+ * architectures in {@link Networks#getNetworks()}, the way a real network directory
+ * holds a mix of them. The number of simulation worker threads comes from the
+ * {@link com.makotojava.ncaabb.util.NetworkConfiguration}, just like a real run.
+ *
+ * @author J Steven Perry
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MatrixBenchmark {
+
+  /**
+   * The number of networks in the ensemble
+   */
+  @Param({ "1", "10", "50", "100" })
+  public int ensembleSize;
+
+  private GenericApplicationContext applicationContext;
+  private TournamentMatrixPredictor tournamentMatrixPredictor;
+  private List<MultiLayerPerceptron> networks;
+  private Set<String> teamNames;
+
+  @Setup
+  public void setUp() {
+    SyntheticSeason syntheticSeason = new SyntheticSeason();
+    DataSnapshot dataSnapshot = syntheticSeason.createDataSnapshot();
+    applicationContext = new GenericApplicationContext();
+    applicationContext.getBeanFactory().registerSingleton("seasonDataDao", new SeasonDataSnapshotDao(dataSnapshot));
+    applicationContext.getBeanFactory().registerSingleton("seasonAnalyticsDao",
+        new SeasonAnalyticsSnapshotDao(dataSnapshot));
+    applicationContext.refresh();
+    tournamentMatrixPredictor = new TournamentMatrixPredictor(applicationContext,
+        NetworkProperties.getConfiguration());
+    int[][] architectures = Networks.getNetworks();
+    Random random = new Random(SyntheticSeason.SEED);
+    networks = new ArrayList<>(ensembleSize);
+    for (int networkIndex = 0; networkIndex < ensembleSize; networkIndex++) {
+      List<Integer> neuronLayerDescriptor =
+          SyntheticSeason.createNeuronLayerDescriptor(architectures[networkIndex % architectures.length]);
+      networks.add(SyntheticSeason.createNetwork(neuronLayerDescriptor, random));
+    }
+    teamNames = syntheticSeason.getTeamNames();
+  }
+
+  @TearDown
+  public void tearDown() {
+    applicationContext.close();
+  }
+
+  @Benchmark
+  public Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> computeMatrix() {
+    return tournamentMatrixPredictor.computeMatrix(SyntheticSeason.YEAR, networks, teamNames);
+  }
+
+}
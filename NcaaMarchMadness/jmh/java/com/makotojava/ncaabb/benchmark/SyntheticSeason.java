@@ -0,0 +1,345 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.neuroph.core.data.DataSet;
+import org.neuroph.core.data.DataSetRow;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.dao.DataSnapshot;
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+import com.makotojava.ncaabb.model.NormalizedData;
+import com.makotojava.ncaabb.model.SeasonAnalytics;
+import com.makotojava.ncaabb.model.SeasonData;
+import com.makotojava.ncaabb.util.StatsUtils;
+
+/**
+ * A made up season (a tournament field's worth of teams with random stats, and the
+ * SeasonAnalytics to normalize them), held entirely in memory, so the benchmarks
+ * need no database and no network files.
+ *
+ * Everything is generated from a fixed seed, so every benchmark run sees exactly the
+ * same data.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class SyntheticSeason {
+
+  /**
+   * The (made up) year of the season
+   */
+  public static final Integer YEAR = 2017;
+
+  /**
+   * The number of teams in the tournament field
+   */
+  public static final int NUMBER_OF_TEAMS = 68;
+
+  /**
+   * The seed used to generate everything random
+   */
+  public static final long SEED = 2017L;
+
+  /**
+   * Every raw stat is somewhere in this range...
+   */
+  private static final double MIN_STAT = 10.0;
+  private static final double MAX_STAT = 90.0;
+
+  /**
+   * ...which is a little narrower than the range in the SeasonAnalytics, the same as real data
+   */
+  private static final BigDecimal MIN_ANALYTIC = BigDecimal.ZERO;
+  private static final BigDecimal MAX_ANALYTIC = BigDecimal.valueOf(100);
+
+  /**
+   * Separates the layer sizes in an NxNx...xN architecture (see {@link #parseArchitecture(String)})
+   */
+  private static final String LAYER_SEPARATOR = "x";
+
+  private final List<SeasonData> seasonData;
+  private final SeasonAnalytics seasonAnalytics;
+  private final FeatureNormalizer featureNormalizer;
+
+  /**
+   * Constructor. Generates the season.
+   */
+  public SyntheticSeason() {
+    Random random = new Random(SEED);
+    List<SeasonData> teams = new ArrayList<>(NUMBER_OF_TEAMS);
+    for (int teamIndex = 0; teamIndex < NUMBER_OF_TEAMS; teamIndex++) {
+      teams.add(createSeasonData(random, String.format("Team %02d", teamIndex)));
+    }
+    seasonData = Collections.unmodifiableList(teams);
+    seasonAnalytics = createSeasonAnalytics();
+    featureNormalizer = new FeatureNormalizer(seasonAnalytics);
+  }
+
+  /**
+   * @return List<SeasonData> - every team's (raw) season data, in team name order.
+   */
+  public List<SeasonData> getSeasonData() {
+    return seasonData;
+  }
+
+  public SeasonAnalytics getSeasonAnalytics() {
+    return seasonAnalytics;
+  }
+
+  public FeatureNormalizer getFeatureNormalizer() {
+    return featureNormalizer;
+  }
+
+  /**
+   * @return Set<String> - the names of the teams, in team name order.
+   */
+  public Set<String> getTeamNames() {
+    Set<String> ret = new LinkedHashSet<>();
+    for (SeasonData teamSeasonData : seasonData) {
+      ret.add(teamSeasonData.getTeamName());
+    }
+    return ret;
+  }
+
+  /**
+   * @return DataSnapshot - a snapshot holding the season (and no tournament results), ready
+   *         to back the snapshot DAOs.
+   */
+  public DataSnapshot createDataSnapshot() {
+    DataSnapshot ret = new DataSnapshot();
+    ret.addYear(YEAR, seasonData, seasonAnalytics, Collections.emptyList(), null);
+    return ret;
+  }
+
+  /**
+   * Creates the normalized network input for the specified number of matchups, cycling
+   * through every pairing of the teams (home team first).
+   *
+   * @return double[][] - one network input per matchup.
+   */
+  public double[][] createNetworkInputs(int numberOfMatchups) {
+    double[][] ret = new double[numberOfMatchups][];
+    int numberOfInputs = 2 * FeatureNormalizer.NUMBER_OF_FEATURES;
+    for (int matchupIndex = 0; matchupIndex < numberOfMatchups; matchupIndex++) {
+      double[] inputAndOutput = new NormalizedData(featureNormalizer, getHomeTeam(matchupIndex),
+          getAwayTeam(matchupIndex)).asInputAndOutput();
+      double[] input = new double[numberOfInputs];
+      System.arraycopy(inputAndOutput, 0, input, 0, numberOfInputs);
+      ret[matchupIndex] = input;
+    }
+    return ret;
+  }
+
+  /**
+   * Creates a training DataSet of the specified size: the normalized input for each matchup
+   * (see {@link #createNetworkInputs(int)}), with random normalized scores as the desired output.
+   */
+  public DataSet createTrainingData(int numberOfRows) {
+    Random random = new Random(SEED);
+    int numberOfInputs = 2 * FeatureNormalizer.NUMBER_OF_FEATURES;
+    DataSet ret = new DataSet(numberOfInputs, 2);
+    for (double[] input : createNetworkInputs(numberOfRows)) {
+      double[] desiredOutput = { random.nextDouble(), random.nextDouble() };
+      ret.addRow(new DataSetRow(input, desiredOutput));
+    }
+    return ret;
+  }
+
+  /**
+   * @return SeasonData - the home team of the specified matchup (see {@link #createNetworkInputs(int)}).
+   */
+  public SeasonData getHomeTeam(int matchupIndex) {
+    return seasonData.get(matchupIndex % NUMBER_OF_TEAMS);
+  }
+
+  /**
+   * @return SeasonData - the away team of the specified matchup (see {@link #createNetworkInputs(int)}).
+   */
+  public SeasonData getAwayTeam(int matchupIndex) {
+    int offset = 1 + (matchupIndex / NUMBER_OF_TEAMS) % (NUMBER_OF_TEAMS - 1);
+    return seasonData.get((matchupIndex + offset) % NUMBER_OF_TEAMS);
+  }
+
+  /**
+   * Parses an NxNx...xN hidden layer structure (the format of the networks file, see
+   * {@link com.makotojava.ncaabb.generation.Networks#getNetworks()}) into a complete
+   * neuron layer descriptor (inputs first, outputs last).
+   */
+  public static List<Integer> parseArchitecture(String architecture) {
+    String[] layerSizes = architecture.split(LAYER_SEPARATOR);
+    int[] hiddenLayers = new int[layerSizes.length];
+    for (int layerIndex = 0; layerIndex < layerSizes.length; layerIndex++) {
+      hiddenLayers[layerIndex] = Integer.parseInt(layerSizes[layerIndex].trim());
+    }
+    return createNeuronLayerDescriptor(hiddenLayers);
+  }
+
+  /**
+   * Creates a complete neuron layer descriptor (inputs first, outputs last) for the specified
+   * hidden layers (one element of {@link com.makotojava.ncaabb.generation.Networks#getNetworks()}).
+   */
+  public static List<Integer> createNeuronLayerDescriptor(int[] hiddenLayers) {
+    List<Integer> ret = new ArrayList<>();
+    ret.add(2 * FeatureNormalizer.NUMBER_OF_FEATURES);
+    for (int layerSize : hiddenLayers) {
+      ret.add(layerSize);
+    }
+    ret.add(2);
+    return ret;
+  }
+
+  /**
+   * @return String - the NxNx...xN form of the specified hidden layers.
+   */
+  public static String formatArchitecture(int[] hiddenLayers) {
+    StringBuilder sb = new StringBuilder();
+    for (int layerIndex = 0; layerIndex < hiddenLayers.length; layerIndex++) {
+      if (layerIndex > 0) {
+        sb.append(LAYER_SEPARATOR);
+      }
+      sb.append(hiddenLayers[layerIndex]);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Creates a network with the specified layer structure, and random weights (the random
+   * number generator is passed in, so a whole ensemble can come from one seed).
+   */
+  public static FlatMlpNetwork createFlatNetwork(List<Integer> neuronLayerDescriptor, Random random) {
+    FlatMlpNetwork ret = new FlatMlpNetwork(neuronLayerDescriptor, true);
+    ret.randomizeWeights(-0.7, 0.7, random);
+    return ret;
+  }
+
+  /**
+   * Same as {@link #createFlatNetwork(List, Random)}, but as a Neuroph network (the
+   * kind that gets saved, loaded, and simulated with).
+   */
+  public static MultiLayerPerceptron createNetwork(List<Integer> neuronLayerDescriptor, Random random) {
+    return createFlatNetwork(neuronLayerDescriptor, random).toNetwork();
+  }
+
+  private static SeasonData createSeasonData(Random random, String teamName) {
+    SeasonData ret = new SeasonData();
+    ret.setYear(YEAR);
+    ret.setTeamName(teamName);
+    for (BiConsumer<SeasonData, BigDecimal> setter : seasonDataSetters()) {
+      double value = MIN_STAT + random.nextDouble() * (MAX_STAT - MIN_STAT);
+      setter.accept(ret, BigDecimal.valueOf(value).setScale(StatsUtils.SCALE, RoundingMode.HALF_UP));
+    }
+    return ret;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static BiConsumer<SeasonData, BigDecimal>[] seasonDataSetters() {
+    return new BiConsumer[] {
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setAvgPointsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setScoringMarginPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setNumFgAttemptsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setFgPercentage,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setNum3pPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setNum3pAttemptsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setT3pPercentage,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setNumFtAttemptsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setFtPercentage,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setReboundMargin,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setAssistsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setAtoRatio,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setAvgOpponentPointsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setNumOppFgAttemptsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setOppFgPercentage,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setNumOpp3pAttemptsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setOpp3pPercentage,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setBlocksPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setStealsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setOppTurnoversPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setTurnoversPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setFoulsPerGame,
+        (BiConsumer<SeasonData, BigDecimal>) SeasonData::setNumDq
+    };
+  }
+
+  /**
+   * Same min and max for every feature keeps things simple.
+   */
+  private static SeasonAnalytics createSeasonAnalytics() {
+    BigDecimal min = MIN_ANALYTIC.setScale(StatsUtils.SCALE, RoundingMode.HALF_UP);
+    BigDecimal max = MAX_ANALYTIC.setScale(StatsUtils.SCALE, RoundingMode.HALF_UP);
+    SeasonAnalytics ret = new SeasonAnalytics();
+    ret.setYear(YEAR);
+    ret.setMinAvgPointsPg(min);
+    ret.setMaxAvgPointsPg(max);
+    ret.setMinScoringMarginPg(min);
+    ret.setMaxScoringMarginPg(max);
+    ret.setMinNumFgAttemptsPg(min);
+    ret.setMaxNumFgAttemptsPg(max);
+    ret.setMinFgPercentage(min);
+    ret.setMaxFgPercentage(max);
+    ret.setMinNum3pPerGame(min);
+    ret.setMaxNum3pPerGame(max);
+    ret.setMinNum3pAttemptsPg(min);
+    ret.setMaxNum3pAttemptsPg(max);
+    ret.setMinT3pPercentage(min);
+    ret.setMaxT3pPercentage(max);
+    ret.setMinNumFtAttemptsPg(min);
+    ret.setMaxNumFtAttemptsPg(max);
+    ret.setMinFtPercentage(min);
+    ret.setMaxFtPercentage(max);
+    ret.setMinReboundMargin(min);
+    ret.setMaxReboundMargin(max);
+    ret.setMinAssistsPg(min);
+    ret.setMaxAssistsPg(max);
+    ret.setMinAtoRatio(min);
+    ret.setMaxAtoRatio(max);
+    ret.setMinAvgOpponentPointsPg(min);
+    ret.setMaxAvgOpponentPointsPg(max);
+    ret.setMinNumOppFgAttemptsPg(min);
+    ret.setMaxNumOppFgAttemptsPg(max);
+    ret.setMinOppFgPercentage(min);
+    ret.setMaxOppFgPercentage(max);
+    ret.setMinNumOpp3pAttemptsPg(min);
+    ret.setMaxNumOpp3pAttemptsPg(max);
+    ret.setMinOpp3pPercentage(min);
+    ret.setMaxOpp3pPercentage(max);
+    ret.setMinBlocksPg(min);
+    ret.setMaxBlocksPg(max);
+    ret.setMinStealsPg(min);
+    ret.setMaxStealsPg(max);
+    ret.setMinOppTurnoversPg(min);
+    ret.setMaxOppTurnoversPg(max);
+    ret.setMinTurnoversPg(min);
+    ret.setMaxTurnoversPg(max);
+    ret.setMinFoulsPg(min);
+    ret.setMaxFoulsPg(max);
+    ret.setMinNumDq(min);
+    ret.setMaxNumDq(max);
+    return ret;
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.neuroph.core.data.DataSet;
+import org.neuroph.core.data.DataSetRow;
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.neuroph.nnet.learning.MomentumBackpropagation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.makotojava.ncaabb.generation.FlatMomentumBackpropagation;
+import com.makotojava.ncaabb.util.NetworkConfiguration;
+import com.makotojava.ncaabb.util.NetworkProperties;
+
+/**
+ * Benchmarks one training epoch (one pass of momentum backpropagation over the whole
+ * training set) for each network architecture, with each network engine (see
+ * {@link NetworkConfiguration#getNetworkEngine()}).
+ *
+ * The learning rule is set up the way the trainer sets it up (learning rate, momentum and
+ * batch mode come from the {@link NetworkConfiguration}), except that it always stops
+ * after exactly one epoch. The weights keep changing from one invocation to the next,
+ * which is fine: the cost of an epoch does not depend on them.
+ *
+ * @author J Steven Perry
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrainingBenchmark {
+
+  /**
+   * About the size of the training data for eight years of tournament games (every game
+   * is in there twice, once each way)
+   */
+  private static final int NUMBER_OF_TRAINING_ROWS = 1000;
+
+  /**
+   * The hidden layers of the network, NxNx...xN (see {@link InferenceBenchmark#architecture})
+   */
+  @Param({ "92x23", "23x30x10", "92x23x12x4", "92x23x30x12x4" })
+  public String architecture;
+
+  @Param({ NetworkConfiguration.NETWORK_ENGINE_NEUROPH, NetworkConfiguration.NETWORK_ENGINE_FLAT })
+  public String networkEngine;
+
+  private DataSet trainingData;
+  private double[][] inputs;
+  private double[][] desiredOutputs;
+  private MultiLayerPerceptron network;
+  private MomentumBackpropagation learningRule;
+  private FlatMomentumBackpropagation flatLearningRule;
+
+  @Setup
+  public void setUp() {
+    NetworkConfiguration configuration = NetworkProperties.getConfiguration();
+    trainingData = new SyntheticSeason().createTrainingData(NUMBER_OF_TRAINING_ROWS);
+    List<Integer> neuronLayerDescriptor = SyntheticSeason.parseArchitecture(architecture);
+    if (NetworkConfiguration.NETWORK_ENGINE_FLAT.equals(networkEngine)) {
+      inputs = new double[trainingData.size()][];
+      desiredOutputs = new double[trainingData.size()][];
+      int rowIndex = 0;
+      for (DataSetRow row : trainingData.getRows()) {
+        inputs[rowIndex] = row.getInput();
+        desiredOutputs[rowIndex] = row.getDesiredOutput();
+        rowIndex++;
+      }
+      flatLearningRule = new FlatMomentumBackpropagation(
+          SyntheticSeason.createFlatNetwork(neuronLayerDescriptor, new Random(SyntheticSeason.SEED)));
+      flatLearningRule.setLearningRate(configuration.getLearningRuleLearningRate());
+      flatLearningRule.setMomentum(configuration.getLearningRuleMomentumMax());
+      flatLearningRule.setMaxError(0.0);
+      flatLearningRule.setMaxIterations(1);
+    } else {
+      network = SyntheticSeason.createNetwork(neuronLayerDescriptor, new Random(SyntheticSeason.SEED));
+      learningRule = (MomentumBackpropagation) network.getLearningRule();
+      learningRule.setLearningRate(configuration.getLearningRuleLearningRate());
+      learningRule.setMomentum(configuration.getLearningRuleMomentumMax());
+      learningRule.setBatchMode(configuration.getLearningRuleIsBatchMode());
+      learningRule.setMaxError(0.0);
+      learningRule.setMaxIterations(1);
+    }
+  }
+
+  @Benchmark
+  public double trainOneEpoch() {
+    double ret;
+    if (flatLearningRule != null) {
+      flatLearningRule.learn(inputs, desiredOutputs);
+      ret = flatLearningRule.getTotalNetworkError();
+    } else {
+      network.learn(trainingData);
+      ret = learningRule.getTotalNetworkError();
+    }
+    return ret;
+  }
+
+}
@@ -0,0 +1 @@
+src/main/script/run-bracket-simulator.sh
\ No newline at end of file
@@ -0,0 +1 @@
+src/main/script/run-data-snapshot-exporter.sh
\ No newline at end of file
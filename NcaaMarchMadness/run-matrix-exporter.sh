@@ -0,0 +1 @@
+src/main/script/run-matrix-exporter.sh
\ No newline at end of file
@@ -0,0 +1 @@
+src/main/script/run-prediction-server.sh
\ No newline at end of file
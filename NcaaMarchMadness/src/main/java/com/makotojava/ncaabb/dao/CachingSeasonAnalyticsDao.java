@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import com.makotojava.ncaabb.model.SeasonAnalytics;
+
+/**
+ * Read-through caching SeasonAnalyticsDao, keyed by year. Analytics for a
+ * finished season never change.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class CachingSeasonAnalyticsDao implements SeasonAnalyticsDao {
+
+  private final SeasonAnalyticsDao delegate;
+
+  private final LruCache<Integer, SeasonAnalytics> cache;
+
+  /**
+   * Constructor.
+   *
+   * @param delegate
+   *          The DAO that actually goes to the DB.
+   * @param maxEntries
+   *          The max number of years to cache.
+   */
+  public CachingSeasonAnalyticsDao(SeasonAnalyticsDao delegate, int maxEntries) {
+    this.delegate = delegate;
+    this.cache = new LruCache<>("SeasonAnalytics", maxEntries);
+  }
+
+  @Override
+  public SeasonAnalytics fetchByYear(Integer year) {
+    return cache.get(year, delegate::fetchByYear);
+  }
+
+  public long getHitCount() {
+    return cache.getHitCount();
+  }
+
+  public long getMissCount() {
+    return cache.getMissCount();
+  }
+
+  @Override
+  public String toString() {
+    return cache.toString();
+  }
+
+}
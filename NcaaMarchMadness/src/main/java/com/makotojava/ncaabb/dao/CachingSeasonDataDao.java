@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.model.SeasonData;
+
+/**
+ * Read-through caching SeasonDataDao. Season data for a finished season never
+ * changes, so there's no reason to go to the DB for it more than once.
+ *
+ * The first request for any team in a given year pulls the whole year (it's only
+ * a few dozen rows, and the rest of them are almost certainly coming next). Individual
+ * teams are cached by (year, team name), so the same team name in different years
+ * never gets mixed up.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class CachingSeasonDataDao implements SeasonDataDao {
+
+  private static final Logger log = Logger.getLogger(CachingSeasonDataDao.class);
+
+  private final SeasonDataDao delegate;
+
+  /**
+   * All of the SeasonData for a year, keyed by year
+   */
+  private final LruCache<Integer, List<SeasonData>> yearCache;
+
+  /**
+   * Individual SeasonData objects, keyed by (year, team name)
+   */
+  private final LruCache<YearAndTeamName, SeasonData> teamCache;
+
+  /**
+   * Constructor.
+   *
+   * @param delegate
+   *          The DAO that actually goes to the DB.
+   * @param maxEntries
+   *          The max number of teams to cache (the number of years cached is scaled down
+   *          from that, assuming a tournament field's worth of teams per year).
+   */
+  public CachingSeasonDataDao(SeasonDataDao delegate, int maxEntries) {
+    this.delegate = delegate;
+    this.teamCache = new LruCache<>("SeasonData (year, team)", maxEntries);
+    this.yearCache = new LruCache<>("SeasonData (year)", Math.max(1, maxEntries / 64));
+  }
+
+  @Override
+  public List<SeasonData> fetchAllByYear(Integer year) {
+    return new ArrayList<>(fetchYear(year));
+  }
+
+  @Override
+  public SeasonData fetchByYearAndTeamName(Integer year, String teamName) {
+    SeasonData ret = teamCache.get(new YearAndTeamName(year, teamName));
+    if (ret == null) {
+      //
+      // Not cached (or evicted), so get it from the whole year
+      ret = findTeam(fetchYear(year), year, teamName);
+      if (ret == null) {
+        log.warn("Requested team/year combination (" + teamName + "/" + year + ") does not exist in the DB!");
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public Map<String, SeasonData> fetchByYearAndTeamNames(Integer year, Collection<String> teamNames) {
+    Map<String, SeasonData> ret = new LinkedHashMap<>();
+    List<SeasonData> seasonDataForYear = null;
+    for (String teamName : teamNames) {
+      SeasonData seasonData = teamCache.get(new YearAndTeamName(year, teamName));
+      if (seasonData == null) {
+        if (seasonDataForYear == null) {
+          seasonDataForYear = fetchYear(year);
+        }
+        seasonData = findTeam(seasonDataForYear, year, teamName);
+      }
+      if (seasonData != null) {
+        ret.put(teamName, seasonData);
+      } else {
+        log.warn("Requested team/year combination (" + teamName + "/" + year + ") does not exist in the DB!");
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public Map<Integer, Map<String, SeasonData>> fetchAllByYears(Collection<Integer> years) {
+    Map<Integer, Map<String, SeasonData>> ret = new LinkedHashMap<>();
+    //
+    // Pull any years we don't already have in one shot
+    List<Integer> yearsToFetch = new ArrayList<>();
+    for (Integer year : years) {
+      if (!yearCache.containsKey(year)) {
+        yearsToFetch.add(year);
+      }
+    }
+    if (!yearsToFetch.isEmpty()) {
+      Map<Integer, Map<String, SeasonData>> fetched = delegate.fetchAllByYears(yearsToFetch);
+      for (Map.Entry<Integer, Map<String, SeasonData>> entry : fetched.entrySet()) {
+        cacheYear(entry.getKey(), new ArrayList<>(entry.getValue().values()));
+      }
+    }
+    for (Integer year : years) {
+      List<SeasonData> seasonDataForYear = fetchYear(year);
+      if (!seasonDataForYear.isEmpty()) {
+        Map<String, SeasonData> seasonDataByTeamName = new LinkedHashMap<>();
+        for (SeasonData seasonData : seasonDataForYear) {
+          seasonDataByTeamName.put(seasonData.getTeamName(), seasonData);
+        }
+        ret.put(year, seasonDataByTeamName);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Returns all of the SeasonData for the specified year, from the cache if it's there,
+   * or from the DB if not (in which case the whole year gets cached).
+   */
+  private List<SeasonData> fetchYear(Integer year) {
+    List<SeasonData> ret = yearCache.get(year);
+    if (ret == null) {
+      ret = delegate.fetchAllByYear(year);
+      cacheYear(year, ret);
+    }
+    return ret;
+  }
+
+  private void cacheYear(Integer year, List<SeasonData> seasonDataForYear) {
+    yearCache.put(year, seasonDataForYear);
+    for (SeasonData seasonData : seasonDataForYear) {
+      teamCache.put(new YearAndTeamName(year, seasonData.getTeamName()), seasonData);
+    }
+    log.debug("Cached " + seasonDataForYear.size() + " SeasonData objects for year " + year);
+  }
+
+  private SeasonData findTeam(List<SeasonData> seasonDataForYear, Integer year, String teamName) {
+    for (SeasonData seasonData : seasonDataForYear) {
+      if (seasonData.getTeamName().equals(teamName)) {
+        teamCache.put(new YearAndTeamName(year, teamName), seasonData);
+        return seasonData;
+      }
+    }
+    return null;
+  }
+
+  public long getHitCount() {
+    return teamCache.getHitCount() + yearCache.getHitCount();
+  }
+
+  public long getMissCount() {
+    return teamCache.getMissCount() + yearCache.getMissCount();
+  }
+
+  @Override
+  public String toString() {
+    return teamCache + "; " + yearCache;
+  }
+
+  /**
+   * Composite cache key.
+   */
+  private static final class YearAndTeamName {
+    private final Integer year;
+    private final String teamName;
+
+    YearAndTeamName(Integer year, String teamName) {
+      this.year = year;
+      this.teamName = teamName;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof YearAndTeamName)) {
+        return false;
+      }
+      YearAndTeamName that = (YearAndTeamName) other;
+      return year.equals(that.year) && teamName.equals(that.teamName);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * year.hashCode() + teamName.hashCode();
+    }
+  }
+
+}
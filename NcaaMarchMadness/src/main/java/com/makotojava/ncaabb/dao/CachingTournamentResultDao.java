@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.makotojava.ncaabb.model.TournamentResult;
+
+/**
+ * Read-through caching TournamentResultDao, keyed by year. The results of a finished
+ * tournament never change.
+ *
+ * Callers get their own copy of the List, so they can't mess up the cached one.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class CachingTournamentResultDao implements TournamentResultDao {
+
+  private final TournamentResultDao delegate;
+
+  private final LruCache<Integer, List<TournamentResult>> cache;
+
+  /**
+   * Constructor.
+   *
+   * @param delegate
+   *          The DAO that actually goes to the DB.
+   * @param maxEntries
+   *          The max number of years to cache.
+   */
+  public CachingTournamentResultDao(TournamentResultDao delegate, int maxEntries) {
+    this.delegate = delegate;
+    this.cache = new LruCache<>("TournamentResult", maxEntries);
+  }
+
+  @Override
+  public List<TournamentResult> fetchAllByYear(Integer year) {
+    return new ArrayList<>(cache.get(year, delegate::fetchAllByYear));
+  }
+
+  public long getHitCount() {
+    return cache.getHitCount();
+  }
+
+  public long getMissCount() {
+    return cache.getMissCount();
+  }
+
+  @Override
+  public String toString() {
+    return cache.toString();
+  }
+
+}
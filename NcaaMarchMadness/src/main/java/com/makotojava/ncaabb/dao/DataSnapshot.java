@@ -0,0 +1,517 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.model.SeasonAnalytics;
+import com.makotojava.ncaabb.model.SeasonData;
+import com.makotojava.ncaabb.model.TournamentAnalytics;
+import com.makotojava.ncaabb.model.TournamentResult;
+
+/**
+ * All of the data the DAOs serve up (season data, season analytics, tournament results
+ * and tournament analytics) for a set of years, held in memory, and read from/written to
+ * a single compact binary snapshot file.
+ *
+ * The data is static history, so once it has been exported (see DataSnapshotExporter),
+ * the programs can run off of the snapshot file without a database at all.
+ *
+ * File layout (big endian):
+ * <ul>
+ * <li>int magic number, int format version</li>
+ * <li>int number of years, then for each year:
+ * <ul>
+ * <li>int year</li>
+ * <li>int number of SeasonData records, then the records</li>
+ * <li>byte 1 if there is a SeasonAnalytics record (followed by it), 0 if not</li>
+ * <li>int number of TournamentResult records, then the records</li>
+ * <li>byte 1 if there is a TournamentAnalytics record (followed by it), 0 if not</li>
+ * </ul>
+ * </li>
+ * </ul>
+ * BigDecimals are stored as a short scale and a long unscaled value, Strings as an int
+ * length and UTF-8 bytes, and Dates as a long (millis). Nulls are stored using sentinel
+ * values (see the read/write methods).
+ *
+ * @author J Steven Perry
+ *
+ */
+public class DataSnapshot {
+
+  private static final Logger log = Logger.getLogger(DataSnapshot.class);
+
+  /**
+   * "NCAA", so we know it's one of ours
+   */
+  public static final int MAGIC_NUMBER = 0x4E434141;
+
+  /**
+   * Bump this any time the file layout changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  private static final short NULL_SCALE = Short.MIN_VALUE;
+  private static final int NULL_LENGTH = -1;
+  private static final int NULL_INTEGER = Integer.MIN_VALUE;
+  private static final long NULL_DATE = Long.MIN_VALUE;
+
+  private final Map<Integer, Map<String, SeasonData>> seasonDataByYear = new LinkedHashMap<>();
+  private final Map<Integer, SeasonAnalytics> seasonAnalyticsByYear = new LinkedHashMap<>();
+  private final Map<Integer, List<TournamentResult>> tournamentResultsByYear = new LinkedHashMap<>();
+  private final Map<Integer, TournamentAnalytics> tournamentAnalyticsByYear = new LinkedHashMap<>();
+
+  /**
+   * Adds the data for the specified year to the snapshot, replacing whatever was there
+   * for that year.
+   *
+   * @param year
+   *          The year.
+   * @param seasonData
+   *          The SeasonData for every team that played that year.
+   * @param seasonAnalytics
+   *          The SeasonAnalytics for the year (may be null).
+   * @param tournamentResults
+   *          The TournamentResults for the year.
+   * @param tournamentAnalytics
+   *          The TournamentAnalytics for the year (may be null).
+   */
+  public void addYear(Integer year, List<SeasonData> seasonData, SeasonAnalytics seasonAnalytics,
+      List<TournamentResult> tournamentResults, TournamentAnalytics tournamentAnalytics) {
+    Map<String, SeasonData> seasonDataByTeamName = new LinkedHashMap<>();
+    for (SeasonData teamSeasonData : seasonData) {
+      seasonDataByTeamName.put(teamSeasonData.getTeamName(), teamSeasonData);
+    }
+    seasonDataByYear.put(year, seasonDataByTeamName);
+    seasonAnalyticsByYear.put(year, seasonAnalytics);
+    tournamentResultsByYear.put(year, new ArrayList<>(tournamentResults));
+    tournamentAnalyticsByYear.put(year, tournamentAnalytics);
+  }
+
+  /**
+   * @return List<Integer> - the years in the snapshot, in the order they were added.
+   */
+  public List<Integer> getYears() {
+    return new ArrayList<>(seasonDataByYear.keySet());
+  }
+
+  /**
+   * @return Map<String, SeasonData> - the SeasonData for the specified year keyed by
+   *         team name (empty if the year is not in the snapshot). Do not modify it.
+   */
+  public Map<String, SeasonData> getSeasonData(Integer year) {
+    Map<String, SeasonData> ret = seasonDataByYear.get(year);
+    return (ret == null) ? Collections.<String, SeasonData> emptyMap() : Collections.unmodifiableMap(ret);
+  }
+
+  /**
+   * @return SeasonAnalytics - the SeasonAnalytics for the specified year, or null if there are none.
+   */
+  public SeasonAnalytics getSeasonAnalytics(Integer year) {
+    return seasonAnalyticsByYear.get(year);
+  }
+
+  /**
+   * @return List<TournamentResult> - the TournamentResults for the specified year (empty
+   *         if the year is not in the snapshot). Do not modify it.
+   */
+  public List<TournamentResult> getTournamentResults(Integer year) {
+    List<TournamentResult> ret = tournamentResultsByYear.get(year);
+    return (ret == null) ? Collections.<TournamentResult> emptyList() : Collections.unmodifiableList(ret);
+  }
+
+  /**
+   * @return TournamentAnalytics - the TournamentAnalytics for the specified year, or null if there are none.
+   */
+  public TournamentAnalytics getTournamentAnalytics(Integer year) {
+    return tournamentAnalyticsByYear.get(year);
+  }
+
+  /**
+   * Writes the snapshot to the specified file. The file is written under a temporary
+   * name and then moved into place, so a reader never sees half of a snapshot.
+   *
+   * @param fileName
+   *          The name of the snapshot file.
+   *
+   * @throws IOException
+   *           If something goes wrong.
+   */
+  public void write(String fileName) throws IOException {
+    File file = new File(fileName);
+    File tempFile = new File(fileName + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(MAGIC_NUMBER);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(seasonDataByYear.size());
+      for (Integer year : seasonDataByYear.keySet()) {
+        out.writeInt(year);
+        Map<String, SeasonData> seasonDataByTeamName = seasonDataByYear.get(year);
+        out.writeInt(seasonDataByTeamName.size());
+        for (SeasonData seasonData : seasonDataByTeamName.values()) {
+          writeSeasonData(out, seasonData);
+        }
+        SeasonAnalytics seasonAnalytics = seasonAnalyticsByYear.get(year);
+        out.writeByte(seasonAnalytics == null ? 0 : 1);
+        if (seasonAnalytics != null) {
+          writeSeasonAnalytics(out, seasonAnalytics);
+        }
+        List<TournamentResult> tournamentResults = tournamentResultsByYear.get(year);
+        out.writeInt(tournamentResults.size());
+        for (TournamentResult tournamentResult : tournamentResults) {
+          writeTournamentResult(out, tournamentResult);
+        }
+        TournamentAnalytics tournamentAnalytics = tournamentAnalyticsByYear.get(year);
+        out.writeByte(tournamentAnalytics == null ? 0 : 1);
+        if (tournamentAnalytics != null) {
+          writeTournamentAnalytics(out, tournamentAnalytics);
+        }
+      }
+    }
+    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    log.info("Wrote snapshot of " + seasonDataByYear.size() + " years (" + file.length() + " bytes) to file: "
+        + fileName);
+  }
+
+  /**
+   * Loads the snapshot from the specified file. The file is memory-mapped, and decoded
+   * in a single pass.
+   *
+   * @param fileName
+   *          The name of the snapshot file.
+   *
+   * @return DataSnapshot - the snapshot.
+   *
+   * @throws IOException
+   *           If the file cannot be read, or is not a snapshot file this code understands.
+   */
+  public static DataSnapshot load(String fileName) throws IOException {
+    long start = System.currentTimeMillis();
+    DataSnapshot ret = new DataSnapshot();
+    try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        FileChannel channel = file.getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < 8 || buffer.getInt() != MAGIC_NUMBER) {
+        throw new IOException("File " + fileName + " is not a snapshot file!");
+      }
+      int formatVersion = buffer.getInt();
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IOException("Snapshot file " + fileName + " is format version " + formatVersion
+            + ", but only version " + FORMAT_VERSION + " is supported. Export the snapshot again.");
+      }
+      int numberOfYears = buffer.getInt();
+      for (int yearIndex = 0; yearIndex < numberOfYears; yearIndex++) {
+        Integer year = buffer.getInt();
+        int numberOfTeams = buffer.getInt();
+        List<SeasonData> seasonData = new ArrayList<>(numberOfTeams);
+        for (int aa = 0; aa < numberOfTeams; aa++) {
+          seasonData.add(readSeasonData(buffer, year));
+        }
+        SeasonAnalytics seasonAnalytics = (buffer.get() == 0) ? null : readSeasonAnalytics(buffer, year);
+        int numberOfGames = buffer.getInt();
+        List<TournamentResult> tournamentResults = new ArrayList<>(numberOfGames);
+        for (int aa = 0; aa < numberOfGames; aa++) {
+          tournamentResults.add(readTournamentResult(buffer, year));
+        }
+        TournamentAnalytics tournamentAnalytics = (buffer.get() == 0) ? null : readTournamentAnalytics(buffer, year);
+        ret.addYear(year, seasonData, seasonAnalytics, tournamentResults, tournamentAnalytics);
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Snapshot file " + fileName + " is truncated!", e);
+    }
+    log.info("Loaded snapshot of " + ret.seasonDataByYear.size() + " years from file " + fileName + " in "
+        + (System.currentTimeMillis() - start) + "ms");
+    return ret;
+  }
+
+  private static void writeSeasonData(DataOutputStream out, SeasonData seasonData) throws IOException {
+    writeString(out, seasonData.getTeamName());
+    writeBigDecimal(out, seasonData.getAvgPointsPerGame());
+    writeBigDecimal(out, seasonData.getScoringMarginPerGame());
+    writeBigDecimal(out, seasonData.getNumFgAttemptsPerGame());
+    writeBigDecimal(out, seasonData.getFgPercentage());
+    writeBigDecimal(out, seasonData.getNum3pPerGame());
+    writeBigDecimal(out, seasonData.getNum3pAttemptsPerGame());
+    writeBigDecimal(out, seasonData.getT3pPercentage());
+    writeBigDecimal(out, seasonData.getNumFtAttemptsPerGame());
+    writeBigDecimal(out, seasonData.getFtPercentage());
+    writeBigDecimal(out, seasonData.getReboundMargin());
+    writeBigDecimal(out, seasonData.getAssistsPerGame());
+    writeBigDecimal(out, seasonData.getAtoRatio());
+    writeBigDecimal(out, seasonData.getAvgOpponentPointsPerGame());
+    writeBigDecimal(out, seasonData.getNumOppFgAttemptsPerGame());
+    writeBigDecimal(out, seasonData.getOppFgPercentage());
+    writeBigDecimal(out, seasonData.getNumOpp3pAttemptsPerGame());
+    writeBigDecimal(out, seasonData.getOpp3pPercentage());
+    writeBigDecimal(out, seasonData.getBlocksPerGame());
+    writeBigDecimal(out, seasonData.getStealsPerGame());
+    writeBigDecimal(out, seasonData.getOppTurnoversPerGame());
+    writeBigDecimal(out, seasonData.getTurnoversPerGame());
+    writeBigDecimal(out, seasonData.getFoulsPerGame());
+    writeBigDecimal(out, seasonData.getNumDq());
+  }
+
+  private static SeasonData readSeasonData(MappedByteBuffer buffer, Integer year) {
+    SeasonData ret = new SeasonData();
+    ret.setYear(year);
+    ret.setTeamName(readString(buffer));
+    readBigDecimal(buffer, ret::setAvgPointsPerGame);
+    readBigDecimal(buffer, ret::setScoringMarginPerGame);
+    readBigDecimal(buffer, ret::setNumFgAttemptsPerGame);
+    readBigDecimal(buffer, ret::setFgPercentage);
+    readBigDecimal(buffer, ret::setNum3pPerGame);
+    readBigDecimal(buffer, ret::setNum3pAttemptsPerGame);
+    readBigDecimal(buffer, ret::setT3pPercentage);
+    readBigDecimal(buffer, ret::setNumFtAttemptsPerGame);
+    readBigDecimal(buffer, ret::setFtPercentage);
+    readBigDecimal(buffer, ret::setReboundMargin);
+    readBigDecimal(buffer, ret::setAssistsPerGame);
+    readBigDecimal(buffer, ret::setAtoRatio);
+    readBigDecimal(buffer, ret::setAvgOpponentPointsPerGame);
+    readBigDecimal(buffer, ret::setNumOppFgAttemptsPerGame);
+    readBigDecimal(buffer, ret::setOppFgPercentage);
+    readBigDecimal(buffer, ret::setNumOpp3pAttemptsPerGame);
+    readBigDecimal(buffer, ret::setOpp3pPercentage);
+    readBigDecimal(buffer, ret::setBlocksPerGame);
+    readBigDecimal(buffer, ret::setStealsPerGame);
+    readBigDecimal(buffer, ret::setOppTurnoversPerGame);
+    readBigDecimal(buffer, ret::setTurnoversPerGame);
+    readBigDecimal(buffer, ret::setFoulsPerGame);
+    readBigDecimal(buffer, ret::setNumDq);
+    return ret;
+  }
+
+  private static void writeSeasonAnalytics(DataOutputStream out, SeasonAnalytics seasonAnalytics) throws IOException {
+    writeBigDecimal(out, seasonAnalytics.getMinAvgPointsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxAvgPointsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinScoringMarginPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxScoringMarginPg());
+    writeBigDecimal(out, seasonAnalytics.getMinNumFgAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxNumFgAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinFgPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMaxFgPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMinNum3pPerGame());
+    writeBigDecimal(out, seasonAnalytics.getMaxNum3pPerGame());
+    writeBigDecimal(out, seasonAnalytics.getMinNum3pAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxNum3pAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinT3pPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMaxT3pPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMinNumFtAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxNumFtAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinFtPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMaxFtPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMinReboundMargin());
+    writeBigDecimal(out, seasonAnalytics.getMaxReboundMargin());
+    writeBigDecimal(out, seasonAnalytics.getMinAssistsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxAssistsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinAtoRatio());
+    writeBigDecimal(out, seasonAnalytics.getMaxAtoRatio());
+    writeBigDecimal(out, seasonAnalytics.getMinAvgOpponentPointsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxAvgOpponentPointsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinNumOppFgAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxNumOppFgAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinOppFgPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMaxOppFgPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMinNumOpp3pAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxNumOpp3pAttemptsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinOpp3pPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMaxOpp3pPercentage());
+    writeBigDecimal(out, seasonAnalytics.getMinBlocksPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxBlocksPg());
+    writeBigDecimal(out, seasonAnalytics.getMinStealsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxStealsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinOppTurnoversPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxOppTurnoversPg());
+    writeBigDecimal(out, seasonAnalytics.getMinTurnoversPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxTurnoversPg());
+    writeBigDecimal(out, seasonAnalytics.getMinFoulsPg());
+    writeBigDecimal(out, seasonAnalytics.getMaxFoulsPg());
+    writeBigDecimal(out, seasonAnalytics.getMinNumDq());
+    writeBigDecimal(out, seasonAnalytics.getMaxNumDq());
+  }
+
+  private static SeasonAnalytics readSeasonAnalytics(MappedByteBuffer buffer, Integer year) {
+    SeasonAnalytics ret = new SeasonAnalytics();
+    ret.setYear(year);
+    readBigDecimal(buffer, ret::setMinAvgPointsPg);
+    readBigDecimal(buffer, ret::setMaxAvgPointsPg);
+    readBigDecimal(buffer, ret::setMinScoringMarginPg);
+    readBigDecimal(buffer, ret::setMaxScoringMarginPg);
+    readBigDecimal(buffer, ret::setMinNumFgAttemptsPg);
+    readBigDecimal(buffer, ret::setMaxNumFgAttemptsPg);
+    readBigDecimal(buffer, ret::setMinFgPercentage);
+    readBigDecimal(buffer, ret::setMaxFgPercentage);
+    readBigDecimal(buffer, ret::setMinNum3pPerGame);
+    readBigDecimal(buffer, ret::setMaxNum3pPerGame);
+    readBigDecimal(buffer, ret::setMinNum3pAttemptsPg);
+    readBigDecimal(buffer, ret::setMaxNum3pAttemptsPg);
+    readBigDecimal(buffer, ret::setMinT3pPercentage);
+    readBigDecimal(buffer, ret::setMaxT3pPercentage);
+    readBigDecimal(buffer, ret::setMinNumFtAttemptsPg);
+    readBigDecimal(buffer, ret::setMaxNumFtAttemptsPg);
+    readBigDecimal(buffer, ret::setMinFtPercentage);
+    readBigDecimal(buffer, ret::setMaxFtPercentage);
+    readBigDecimal(buffer, ret::setMinReboundMargin);
+    readBigDecimal(buffer, ret::setMaxReboundMargin);
+    readBigDecimal(buffer, ret::setMinAssistsPg);
+    readBigDecimal(buffer, ret::setMaxAssistsPg);
+    readBigDecimal(buffer, ret::setMinAtoRatio);
+    readBigDecimal(buffer, ret::setMaxAtoRatio);
+    readBigDecimal(buffer, ret::setMinAvgOpponentPointsPg);
+    readBigDecimal(buffer, ret::setMaxAvgOpponentPointsPg);
+    readBigDecimal(buffer, ret::setMinNumOppFgAttemptsPg);
+    readBigDecimal(buffer, ret::setMaxNumOppFgAttemptsPg);
+    readBigDecimal(buffer, ret::setMinOppFgPercentage);
+    readBigDecimal(buffer, ret::setMaxOppFgPercentage);
+    readBigDecimal(buffer, ret::setMinNumOpp3pAttemptsPg);
+    readBigDecimal(buffer, ret::setMaxNumOpp3pAttemptsPg);
+    readBigDecimal(buffer, ret::setMinOpp3pPercentage);
+    readBigDecimal(buffer, ret::setMaxOpp3pPercentage);
+    readBigDecimal(buffer, ret::setMinBlocksPg);
+    readBigDecimal(buffer, ret::setMaxBlocksPg);
+    readBigDecimal(buffer, ret::setMinStealsPg);
+    readBigDecimal(buffer, ret::setMaxStealsPg);
+    readBigDecimal(buffer, ret::setMinOppTurnoversPg);
+    readBigDecimal(buffer, ret::setMaxOppTurnoversPg);
+    readBigDecimal(buffer, ret::setMinTurnoversPg);
+    readBigDecimal(buffer, ret::setMaxTurnoversPg);
+    readBigDecimal(buffer, ret::setMinFoulsPg);
+    readBigDecimal(buffer, ret::setMaxFoulsPg);
+    readBigDecimal(buffer, ret::setMinNumDq);
+    readBigDecimal(buffer, ret::setMaxNumDq);
+    return ret;
+  }
+
+  private static void writeTournamentResult(DataOutputStream out, TournamentResult tournamentResult)
+      throws IOException {
+    writeInteger(out, tournamentResult.getId());
+    out.writeLong(tournamentResult.getGameDate() == null ? NULL_DATE : tournamentResult.getGameDate().getTime());
+    writeString(out, tournamentResult.getWinningTeamName());
+    writeInteger(out, tournamentResult.getWinningScore());
+    writeString(out, tournamentResult.getLosingTeamName());
+    writeInteger(out, tournamentResult.getLosingScore());
+  }
+
+  private static TournamentResult readTournamentResult(MappedByteBuffer buffer, Integer year) {
+    TournamentResult ret = new TournamentResult();
+    ret.setYear(year);
+    ret.setId(readInteger(buffer));
+    long gameDate = buffer.getLong();
+    // Same type the JDBC driver hands back
+    ret.setGameDate(gameDate == NULL_DATE ? null : new Date(gameDate));
+    ret.setWinningTeamName(readString(buffer));
+    ret.setWinningScore(readInteger(buffer));
+    ret.setLosingTeamName(readString(buffer));
+    ret.setLosingScore(readInteger(buffer));
+    return ret;
+  }
+
+  private static void writeTournamentAnalytics(DataOutputStream out, TournamentAnalytics tournamentAnalytics)
+      throws IOException {
+    writeInteger(out, tournamentAnalytics.getMinScore());
+    writeInteger(out, tournamentAnalytics.getMaxScore());
+  }
+
+  private static TournamentAnalytics readTournamentAnalytics(MappedByteBuffer buffer, Integer year) {
+    TournamentAnalytics ret = new TournamentAnalytics();
+    ret.setYear(year);
+    ret.setMinScore(readInteger(buffer));
+    ret.setMaxScore(readInteger(buffer));
+    return ret;
+  }
+
+  private static void writeBigDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+    if (value == null) {
+      out.writeShort(NULL_SCALE);
+      out.writeLong(0);
+    } else {
+      BigInteger unscaledValue = value.unscaledValue();
+      if (value.scale() <= NULL_SCALE || value.scale() > Short.MAX_VALUE || unscaledValue.bitLength() > 63) {
+        throw new IllegalArgumentException("Value " + value + " is too big to be stored in a snapshot!");
+      }
+      out.writeShort(value.scale());
+      out.writeLong(unscaledValue.longValue());
+    }
+  }
+
+  /**
+   * Reads a BigDecimal and hands it to the specified setter, unless it is null (the
+   * model setters rescale whatever they are given, so they don't take kindly to nulls).
+   */
+  private static void readBigDecimal(MappedByteBuffer buffer, Consumer<BigDecimal> setter) {
+    short scale = buffer.getShort();
+    long unscaledValue = buffer.getLong();
+    if (scale != NULL_SCALE) {
+      setter.accept(BigDecimal.valueOf(unscaledValue, scale));
+    }
+  }
+
+  private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+    if (value != null && value == NULL_INTEGER) {
+      throw new IllegalArgumentException("Value " + value + " cannot be stored in a snapshot!");
+    }
+    out.writeInt(value == null ? NULL_INTEGER : value);
+  }
+
+  private static Integer readInteger(MappedByteBuffer buffer) {
+    int value = buffer.getInt();
+    return (value == NULL_INTEGER) ? null : value;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(NULL_LENGTH);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(MappedByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A size-bounded, thread safe cache that evicts the least recently used entry
+ * when it fills up. Counts hits and misses. Null values are never cached.
+ *
+ * Used by the caching DAOs.
+ *
+ * @author J Steven Perry
+ *
+ * @param <K>
+ *          The key type.
+ * @param <V>
+ *          The value type.
+ */
+public class LruCache<K, V> {
+
+  private final String name;
+  private final int maxSize;
+  private final Map<K, V> entries;
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Constructor.
+   *
+   * @param name
+   *          The name of the cache (for logging).
+   * @param maxSize
+   *          The max number of entries in the cache.
+   */
+  public LruCache(String name, int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Max cache size must be at least 1, not " + maxSize);
+    }
+    this.name = name;
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > LruCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached value for the specified key, or null (a miss) if there isn't one.
+   */
+  public synchronized V get(K key) {
+    V ret = entries.get(key);
+    if (ret == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return ret;
+  }
+
+  /**
+   * Returns the cached value for the specified key. If there isn't one (a miss), the
+   * loader is called to get it, and the value it returns is cached (unless it is null).
+   *
+   * The loader runs outside the lock, so two threads missing on the same key at
+   * the same time may both call it. Harmless for DAO lookups.
+   */
+  public V get(K key, Function<K, V> loader) {
+    V ret = get(key);
+    if (ret == null) {
+      ret = loader.apply(key);
+      put(key, ret);
+    }
+    return ret;
+  }
+
+  /**
+   * Caches the specified value (unless it is null).
+   */
+  public synchronized void put(K key, V value) {
+    if (value != null) {
+      entries.put(key, value);
+    }
+  }
+
+  /**
+   * Whether or not the specified key is in the cache. Does not count as a hit or
+   * miss, and does not count as a use of the entry.
+   */
+  public synchronized boolean containsKey(K key) {
+    return entries.containsKey(key);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return name + " cache: size=" + entries.size() + "/" + maxSize + ", hits=" + hitCount + ", misses=" + missCount;
+  }
+
+}
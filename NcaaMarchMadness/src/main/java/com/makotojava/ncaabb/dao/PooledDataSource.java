@@ -0,0 +1,554 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A simple, bounded pool of database connections sitting in front of a plain
+ * (non-pooling) DataSource, like PGSimpleDataSource.
+ * <ul>
+ * <li>At most <code>maxPoolSize</code> connections are ever open (or handed out) at once.
+ * Callers wait up to <code>acquireTimeoutMillis</code> for one to free up.</li>
+ * <li>A connection that has been sitting idle for longer than <code>validationIntervalMillis</code>
+ * is checked with the validation query before it is handed out, and replaced if it is dead.</li>
+ * <li>Each connection keeps a (bounded, LRU) cache of its PreparedStatements, keyed by SQL,
+ * so running the same query again reuses the statement rather than re-preparing it. Combined with
+ * the driver's prepare threshold, that means the statement gets prepared on the server once.
+ * A statement that is still in use when it falls out of the cache isn't closed until its user
+ * is done with it.</li>
+ * <li>Acquire times and active/idle counts are tracked, and can be logged with {@link #logStatistics()}.</li>
+ * </ul>
+ *
+ * @author J Steven Perry
+ *
+ */
+public class PooledDataSource implements DataSource, Closeable {
+
+  private static final Logger log = Logger.getLogger(PooledDataSource.class);
+
+  private final DataSource physicalDataSource;
+  private final int maxPoolSize;
+  private final long acquireTimeoutMillis;
+  private final String validationQuery;
+  private final long validationIntervalMillis;
+  private final int statementCacheSize;
+
+  /**
+   * One permit per connection that may be handed out
+   */
+  private final Semaphore permits;
+
+  /**
+   * Connections not currently in use, most recently returned first
+   */
+  private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+
+  private final AtomicInteger activeCount = new AtomicInteger();
+  private final AtomicInteger openCount = new AtomicInteger();
+  private final AtomicLong acquireCount = new AtomicLong();
+  private final AtomicLong totalAcquireNanos = new AtomicLong();
+  private final AtomicLong maxAcquireNanos = new AtomicLong();
+  private final AtomicLong statementCacheHits = new AtomicLong();
+  private final AtomicLong statementCacheMisses = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * Constructor.
+   *
+   * @param physicalDataSource
+   *          The DataSource that actually opens connections to the database.
+   * @param maxPoolSize
+   *          The max number of connections open at once.
+   * @param acquireTimeoutMillis
+   *          How long to wait for a connection when all of them are in use.
+   * @param validationQuery
+   *          The query used to check that an idle connection is still alive.
+   * @param validationIntervalMillis
+   *          Idle connections are only validated if they have been idle at least this long.
+   * @param statementCacheSize
+   *          The max number of PreparedStatements cached per connection (0 means don't cache).
+   */
+  public PooledDataSource(DataSource physicalDataSource, int maxPoolSize, long acquireTimeoutMillis,
+      String validationQuery, long validationIntervalMillis, int statementCacheSize) {
+    if (maxPoolSize < 1) {
+      throw new IllegalArgumentException("Max pool size must be at least 1, not " + maxPoolSize);
+    }
+    this.physicalDataSource = physicalDataSource;
+    this.maxPoolSize = maxPoolSize;
+    this.acquireTimeoutMillis = acquireTimeoutMillis;
+    this.validationQuery = validationQuery;
+    this.validationIntervalMillis = validationIntervalMillis;
+    this.statementCacheSize = statementCacheSize;
+    this.permits = new Semaphore(maxPoolSize, true);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (closed) {
+      throw new SQLException("Connection pool is closed");
+    }
+    long start = System.nanoTime();
+    try {
+      if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new SQLException("Timed out after " + acquireTimeoutMillis + "ms waiting for a connection ("
+            + activeCount.get() + " of " + maxPoolSize + " in use)");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection", e);
+    }
+    try {
+      PooledConnection pooledConnection = takeIdleConnection();
+      if (pooledConnection == null) {
+        pooledConnection = new PooledConnection(physicalDataSource.getConnection());
+        openCount.incrementAndGet();
+      }
+      activeCount.incrementAndGet();
+      recordAcquireTime(System.nanoTime() - start);
+      return pooledConnection.checkOut();
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Takes the most recently used idle connection that is still alive (or null if there are none).
+   */
+  private PooledConnection takeIdleConnection() {
+    PooledConnection ret;
+    while ((ret = idleConnections.pollFirst()) != null) {
+      if (ret.isAlive()) {
+        break;
+      }
+      log.warn("Discarding dead pooled connection");
+      ret.closePhysicalConnection();
+    }
+    return ret;
+  }
+
+  private void recordAcquireTime(long acquireNanos) {
+    acquireCount.incrementAndGet();
+    totalAcquireNanos.addAndGet(acquireNanos);
+    long max;
+    while (acquireNanos > (max = maxAcquireNanos.get())) {
+      if (maxAcquireNanos.compareAndSet(max, acquireNanos)) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Called when the user of a connection closes it.
+   */
+  private void checkIn(PooledConnection pooledConnection, boolean reusable) {
+    activeCount.decrementAndGet();
+    if (reusable && !closed) {
+      idleConnections.offerFirst(pooledConnection);
+    } else {
+      pooledConnection.closePhysicalConnection();
+    }
+    permits.release();
+  }
+
+  /**
+   * Closes every idle connection, and makes sure connections in use are closed (rather
+   * than returned to the pool) when their users are done with them.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    logStatistics();
+    PooledConnection pooledConnection;
+    while ((pooledConnection = idleConnections.pollFirst()) != null) {
+      pooledConnection.closePhysicalConnection();
+    }
+  }
+
+  /**
+   * Logs the pool statistics.
+   */
+  public void logStatistics() {
+    log.info("Connection pool: active=" + getActiveCount() + ", idle=" + getIdleCount() + ", open=" + getOpenCount()
+        + ", max=" + maxPoolSize + ", acquires=" + getAcquireCount() + ", avg acquire="
+        + String.format("%.3f", getAverageAcquireMillis()) + "ms, max acquire="
+        + String.format("%.3f", getMaxAcquireMillis()) + "ms, statement cache hits/misses="
+        + getStatementCacheHits() + "/" + getStatementCacheMisses());
+  }
+
+  public int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  /**
+   * @return int - the number of connections currently handed out.
+   */
+  public int getActiveCount() {
+    return activeCount.get();
+  }
+
+  /**
+   * @return int - the number of connections sitting in the pool waiting to be used.
+   */
+  public int getIdleCount() {
+    return idleConnections.size();
+  }
+
+  /**
+   * @return int - the number of physical connections currently open.
+   */
+  public int getOpenCount() {
+    return openCount.get();
+  }
+
+  public long getAcquireCount() {
+    return acquireCount.get();
+  }
+
+  public double getAverageAcquireMillis() {
+    long count = acquireCount.get();
+    return (count == 0) ? 0.0 : totalAcquireNanos.get() / 1000000.0 / count;
+  }
+
+  public double getMaxAcquireMillis() {
+    return maxAcquireNanos.get() / 1000000.0;
+  }
+
+  public long getStatementCacheHits() {
+    return statementCacheHits.get();
+  }
+
+  public long getStatementCacheMisses() {
+    return statementCacheMisses.get();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Pooled connections all use the same credentials");
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return physicalDataSource.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    physicalDataSource.setLogWriter(out);
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    physicalDataSource.setLoginTimeout(seconds);
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return physicalDataSource.getLoginTimeout();
+  }
+
+  @Override
+  public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    return physicalDataSource.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || physicalDataSource.isWrapperFor(iface);
+  }
+
+  /**
+   * A physical connection, plus its PreparedStatement cache. Handed out to users
+   * wrapped in a Proxy whose close() method returns it to the pool.
+   */
+  private class PooledConnection {
+
+    private final Connection physicalConnection;
+    private final Map<String, PooledStatement> statementCache;
+    private long lastUsedMillis = System.currentTimeMillis();
+
+    PooledConnection(Connection physicalConnection) {
+      this.physicalConnection = physicalConnection;
+      this.statementCache = new LinkedHashMap<String, PooledStatement>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PooledStatement> eldest) {
+          if (size() > statementCacheSize) {
+            PooledStatement pooledStatement = eldest.getValue();
+            pooledStatement.evicted = true;
+            //
+            // If somebody is still using it (reading its ResultSet, say), it gets closed
+            /// when they're done with it instead
+            if (!pooledStatement.inUse) {
+              closeQuietly(pooledStatement.preparedStatement);
+            }
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+
+    /**
+     * Whether or not the connection can still be used. Only hits the database if the
+     * connection has been idle a while.
+     */
+    boolean isAlive() {
+      try {
+        if (physicalConnection.isClosed()) {
+          return false;
+        }
+        if (validationQuery != null && System.currentTimeMillis() - lastUsedMillis >= validationIntervalMillis) {
+          try (Statement statement = physicalConnection.createStatement()) {
+            statement.execute(validationQuery);
+          }
+        }
+        return true;
+      } catch (SQLException e) {
+        log.warn("Pooled connection failed validation: " + e.getMessage());
+        return false;
+      }
+    }
+
+    Connection checkOut() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+          new ConnectionHandler(this));
+    }
+
+    /**
+     * Hands out the cached statement for the specified SQL, or prepares a new one. If the cached
+     * one is already in use (the same query, nested inside itself), the caller gets a statement
+     * of its own, which is closed when they're done with it.
+     */
+    PooledStatement prepareStatement(String sql) throws SQLException {
+      PooledStatement ret = (statementCacheSize > 0) ? statementCache.get(sql) : null;
+      if (ret == null || ret.inUse || ret.preparedStatement.isClosed()) {
+        statementCacheMisses.incrementAndGet();
+        boolean cached = statementCacheSize > 0 && (ret == null || !ret.inUse);
+        ret = new PooledStatement(physicalConnection.prepareStatement(sql), cached);
+        if (cached) {
+          statementCache.put(sql, ret);
+        }
+      } else {
+        statementCacheHits.incrementAndGet();
+      }
+      ret.inUse = true;
+      return ret;
+    }
+
+    /**
+     * Called when the user of a statement closes it. Cached statements are left open (ready
+     * for the next user), everything else is closed for real.
+     */
+    void release(PooledStatement pooledStatement) throws SQLException {
+      pooledStatement.inUse = false;
+      if (pooledStatement.cached && !pooledStatement.evicted) {
+        pooledStatement.preparedStatement.clearParameters();
+        pooledStatement.preparedStatement.clearWarnings();
+      } else {
+        pooledStatement.preparedStatement.close();
+      }
+    }
+
+    void closePhysicalConnection() {
+      for (PooledStatement pooledStatement : statementCache.values()) {
+        closeQuietly(pooledStatement.preparedStatement);
+      }
+      statementCache.clear();
+      try {
+        physicalConnection.close();
+      } catch (SQLException e) {
+        log.warn("Error closing pooled connection: " + e.getMessage());
+      }
+      openCount.decrementAndGet();
+    }
+
+  }
+
+  /**
+   * A PreparedStatement, and whether or not it is in the cache and handed out to a user.
+   */
+  private static class PooledStatement {
+
+    private final PreparedStatement preparedStatement;
+    private final boolean cached;
+    private boolean inUse;
+    private boolean evicted;
+
+    PooledStatement(PreparedStatement preparedStatement, boolean cached) {
+      this.preparedStatement = preparedStatement;
+      this.cached = cached;
+    }
+
+  }
+
+  private static void closeQuietly(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      log.warn("Error closing cached statement: " + e.getMessage());
+    }
+  }
+
+  /**
+   * The Connection handed out to users: everything goes to the physical connection, except
+   * close() (returns it to the pool) and prepareStatement(String) (goes through the cache).
+   */
+  private class ConnectionHandler implements InvocationHandler {
+
+    private final PooledConnection pooledConnection;
+    private boolean logicallyClosed;
+
+    ConnectionHandler(PooledConnection pooledConnection) {
+      this.pooledConnection = pooledConnection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if ("close".equals(methodName)) {
+        if (!logicallyClosed) {
+          logicallyClosed = true;
+          checkIn(pooledConnection, resetConnection());
+        }
+        return null;
+      } else if ("isClosed".equals(methodName)) {
+        return logicallyClosed || pooledConnection.physicalConnection.isClosed();
+      } else if ("equals".equals(methodName)) {
+        return proxy == args[0];
+      } else if ("hashCode".equals(methodName)) {
+        return System.identityHashCode(proxy);
+      } else if ("toString".equals(methodName)) {
+        return "Pooled " + pooledConnection.physicalConnection;
+      }
+      if (logicallyClosed) {
+        throw new SQLException("Connection has been returned to the pool");
+      }
+      if ("prepareStatement".equals(methodName) && args.length == 1) {
+        PooledStatement pooledStatement = pooledConnection.prepareStatement((String) args[0]);
+        return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class }, new PreparedStatementHandler(pooledStatement,
+                pooledConnection, (Connection) proxy));
+      }
+      try {
+        return method.invoke(pooledConnection.physicalConnection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    /**
+     * Puts the connection back the way the pool handed it out.
+     *
+     * @return boolean - true if the connection can go back in the pool, false if it should be closed.
+     */
+    private boolean resetConnection() {
+      Connection physicalConnection = pooledConnection.physicalConnection;
+      try {
+        if (physicalConnection.isClosed()) {
+          return false;
+        }
+        if (!physicalConnection.getAutoCommit()) {
+          physicalConnection.rollback();
+          physicalConnection.setAutoCommit(true);
+        }
+        physicalConnection.clearWarnings();
+        pooledConnection.lastUsedMillis = System.currentTimeMillis();
+        return true;
+      } catch (SQLException e) {
+        log.warn("Could not reset pooled connection, closing it: " + e.getMessage());
+        return false;
+      }
+    }
+
+  }
+
+  /**
+   * The PreparedStatement handed out to users: close() gives the statement back to its connection
+   * (which leaves cached statements open, ready for the next user), everything else goes to the
+   * real statement.
+   */
+  private static class PreparedStatementHandler implements InvocationHandler {
+
+    private final PooledStatement pooledStatement;
+    private final PooledConnection pooledConnection;
+    private final Connection connectionProxy;
+    private boolean released;
+
+    PreparedStatementHandler(PooledStatement pooledStatement, PooledConnection pooledConnection,
+        Connection connectionProxy) {
+      this.pooledStatement = pooledStatement;
+      this.pooledConnection = pooledConnection;
+      this.connectionProxy = connectionProxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if ("close".equals(methodName)) {
+        if (!released) {
+          released = true;
+          pooledConnection.release(pooledStatement);
+        }
+        return null;
+      } else if ("getConnection".equals(methodName)) {
+        return connectionProxy;
+      } else if ("equals".equals(methodName)) {
+        return proxy == args[0];
+      } else if ("hashCode".equals(methodName)) {
+        return System.identityHashCode(proxy);
+      }
+      try {
+        return method.invoke(pooledStatement.preparedStatement, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+  }
+
+}
@@ -15,7 +15,9 @@
  */
 package com.makotojava.ncaabb.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.stereotype.Component;
 
@@ -63,4 +65,34 @@ public interface SeasonDataDao {
    */
   public SeasonData fetchByYearAndTeamName(Integer year, String teamName);
 
+  /**
+   * Fetch the {@link SeasonData} objects associated with the specified
+   * <code>year</code> and each of the specified <code>teamNames</code>,
+   * all at once (rather than one at a time).
+   * 
+   * @param year
+   *          The year for which the {@link SeasonData} objects are to be
+   *          fetched.
+   * @param teamNames
+   *          The team names for which the {@link SeasonData} objects
+   *          are to be fetched.
+   * @return <code>Map<String, SeasonData></code> - the {@link SeasonData} objects
+   *         that could be located, keyed by team name. Team names for which
+   *         no such object could be found are not in the <code>Map</code>.
+   */
+  public Map<String, SeasonData> fetchByYearAndTeamNames(Integer year, Collection<String> teamNames);
+
+  /**
+   * Fetch all {@link SeasonData} objects for each of the specified <code>years</code>,
+   * all at once (rather than one year at a time).
+   * 
+   * @param years
+   *          The years for which {@link SeasonData} objects are to be
+   *          fetched.
+   * @return <code>Map<Integer, Map<String, SeasonData>></code> - the {@link SeasonData}
+   *         objects that could be located, keyed by year, then by team name. Years for
+   *         which no {@link SeasonData} objects could be found are not in the <code>Map</code>.
+   */
+  public Map<Integer, Map<String, SeasonData>> fetchAllByYears(Collection<Integer> years);
+
 }
@@ -15,9 +15,13 @@
  */
 package com.makotojava.ncaabb.dao;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
@@ -75,6 +79,60 @@ public class SeasonDataJdbcDao extends JdbcDaoSupport implements SeasonDataDao {
     return ret;
   }
   
+  @Override
+  public Map<String, SeasonData> fetchByYearAndTeamNames(Integer year, Collection<String> teamNames) {
+    Map<String, SeasonData> ret = new LinkedHashMap<>();
+    if (teamNames.isEmpty()) {
+      return ret;
+    }
+    String sql = "SELECT t.* FROM " + TABLE_NAME + " t WHERE t.year = ? AND t.team_name = ANY(?) ORDER BY t.team_name";
+    // Run the query (all of the team names go in a single array parameter)
+    List<SeasonData> results = getJdbcTemplate().query(con -> {
+      PreparedStatement ps = con.prepareStatement(sql);
+      ps.setInt(1, year);
+      ps.setArray(2, con.createArrayOf("varchar", teamNames.toArray()));
+      return ps;
+    }, new SeasonDataRowMapper());
+    for (SeasonData seasonData : results) {
+      if (ret.put(seasonData.getTeamName(), seasonData) != null) {
+        log.warn("Expected 1 result for team/year combination (" + seasonData.getTeamName() + "/" + year
+            + "), got more than that!");
+      }
+    }
+    if (ret.size() < teamNames.size()) {
+      for (String teamName : teamNames) {
+        if (!ret.containsKey(teamName)) {
+          log.warn("Requested team/year combination (" + teamName + "/" + year + ") does not exist in the DB!");
+        }
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public Map<Integer, Map<String, SeasonData>> fetchAllByYears(Collection<Integer> years) {
+    Map<Integer, Map<String, SeasonData>> ret = new LinkedHashMap<>();
+    if (years.isEmpty()) {
+      return ret;
+    }
+    String sql = "SELECT t.* FROM " + TABLE_NAME + " t WHERE t.year = ANY(?) ORDER BY t.year, t.team_name";
+    // Run the query (all of the years go in a single array parameter)
+    List<SeasonData> results = getJdbcTemplate().query(con -> {
+      PreparedStatement ps = con.prepareStatement(sql);
+      ps.setArray(1, con.createArrayOf("int4", years.toArray()));
+      return ps;
+    }, new SeasonDataRowMapper());
+    for (SeasonData seasonData : results) {
+      Map<String, SeasonData> seasonDataForYear = ret.get(seasonData.getYear());
+      if (seasonDataForYear == null) {
+        seasonDataForYear = new LinkedHashMap<>();
+        ret.put(seasonData.getYear(), seasonDataForYear);
+      }
+      seasonDataForYear.put(seasonData.getTeamName(), seasonData);
+    }
+    return ret;
+  }
+
   /**
    * Maps the following columns from v_season_data:
                    View "public.v_season_data"
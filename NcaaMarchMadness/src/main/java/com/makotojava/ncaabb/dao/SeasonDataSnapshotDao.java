@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.model.SeasonData;
+
+/**
+ * SeasonDataDao interface implementation that serves up data from a {@link DataSnapshot}
+ * rather than the DB.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class SeasonDataSnapshotDao implements SeasonDataDao {
+
+  private static final Logger log = Logger.getLogger(SeasonDataSnapshotDao.class);
+
+  private final DataSnapshot dataSnapshot;
+
+  public SeasonDataSnapshotDao(DataSnapshot dataSnapshot) {
+    this.dataSnapshot = dataSnapshot;
+  }
+
+  @Override
+  public List<SeasonData> fetchAllByYear(Integer year) {
+    return new ArrayList<>(dataSnapshot.getSeasonData(year).values());
+  }
+
+  @Override
+  public SeasonData fetchByYearAndTeamName(Integer year, String teamName) {
+    SeasonData ret = dataSnapshot.getSeasonData(year).get(teamName);
+    if (ret == null) {
+      log.warn("Requested team/year combination (" + teamName + "/" + year + ") does not exist in the snapshot!");
+    }
+    return ret;
+  }
+
+  @Override
+  public Map<String, SeasonData> fetchByYearAndTeamNames(Integer year, Collection<String> teamNames) {
+    Map<String, SeasonData> ret = new LinkedHashMap<>();
+    for (String teamName : teamNames) {
+      SeasonData seasonData = fetchByYearAndTeamName(year, teamName);
+      if (seasonData != null) {
+        ret.put(teamName, seasonData);
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public Map<Integer, Map<String, SeasonData>> fetchAllByYears(Collection<Integer> years) {
+    Map<Integer, Map<String, SeasonData>> ret = new LinkedHashMap<>();
+    for (Integer year : years) {
+      Map<String, SeasonData> seasonDataByTeamName = dataSnapshot.getSeasonData(year);
+      if (!seasonDataByTeamName.isEmpty()) {
+        ret.put(year, new LinkedHashMap<>(seasonDataByTeamName));
+      }
+    }
+    return ret;
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import com.makotojava.ncaabb.model.TournamentAnalytics;
+
+/**
+ * TournamentAnalyticsDao interface implementation that serves up data from a {@link DataSnapshot}
+ * rather than the DB.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class TournamentAnalyticsSnapshotDao implements TournamentAnalyticsDao {
+
+  private final DataSnapshot dataSnapshot;
+
+  public TournamentAnalyticsSnapshotDao(DataSnapshot dataSnapshot) {
+    this.dataSnapshot = dataSnapshot;
+  }
+
+  @Override
+  public TournamentAnalytics fetchByYear(Integer year) {
+    return dataSnapshot.getTournamentAnalytics(year);
+  }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Breeds new network layer structures (complete neuron layer descriptors: input layer, hidden
+ * layers, output layer) from existing ones, for an evolutionary search of network architectures.
+ * Only the hidden layers ever change.
+ * <ul>
+ * <li>Mutation: grow or shrink one hidden layer (by up to half), add a hidden layer, or remove one.</li>
+ * <li>Crossover: the first hidden layers of one parent, followed by the last hidden layers of the other.</li>
+ * </ul>
+ * Every hidden layer has between {@link #getMinNeuronsPerLayer()} and {@link #getMaxNeuronsPerLayer()}
+ * neurons, and there are between one and <code>maxHiddenLayers</code> hidden layers.
+ * 
+ * All of the randomness comes from the Random passed in, so the same seed breeds the same networks.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class ArchitectureEvolver {
+
+  /**
+   * The odds that a child is bred from two parents rather than being a mutation of one
+   */
+  public static final double CROSSOVER_PROBABILITY = 0.5;
+
+  private final int numberOfInputs;
+  private final int numberOfOutputs;
+  private final int maxHiddenLayers;
+
+  public ArchitectureEvolver(int numberOfInputs, int numberOfOutputs, int maxHiddenLayers) {
+    this.numberOfInputs = numberOfInputs;
+    this.numberOfOutputs = numberOfOutputs;
+    this.maxHiddenLayers = maxHiddenLayers;
+  }
+
+  /**
+   * @return int - the fewest neurons a hidden layer can have (as many as the output layer).
+   */
+  public int getMinNeuronsPerLayer() {
+    return numberOfOutputs;
+  }
+
+  /**
+   * @return int - the most neurons a hidden layer can have (twice as many as the input layer).
+   */
+  public int getMaxNeuronsPerLayer() {
+    return Math.max(getMinNeuronsPerLayer(), 2 * numberOfInputs);
+  }
+
+  /**
+   * Breeds a child from the specified population: picks a parent (or two, see
+   * {@link #CROSSOVER_PROBABILITY}) by tournament selection, crosses them over (if there are
+   * two), and mutates the result.
+   * 
+   * @param rankedPopulation
+   *          The population, best first.
+   * @param random
+   *          Where the random numbers come from.
+   * 
+   * @return List<Integer> - the child's complete neuron layer descriptor.
+   */
+  public List<Integer> breed(List<List<Integer>> rankedPopulation, Random random) {
+    List<Integer> child = selectParent(rankedPopulation, random);
+    if (rankedPopulation.size() > 1 && random.nextDouble() < CROSSOVER_PROBABILITY) {
+      child = crossover(child, selectParent(rankedPopulation, random), random);
+    }
+    return mutate(child, random);
+  }
+
+  /**
+   * Tournament selection: the better of two individuals picked at random.
+   */
+  private static List<Integer> selectParent(List<List<Integer>> rankedPopulation, Random random) {
+    int contender = random.nextInt(rankedPopulation.size());
+    int otherContender = random.nextInt(rankedPopulation.size());
+    return rankedPopulation.get(Math.min(contender, otherContender));
+  }
+
+  /**
+   * @return List<Integer> - a copy of the specified network, with one (random) change to its
+   *         hidden layers.
+   */
+  public List<Integer> mutate(List<Integer> neuronLayerDescriptor, Random random) {
+    List<Integer> hiddenLayers = extractHiddenLayers(neuronLayerDescriptor);
+    int mutation = random.nextInt(3);
+    if (mutation == 1 && hiddenLayers.size() < maxHiddenLayers) {
+      //
+      // Add a layer, about the size of the layer in front of it
+      int position = random.nextInt(hiddenLayers.size() + 1);
+      int neighborSize = (position == 0) ? hiddenLayers.get(0) : hiddenLayers.get(position - 1);
+      hiddenLayers.add(position, resize(neighborSize, random));
+    } else if (mutation == 2 && hiddenLayers.size() > 1) {
+      //
+      // Remove a layer
+      hiddenLayers.remove(random.nextInt(hiddenLayers.size()));
+    } else {
+      //
+      // Resize a layer
+      int position = random.nextInt(hiddenLayers.size());
+      hiddenLayers.set(position, resize(hiddenLayers.get(position), random));
+    }
+    return createNeuronLayerDescriptor(hiddenLayers);
+  }
+
+  /**
+   * @return List<Integer> - a network whose hidden layers are the first hidden layers of
+   *         <code>parent</code> followed by the last hidden layers of <code>otherParent</code>
+   *         (at least one from each, if there's room).
+   */
+  public List<Integer> crossover(List<Integer> parent, List<Integer> otherParent, Random random) {
+    List<Integer> hiddenLayers = extractHiddenLayers(parent);
+    List<Integer> otherHiddenLayers = extractHiddenLayers(otherParent);
+    List<Integer> childHiddenLayers = new ArrayList<>();
+    childHiddenLayers.addAll(hiddenLayers.subList(0, 1 + random.nextInt(hiddenLayers.size())));
+    childHiddenLayers.addAll(otherHiddenLayers.subList(random.nextInt(otherHiddenLayers.size()),
+        otherHiddenLayers.size()));
+    while (childHiddenLayers.size() > maxHiddenLayers) {
+      childHiddenLayers.remove(childHiddenLayers.size() / 2);
+    }
+    return createNeuronLayerDescriptor(childHiddenLayers);
+  }
+
+  /**
+   * @return int - the specified layer size, grown or shrunk by up to half (and by at least one
+   *         neuron), kept within the min and max layer sizes.
+   */
+  private int resize(int layerSize, Random random) {
+    int maxChange = Math.max(1, layerSize / 2);
+    int change = 1 + random.nextInt(maxChange);
+    int ret = (random.nextBoolean()) ? layerSize + change : layerSize - change;
+    return Math.max(getMinNeuronsPerLayer(), Math.min(getMaxNeuronsPerLayer(), ret));
+  }
+
+  private static List<Integer> extractHiddenLayers(List<Integer> neuronLayerDescriptor) {
+    return new ArrayList<>(neuronLayerDescriptor.subList(1, neuronLayerDescriptor.size() - 1));
+  }
+
+  private List<Integer> createNeuronLayerDescriptor(List<Integer> hiddenLayers) {
+    List<Integer> ret = new ArrayList<>(hiddenLayers.size() + 2);
+    ret.add(numberOfInputs);
+    ret.addAll(hiddenLayers);
+    ret.add(numberOfOutputs);
+    return ret;
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * How well a single CTV iteration did: the winning percentage and symmetric winning percentage
+ * of its network in validation (the same numbers {@link MlpNetworkTrainer#networkShouldBeSaved}
+ * looks at), and the network error when training stopped. A network that was never validated
+ * (because its error was too high, and its CTV iteration wasn't one that always validates) has
+ * winning percentages of zero.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public final class CtvIterationScore {
+
+  /**
+   * Best score first: highest winning percentage, then highest symmetric winning percentage,
+   * then lowest network error.
+   */
+  public static final Comparator<CtvIterationScore> BEST_FIRST = Comparator
+      .comparingDouble(CtvIterationScore::getWinPercentage).reversed()
+      .thenComparing(Comparator.comparingDouble(CtvIterationScore::getSymmetricWinPercentage).reversed())
+      .thenComparingDouble(CtvIterationScore::getNetworkError);
+
+  private final double winPercentage;
+  private final double symmetricWinPercentage;
+  private final double networkError;
+
+  public CtvIterationScore(double winPercentage, double symmetricWinPercentage, double networkError) {
+    this.winPercentage = winPercentage;
+    this.symmetricWinPercentage = symmetricWinPercentage;
+    this.networkError = networkError;
+  }
+
+  /**
+   * @param iterationMetrics
+   *          The metrics of a completed CTV iteration (not the accumulated metrics).
+   * 
+   * @return CtvIterationScore - the score of the CTV iteration.
+   */
+  public static CtvIterationScore fromMetrics(NetworkMetrics iterationMetrics) {
+    int numberOfGames = iterationMetrics.getNumberOfGamesThisIteration();
+    if (numberOfGames == 0) {
+      return new CtvIterationScore(0.0, 0.0, iterationMetrics.getNetworkError());
+    }
+    return new CtvIterationScore(100.0 * iterationMetrics.getNumberOfWinsThisIteration() / numberOfGames,
+        100.0 * iterationMetrics.getNumberOfSymmetricWinsThisIteration() / numberOfGames,
+        iterationMetrics.getNetworkError());
+  }
+
+  /**
+   * @return CtvIterationScore - the average of the specified scores (there must be at least one).
+   */
+  public static CtvIterationScore average(List<CtvIterationScore> scores) {
+    double winPercentage = 0.0;
+    double symmetricWinPercentage = 0.0;
+    double networkError = 0.0;
+    for (CtvIterationScore score : scores) {
+      winPercentage += score.winPercentage;
+      symmetricWinPercentage += score.symmetricWinPercentage;
+      networkError += score.networkError;
+    }
+    return new CtvIterationScore(winPercentage / scores.size(), symmetricWinPercentage / scores.size(),
+        networkError / scores.size());
+  }
+
+  /**
+   * Reads a score written by {@link #write(DataOutput)}.
+   */
+  public static CtvIterationScore read(DataInput in) throws IOException {
+    return new CtvIterationScore(in.readDouble(), in.readDouble(), in.readDouble());
+  }
+
+  public void write(DataOutput out) throws IOException {
+    out.writeDouble(winPercentage);
+    out.writeDouble(symmetricWinPercentage);
+    out.writeDouble(networkError);
+  }
+
+  public double getWinPercentage() {
+    return winPercentage;
+  }
+
+  public double getSymmetricWinPercentage() {
+    return symmetricWinPercentage;
+  }
+
+  public double getNetworkError() {
+    return networkError;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("win %.2f%%, symmetric win %.2f%%, network error %.5f", winPercentage,
+        symmetricWinPercentage, networkError);
+  }
+
+}
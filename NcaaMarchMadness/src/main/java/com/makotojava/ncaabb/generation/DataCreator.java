@@ -19,12 +19,14 @@ import com.makotojava.ncaabb.dao.SeasonAnalyticsDao;
 import com.makotojava.ncaabb.dao.SeasonDataDao;
 import com.makotojava.ncaabb.dao.TournamentAnalyticsDao;
 import com.makotojava.ncaabb.dao.TournamentResultDao;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
 import com.makotojava.ncaabb.model.NormalizedData;
 import com.makotojava.ncaabb.model.SeasonAnalytics;
 import com.makotojava.ncaabb.model.SeasonData;
 import com.makotojava.ncaabb.model.TournamentAnalytics;
 import com.makotojava.ncaabb.model.TournamentResult;
 import com.makotojava.ncaabb.springconfig.ApplicationConfig;
+import com.makotojava.ncaabb.util.NetworkConfiguration;
 import com.makotojava.ncaabb.util.NetworkProperties;
 import com.makotojava.ncaabb.util.NetworkUtils;
 import com.makotojava.ncaabb.util.StatsUtils;
@@ -35,9 +37,15 @@ import org.neuroph.core.data.DataSetRow;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Creates data used to train Multi-layer Perceptron (MLP) networks.
@@ -53,13 +61,20 @@ public class DataCreator {
   private SeasonAnalyticsDao seasonAnalyticsDao;
   private TournamentAnalyticsDao tournamentAnalyticsDao;
 
+  /**
+   * The (already validated) configuration
+   */
+  private final NetworkConfiguration configuration;
+
   /**
    * Constructor.
    *
    * @param applicationContext The Spring ApplicationContext object that
    *                           contains the environment.
+   * @param configuration      The configuration to create the data with.
    */
-  public DataCreator(ApplicationContext applicationContext) {
+  public DataCreator(ApplicationContext applicationContext, NetworkConfiguration configuration) {
+    this.configuration = configuration;
     seasonDataDao = applicationContext.getBean(SeasonDataDao.class);
     tournamentResultDao = applicationContext.getBean(TournamentResultDao.class);
     seasonAnalyticsDao = applicationContext.getBean(SeasonAnalyticsDao.class);
@@ -77,9 +92,12 @@ public class DataCreator {
       System.exit(-1);
     }
     //
+    // Parse (and validate) the configuration before doing anything else
+    NetworkConfiguration configuration = NetworkProperties.getConfiguration();
+    //
     // Let's kick the tires and light the fires
     DataCreator trainingDataCreator = new DataCreator(
-      new AnnotationConfigApplicationContext(ApplicationConfig.class));
+      new AnnotationConfigApplicationContext(ApplicationConfig.class), configuration);
     //
     // First let's figure out what year(s) we are running.
     Integer[] yearsForTraining = trainingDataCreator.computeYearsToTrain(args);
@@ -147,17 +165,31 @@ public class DataCreator {
    */
   public static DataSetRow processAsDataSetRowForSimulation(SeasonAnalytics seasonAnalytics, SeasonData team1SeasonData,
                                                             SeasonData team2SeasonData) {
+    return processAsDataSetRowForSimulation(new FeatureNormalizer(seasonAnalytics), team1SeasonData, team2SeasonData);
+  }
+
+  /**
+   * Creates a single row of normalized data used to run against a trained network (i.e., a simulation,
+   * or prediction). Use this one when creating more than one row for the same year.
+   *
+   * @param featureNormalizer The FeatureNormalizer for the year, used to compute the normalized data.
+   * @param team1SeasonData The first Team's {@link SeasonData}.
+   * @param team2SeasonData The second Team's {@link SeasonData}.
+   * @return DataSetRow - the row of normalized data that will be used for training the network.
+   */
+  public static DataSetRow processAsDataSetRowForSimulation(FeatureNormalizer featureNormalizer,
+                                                            SeasonData team1SeasonData, SeasonData team2SeasonData) {
     DataSetRow ret;
     //
     // Normalize the data
-    NormalizedData normalizedData = new NormalizedData(seasonAnalytics, team1SeasonData, team2SeasonData);
+    NormalizedData normalizedData = new NormalizedData(featureNormalizer, team1SeasonData, team2SeasonData);
     //
     // Convert the normalized data to a double[] containing both input and output data
     /// so it can be run through the network
     double[] inputAndOutput = normalizedData.asInputAndOutput();
     //
     // Create the DataSetRow object Neuroph is expecting
-    ret = createDataSetRow(inputAndOutput);
+    ret = createDataSetRow(inputAndOutput, NetworkProperties.getConfiguration());
     return ret;
   }
 
@@ -165,14 +197,16 @@ public class DataCreator {
    * Create a Neuroph DataSetRow from the specified double array.
    *
    * @param inputAndOutput The double[] of data containing both input and output.
+   * @param configuration  The configuration (says how many inputs and outputs there are).
    * @return
    */
-  private static DataSetRow createDataSetRow(double[] inputAndOutput) {
+  private static DataSetRow createDataSetRow(double[] inputAndOutput, NetworkConfiguration configuration) {
     DataSetRow ret = new DataSetRow();
+    int numberOfInputs = configuration.getNumberOfInputs();
+    int numberOfOutputs = configuration.getNumberOfOutputs();
     //
     // Validate/Sanity check
-    int expectedInputAndOutputLength = NetworkProperties.getNumberOfInputs().intValue()
-      + NetworkProperties.getNumberOfOutputs().intValue();
+    int expectedInputAndOutputLength = numberOfInputs + numberOfOutputs;
     //
     // Bail out if something doesn't look right
     if (inputAndOutput.length != expectedInputAndOutputLength) {
@@ -183,15 +217,15 @@ public class DataCreator {
     //
     // Split up the array into input and output
     // Input
-    double[] input = new double[NetworkProperties.getNumberOfInputs()];
-    System.arraycopy(inputAndOutput, 0, input, 0, NetworkProperties.getNumberOfInputs());
+    double[] input = new double[numberOfInputs];
+    System.arraycopy(inputAndOutput, 0, input, 0, numberOfInputs);
     //
     // Output
-    double[] output = new double[NetworkProperties.getNumberOfOutputs()];
+    double[] output = new double[numberOfOutputs];
     //
     // The output is at the end of the <code>inputAndOutput</code> parameter
-    output[0] = inputAndOutput[NetworkProperties.getNumberOfInputs()];
-    output[1] = inputAndOutput[NetworkProperties.getNumberOfInputs() + 1];
+    output[0] = inputAndOutput[numberOfInputs];
+    output[1] = inputAndOutput[numberOfInputs + 1];
     //
     // Now set the input and output
     ret.setInput(input);
@@ -237,8 +271,17 @@ public class DataCreator {
       // Pull the current year's tournament analytics
       TournamentAnalytics tournamentAnalytics = pullTournamentAnalytics(year);
       //
+      // Pull the season data for every team that played in the current year's tournament
+      /// all at once
+      Set<String> teamNames = new LinkedHashSet<>();
+      for (TournamentResult tournamentResult : tournamentResults) {
+        teamNames.add(tournamentResult.getWinningTeamName());
+        teamNames.add(tournamentResult.getLosingTeamName());
+      }
+      Map<String, SeasonData> seasonDataByTeamName = pullSeasonData(year, teamNames);
+      //
       // This is the data that gets written out.
-      DataSet trainingData = new DataSet(NetworkProperties.getNumberOfInputs(), NetworkProperties.getNumberOfOutputs());
+      DataSet trainingData = new DataSet(configuration.getNumberOfInputs(), configuration.getNumberOfOutputs());
       //
       // Loop through each game played in the current year's tournament.
       // Pull the season data for both winner and loser.
@@ -253,8 +296,8 @@ public class DataCreator {
         // Each tournament game
         String winningTeamName = tournamentResult.getWinningTeamName();
         String losingTeamName = tournamentResult.getLosingTeamName();
-        SeasonData seasonDataWinning = pullSeasonData(year, winningTeamName);
-        SeasonData seasonDataLosing = pullSeasonData(year, losingTeamName);
+        SeasonData seasonDataWinning = seasonDataByTeamName.get(winningTeamName);
+        SeasonData seasonDataLosing = seasonDataByTeamName.get(losingTeamName);
         // Winner is LHS, Loser is RHS
         DataSetRow dataSetRow =
           processAsDataSetRowForTraining(seasonAnalytics, tournamentAnalytics, tournamentResult, seasonDataWinning,
@@ -274,8 +317,17 @@ public class DataCreator {
         }
       }
       log.info("*********** SAVING TRAINING DATA **************");
-      String filename = NetworkUtils.computeTrainingDataFileName(year);
-      trainingData.save(filename);
+      //
+      // Saved in the columnar format (see TrainingData), which the trainer memory-maps
+      NetworkUtils.fetchTrainingDirectoryAndCreateIfNecessary();
+      String filename = NetworkUtils.computeColumnarTrainingDataFileName(year);
+      try {
+        TrainingData.write(new File(filename), trainingData);
+      } catch (IOException e) {
+        String message = "Could not save training data file '" + filename + "': " + e.getLocalizedMessage();
+        log.error(message, e);
+        throw new RuntimeException(message, e);
+      }
       int numberOfRows = trainingData.getRows().size();
       log.info("Saved " + numberOfRows + " rows of training data '" + filename + "'");
     }
@@ -292,6 +344,17 @@ public class DataCreator {
     return seasonDataDao.fetchByYearAndTeamName(year, teamName);
   }
 
+  /**
+   * Pulls season data for the specified year and teams, all at once.
+   *
+   * @param year
+   * @param teamNames
+   * @return Map of SeasonData, keyed by team name
+   */
+  protected Map<String, SeasonData> pullSeasonData(Integer year, Collection<String> teamNames) {
+    return seasonDataDao.fetchByYearAndTeamNames(year, teamNames);
+  }
+
   /**
    * @param year
    * @return
@@ -351,7 +414,7 @@ public class DataCreator {
     }
     //
     // Create the DataSetRow object the Neuroph framework expects
-    ret = createDataSetRow(inputAndOutput);
+    ret = createDataSetRow(inputAndOutput, configuration);
     //
     // Return to base
     return ret;
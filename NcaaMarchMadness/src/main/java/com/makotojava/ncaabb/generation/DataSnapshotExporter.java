@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.dao.DataSnapshot;
+import com.makotojava.ncaabb.dao.PooledDataSource;
+import com.makotojava.ncaabb.dao.SeasonAnalyticsDao;
+import com.makotojava.ncaabb.dao.SeasonAnalyticsJdbcDao;
+import com.makotojava.ncaabb.dao.SeasonDataDao;
+import com.makotojava.ncaabb.dao.SeasonDataJdbcDao;
+import com.makotojava.ncaabb.dao.TournamentAnalyticsDao;
+import com.makotojava.ncaabb.dao.TournamentAnalyticsJdbcDao;
+import com.makotojava.ncaabb.dao.TournamentResultDao;
+import com.makotojava.ncaabb.dao.TournamentResultJdbcDao;
+import com.makotojava.ncaabb.model.SeasonAnalytics;
+import com.makotojava.ncaabb.model.SeasonData;
+import com.makotojava.ncaabb.model.TournamentAnalytics;
+import com.makotojava.ncaabb.model.TournamentResult;
+import com.makotojava.ncaabb.springconfig.ApplicationConfig;
+import com.makotojava.ncaabb.util.NetworkUtils;
+
+/**
+ * Exports everything the DAOs serve up for the specified years from the DB into
+ * a {@link DataSnapshot} file, so the other programs can be run without a DB
+ * (set dao.source=snapshot in network.properties).
+ *
+ * Always reads from the DB, no matter what dao.source is set to: the JDBC DAOs are created
+ * directly, without starting up Spring, whose DAO beans would want the very snapshot this
+ * program is supposed to create when dao.source=snapshot.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class DataSnapshotExporter {
+
+  private static final Logger log = Logger.getLogger(DataSnapshotExporter.class);
+
+  private SeasonDataDao seasonDataDao;
+  private TournamentResultDao tournamentResultDao;
+  private SeasonAnalyticsDao seasonAnalyticsDao;
+  private TournamentAnalyticsDao tournamentAnalyticsDao;
+
+  /**
+   * Constructor.
+   *
+   * @param dataSource
+   *          The DataSource for the DB to export from.
+   */
+  public DataSnapshotExporter(DataSource dataSource) {
+    seasonDataDao = new SeasonDataJdbcDao(dataSource);
+    tournamentResultDao = new TournamentResultJdbcDao(dataSource);
+    seasonAnalyticsDao = new SeasonAnalyticsJdbcDao(dataSource);
+    tournamentAnalyticsDao = new TournamentAnalyticsJdbcDao(dataSource);
+  }
+
+  /**
+   * The main (driver) method for this class.
+   *
+   * @param args
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      usage();
+      System.exit(-1);
+    }
+    Integer[] yearsToExport = computeYearsToExport(args);
+    log.info("*********** EXPORTING DATA SNAPSHOT **************");
+    log.info("Exporting data for the following years: " + ReflectionToStringBuilder.toString(yearsToExport));
+    String snapshotFileName = NetworkUtils.computeSnapshotFileName();
+    try (PooledDataSource dataSource = ApplicationConfig.createDataSource()) {
+      DataSnapshotExporter dataSnapshotExporter = new DataSnapshotExporter(dataSource);
+      dataSnapshotExporter.go(yearsToExport, snapshotFileName);
+    }
+  }
+
+  /**
+   * Displayed if the program was invoked incorrectly.
+   */
+  protected static void usage() {
+    System.out.println("Usage: ");
+    System.out.println("\t" + DataSnapshotExporter.class.getSimpleName()
+        + " YEAR_1 YEAR_2 ... YEAR_N");
+    System.out.println("\t Where:");
+    System.out.println("\t YEAR_x is a year whose data is to be exported to the snapshot file");
+    System.out.println("\t Multiple years are separated by spaces.");
+    System.out.println("Example:");
+    System.out.println("\t" + DataSnapshotExporter.class.getSimpleName()
+        + " 2010 2011 2012 2013 2014 2015 2016 2017");
+    System.out.println("Exports data for 2010 through 2017");
+  }
+
+  protected static Integer[] computeYearsToExport(String[] args) {
+    Integer[] ret = new Integer[args.length];
+    for (int aa = 0; aa < args.length; aa++) {
+      ret[aa] = Integer.valueOf(args[aa]);
+      NetworkUtils.validateYear(ret[aa]);
+    }
+    return ret;
+  }
+
+  /**
+   * Pulls the data for the specified years from the DB and writes it to the
+   * specified snapshot file.
+   *
+   * @param yearsToExport
+   *          The years whose data is to be exported.
+   * @param snapshotFileName
+   *          The name of the snapshot file to write (overwritten if it exists).
+   */
+  public void go(Integer[] yearsToExport, String snapshotFileName) {
+    DataSnapshot dataSnapshot = new DataSnapshot();
+    for (Integer year : yearsToExport) {
+      List<SeasonData> seasonData = seasonDataDao.fetchAllByYear(year);
+      SeasonAnalytics seasonAnalytics = seasonAnalyticsDao.fetchByYear(year);
+      List<TournamentResult> tournamentResults = tournamentResultDao.fetchAllByYear(year);
+      TournamentAnalytics tournamentAnalytics = tournamentAnalyticsDao.fetchByYear(year);
+      if (seasonData.isEmpty()) {
+        log.warn("No season data in the DB for year " + year + ", did you forget to load it?");
+      }
+      dataSnapshot.addYear(year, seasonData, seasonAnalytics, tournamentResults, tournamentAnalytics);
+      log.info("Year " + year + ": " + seasonData.size() + " teams, " + tournamentResults.size()
+          + " tournament games");
+    }
+    try {
+      dataSnapshot.write(snapshotFileName);
+    } catch (IOException e) {
+      String message = "Could not write data snapshot file " + snapshotFileName + ": " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+  }
+
+}
@@ -0,0 +1,690 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.util.NetworkConfiguration;
+import com.makotojava.ncaabb.util.NetworkProperties;
+import com.makotojava.ncaabb.util.NetworkUtils;
+
+/**
+ * Append-only record of every CTV iteration {@link MlpNetworkTrainer} has ever run: what was
+ * trained (see {@link ExperimentKey}: layer structure, training years, simulation years and
+ * hyperparameters), with which seeds, and how it did. So a new run can skip (or at least put off)
+ * the configurations that have been run plenty of times already, and the results of past runs
+ * live somewhere other than log files and network file names.
+ *
+ * When the store is opened, every record is read and indexed (by {@link ExperimentKey}, see
+ * {@link ExperimentSummary}), so lookups never touch the file. Records are only ever appended,
+ * one write per record, and each record carries its own checksum: if a run dies in the middle
+ * of writing one, the partial record is found (and cut off) the next time the store is opened,
+ * and every record before it is still good. A bad record anywhere but the end means the file
+ * itself got damaged: it is skipped (loudly), and every good record after it is still read.
+ *
+ * File layout (big endian): int magic number, int format version, then the records, each one an
+ * int length, that many bytes of {@link ExperimentRecord}, and an int CRC-32 of those bytes.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class ExperimentStore {
+
+  private static final Logger log = Logger.getLogger(ExperimentStore.class);
+
+  /**
+   * "NCXS", so we know it's one of ours
+   */
+  public static final int MAGIC_NUMBER = 0x4E435853;
+
+  /**
+   * Bump this any time the file layout changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_LENGTH = 2 * Integer.BYTES;
+
+  /**
+   * Way bigger than any real record, so a garbage length is spotted before trying to read it
+   */
+  private static final int MAX_RECORD_LENGTH = 1024 * 1024;
+
+  private final File storeFile;
+
+  /**
+   * The summary of every configuration in the store, in the order they first appear
+   */
+  private final Map<ExperimentKey, ExperimentSummary> index = new LinkedHashMap<>();
+
+  /**
+   * Every CTV iteration in the store (run seed and CTV iteration index), so a resumed run that
+   * runs a CTV iteration again doesn't record it twice
+   */
+  private final Set<List<Long>> recordedCtvIterations = new HashSet<>();
+
+  private int numberOfRecords;
+
+  private ExperimentStore(File storeFile) {
+    this.storeFile = storeFile;
+  }
+
+  /**
+   * The main entry point for the report: logs the summary of every configuration in the
+   * store (the one in the {@link NetworkConfiguration}), best first.
+   * 
+   * @param args
+   *          Not used.
+   */
+  public static void main(String[] args) {
+    NetworkConfiguration configuration = NetworkProperties.getConfiguration();
+    File storeFile = new File(configuration.getBaseDirectory(), configuration.getExperimentStoreFileName());
+    if (!storeFile.exists()) {
+      log.info("There is no experiment store at '" + storeFile + "' (yet).");
+      return;
+    }
+    ExperimentStore experimentStore;
+    try {
+      experimentStore = open(storeFile);
+    } catch (IOException e) {
+      String message = "Could not open experiment store '" + storeFile + "': " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+    List<ExperimentSummary> summaries = experimentStore.getSummaries();
+    Collections.sort(summaries, ExperimentSummary.BEST_FIRST);
+    log.info("**** " + experimentStore.getNumberOfRecords() + " CTV ITERATIONS OF " + summaries.size()
+        + " CONFIGURATIONS, BEST FIRST ****");
+    for (ExperimentSummary summary : summaries) {
+      log.info(summary);
+    }
+  }
+
+  /**
+   * Opens the specified store, creating it if it doesn't exist, and indexes every record in it.
+   * A partial (or otherwise bad) record at the end of the file (left behind by a run that died
+   * while writing it) is cut off. A bad record anywhere else is skipped (and logged), but left
+   * alone, along with every good record after it.
+   *
+   * @param storeFile
+   *          The store file.
+   *
+   * @return ExperimentStore - the store.
+   *
+   * @throws IOException
+   *           If the file cannot be read or written, or is not a store file this code understands
+   *           (including one too short to hold the whole header).
+   */
+  public static ExperimentStore open(File storeFile) throws IOException {
+    ExperimentStore ret = new ExperimentStore(storeFile);
+    if (!storeFile.exists() || storeFile.length() == 0) {
+      File parentDirectory = storeFile.getAbsoluteFile().getParentFile();
+      if (parentDirectory != null) {
+        parentDirectory.mkdirs();
+      }
+      //
+      // Write the header to a temp file, then move it into place, so a store file always has
+      /// a whole header
+      File tempFile = new File(storeFile.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+        out.writeInt(MAGIC_NUMBER);
+        out.writeInt(FORMAT_VERSION);
+      }
+      Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      return ret;
+    }
+    long goodLength = ret.load();
+    if (goodLength < storeFile.length()) {
+      log.warn("Experiment store '" + storeFile + "' ends with a partial record (" + (storeFile.length() - goodLength)
+          + " bytes), cutting it off.");
+      try (FileChannel channel = FileChannel.open(storeFile.toPath(), StandardOpenOption.WRITE)) {
+        channel.truncate(goodLength);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Reads and indexes every intact record in the store. If a record is bad, the rest of the
+   * file is searched for the next intact record (the length and checksum have to check out),
+   * and reading picks up from there.
+   *
+   * @return long - the length of the file up to the end of the last good record (anything after
+   *         that is a bad record with no good records after it).
+   */
+  private long load() throws IOException {
+    ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(storeFile.toPath()));
+    if (contents.limit() < HEADER_LENGTH) {
+      throw new IOException("File " + storeFile.getName() + " is only " + contents.limit()
+          + " bytes long, which is too short to be an experiment store file!");
+    }
+    if (contents.getInt(0) != MAGIC_NUMBER) {
+      throw new IOException("File " + storeFile.getName() + " is not an experiment store file!");
+    }
+    int formatVersion = contents.getInt(Integer.BYTES);
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IOException("Experiment store file " + storeFile.getName() + " is format version "
+          + formatVersion + ", but only version " + FORMAT_VERSION + " is supported.");
+    }
+    long ret = HEADER_LENGTH;
+    int position = HEADER_LENGTH;
+    while (position < contents.limit()) {
+      ExperimentRecord record = readRecord(contents, position);
+      if (record != null) {
+        index(record);
+        position += Integer.BYTES + contents.getInt(position) + Integer.BYTES;
+        ret = position;
+      } else {
+        int nextRecordPosition = position + 1;
+        while (nextRecordPosition < contents.limit() && readRecord(contents, nextRecordPosition) == null) {
+          nextRecordPosition++;
+        }
+        if (nextRecordPosition >= contents.limit()) {
+          //
+          // Nothing good after it: the partial record at the end (see open())
+          break;
+        }
+        log.error("EXPERIMENT STORE '" + storeFile + "' IS DAMAGED: " + (nextRecordPosition - position)
+            + " bytes at offset " + position + " are not a good record. Skipping them, the "
+            + "records after them are fine, but whatever was recorded there is lost.");
+        position = nextRecordPosition;
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @return ExperimentRecord - the record at the specified position in the contents, or null if
+   *         there isn't an intact one there.
+   */
+  private static ExperimentRecord readRecord(ByteBuffer contents, int position) {
+    if (position + Integer.BYTES > contents.limit()) {
+      return null;
+    }
+    int length = contents.getInt(position);
+    if (length <= 0 || length > MAX_RECORD_LENGTH
+        || (long) position + Integer.BYTES + length + Integer.BYTES > contents.limit()) {
+      return null;
+    }
+    int recordPosition = position + Integer.BYTES;
+    if (contents.getInt(recordPosition + length) != computeChecksum(contents.array(), recordPosition, length)) {
+      return null;
+    }
+    try {
+      return ExperimentRecord.read(new DataInputStream(new ByteArrayInputStream(contents.array(), recordPosition,
+          length)));
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static int computeChecksum(byte[] bytes, int offset, int length) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes, offset, length);
+    return (int) crc32.getValue();
+  }
+
+  private static int computeChecksum(byte[] bytes) {
+    return computeChecksum(bytes, 0, bytes.length);
+  }
+
+  private void index(ExperimentRecord record) {
+    ExperimentSummary summary = index.get(record.getKey());
+    if (summary == null) {
+      summary = new ExperimentSummary(record.getKey());
+      index.put(record.getKey(), summary);
+    }
+    summary.add(record);
+    recordedCtvIterations.add(Arrays.asList(record.getRunSeed(), (long) record.getCtvIterationIndex()));
+    numberOfRecords++;
+  }
+
+  /**
+   * Appends the specified record to the store (and the index), unless the CTV iteration is in
+   * the store already. Safe to call from multiple threads.
+   *
+   * @param record
+   *          The record.
+   *
+   * @return boolean - true if the record was appended, false if it was already there.
+   *
+   * @throws IOException
+   *           If the record could not be written (in which case it isn't indexed either).
+   */
+  public synchronized boolean append(ExperimentRecord record) throws IOException {
+    if (recordedCtvIterations.contains(Arrays.asList(record.getRunSeed(), (long) record.getCtvIterationIndex()))) {
+      return false;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      record.write(out);
+    }
+    byte[] recordBytes = bytes.toByteArray();
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + recordBytes.length + Integer.BYTES);
+    buffer.putInt(recordBytes.length);
+    buffer.put(recordBytes);
+    buffer.putInt(computeChecksum(recordBytes));
+    //
+    // One write (and it goes all the way to the disk), so the record is either all there, or it's
+    /// the partial record at the end that gets cut off.
+    try (FileOutputStream out = new FileOutputStream(storeFile, true)) {
+      out.write(buffer.array());
+      out.getChannel().force(false);
+    }
+    index(record);
+    return true;
+  }
+
+  /**
+   * @return ExperimentSummary - the summary of every CTV iteration of the specified configuration,
+   *         or null if it's never been run.
+   */
+  public synchronized ExperimentSummary getSummary(ExperimentKey key) {
+    ExperimentSummary summary = index.get(key);
+    return (summary == null) ? null : summary.copy();
+  }
+
+  /**
+   * @return List - the summary of every configuration in the store, in the order they were first run.
+   */
+  public synchronized List<ExperimentSummary> getSummaries() {
+    List<ExperimentSummary> ret = new ArrayList<>(index.size());
+    for (ExperimentSummary summary : index.values()) {
+      ret.add(summary.copy());
+    }
+    return ret;
+  }
+
+  /**
+   * @return int - the number of CTV iterations in the store.
+   */
+  public synchronized int getNumberOfRecords() {
+    return numberOfRecords;
+  }
+
+  public File getStoreFile() {
+    return storeFile;
+  }
+
+  /**
+   * What was trained: the layer structure of the network, the years its training data came from,
+   * the years it was validated against, and the hyperparameters it was trained with (by property
+   * name, see {@link #create(List, Integer[], Integer[], NetworkConfiguration, int)}). Two CTV
+   * iterations with equal keys differ only in their seeds.
+   * 
+   * @author J Steven Perry
+   *
+   */
+  public static final class ExperimentKey {
+
+    private final List<Integer> neuronLayerDescriptor;
+    private final Integer[] yearsForTrainingData;
+    private final Integer[] yearsToSimulate;
+    private final SortedMap<String, String> hyperparameters;
+    /**
+     * Everything above, as one String (which is what equals() and hashCode() go by)
+     */
+    private final String description;
+
+    public ExperimentKey(List<Integer> neuronLayerDescriptor, Integer[] yearsForTrainingData,
+        Integer[] yearsToSimulate, SortedMap<String, String> hyperparameters) {
+      this.neuronLayerDescriptor = Collections.unmodifiableList(new ArrayList<>(neuronLayerDescriptor));
+      this.yearsForTrainingData = yearsForTrainingData.clone();
+      this.yearsToSimulate = yearsToSimulate.clone();
+      this.hyperparameters = Collections.unmodifiableSortedMap(new TreeMap<>(hyperparameters));
+      this.description = NetworkUtils.generateLayerStructureString(neuronLayerDescriptor) + " trained on "
+          + Arrays.toString(yearsForTrainingData) + " validated against " + Arrays.toString(yearsToSimulate) + " "
+          + this.hyperparameters;
+    }
+
+    /**
+     * Creates the key for a CTV iteration trained with the specified configuration.
+     * 
+     * @param neuronLayerDescriptor
+     *          The complete layer structure of the network.
+     * @param yearsForTrainingData
+     *          The years the training data comes from.
+     * @param yearsToSimulate
+     *          The years the network is validated against.
+     * @param configuration
+     *          Where the hyperparameters come from.
+     * @param maxLearningIterations
+     *          The max number of epochs the CTV iteration trains for (which depends on the search
+     *          strategy, so it doesn't come from the configuration).
+     * 
+     * @return ExperimentKey - the key.
+     */
+    public static ExperimentKey create(List<Integer> neuronLayerDescriptor, Integer[] yearsForTrainingData,
+        Integer[] yearsToSimulate, NetworkConfiguration configuration, int maxLearningIterations) {
+      SortedMap<String, String> hyperparameters = new TreeMap<>();
+      hyperparameters.put("epoch.break.iteration.count", Integer.toString(configuration.getEpochBreakIterationCount()));
+      hyperparameters.put("learning.rule.is.batch.mode", Boolean.toString(configuration.getLearningRuleIsBatchMode()));
+      hyperparameters.put("learning.rule.learning.rate", Double.toString(configuration.getLearningRuleLearningRate()));
+      if (configuration.getRandomizeMomentum()) {
+        hyperparameters.put("learning.rule.momentum.max", Double.toString(configuration.getLearningRuleMomentumMax()));
+        hyperparameters.put("learning.rule.momentum.min", Double.toString(configuration.getLearningRuleMomentumMin()));
+      } else {
+        hyperparameters.put("momentum.default.value", Double.toString(configuration.getMomentumDefaultValue()));
+      }
+      hyperparameters.put("max.learning.iterations", Integer.toString(maxLearningIterations));
+      hyperparameters.put("max.network.error", Double.toString(configuration.getMaxNetworkError()));
+      hyperparameters.put("max.network.error.uptrend", Double.toString(configuration.getMaxNetworkErrorUptrend()));
+      hyperparameters.put("max.weight", Double.toString(configuration.getMaxWeight()));
+      hyperparameters.put("min.max.weight", Double.toString(configuration.getMinMaxWeight()));
+      hyperparameters.put("min.min.weight", Double.toString(configuration.getMinMinWeight()));
+      hyperparameters.put("min.weight", Double.toString(configuration.getMinWeight()));
+      hyperparameters.put("use.bias.neurons", Boolean.toString(configuration.getUseBiasNeurons()));
+      return new ExperimentKey(neuronLayerDescriptor, yearsForTrainingData, yearsToSimulate, hyperparameters);
+    }
+
+    /**
+     * Reads a key written by {@link #write(DataOutput)}.
+     */
+    public static ExperimentKey read(DataInput in) throws IOException {
+      List<Integer> neuronLayerDescriptor = TrainingCheckpoint.readNeuronLayerDescriptor(in);
+      Integer[] yearsForTrainingData = TrainingCheckpoint.readYears(in);
+      Integer[] yearsToSimulate = TrainingCheckpoint.readYears(in);
+      int numberOfHyperparameters = in.readInt();
+      SortedMap<String, String> hyperparameters = new TreeMap<>();
+      for (int aa = 0; aa < numberOfHyperparameters; aa++) {
+        hyperparameters.put(in.readUTF(), in.readUTF());
+      }
+      return new ExperimentKey(neuronLayerDescriptor, yearsForTrainingData, yearsToSimulate, hyperparameters);
+    }
+
+    public void write(DataOutput out) throws IOException {
+      TrainingCheckpoint.writeNeuronLayerDescriptor(out, neuronLayerDescriptor);
+      TrainingCheckpoint.writeYears(out, yearsForTrainingData);
+      TrainingCheckpoint.writeYears(out, yearsToSimulate);
+      out.writeInt(hyperparameters.size());
+      for (Map.Entry<String, String> hyperparameter : hyperparameters.entrySet()) {
+        out.writeUTF(hyperparameter.getKey());
+        out.writeUTF(hyperparameter.getValue());
+      }
+    }
+
+    public List<Integer> getNeuronLayerDescriptor() {
+      return neuronLayerDescriptor;
+    }
+
+    public Integer[] getYearsForTrainingData() {
+      return yearsForTrainingData.clone();
+    }
+
+    public Integer[] getYearsToSimulate() {
+      return yearsToSimulate.clone();
+    }
+
+    public SortedMap<String, String> getHyperparameters() {
+      return hyperparameters;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof ExperimentKey && description.equals(((ExperimentKey) other).description);
+    }
+
+    @Override
+    public int hashCode() {
+      return description.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+
+  }
+
+  /**
+   * A single CTV iteration: what was trained, the seeds it was trained with (see
+   * {@link MlpNetworkTrainer.CtvIteration}), and how it did.
+   * 
+   * @author J Steven Perry
+   *
+   */
+  public static final class ExperimentRecord {
+
+    private final ExperimentKey key;
+    private final long runSeed;
+    private final int ctvIterationIndex;
+    private final long trainingDataSeed;
+    private final long networkSeed;
+    private final long timestamp;
+    private final CtvIterationScore score;
+    private final boolean aborted;
+    private final boolean networkSaved;
+    private final long learnTime;
+
+    /**
+     * Constructor.
+     * 
+     * @param key
+     *          What was trained.
+     * @param runSeed
+     *          The seed of the run the CTV iteration belongs to.
+     * @param ctvIterationIndex
+     *          The position of the CTV iteration in the run.
+     * @param trainingDataSeed
+     *          The seed the training data was shuffled with.
+     * @param networkSeed
+     *          The seed of everything else that is random about the network.
+     * @param timestamp
+     *          When the CTV iteration completed (millis since the epoch).
+     * @param score
+     *          How it did.
+     * @param aborted
+     *          Whether the network error was too high for the network to be validated.
+     * @param networkSaved
+     *          Whether the network was good enough to be saved.
+     * @param learnTime
+     *          How long training took (millis).
+     */
+    public ExperimentRecord(ExperimentKey key, long runSeed, int ctvIterationIndex, long trainingDataSeed,
+        long networkSeed, long timestamp, CtvIterationScore score, boolean aborted, boolean networkSaved,
+        long learnTime) {
+      this.key = key;
+      this.runSeed = runSeed;
+      this.ctvIterationIndex = ctvIterationIndex;
+      this.trainingDataSeed = trainingDataSeed;
+      this.networkSeed = networkSeed;
+      this.timestamp = timestamp;
+      this.score = score;
+      this.aborted = aborted;
+      this.networkSaved = networkSaved;
+      this.learnTime = learnTime;
+    }
+
+    /**
+     * Reads a record written by {@link #write(DataOutput)}.
+     */
+    public static ExperimentRecord read(DataInput in) throws IOException {
+      return new ExperimentRecord(ExperimentKey.read(in), in.readLong(), in.readInt(), in.readLong(), in.readLong(),
+          in.readLong(), CtvIterationScore.read(in), in.readBoolean(), in.readBoolean(), in.readLong());
+    }
+
+    public void write(DataOutput out) throws IOException {
+      key.write(out);
+      out.writeLong(runSeed);
+      out.writeInt(ctvIterationIndex);
+      out.writeLong(trainingDataSeed);
+      out.writeLong(networkSeed);
+      out.writeLong(timestamp);
+      score.write(out);
+      out.writeBoolean(aborted);
+      out.writeBoolean(networkSaved);
+      out.writeLong(learnTime);
+    }
+
+    public ExperimentKey getKey() {
+      return key;
+    }
+
+    public long getRunSeed() {
+      return runSeed;
+    }
+
+    public int getCtvIterationIndex() {
+      return ctvIterationIndex;
+    }
+
+    public long getTrainingDataSeed() {
+      return trainingDataSeed;
+    }
+
+    public long getNetworkSeed() {
+      return networkSeed;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public CtvIterationScore getScore() {
+      return score;
+    }
+
+    public boolean isAborted() {
+      return aborted;
+    }
+
+    public boolean isNetworkSaved() {
+      return networkSaved;
+    }
+
+    public long getLearnTime() {
+      return learnTime;
+    }
+
+  }
+
+  /**
+   * Every CTV iteration of one configuration, rolled up: how many there were, how many were
+   * aborted or saved, and the average and best scores.
+   * 
+   * @author J Steven Perry
+   *
+   */
+  public static final class ExperimentSummary {
+
+    /**
+     * Best (average) score first (see {@link CtvIterationScore#BEST_FIRST}).
+     */
+    public static final Comparator<ExperimentSummary> BEST_FIRST =
+        Comparator.comparing(ExperimentSummary::getAverageScore, CtvIterationScore.BEST_FIRST);
+
+    private final ExperimentKey key;
+    private int numberOfRuns;
+    private int numberOfAbortedRuns;
+    private int numberOfSavedNetworks;
+    private double totalWinPercentage;
+    private double totalSymmetricWinPercentage;
+    private double totalNetworkError;
+    private CtvIterationScore bestScore;
+
+    ExperimentSummary(ExperimentKey key) {
+      this.key = key;
+    }
+
+    private void add(ExperimentRecord record) {
+      CtvIterationScore score = record.getScore();
+      numberOfRuns++;
+      numberOfAbortedRuns += (record.isAborted()) ? 1 : 0;
+      numberOfSavedNetworks += (record.isNetworkSaved()) ? 1 : 0;
+      totalWinPercentage += score.getWinPercentage();
+      totalSymmetricWinPercentage += score.getSymmetricWinPercentage();
+      totalNetworkError += score.getNetworkError();
+      if (bestScore == null || CtvIterationScore.BEST_FIRST.compare(score, bestScore) < 0) {
+        bestScore = score;
+      }
+    }
+
+    private ExperimentSummary copy() {
+      ExperimentSummary ret = new ExperimentSummary(key);
+      ret.numberOfRuns = numberOfRuns;
+      ret.numberOfAbortedRuns = numberOfAbortedRuns;
+      ret.numberOfSavedNetworks = numberOfSavedNetworks;
+      ret.totalWinPercentage = totalWinPercentage;
+      ret.totalSymmetricWinPercentage = totalSymmetricWinPercentage;
+      ret.totalNetworkError = totalNetworkError;
+      ret.bestScore = bestScore;
+      return ret;
+    }
+
+    public ExperimentKey getKey() {
+      return key;
+    }
+
+    /**
+     * @return int - the number of CTV iterations of the configuration.
+     */
+    public int getNumberOfRuns() {
+      return numberOfRuns;
+    }
+
+    public int getNumberOfAbortedRuns() {
+      return numberOfAbortedRuns;
+    }
+
+    public int getNumberOfSavedNetworks() {
+      return numberOfSavedNetworks;
+    }
+
+    public CtvIterationScore getAverageScore() {
+      return new CtvIterationScore(totalWinPercentage / numberOfRuns, totalSymmetricWinPercentage / numberOfRuns,
+          totalNetworkError / numberOfRuns);
+    }
+
+    public CtvIterationScore getBestScore() {
+      return bestScore;
+    }
+
+    @Override
+    public String toString() {
+      return key + ": " + numberOfRuns + " runs (" + numberOfAbortedRuns + " aborted, " + numberOfSavedNetworks
+          + " saved), average " + getAverageScore() + ", best " + bestScore;
+    }
+
+  }
+
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.neuroph.core.Connection;
+import org.neuroph.core.Layer;
+import org.neuroph.core.NeuralNetwork;
+import org.neuroph.core.Neuron;
+import org.neuroph.core.input.WeightedSum;
+import org.neuroph.core.transfer.Sigmoid;
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.neuroph.nnet.comp.neuron.BiasNeuron;
+import org.neuroph.nnet.learning.BackPropagation;
+import org.neuroph.util.NeuronProperties;
+import org.neuroph.util.TransferFunctionType;
+
+/**
+ * A fully connected, sigmoid multilayer perceptron that keeps all of its weights
+ * in a single contiguous <code>double[]</code>, rather than in Neuroph's
+ * object-per-neuron/object-per-connection graph.
+ *
+ * The weights for layer <code>l</code> (1 through the output layer) form a row-major
+ * matrix with one row per neuron in layer <code>l</code> and one column per neuron
+ * in layer <code>l-1</code>, plus a final column for the bias neuron (which always
+ * outputs 1). If the network does not use bias neurons, the bias column is zero.
+ *
+ * The forward pass does not allocate: all intermediate values live in a {@link Workspace}.
+ * Workspaces are not thread safe, but the network itself is (as long as nobody is
+ * training it at the time), so give each thread its own Workspace. The forward pass
+ * sums the weighted inputs in the same order Neuroph does (neurons of the previous
+ * layer, then the bias), and computes the sigmoid the same way, so a network copied
+ * from a Neuroph {@link org.neuroph.nnet.MultiLayerPerceptron} produces the same outputs.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class FlatMlpNetwork {
+
+  private static final Logger log = Logger.getLogger(FlatMlpNetwork.class);
+
+  /**
+   * Neuroph's Sigmoid saturates net input beyond these values (to keep
+   * Math.exp() out of trouble). We do the same.
+   */
+  private static final double SIGMOID_MAX_NET_INPUT = 100.0;
+  private static final double SIGMOID_MIN_NET_INPUT = -100.0;
+
+  /**
+   * The number of neurons in each layer (bias neurons not included). Element 0
+   * is the input layer, the last element is the output layer.
+   */
+  private final int[] layerSizes;
+
+  /**
+   * Whether or not each layer feeds a bias neuron to the next one. The output
+   * layer never does.
+   */
+  private final boolean[] layerHasBias;
+
+  /**
+   * Offset into {@link #weights} of the weight matrix for each layer. Element 0 (the
+   * input layer has no weights) is not used.
+   */
+  private final int[] weightOffsets;
+
+  /**
+   * All of the weights, one layer after another.
+   */
+  private final double[] weights;
+
+  /**
+   * Thread-local Workspace for the convenience version of {@link #calculate(double[], double[])}.
+   */
+  private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(this::createWorkspace);
+
+  /**
+   * Constructor. Creates a network with all weights zero.
+   *
+   * @param neuronLayerDescriptor
+   *          The layer structure, as produced by {@link Networks#getNetworks()}: the 0th
+   *          element is the number of inputs, the last element the number of outputs.
+   * @param useBias
+   *          Whether or not every layer except the output layer has a bias neuron.
+   */
+  public FlatMlpNetwork(List<Integer> neuronLayerDescriptor, boolean useBias) {
+    if (neuronLayerDescriptor.size() < 2) {
+      throw new IllegalArgumentException("A network needs at least an input and an output layer: "
+          + neuronLayerDescriptor);
+    }
+    int numberOfLayers = neuronLayerDescriptor.size();
+    layerSizes = new int[numberOfLayers];
+    layerHasBias = new boolean[numberOfLayers];
+    weightOffsets = new int[numberOfLayers];
+    int numberOfWeights = 0;
+    for (int layerIndex = 0; layerIndex < numberOfLayers; layerIndex++) {
+      layerSizes[layerIndex] = neuronLayerDescriptor.get(layerIndex);
+      layerHasBias[layerIndex] = useBias && layerIndex < numberOfLayers - 1;
+      if (layerIndex > 0) {
+        weightOffsets[layerIndex] = numberOfWeights;
+        numberOfWeights += layerSizes[layerIndex] * (layerSizes[layerIndex - 1] + 1);
+      }
+    }
+    weights = new double[numberOfWeights];
+  }
+
+  /**
+   * Creates a FlatMlpNetwork with the same layer structure and weights as the specified
+   * Neuroph network, which must be a fully connected, sigmoid MLP (which is what the
+   * trainer creates).
+   *
+   * @param network
+   *          The Neuroph network to copy.
+   *
+   * @return FlatMlpNetwork - the new network.
+   */
+  public static FlatMlpNetwork fromNetwork(NeuralNetwork<BackPropagation> network) {
+    List<Integer> neuronLayerDescriptor = new ArrayList<>();
+    boolean useBias = false;
+    for (Layer layer : network.getLayers()) {
+      int neuronsCount = 0;
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronsCount(); neuronIndex++) {
+        if (layer.getNeuronAt(neuronIndex) instanceof BiasNeuron) {
+          useBias = true;
+        } else {
+          neuronsCount++;
+        }
+      }
+      neuronLayerDescriptor.add(neuronsCount);
+    }
+    FlatMlpNetwork ret = new FlatMlpNetwork(neuronLayerDescriptor, useBias);
+    ret.copyWeights(network, true);
+    return ret;
+  }
+
+  /**
+   * Creates a Neuroph MultiLayerPerceptron with the same layer structure and weights as
+   * this network (the opposite of {@link #fromNetwork(NeuralNetwork)}). The neurons are
+   * set up the same way the trainer sets them up.
+   *
+   * @return MultiLayerPerceptron - the new network.
+   */
+  public MultiLayerPerceptron toNetwork() {
+    NeuronProperties neuronProperties = new NeuronProperties();
+    neuronProperties.setProperty("transferFunction", TransferFunctionType.SIGMOID);
+    neuronProperties.setProperty("inputFunction", WeightedSum.class);
+    neuronProperties.setProperty("useBias", layerHasBias[0]);
+    List<Integer> neuronLayerDescriptor = new ArrayList<>(layerSizes.length);
+    for (int layerSize : layerSizes) {
+      neuronLayerDescriptor.add(layerSize);
+    }
+    MultiLayerPerceptron ret = new MultiLayerPerceptron(neuronLayerDescriptor, neuronProperties);
+    copyWeightsTo(ret);
+    return ret;
+  }
+
+  /**
+   * Copies the weights of this network into the specified Neuroph network, which must
+   * have the same layer structure (typically, the network this one was created from).
+   *
+   * @param network
+   *          The Neuroph network whose weights are to be overwritten.
+   */
+  public void copyWeightsTo(NeuralNetwork<BackPropagation> network) {
+    copyWeights(network, false);
+  }
+
+  /**
+   * Walks every connection of the specified Neuroph network, and copies its weight
+   * into (or out of) the matching slot in {@link #weights}.
+   */
+  private void copyWeights(NeuralNetwork<BackPropagation> network, boolean fromNetwork) {
+    if (network.getLayersCount() != layerSizes.length) {
+      throw new IllegalArgumentException("Layer count mismatch: expected " + layerSizes.length + ", got "
+          + network.getLayersCount());
+    }
+    //
+    // Where each neuron in the previous layer lives in a row of the weight matrix
+    /// (the bias neuron always lives in the last column)
+    Map<Neuron, Integer> previousLayerColumns = new IdentityHashMap<>();
+    int layerIndex = 0;
+    for (Layer layer : network.getLayers()) {
+      Map<Neuron, Integer> layerColumns = new IdentityHashMap<>();
+      int row = 0;
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronsCount(); neuronIndex++) {
+        Neuron neuron = layer.getNeuronAt(neuronIndex);
+        if (neuron instanceof BiasNeuron) {
+          layerColumns.put(neuron, layerSizes[layerIndex]);
+          continue;
+        }
+        layerColumns.put(neuron, row);
+        if (layerIndex > 0) {
+          if (!(neuron.getTransferFunction() instanceof Sigmoid)) {
+            String message = "Only Sigmoid neurons are supported, found "
+                + neuron.getTransferFunction().getClass().getName();
+            log.error(message);
+            throw new IllegalArgumentException(message);
+          }
+          int rowOffset = weightOffsets[layerIndex] + row * (layerSizes[layerIndex - 1] + 1);
+          for (Connection connection : neuron.getInputConnections()) {
+            Integer column = previousLayerColumns.get(connection.getFromNeuron());
+            if (column == null) {
+              String message = "Network is not a layered MLP: connection from outside the previous layer";
+              log.error(message);
+              throw new IllegalArgumentException(message);
+            }
+            if (fromNetwork) {
+              weights[rowOffset + column] = connection.getWeight().getValue();
+            } else {
+              connection.getWeight().setValue(weights[rowOffset + column]);
+            }
+          }
+        }
+        row++;
+      }
+      previousLayerColumns = layerColumns;
+      layerIndex++;
+    }
+  }
+
+  /**
+   * Sets every (non-bias, if the network has no bias neurons) weight to a random value
+   * in the range [min, max), just like Neuroph's <code>randomizeWeights(min, max)</code>.
+   */
+  public void randomizeWeights(double minWeight, double maxWeight, Random random) {
+    for (int layerIndex = 1; layerIndex < layerSizes.length; layerIndex++) {
+      int columns = layerSizes[layerIndex - 1] + 1;
+      for (int row = 0; row < layerSizes[layerIndex]; row++) {
+        int rowOffset = weightOffsets[layerIndex] + row * columns;
+        for (int column = 0; column < columns; column++) {
+          if (column < columns - 1 || layerHasBias[layerIndex - 1]) {
+            weights[rowOffset + column] = minWeight + random.nextDouble() * (maxWeight - minWeight);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a new Workspace for use with this network. Workspaces are reusable, but not thread safe.
+   */
+  public Workspace createWorkspace() {
+    return new Workspace(layerSizes);
+  }
+
+  /**
+   * Runs the network on the specified input, and copies the network output into <code>output</code>.
+   * Uses a thread-local Workspace, so it is safe to call from multiple threads at once.
+   *
+   * @param input
+   *          The network input.
+   * @param output
+   *          Where to put the network output (must be at least as big as the output layer).
+   *
+   * @return double[] - <code>output</code>, for convenience.
+   */
+  public double[] calculate(double[] input, double[] output) {
+    double[] ret = calculate(input, workspaces.get());
+    System.arraycopy(ret, 0, output, 0, ret.length);
+    return output;
+  }
+
+  /**
+   * Runs the network on the specified input using the specified Workspace.
+   *
+   * @return double[] - the output layer values, which belong to the Workspace (and so will be
+   *         overwritten by the next call that uses it).
+   */
+  public double[] calculate(double[] input, Workspace workspace) {
+    if (input.length != layerSizes[0]) {
+      throw new IllegalArgumentException("Expected " + layerSizes[0] + " inputs, got " + input.length);
+    }
+    double[][] outputs = workspace.outputs;
+    System.arraycopy(input, 0, outputs[0], 0, input.length);
+    for (int layerIndex = 1; layerIndex < layerSizes.length; layerIndex++) {
+      double[] layerInput = outputs[layerIndex - 1];
+      double[] layerOutput = outputs[layerIndex];
+      int inputsCount = layerSizes[layerIndex - 1];
+      int rowOffset = weightOffsets[layerIndex];
+      for (int row = 0; row < layerSizes[layerIndex]; row++) {
+        double netInput = 0.0;
+        for (int column = 0; column < inputsCount; column++) {
+          netInput += layerInput[column] * weights[rowOffset + column];
+        }
+        if (layerHasBias[layerIndex - 1]) {
+          netInput += weights[rowOffset + inputsCount];
+        }
+        layerOutput[row] = sigmoid(netInput);
+        rowOffset += inputsCount + 1;
+      }
+    }
+    return outputs[layerSizes.length - 1];
+  }
+
+  /**
+   * The sigmoid transfer function, computed exactly the way Neuroph computes it.
+   */
+  public static double sigmoid(double netInput) {
+    if (netInput > SIGMOID_MAX_NET_INPUT) {
+      return 1.0;
+    } else if (netInput < SIGMOID_MIN_NET_INPUT) {
+      return 0.0;
+    }
+    double den = 1 + Math.exp(-netInput);
+    return 1d / den;
+  }
+
+  /**
+   * @return int[] - the number of neurons in each layer (a copy).
+   */
+  public int[] getLayerSizes() {
+    return Arrays.copyOf(layerSizes, layerSizes.length);
+  }
+
+  public int getLayersCount() {
+    return layerSizes.length;
+  }
+
+  public int getInputsCount() {
+    return layerSizes[0];
+  }
+
+  public int getOutputsCount() {
+    return layerSizes[layerSizes.length - 1];
+  }
+
+  public boolean layerHasBias(int layerIndex) {
+    return layerHasBias[layerIndex];
+  }
+
+  /**
+   * @return int - the offset of the weight matrix for the specified layer (1 through
+   *         the output layer) in {@link #getWeights()}.
+   */
+  public int getWeightOffset(int layerIndex) {
+    return weightOffsets[layerIndex];
+  }
+
+  /**
+   * @return double[] - the weights themselves (not a copy). See the class comment for the layout.
+   */
+  public double[] getWeights() {
+    return weights;
+  }
+
+  /**
+   * Scratch space for a forward (and backward) pass through a FlatMlpNetwork: one
+   * array of neuron outputs and one array of neuron errors per layer.
+   *
+   * @author J Steven Perry
+   *
+   */
+  public static class Workspace {
+    final double[][] outputs;
+    final double[][] errors;
+
+    Workspace(int[] layerSizes) {
+      outputs = new double[layerSizes.length][];
+      errors = new double[layerSizes.length][];
+      for (int layerIndex = 0; layerIndex < layerSizes.length; layerIndex++) {
+        outputs[layerIndex] = new double[layerSizes[layerIndex]];
+        errors[layerIndex] = new double[layerSizes[layerIndex]];
+      }
+    }
+  }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.util.Arrays;
+
+import org.neuroph.core.data.DataSet;
+import org.neuroph.core.data.DataSetRow;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork.Workspace;
+
+/**
+ * Online (non-batch) backpropagation with momentum for a {@link FlatMlpNetwork}.
+ * Works the same way as Neuroph's MomentumBackpropagation: for each training row,
+ * run the network, compute the output layer error and update its weights, then
+ * work backwards through the hidden layers doing the same. The network error for
+ * an epoch is the mean squared error (halved, like Neuroph's).
+ *
+ * Nothing is allocated once learning starts.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class FlatMomentumBackpropagation {
+
+  /**
+   * Neuroph's Sigmoid adds this to its derivative to keep neurons that are
+   * saturated (output near 0 or 1) from getting stuck in the "flat spot".
+   * We do the same.
+   */
+  private static final double SIGMOID_DERIVATIVE_FLAT_SPOT_OFFSET = 0.1;
+
+  /**
+   * Gets called after every epoch, and once more when learning stops. This is the
+   * equivalent of a Neuroph LearningEventListener.
+   */
+  public interface EpochListener {
+    void handleEpoch(FlatMomentumBackpropagation learningRule, boolean learningStopped);
+  }
+
+  private final FlatMlpNetwork network;
+  private final Workspace workspace;
+
+  /**
+   * The weight change made for each weight the last time it was updated (the
+   * momentum term). Same layout as the network weights.
+   */
+  private final double[] previousWeightChanges;
+
+  private double learningRate = 0.1;
+  private double momentum = 0.25;
+  private double maxError = 0.01;
+  private int maxIterations = Integer.MAX_VALUE;
+  private int currentIteration;
+  private double totalNetworkError;
+  private volatile boolean stopped;
+  private EpochListener epochListener;
+
+  public FlatMomentumBackpropagation(FlatMlpNetwork network) {
+    this.network = network;
+    this.workspace = network.createWorkspace();
+    this.previousWeightChanges = new double[network.getWeights().length];
+  }
+
+  /**
+   * Trains the network using the rows of the specified DataSet, in the order they appear.
+   */
+  public void learn(DataSet trainingData) {
+    learn(trainingData, 0);
+  }
+
+  /**
+   * Same as {@link #learn(DataSet)}, but picks up where an earlier run left off after
+   * <code>completedIterations</code> epochs (see {@link #learn(double[][], double[][], int)}).
+   */
+  public void learn(DataSet trainingData, int completedIterations) {
+    double[][] inputs = new double[trainingData.size()][];
+    double[][] desiredOutputs = new double[trainingData.size()][];
+    int rowIndex = 0;
+    for (DataSetRow row : trainingData.getRows()) {
+      inputs[rowIndex] = row.getInput();
+      desiredOutputs[rowIndex] = row.getDesiredOutput();
+      rowIndex++;
+    }
+    learn(inputs, desiredOutputs, completedIterations);
+  }
+
+  /**
+   * Trains the network until either the network error drops below the max error, or
+   * the max number of iterations (epochs) have run.
+   *
+   * @param inputs
+   *          The input for each training row.
+   * @param desiredOutputs
+   *          The desired output for each training row.
+   */
+  public void learn(double[][] inputs, double[][] desiredOutputs) {
+    learn(inputs, desiredOutputs, 0);
+  }
+
+  /**
+   * Same as {@link #learn(double[][], double[][])}, but picks up where an earlier run left off
+   * after <code>completedIterations</code> epochs. The weights, the previous weight changes and
+   * the learning parameters must already be what they were at that point, so the run comes out
+   * exactly as if it had never been interrupted.
+   *
+   * @param inputs
+   *          The input for each training row.
+   * @param desiredOutputs
+   *          The desired output for each training row.
+   * @param completedIterations
+   *          The number of epochs already run.
+   */
+  public void learn(double[][] inputs, double[][] desiredOutputs, int completedIterations) {
+    learn(inputs.length, rowIndex -> learnPattern(inputs[rowIndex], desiredOutputs[rowIndex]), completedIterations);
+  }
+
+  /**
+   * Same as {@link #learn(double[][], double[][], int)}, but the rows are read straight out of the
+   * specified {@link TrainingData} (one at a time, into a scratch row), in the specified order.
+   *
+   * @param trainingData
+   *          The training data.
+   * @param rowOrder
+   *          The order to visit the rows in (see {@link TrainingData#computeShuffledOrder(java.util.Random)}).
+   * @param completedIterations
+   *          The number of epochs already run.
+   */
+  public void learn(TrainingData trainingData, int[] rowOrder, int completedIterations) {
+    double[] input = new double[trainingData.getInputSize()];
+    double[] desiredOutput = new double[trainingData.getOutputSize()];
+    learn(rowOrder.length, rowIndex -> {
+      trainingData.readInput(rowOrder[rowIndex], input);
+      trainingData.readDesiredOutput(rowOrder[rowIndex], desiredOutput);
+      return learnPattern(input, desiredOutput);
+    }, completedIterations);
+  }
+
+  /**
+   * Learns a single training row (by index), returning the sum of its squared output errors.
+   */
+  private interface RowLearner {
+    double learnRow(int rowIndex);
+  }
+
+  private void learn(int numberOfRows, RowLearner rowLearner, int completedIterations) {
+    currentIteration = completedIterations;
+    stopped = false;
+    while (!stopped) {
+      double squaredErrorSum = 0.0;
+      for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
+        squaredErrorSum += rowLearner.learnRow(rowIndex);
+      }
+      currentIteration++;
+      totalNetworkError = squaredErrorSum / (2 * numberOfRows);
+      if (epochListener != null) {
+        epochListener.handleEpoch(this, false);
+      }
+      if (totalNetworkError < maxError || currentIteration >= maxIterations) {
+        stopped = true;
+      }
+    }
+    if (epochListener != null) {
+      epochListener.handleEpoch(this, true);
+    }
+  }
+
+  /**
+   * Runs a single training row through the network, and updates the weights.
+   *
+   * @return double - the sum of the squared output errors for the row.
+   */
+  private double learnPattern(double[] input, double[] desiredOutput) {
+    double[] output = network.calculate(input, workspace);
+    double[][] outputs = workspace.outputs;
+    double[][] errors = workspace.errors;
+    double[] weights = network.getWeights();
+    int outputLayerIndex = network.getLayersCount() - 1;
+    //
+    // Output layer first
+    double squaredErrorSum = 0.0;
+    double[] outputErrors = errors[outputLayerIndex];
+    for (int neuronIndex = 0; neuronIndex < output.length; neuronIndex++) {
+      double outputError = desiredOutput[neuronIndex] - output[neuronIndex];
+      squaredErrorSum += outputError * outputError;
+      outputErrors[neuronIndex] = outputError * sigmoidDerivative(output[neuronIndex]);
+    }
+    updateLayerWeights(outputLayerIndex);
+    //
+    // Now the hidden layers, working backwards. Just like Neuroph, the error of
+    /// each layer is computed using the (already updated) weights of the next layer.
+    for (int layerIndex = outputLayerIndex - 1; layerIndex > 0; layerIndex--) {
+      double[] layerOutputs = outputs[layerIndex];
+      double[] layerErrors = errors[layerIndex];
+      double[] nextLayerErrors = errors[layerIndex + 1];
+      int columns = layerOutputs.length + 1;
+      int nextLayerOffset = network.getWeightOffset(layerIndex + 1);
+      for (int neuronIndex = 0; neuronIndex < layerOutputs.length; neuronIndex++) {
+        double errorSum = 0.0;
+        for (int nextNeuronIndex = 0; nextNeuronIndex < nextLayerErrors.length; nextNeuronIndex++) {
+          errorSum += nextLayerErrors[nextNeuronIndex] * weights[nextLayerOffset + nextNeuronIndex * columns + neuronIndex];
+        }
+        layerErrors[neuronIndex] = errorSum * sigmoidDerivative(layerOutputs[neuronIndex]);
+      }
+      updateLayerWeights(layerIndex);
+    }
+    return squaredErrorSum;
+  }
+
+  /**
+   * Updates the weights of the specified layer using the errors (already) computed for it:
+   * weight change = learning rate * error * input + momentum * previous weight change.
+   */
+  private void updateLayerWeights(int layerIndex) {
+    double[] weights = network.getWeights();
+    double[] layerInputs = workspace.outputs[layerIndex - 1];
+    double[] layerErrors = workspace.errors[layerIndex];
+    boolean hasBias = network.layerHasBias(layerIndex - 1);
+    int weightIndex = network.getWeightOffset(layerIndex);
+    for (int neuronIndex = 0; neuronIndex < layerErrors.length; neuronIndex++) {
+      double scaledError = learningRate * layerErrors[neuronIndex];
+      for (int inputIndex = 0; inputIndex < layerInputs.length; inputIndex++, weightIndex++) {
+        double weightChange = scaledError * layerInputs[inputIndex] + momentum * previousWeightChanges[weightIndex];
+        previousWeightChanges[weightIndex] = weightChange;
+        weights[weightIndex] += weightChange;
+      }
+      if (hasBias) {
+        // The bias neuron's output is always 1
+        double weightChange = scaledError + momentum * previousWeightChanges[weightIndex];
+        previousWeightChanges[weightIndex] = weightChange;
+        weights[weightIndex] += weightChange;
+      }
+      weightIndex++;
+    }
+  }
+
+  private static double sigmoidDerivative(double output) {
+    return output * (1d - output) + SIGMOID_DERIVATIVE_FLAT_SPOT_OFFSET;
+  }
+
+  /**
+   * Forgets the previous weight changes. Call this after the weights have been changed
+   * out from under the learning rule (randomized, say), so the old momentum doesn't
+   * get applied to the new weights.
+   */
+  public void clearPreviousWeightChanges() {
+    Arrays.fill(previousWeightChanges, 0.0);
+  }
+
+  /**
+   * @return double[] - the previous weight changes (the momentum term), same layout as the
+   *         network weights. This is the live array, not a copy.
+   */
+  public double[] getPreviousWeightChanges() {
+    return previousWeightChanges;
+  }
+
+  /**
+   * Restores the previous weight changes (from {@link #getPreviousWeightChanges()}), when
+   * resuming a run.
+   */
+  public void setPreviousWeightChanges(double[] previousWeightChanges) {
+    if (previousWeightChanges.length != this.previousWeightChanges.length) {
+      throw new IllegalArgumentException("Expected " + this.previousWeightChanges.length
+          + " previous weight changes, got " + previousWeightChanges.length);
+    }
+    System.arraycopy(previousWeightChanges, 0, this.previousWeightChanges, 0, previousWeightChanges.length);
+  }
+
+  /**
+   * Stops learning at the end of the current epoch.
+   */
+  public void stopLearning() {
+    stopped = true;
+  }
+
+  public FlatMlpNetwork getNetwork() {
+    return network;
+  }
+
+  public double getLearningRate() {
+    return learningRate;
+  }
+
+  public void setLearningRate(double learningRate) {
+    this.learningRate = learningRate;
+  }
+
+  public double getMomentum() {
+    return momentum;
+  }
+
+  public void setMomentum(double momentum) {
+    this.momentum = momentum;
+  }
+
+  public double getMaxError() {
+    return maxError;
+  }
+
+  public void setMaxError(double maxError) {
+    this.maxError = maxError;
+  }
+
+  public int getMaxIterations() {
+    return maxIterations;
+  }
+
+  public void setMaxIterations(int maxIterations) {
+    this.maxIterations = maxIterations;
+  }
+
+  public int getCurrentIteration() {
+    return currentIteration;
+  }
+
+  public double getTotalNetworkError() {
+    return totalNetworkError;
+  }
+
+  public void setEpochListener(EpochListener epochListener) {
+    this.epochListener = epochListener;
+  }
+
+}
@@ -16,28 +16,45 @@
 package com.makotojava.ncaabb.generation;
 
 import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
+import org.neuroph.core.Connection;
+import org.neuroph.core.Layer;
 import org.neuroph.core.NeuralNetwork;
+import org.neuroph.core.Neuron;
+import org.neuroph.core.Weight;
 import org.neuroph.core.data.DataSet;
-import org.neuroph.core.data.DataSetRow;
 import org.neuroph.core.events.LearningEvent;
 import org.neuroph.core.events.LearningEventListener;
 import org.neuroph.core.input.WeightedSum;
 import org.neuroph.nnet.MultiLayerPerceptron;
 import org.neuroph.nnet.learning.BackPropagation;
 import org.neuroph.nnet.learning.MomentumBackpropagation;
+import org.neuroph.nnet.learning.MomentumBackpropagation.MomentumWeightTrainingData;
 import org.neuroph.util.NeuronProperties;
 import org.neuroph.util.TransferFunctionType;
 import org.springframework.context.ApplicationContext;
@@ -46,10 +63,17 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 import com.makotojava.ncaabb.dao.SeasonAnalyticsDao;
 import com.makotojava.ncaabb.dao.SeasonDataDao;
 import com.makotojava.ncaabb.dao.TournamentResultDao;
+import com.makotojava.ncaabb.generation.ExperimentStore.ExperimentKey;
+import com.makotojava.ncaabb.generation.ExperimentStore.ExperimentRecord;
+import com.makotojava.ncaabb.generation.ExperimentStore.ExperimentSummary;
+import com.makotojava.ncaabb.generation.TrainingCheckpoint.EpochSnapshot;
+import com.makotojava.ncaabb.generation.ValidationFixture.ValidationGame;
 import com.makotojava.ncaabb.model.SeasonAnalytics;
 import com.makotojava.ncaabb.model.SeasonData;
 import com.makotojava.ncaabb.model.TournamentResult;
+import com.makotojava.ncaabb.simulation.BatchNetworkEvaluator;
 import com.makotojava.ncaabb.springconfig.ApplicationConfig;
+import com.makotojava.ncaabb.util.NetworkConfiguration;
 import com.makotojava.ncaabb.util.NetworkProperties;
 import com.makotojava.ncaabb.util.NetworkUtils;
 
@@ -68,20 +92,91 @@ public class MlpNetworkTrainer implements LearningEventListener {
    */
   public static final TransferFunctionType NEURON_PROPERTY_TRANSFER_FUNCTION = TransferFunctionType.SIGMOID;
 
+  /**
+   * Value of the <code>network.engine</code> property that says to train networks using
+   * {@link FlatMlpNetwork} rather than the Neuroph network itself.
+   */
+  public static final String NETWORK_ENGINE_FLAT = NetworkConfiguration.NETWORK_ENGINE_FLAT;
+
+  /**
+   * Command line option (ahead of the years) that picks up an earlier run from its checkpoint
+   * rather than starting over.
+   */
+  public static final String RESUME_OPTION = "--resume";
+
+  /**
+   * When CTV iterations run on worker threads, how many (per worker) can be submitted, or
+   * finished but not yet accumulated, at once. Enough to keep every worker busy while the
+   * oldest one is accumulated, without holding on to a trained network for every CTV iteration.
+   */
+  static final int MAX_CTV_ITERATIONS_IN_FLIGHT_PER_WORKER = 2;
+
   private SeasonDataDao seasonDataDao;
   private TournamentResultDao tournamentResultDao;
   private SeasonAnalyticsDao seasonAnalyticsDao;
 
   /**
-   * The network metrics cache
+   * The (already validated) configuration. Read all the time (every epoch, even), so
+   * it's read from here, never from the properties file.
+   */
+  private final NetworkConfiguration configuration;
+
+  /**
+   * The network metrics cache. Every network that is being trained gets its own
+   * NetworkMetrics object for the duration of its CTV iteration, so CTV iterations
+   * running concurrently never step on each other's numbers.
+   */
+  private Map<MultiLayerPerceptron, NetworkMetrics> networkMetricsCache = new ConcurrentHashMap<>();
+
+  /**
+   * The random number generator of each network being trained by Neuroph (used to nudge the
+   * network from the learning event listener). Same idea as the network metrics cache.
+   */
+  private Map<MultiLayerPerceptron, Random> networkRandomCache = new ConcurrentHashMap<>();
+
+  /**
+   * Where every completed CTV iteration is recorded (see {@link ExperimentStore})
+   */
+  private ExperimentStore experimentStore;
+
+  /**
+   * Guards the state of the run that goes into a checkpoint (everything from here on down),
+   * which is updated by the thread driving the run as CTV iterations complete, and read by
+   * whichever thread happens to write a checkpoint.
    */
-  private Map<MultiLayerPerceptron, NetworkMetrics> networkMetricsCache =
-      new HashMap<MultiLayerPerceptron, NetworkMetrics>();
+  private final Object checkpointLock = new Object();
 
   /**
-   * The network cache
+   * The metrics for each network layer structure, accumulated over all CTV iterations
+   * in the order the iterations were scheduled (so a concurrent run produces the same
+   * numbers as a serial one). Only updated by the thread driving the run.
    */
-  private Map<List<Integer>, MultiLayerPerceptron> networkCache = new HashMap<>();
+  private Map<List<Integer>, NetworkMetrics> layerStructureMetrics = new LinkedHashMap<>();
+
+  /**
+   * The seed every random number of the run is derived from (see {@link CtvIteration}).
+   */
+  private long runSeed;
+  private Integer[] yearsForTrainingData;
+  private Integer[] yearsToSimulate;
+  private List<List<Integer>> networksToTry;
+
+  /**
+   * The score of each CTV iteration (in the order they were scheduled) that has been accumulated
+   */
+  private List<CtvIterationScore> ctvIterationScores = new ArrayList<>();
+
+  /**
+   * The latest snapshot of each CTV iteration that is part way through training, by CTV iteration
+   * index (flat network engine only).
+   */
+  private Map<Integer, EpochSnapshot> epochSnapshots = new TreeMap<>();
+
+  private long lastCheckpointTime;
+
+  protected NetworkConfiguration getConfiguration() {
+    return configuration;
+  }
 
   public SeasonData pullSeasonData(Integer year, String teamName) {
     return seasonDataDao.fetchByYearAndTeamName(year, teamName);
@@ -100,8 +195,11 @@ public class MlpNetworkTrainer implements LearningEventListener {
    * with the DAOs it needs to function.
    * 
    * @param applicationContext
+   * @param configuration
+   *          The configuration to train with.
    */
-  public MlpNetworkTrainer(ApplicationContext applicationContext) {
+  public MlpNetworkTrainer(ApplicationContext applicationContext, NetworkConfiguration configuration) {
+    this.configuration = configuration;
     seasonDataDao = applicationContext.getBean(SeasonDataDao.class);
     tournamentResultDao = applicationContext.getBean(TournamentResultDao.class);
     seasonAnalyticsDao = applicationContext.getBean(SeasonAnalyticsDao.class);
@@ -113,14 +211,17 @@ public class MlpNetworkTrainer implements LearningEventListener {
    * @param args
    */
   public static void main(String[] args) {
-    if (args.length < 2) {
+    if (args.length < 2 || (RESUME_OPTION.equals(args[0]) && args.length < 3)) {
       usage();
       System.exit(-1);
     }
     //
+    // Parse (and validate) the configuration before doing anything else
+    NetworkConfiguration configuration = NetworkProperties.getConfiguration();
+    //
     // Create the network generator
     MlpNetworkTrainer generator = new MlpNetworkTrainer(
-        new AnnotationConfigApplicationContext(ApplicationConfig.class));
+        new AnnotationConfigApplicationContext(ApplicationConfig.class), configuration);
     generator.go(args);
   }
 
@@ -130,67 +231,649 @@ public class MlpNetworkTrainer implements LearningEventListener {
    * @param args
    */
   public void go(String[] args) {
-    Integer[] yearsForTrainingData = computeYearsToTrain(args);
-    Integer[] yearsToSimulate = computeYearsToSimulate(args);
     //
-    // Load the training data. It's the same for all networks, for all iterations,
-    /// so just do it once.
-    DataSet trainingData = loadTrainingData(yearsForTrainingData);
+    // The resume option (if there is one) comes ahead of the years
+    boolean resume = args.length > 0 && RESUME_OPTION.equals(args[0]);
+    String[] yearArgs = (resume) ? Arrays.copyOfRange(args, 1, args.length) : args;
+    yearsForTrainingData = computeYearsToTrain(yearArgs);
+    yearsToSimulate = computeYearsToSimulate(yearArgs);
+    TrainingCheckpoint checkpoint = (resume) ? loadCheckpoint() : null;
+    if (!resume && configuration.getTrainingCheckpointIntervalSeconds() > 0 && computeCheckpointFile().exists()) {
+      log.warn("Checkpoint file '" + computeCheckpointFile() + "' will be overwritten by this run (use "
+          + RESUME_OPTION + " to resume the run it belongs to instead)");
+    }
+    experimentStore = openExperimentStore();
     //
-    // Setup the networks we will try out
-    List<List<Integer>> networks = setupNetworksToTry();
+    // Setup the networks we will try out. A resumed run tries the same networks it was
+    /// trying before (they may have been picked at random).
+    networksToTry = (checkpoint == null) ? skipAlreadyRunNetworks(setupNetworksToTry()) : checkpoint.getNetworks();
+    if (networksToTry.isEmpty()) {
+      log.info("Every network has been trained " + configuration.getExperimentStoreMaxRuns()
+          + " times already (see experiment.store.max.runs). Nothing to do.");
+      return;
+    }
     log.info("**** NETWORKS TO BE USED (LAYER STRUCTURE) ****");
-    for (List<Integer> network : networks) {
+    for (List<Integer> network : networksToTry) {
       String layerStructure = NetworkUtils.generateLayerStructureString(network);
       log.info(layerStructure);
     }
     //
-    // Start at iteration #1
-    int iterationNumber = 1;
+    // Load the training data. It's the same for all networks, for all iterations,
+    /// so just do it once.
+    TrainingData trainingData = loadTrainingData(yearsForTrainingData);
+    //
+    // Same goes for the validation data: pull it from the DB and normalize it once.
+    ValidationFixture validationFixture = createValidationFixture(yearsToSimulate);
     //
-    // The MLP Network
-    MultiLayerPerceptron network;
+    // Every random number in the run is derived from the run seed, so a resumed run
+    /// hands each CTV iteration the same seeds it got the first time around.
+    runSeed = (checkpoint == null) ? new Random().nextLong() : checkpoint.getRunSeed();
+    log.info("Run seed: " + runSeed);
+    Random runRandom = new Random(runSeed);
     //
-    // Iterate until max iterations is reached.
-    while (iterationNumber <= NetworkProperties.getMaxNetworkIterations()) {
+    synchronized (checkpointLock) {
+      if (checkpoint != null) {
+        layerStructureMetrics.putAll(checkpoint.getLayerStructureMetrics());
+        epochSnapshots.putAll(checkpoint.getEpochSnapshots());
+        ctvIterationScores.addAll(checkpoint.getCtvIterationScores());
+      }
+      lastCheckpointTime = System.currentTimeMillis();
+    }
+    runSearch(new CtvIterationFactory(trainingData, validationFixture, runRandom));
+    logFinalGeneratorStats();
+    //
+    // The run is complete, so there is nothing left to resume
+    deleteCheckpoint();
+  }
+
+  /**
+   * Opens the experiment store (creating it if there isn't one yet).
+   * 
+   * @return ExperimentStore - the store.
+   */
+  private ExperimentStore openExperimentStore() {
+    File storeFile = new File(configuration.getBaseDirectory(), configuration.getExperimentStoreFileName());
+    try {
+      ExperimentStore ret = ExperimentStore.open(storeFile);
+      log.info("Experiment store '" + storeFile + "' holds " + ret.getNumberOfRecords() + " CTV iterations.");
+      return ret;
+    } catch (IOException e) {
+      String message = "Could not open experiment store '" + storeFile + "': " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+  }
+
+  /**
+   * Looks up each of the specified networks in the experiment store (trained with the years and
+   * hyperparameters of this run, for the whole training budget). The ones that have been trained
+   * {@link NetworkConfiguration#getExperimentStoreMaxRuns()} times already are skipped, and the
+   * rest are put in order of how many times they've been trained before, fewest first.
+   * 
+   * @param networks
+   *          The networks to try.
+   * 
+   * @return List - the networks to try that haven't been tried enough already.
+   */
+  private List<List<Integer>> skipAlreadyRunNetworks(List<List<Integer>> networks) {
+    int maxRuns = configuration.getExperimentStoreMaxRuns();
+    Map<List<Integer>, Integer> numberOfRunsByNetwork = new LinkedHashMap<>();
+    for (List<Integer> network : networks) {
+      ExperimentSummary summary = experimentStore.getSummary(createExperimentKey(network,
+          configuration.getMaxLearningIterations()));
+      int numberOfRuns = (summary == null) ? 0 : summary.getNumberOfRuns();
+      if (summary != null) {
+        log.info("Network " + NetworkUtils.generateLayerStructureString(network) + " has been trained "
+            + numberOfRuns + " times before: average " + summary.getAverageScore() + ", best "
+            + summary.getBestScore());
+      }
+      if (maxRuns > 0 && numberOfRuns >= maxRuns) {
+        log.info("Skipping network " + NetworkUtils.generateLayerStructureString(network)
+            + " (see experiment.store.max.runs)");
+      } else {
+        numberOfRunsByNetwork.put(network, numberOfRuns);
+      }
+    }
+    List<List<Integer>> ret = new ArrayList<>(numberOfRunsByNetwork.keySet());
+    ret.sort(Comparator.comparing(numberOfRunsByNetwork::get));
+    return ret;
+  }
+
+  /**
+   * @return ExperimentKey - the experiment store key for training the specified network in this run.
+   */
+  private ExperimentKey createExperimentKey(List<Integer> neuronLayerDescriptor, int maxLearningIterations) {
+    return ExperimentKey.create(neuronLayerDescriptor, yearsForTrainingData, yearsToSimulate, configuration,
+        maxLearningIterations);
+  }
+
+  /**
+   * Records the specified (completed) CTV iteration in the experiment store. If it can't be
+   * recorded, that's logged, and the run goes on.
+   */
+  private void recordExperiment(CtvIteration ctvIteration, NetworkMetrics iterationMetrics,
+      CtvIterationScore score, boolean networkSaved) {
+    ExperimentRecord record = new ExperimentRecord(
+        createExperimentKey(ctvIteration.getNeuronLayerDescriptor(), ctvIteration.getMaxLearningIterations()),
+        runSeed, ctvIteration.getIndex(), ctvIteration.getTrainingDataSeed(), ctvIteration.getNetworkSeed(),
+        System.currentTimeMillis(), score, iterationMetrics.getNumberOfAbortedRuns() > 0, networkSaved,
+        iterationMetrics.getIterationLearnTime());
+    try {
+      experimentStore.append(record);
+    } catch (IOException e) {
+      log.error("Could not record CTV iteration " + ctvIteration.getIndex() + " in experiment store '"
+          + experimentStore.getStoreFile() + "': " + e.getLocalizedMessage(), e);
+    }
+  }
+
+  /**
+   * Trains the networks to try, searching them the way the configuration says to (see
+   * {@link NetworkConfiguration#getSearchStrategy()}). Subclasses may search some other way, as
+   * long as they create their CTV iterations with the specified factory, in an order that depends
+   * only on the scores of earlier CTV iterations (and random numbers derived from the run seed),
+   * so a resumed run creates the same ones.
+   * 
+   * @param ctvIterationFactory
+   *          Creates the CTV iterations.
+   */
+  protected void runSearch(CtvIterationFactory ctvIterationFactory) {
+    if (configuration.useSuccessiveHalvingSearch()) {
+      runSuccessiveHalvingSearch(ctvIterationFactory);
+    } else {
       //
-      for (List<Integer> neuronLayerDescriptor : networks) {
-        //
-        // Loop through the current network a bunch of times
-        log.info("Training the network with DataSet from years " + Arrays.toString(yearsForTrainingData) + " and with "
-            + trainingData.size() + " rows...");
-        log.info("*********** CREATING NEURAL NETWORK **************");
-        //
-        // Now create the network itself
-        network = createNetwork(neuronLayerDescriptor, yearsToSimulate);
-        //
-        // Now train the neural network
-        log.info("*********** TRAINING NEURAL NETWORK **************");
-        trainNetwork(trainingData, network);
-        //
-        // Training complete. Check to see if we're above the max error toleration. If so, abort.
-        if (network.getLearningRule().getTotalNetworkError() > NetworkProperties.getMaxNetworkError()) {
+      // Every network gets the whole budget: trained once per iteration, max iterations times.
+      runCtvIterations(ctvIterationFactory.create(networksToTry, configuration.getMaxNetworkIterations(),
+          configuration.getMaxLearningIterations(), null));
+    }
+  }
+
+  /**
+   * Searches the networks to try using successive halving (see {@link SuccessiveHalvingScheduler}):
+   * every network is trained briefly, and only the best of them (by validation winning percentage,
+   * then symmetric winning percentage, see {@link CtvIterationScore}) get trained some more, round
+   * after round, until the best network is left, and it gets the whole training budget.
+   * <p>
+   * Every CTV iteration of a round that isn't the last one is validated, even if its network error
+   * is above the max (those short rounds are cut off long before most networks get there), so the
+   * survivors are picked by how they do in validation, not just by how far training got. Those
+   * iterations still count as aborted, and their networks are never saved.
+   * <p>
+   * Networks that perform well enough are saved no matter which round they come from.
+   * 
+   * @param ctvIterationFactory
+   *          Creates the CTV iterations for each round.
+   */
+  protected void runSuccessiveHalvingSearch(CtvIterationFactory ctvIterationFactory) {
+    SuccessiveHalvingScheduler scheduler = new SuccessiveHalvingScheduler(networksToTry.size(),
+        configuration.getSearchHalvingFactor(), configuration.getMaxNetworkIterations(),
+        configuration.getMaxLearningIterations());
+    List<List<Integer>> candidates = networksToTry;
+    for (int round = 0; round < scheduler.getNumberOfRounds(); round++) {
+      int numberOfIterations = scheduler.computeNumberOfIterations(round);
+      int maxLearningIterations = scheduler.computeMaxLearningIterations(round);
+      log.info("**** SUCCESSIVE HALVING ROUND " + (round + 1) + " OF " + scheduler.getNumberOfRounds() + ": "
+          + candidates.size() + " networks, " + numberOfIterations + " CTV iterations each, max "
+          + maxLearningIterations + " epochs per iteration ****");
+      List<List<CtvIteration>> ctvIterationsByCandidate = new ArrayList<>();
+      boolean lastRound = round == scheduler.getNumberOfRounds() - 1;
+      List<CtvIteration> ctvIterations = ctvIterationFactory.create(candidates, numberOfIterations,
+          maxLearningIterations, ctvIterationsByCandidate, !lastRound);
+      runCtvIterations(ctvIterations);
+      if (!lastRound) {
+        List<List<CtvIterationScore>> scores = new ArrayList<>();
+        for (int candidateIndex = 0; candidateIndex < candidates.size(); candidateIndex++) {
+          List<CtvIterationScore> candidateScores = new ArrayList<>();
+          for (CtvIteration ctvIteration : ctvIterationsByCandidate.get(candidateIndex)) {
+            candidateScores.add(getCtvIterationScore(ctvIteration));
+          }
+          scores.add(candidateScores);
+          log.info("Network " + NetworkUtils.generateLayerStructureString(candidates.get(candidateIndex))
+              + " average score: " + CtvIterationScore.average(candidateScores));
+        }
+        candidates = scheduler.selectSurvivors(candidates, scores, round);
+        log.info("**** NETWORKS ADVANCING TO ROUND " + (round + 2) + " ****");
+        for (List<Integer> candidate : candidates) {
+          log.info(NetworkUtils.generateLayerStructureString(candidate));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return CtvIterationScore - the score of the specified (completed) CTV iteration.
+   */
+  protected CtvIterationScore getCtvIterationScore(CtvIteration ctvIteration) {
+    synchronized (checkpointLock) {
+      return ctvIterationScores.get(ctvIteration.getIndex());
+    }
+  }
+
+  /**
+   * @return long - the seed every random number of the run is derived from.
+   */
+  protected long getRunSeed() {
+    return runSeed;
+  }
+
+  /**
+   * @return List - the complete layer structure of each network the run started out with.
+   */
+  protected List<List<Integer>> getNetworksToTry() {
+    return networksToTry;
+  }
+
+  /**
+   * Creates CTV iterations, handing out the indexes and seeds in order, from one call to the next.
+   * A resumed run creates exactly the same CTV iterations as the original run did (as long as it
+   * asks for the same ones, in the same order), so only the ones that weren't complete when the
+   * checkpoint was written need to be run.
+   * 
+   * @author J Steven Perry
+   *
+   */
+  protected class CtvIterationFactory {
+
+    private final TrainingData trainingData;
+    private final ValidationFixture validationFixture;
+    private final Random runRandom;
+    private int nextIndex;
+
+    public CtvIterationFactory(TrainingData trainingData, ValidationFixture validationFixture, Random runRandom) {
+      this.trainingData = trainingData;
+      this.validationFixture = validationFixture;
+      this.runRandom = runRandom;
+    }
+
+    /**
+     * Creates the CTV iterations for training each of the specified networks the specified number
+     * of times, in the order a serial run would process them.
+     * 
+     * @param networks
+     *          The networks to train.
+     * @param numberOfIterations
+     *          The number of times to train each one.
+     * @param maxLearningIterations
+     *          The max number of epochs for each CTV iteration.
+     * @param ctvIterationsByCandidate
+     *          If not null, the CTV iterations (complete or not) for each network are added to it,
+     *          in the same order as <code>networks</code>.
+     * 
+     * @return List - the CTV iterations that still need to be run.
+     */
+    public List<CtvIteration> create(List<List<Integer>> networks, int numberOfIterations,
+        int maxLearningIterations, List<List<CtvIteration>> ctvIterationsByCandidate) {
+      return create(networks, numberOfIterations, maxLearningIterations, ctvIterationsByCandidate, false);
+    }
+
+    /**
+     * Same as {@link #create(List, int, int, List)}, but the CTV iterations can be told to
+     * validate their networks even when the network error is above the max.
+     * 
+     * @param alwaysValidate
+     *          Whether or not to validate every network (see {@link CtvIteration#isAlwaysValidated()}).
+     */
+    public List<CtvIteration> create(List<List<Integer>> networks, int numberOfIterations,
+        int maxLearningIterations, List<List<CtvIteration>> ctvIterationsByCandidate, boolean alwaysValidate) {
+      if (ctvIterationsByCandidate != null) {
+        for (int aa = 0; aa < networks.size(); aa++) {
+          ctvIterationsByCandidate.add(new ArrayList<>());
+        }
+      }
+      int numberOfCompletedIterations;
+      synchronized (checkpointLock) {
+        numberOfCompletedIterations = ctvIterationScores.size();
+      }
+      List<CtvIteration> ret = new ArrayList<>();
+      for (int iterationNumber = 1; iterationNumber <= numberOfIterations; iterationNumber++) {
+        for (int networkIndex = 0; networkIndex < networks.size(); networkIndex++) {
+          CtvIteration ctvIteration = new CtvIteration(nextIndex++, networks.get(networkIndex), trainingData,
+              yearsForTrainingData, validationFixture, maxLearningIterations, runRandom.nextLong(),
+              runRandom.nextLong(), alwaysValidate);
+          if (ctvIterationsByCandidate != null) {
+            ctvIterationsByCandidate.get(networkIndex).add(ctvIteration);
+          }
+          if (ctvIteration.getIndex() >= numberOfCompletedIterations) {
+            ret.add(ctvIteration);
+          }
+        }
+      }
+      return ret;
+    }
+
+  }
+
+  /**
+   * @return File - the checkpoint file (which may or may not exist).
+   */
+  protected File computeCheckpointFile() {
+    return new File(configuration.getBaseDirectory(), configuration.getTrainingCheckpointFileName());
+  }
+
+  /**
+   * Loads the checkpoint of the run being resumed, and makes sure it is a checkpoint of
+   * this run (same years, same network engine).
+   * 
+   * @return TrainingCheckpoint - the checkpoint.
+   */
+  private TrainingCheckpoint loadCheckpoint() {
+    File checkpointFile = computeCheckpointFile();
+    TrainingCheckpoint ret;
+    try {
+      ret = TrainingCheckpoint.read(checkpointFile);
+    } catch (IOException e) {
+      String message = "Cannot resume, could not read checkpoint file '" + checkpointFile + "': "
+          + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+    String mismatch = null;
+    if (!Arrays.equals(ret.getYearsForTrainingData(), yearsForTrainingData)
+        || !Arrays.equals(ret.getYearsToSimulate(), yearsToSimulate)) {
+      mismatch = "it trains with years " + Arrays.toString(ret.getYearsForTrainingData()) + " and validates against "
+          + Arrays.toString(ret.getYearsToSimulate());
+    } else if (!ret.getNetworkEngine().equals(configuration.getNetworkEngine())) {
+      mismatch = "it uses the " + ret.getNetworkEngine() + " network engine";
+    } else if (!ret.getSearchStrategy().equals(configuration.getSearchStrategy())) {
+      mismatch = "it uses the " + ret.getSearchStrategy() + " search strategy";
+    }
+    if (mismatch != null) {
+      String message = "Cannot resume, checkpoint file '" + checkpointFile + "' is for a different run: " + mismatch;
+      log.error(message);
+      throw new RuntimeException(message);
+    }
+    log.info("Resuming run from checkpoint file '" + checkpointFile + "': " + ret.getNumberOfCompletedIterations()
+        + " CTV iterations complete, " + ret.getEpochSnapshots().size() + " part way through training.");
+    return ret;
+  }
+
+  /**
+   * Writes a checkpoint if checkpoints are turned on and either <code>force</code> is true
+   * or the checkpoint interval has passed since the last one. Safe to call from any thread.
+   * 
+   * @param force
+   *          Write the checkpoint no matter how recently the last one was written.
+   */
+  private void checkpointIfDue(boolean force) {
+    long checkpointIntervalMillis = configuration.getTrainingCheckpointIntervalSeconds() * 1000L;
+    if (checkpointIntervalMillis == 0) {
+      return;
+    }
+    synchronized (checkpointLock) {
+      long now = System.currentTimeMillis();
+      if (force || now - lastCheckpointTime >= checkpointIntervalMillis) {
+        File checkpointFile = computeCheckpointFile();
+        try {
+          new TrainingCheckpoint(runSeed, yearsForTrainingData, yearsToSimulate, configuration.getNetworkEngine(),
+              configuration.getSearchStrategy(), networksToTry, ctvIterationScores, layerStructureMetrics,
+              epochSnapshots).write(checkpointFile);
+          log.info("Checkpoint written to '" + checkpointFile + "' (" + ctvIterationScores.size()
+              + " CTV iterations complete, " + epochSnapshots.size() + " part way through training)");
+        } catch (IOException e) {
           //
-          // Fetch the metrics
-          NetworkMetrics metrics = networkMetricsCache.get(network);
-          log.error("***** NETWORK ERROR (" + network.getLearningRule().getTotalNetworkError()
-              + ") HIGHER THAN THRESHOLD MAX ("
-              + BigDecimal.valueOf(NetworkProperties.getMaxNetworkError() * 100.0).setScale(2, RoundingMode.HALF_UP)
-                  .toString()
-              + "%). ABORTING! *****");
-          metrics.setNumberOfAbortedRuns(metrics.getNumberOfAbortedRuns() + 1);
-        } else {
-          // We're good to go. Validate the trained network.
-          log.info("*********** VALIDATING NEURAL NETWORK **************");
-          validateNetwork(network);
+          // Not the end of the world: keep training, and try again next time
+          log.error("Could not write checkpoint file '" + checkpointFile + "': " + e.getLocalizedMessage(), e);
         }
+        lastCheckpointTime = now;
+      }
+    }
+  }
+
+  /**
+   * Deletes the checkpoint file (if checkpoints are turned on, and there is one).
+   */
+  private void deleteCheckpoint() {
+    if (configuration.getTrainingCheckpointIntervalSeconds() == 0) {
+      return;
+    }
+    File checkpointFile = computeCheckpointFile();
+    try {
+      if (Files.deleteIfExists(checkpointFile.toPath())) {
+        log.info("Run complete, deleted checkpoint file '" + checkpointFile + "'");
+      }
+    } catch (IOException e) {
+      log.warn("Could not delete checkpoint file '" + checkpointFile + "': " + e.getLocalizedMessage());
+    }
+  }
+
+  /**
+   * Runs the specified CTV iterations, either one after another on the current thread, or
+   * concurrently on a pool of worker threads if {@link NetworkConfiguration#getTrainingWorkerThreads()}
+   * says to use more than one.
+   * <p>
+   * Either way, the results of the CTV iterations are accumulated (and networks saved) in the order
+   * the iterations appear in the specified List, so the stats and the saved networks come out the
+   * same no matter how many workers are used.
+   * 
+   * @param ctvIterations
+   *          The CTV iterations to run.
+   */
+  protected void runCtvIterations(List<CtvIteration> ctvIterations) {
+    int numberOfWorkers = configuration.getTrainingWorkerThreads();
+    if (numberOfWorkers <= 1) {
+      for (CtvIteration ctvIteration : ctvIterations) {
+        accumulateIterationMetrics(ctvIteration, ctvIteration.call());
+      }
+    } else {
+      log.info("Running " + ctvIterations.size() + " CTV iterations using " + numberOfWorkers + " worker threads...");
+      ExecutorService executorService = Executors.newFixedThreadPool(numberOfWorkers);
+      try {
         //
-        // Log iterationStats
-        logIterationStatsForNetwork(network);
+        // Only keep a few CTV iterations per worker in flight (each finished one holds on to a trained
+        /// network until it's accumulated), submitting the next one as the oldest one is accumulated
+        int maxIterationsInFlight = MAX_CTV_ITERATIONS_IN_FLIGHT_PER_WORKER * numberOfWorkers;
+        Deque<Future<MultiLayerPerceptron>> futures = new ArrayDeque<>(maxIterationsInFlight);
+        int numberOfIterationsSubmitted = 0;
+        for (int aa = 0; aa < ctvIterations.size(); aa++) {
+          while (numberOfIterationsSubmitted < ctvIterations.size() && futures.size() < maxIterationsInFlight) {
+            futures.addLast(executorService.submit(ctvIterations.get(numberOfIterationsSubmitted++)));
+          }
+          accumulateIterationMetrics(ctvIterations.get(aa), futures.removeFirst().get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        String message = "Interrupted while waiting for CTV iterations to complete. Cannot continue!";
+        log.error(message, e);
+        throw new RuntimeException(message, e);
+      } catch (ExecutionException e) {
+        String message = "CTV iteration failed. Cannot continue!";
+        log.error(message, e.getCause());
+        throw new RuntimeException(message, e.getCause());
+      } finally {
+        executorService.shutdownNow();
       }
-      iterationNumber++;
     }
-    logFinalGeneratorStats();
+  }
+
+  /**
+   * Runs the specified CTV (Create/Train/Validate) iteration. Safe to call from multiple threads
+   * at once: the network, its {@link NetworkMetrics} and its random number generator are brand
+   * new, and belong to this iteration only.
+   * 
+   * @param ctvIteration
+   *          The CTV iteration to run.
+   * 
+   * @return MultiLayerPerceptron - the trained (and maybe validated) network.
+   */
+  protected MultiLayerPerceptron runCtvIteration(CtvIteration ctvIteration) {
+    List<Integer> neuronLayerDescriptor = ctvIteration.getNeuronLayerDescriptor();
+    TrainingData trainingData = ctvIteration.getTrainingData();
+    Integer[] yearsForTrainingData = ctvIteration.getYearsForTrainingData();
+    ValidationFixture validationFixture = ctvIteration.getValidationFixture();
+    Integer[] yearsToSimulate = validationFixture.getYears().toArray(new Integer[0]);
+    log.info("Training the network with training data from years " + Arrays.toString(yearsForTrainingData) + " and with "
+        + trainingData.size() + " rows...");
+    log.info("*********** CREATING NEURAL NETWORK **************");
+    //
+    // Now create the network itself. Every random number this CTV iteration uses comes from
+    /// its own seed, so it comes out exactly the same every time it is run.
+    Random random = new Random(ctvIteration.getNetworkSeed());
+    MultiLayerPerceptron network = createNetwork(neuronLayerDescriptor, yearsToSimulate,
+        ctvIteration.getMaxLearningIterations(), random);
+    //
+    // Now train the neural network
+    log.info("*********** TRAINING NEURAL NETWORK **************");
+    trainNetwork(trainingData, network, ctvIteration, random);
+    //
+    // Training complete. Check to see if we're above the max error toleration. If so, abort.
+    NetworkMetrics metrics = networkMetricsCache.get(network);
+    boolean aborted = metrics.getNetworkError() > configuration.getMaxNetworkError();
+    if (aborted) {
+      log.error("***** NETWORK ERROR (" + metrics.getNetworkError()
+          + ") HIGHER THAN THRESHOLD MAX ("
+          + BigDecimal.valueOf(configuration.getMaxNetworkError() * 100.0).setScale(2, RoundingMode.HALF_UP)
+              .toString()
+          + "%). ABORTING! *****");
+      metrics.setNumberOfAbortedRuns(metrics.getNumberOfAbortedRuns() + 1);
+    }
+    if (!aborted || ctvIteration.isAlwaysValidated()) {
+      // We're good to go (or need the score anyway). Validate the trained network.
+      log.info("*********** VALIDATING NEURAL NETWORK **************");
+      validateNetwork(network, validationFixture);
+    }
+    return network;
+  }
+
+  /**
+   * Folds the metrics of a completed CTV iteration into the metrics for its network
+   * layer structure, then computes the stats (and saves the network if it is good enough).
+   * Must only be called from the thread driving the run, for one CTV iteration after another
+   * in the order they were scheduled.
+   * 
+   * @param ctvIteration
+   *          The completed CTV iteration.
+   * @param network
+   *          The network from the completed CTV iteration.
+   */
+  private void accumulateIterationMetrics(CtvIteration ctvIteration, MultiLayerPerceptron network) {
+    List<Integer> neuronLayerDescriptor = ctvIteration.getNeuronLayerDescriptor();
+    NetworkMetrics iterationMetrics = networkMetricsCache.get(network);
+    CtvIterationScore score = CtvIterationScore.fromMetrics(iterationMetrics);
+    boolean networkSaved;
+    synchronized (checkpointLock) {
+      NetworkMetrics metrics = layerStructureMetrics.get(neuronLayerDescriptor);
+      if (metrics == null) {
+        metrics = new NetworkMetrics();
+        layerStructureMetrics.put(neuronLayerDescriptor, metrics);
+      }
+      int numberOfAcceptableNetworks = metrics.getNumberOfAcceptableNetworks();
+      metrics.accumulate(iterationMetrics);
+      log.info("* Layer structure of this network  --> " + metrics.getLayerStructure());
+      log.info("* Iteration number for this network --> " + metrics.getNumberOfIterationsSoFar());
+      //
+      // From here on out, the network is judged by the accumulated metrics
+      networkMetricsCache.put(network, metrics);
+      if (iterationMetrics.getNumberOfAbortedRuns() == 0) {
+        //
+        // Calculate stats across all the simulated years and save the network
+        /// if the average over all games picked in those years exceeds the threshold.
+        computeStatsAndSaveNetworkIfNecessary(network);
+      }
+      //
+      // Log iterationStats
+      logIterationStats(metrics);
+      //
+      // Done with this network
+      networkMetricsCache.remove(network);
+      networkSaved = metrics.getNumberOfAcceptableNetworks() > numberOfAcceptableNetworks;
+      ctvIterationScores.add(score);
+      epochSnapshots.remove(ctvIteration.getIndex());
+    }
+    recordExperiment(ctvIteration, iterationMetrics, score, networkSaved);
+    //
+    // A resumed run must not save the same network twice, so checkpoint right away
+    /// whenever a network is saved.
+    checkpointIfDue(networkSaved);
+  }
+
+  /**
+   * A single CTV (Create/Train/Validate) iteration of a single network.
+   * 
+   * Each CTV iteration has its own seeds (drawn from the run seed, in the order the iterations
+   * are scheduled): one for shuffling the training data, and one for everything else that is
+   * random about the network (momentum, weights, nudges). So the iteration comes out the same
+   * no matter which thread runs it, or whether it is run again by a resumed run.
+   * 
+   * @author J Steven Perry
+   *
+   */
+  protected class CtvIteration implements Callable<MultiLayerPerceptron> {
+
+    private final int index;
+    private final List<Integer> neuronLayerDescriptor;
+    private final TrainingData trainingData;
+    private final Integer[] yearsForTrainingData;
+    private final ValidationFixture validationFixture;
+    private final int maxLearningIterations;
+    private final long trainingDataSeed;
+    private final long networkSeed;
+    private final boolean alwaysValidated;
+
+    public CtvIteration(int index, List<Integer> neuronLayerDescriptor, TrainingData trainingData,
+        Integer[] yearsForTrainingData, ValidationFixture validationFixture, int maxLearningIterations,
+        long trainingDataSeed, long networkSeed, boolean alwaysValidated) {
+      this.index = index;
+      this.neuronLayerDescriptor = neuronLayerDescriptor;
+      this.trainingData = trainingData;
+      this.yearsForTrainingData = yearsForTrainingData;
+      this.validationFixture = validationFixture;
+      this.maxLearningIterations = maxLearningIterations;
+      this.trainingDataSeed = trainingDataSeed;
+      this.networkSeed = networkSeed;
+      this.alwaysValidated = alwaysValidated;
+    }
+
+    /**
+     * @return int - the position of this CTV iteration in the order they were scheduled.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public List<Integer> getNeuronLayerDescriptor() {
+      return neuronLayerDescriptor;
+    }
+
+    public TrainingData getTrainingData() {
+      return trainingData;
+    }
+
+    public Integer[] getYearsForTrainingData() {
+      return yearsForTrainingData;
+    }
+
+    public ValidationFixture getValidationFixture() {
+      return validationFixture;
+    }
+
+    /**
+     * @return int - the max number of epochs to train the network for.
+     */
+    public int getMaxLearningIterations() {
+      return maxLearningIterations;
+    }
+
+    public long getTrainingDataSeed() {
+      return trainingDataSeed;
+    }
+
+    public long getNetworkSeed() {
+      return networkSeed;
+    }
+
+    /**
+     * @return boolean - whether or not the network is validated even when its network error is
+     *         above the max (so it still gets a {@link CtvIterationScore} worth comparing). The
+     *         CTV iteration is counted as aborted all the same.
+     */
+    public boolean isAlwaysValidated() {
+      return alwaysValidated;
+    }
+
+    @Override
+    public MultiLayerPerceptron call() {
+      return runCtvIteration(this);
+    }
+
   }
 
   /**
@@ -259,50 +942,49 @@ public class MlpNetworkTrainer implements LearningEventListener {
    *          input layer and output layers)
    * 
    * @param yearsToSimulate
+   * @param maxLearningIterations
+   *          The max number of epochs to train the network for.
+   * @param random
+   *          Where the random momentum and weights come from.
    * @return
    */
   private MultiLayerPerceptron createNetwork(List<Integer> neuronLayerDescriptor,
-      Integer[] yearsToSimulate) {
+      Integer[] yearsToSimulate, int maxLearningIterations, Random random) {
     //
     // First create the NeuronProperties
     NeuronProperties neuronProperties = new NeuronProperties();
     neuronProperties.setProperty("transferFunction", NEURON_PROPERTY_TRANSFER_FUNCTION);
     neuronProperties.setProperty("inputFunction", WeightedSum.class);
-    neuronProperties.setProperty("useBias", NetworkProperties.getUseBiasNeurons());
+    neuronProperties.setProperty("useBias", configuration.getUseBiasNeurons());
 
-    MultiLayerPerceptron network = networkCache.get(neuronLayerDescriptor);
-    if (network == null) {
-      log.info("*********** CREATING NETWORK **************");
-      network = new MultiLayerPerceptron(neuronLayerDescriptor, neuronProperties);
-      networkCache.put(neuronLayerDescriptor, network);
-    }
+    log.info("*********** CREATING NETWORK **************");
+    MultiLayerPerceptron network = new MultiLayerPerceptron(neuronLayerDescriptor, neuronProperties);
     MomentumBackpropagation learningRule = (MomentumBackpropagation) network.getLearningRule();
     //
     // Only use this callback if not in batch mode because Neuroph does not
     /// properly set the total network error, and we get NumberFormatExceptions
     /// when executing that code.
-    if (NetworkProperties.getLearningRuleIsBatchMode() == false) {
+    if (configuration.getLearningRuleIsBatchMode() == false) {
       learningRule.addListener(this);
     }
-    learningRule.setMaxError(NetworkProperties.getMaxNetworkError());
-    learningRule.setMomentum(randomizeMomentum());
-    learningRule.setLearningRate(NetworkProperties.getLearningRuleLearningRate());
-    learningRule.setBatchMode(NetworkProperties.getLearningRuleIsBatchMode());
-    randomizeNetworkWeights(network);
-    learningRule.setMaxIterations(NetworkProperties.getMaxLearningIterations());
+    learningRule.setMaxError(configuration.getMaxNetworkError());
+    learningRule.setMomentum(randomizeMomentum(random));
+    learningRule.setLearningRate(configuration.getLearningRuleLearningRate());
+    learningRule.setBatchMode(configuration.getLearningRuleIsBatchMode());
+    randomizeNetworkWeights(network, random);
+    learningRule.setMaxIterations(maxLearningIterations);
 
     //
     // Create the network metrics (used all over the place)
-    NetworkMetrics metrics = createNetworkMetrics(network, yearsToSimulate, neuronLayerDescriptor, neuronProperties);
-    log.info("* Layer structure of this network  --> " + metrics.getLayerStructure());
-    log.info("* Iteration number for this network --> " + metrics.getNumberOfIterationsSoFar());
+    createNetworkMetrics(network, yearsToSimulate, neuronLayerDescriptor, neuronProperties);
 
     return network;
   }
 
   /**
    * Create the {@link NetworkMetrics} object. It is used to keep track of information about
-   * the networks produced by this run.
+   * the network during its CTV iteration. Once the iteration is complete, it is folded into the
+   * metrics for all iterations of the network's layer structure.
    * 
    * @param yearsToSimulate
    *          The years for which simulations are to be run against the trained
@@ -325,13 +1007,10 @@ public class MlpNetworkTrainer implements LearningEventListener {
     //
     // Create metrics
     log.info("*********** FETCHING NETWORK METRICS **************");
-    NetworkMetrics metrics = networkMetricsCache.get(network);
-    if (metrics == null) {
-      log.info("*********** CREATED NEW NETWORK METRICS FOR THIS NETWORK (" + neuronLayerDescriptorString
-          + ") **************");
-      metrics = new NetworkMetrics();
-      networkMetricsCache.put(network, metrics);
-    }
+    log.info("*********** CREATED NEW NETWORK METRICS FOR THIS NETWORK (" + neuronLayerDescriptorString
+        + ") **************");
+    NetworkMetrics metrics = new NetworkMetrics();
+    networkMetricsCache.put(network, metrics);
     metrics.setNeuronProperties(neuronProperties);
     metrics.setIterationStartTime(System.currentTimeMillis());
     metrics.setLearnStartTime(System.currentTimeMillis());
@@ -346,20 +1025,40 @@ public class MlpNetworkTrainer implements LearningEventListener {
    * specified metrics object.
    * 
    * @param trainingData
-   *          The data used to train the network.
+   *          The data used to train the network. It is not modified.
    * @param network
    *          The MLP network to be trained.
+   * @param ctvIteration
+   *          The CTV iteration the network belongs to.
+   * @param random
+   *          Where the random numbers needed along the way (to nudge the network) come from.
    */
-  private void trainNetwork(DataSet trainingData, MultiLayerPerceptron network) {
+  private void trainNetwork(TrainingData trainingData, MultiLayerPerceptron network, CtvIteration ctvIteration,
+      Random random) {
     //
     // Shuffle the training data. Adds an element of randomness to the data.
-    trainingData.shuffle();
+    /// The training data is shared by all CTV iterations (and is a read-only view of the
+    /// training data files), so shuffle the order the rows are visited in, not the rows.
+    int[] rowOrder = trainingData.computeShuffledOrder(new Random(ctvIteration.getTrainingDataSeed()));
     //
     // Now learn, you!
-    network.learn(trainingData);
+    NetworkMetrics metrics = networkMetricsCache.get(network);
+    if (configuration.useFlatNetworkEngine()) {
+      trainFlatNetwork(trainingData, rowOrder, network, metrics, ctvIteration.getIndex(), random);
+    } else {
+      networkRandomCache.put(network, random);
+      try {
+        //
+        // Neuroph only knows how to learn from a DataSet (its rows are shared by every CTV
+        /// iteration, only the order is this one's)
+        network.learn(trainingData.toDataSet(rowOrder));
+      } finally {
+        networkRandomCache.remove(network);
+      }
+      metrics.setNetworkError(network.getLearningRule().getTotalNetworkError());
+    }
     //
     // Learning complete. Set metrics.
-    NetworkMetrics metrics = networkMetricsCache.get(network);
     metrics.setIterationLearnTime(System.currentTimeMillis() - metrics.getLearnStartTime());
     metrics.setTotalLearnTime(metrics.getTotalLearnTime() + metrics.getIterationLearnTime());
     metrics.setNumberOfAsymmetricWinsThisIteration(0);
@@ -367,44 +1066,143 @@ public class MlpNetworkTrainer implements LearningEventListener {
     metrics.setNumberOfGamesThisIteration(0);
   }
 
+  /**
+   * Trains the specified MLP network using a {@link FlatMlpNetwork} copy of it, which is
+   * a lot faster than letting Neuroph do it. The learning parameters come from the network's
+   * (Neuroph) learning rule, and the trained weights (and learning parameters, which may
+   * have been adjusted along the way) are copied back into the network when training
+   * is complete.
+   * <p>
+   * If checkpoints are turned on, an {@link EpochSnapshot} of the training is taken at every
+   * epoch break, so a resumed run can pick the training back up from there. If there is a
+   * snapshot for this CTV iteration already (from the checkpoint of the run being resumed),
+   * that's where training starts.
+   * 
+   * @param trainingData
+   *          The data used to train the network.
+   * @param rowOrder
+   *          The order to visit the rows of the training data in.
+   * @param network
+   *          The MLP network to be trained.
+   * @param metrics
+   *          The metrics for the network.
+   * @param ctvIterationIndex
+   *          The index of the CTV iteration the network belongs to.
+   * @param random
+   *          Where the random numbers needed along the way (to nudge the network) come from.
+   */
+  private void trainFlatNetwork(TrainingData trainingData, int[] rowOrder, MultiLayerPerceptron network,
+      NetworkMetrics metrics, int ctvIterationIndex, Random random) {
+    MomentumBackpropagation learningRule = (MomentumBackpropagation) network.getLearningRule();
+    FlatMlpNetwork flatNetwork = FlatMlpNetwork.fromNetwork(network);
+    FlatMomentumBackpropagation flatLearningRule = new FlatMomentumBackpropagation(flatNetwork);
+    flatLearningRule.setLearningRate(learningRule.getLearningRate());
+    flatLearningRule.setMomentum(learningRule.getMomentum());
+    flatLearningRule.setMaxError(learningRule.getMaxError());
+    flatLearningRule.setMaxIterations(learningRule.getMaxIterations());
+    EpochSnapshot epochSnapshot;
+    synchronized (checkpointLock) {
+      epochSnapshot = epochSnapshots.get(ctvIterationIndex);
+    }
+    int completedEpochs = 0;
+    Random networkRandom = random;
+    if (epochSnapshot != null) {
+      log.info("Resuming training from the checkpoint, after epoch " + epochSnapshot.getCompletedEpochs() + "...");
+      epochSnapshot.restore(flatLearningRule);
+      networkRandom = epochSnapshot.restoreRandom();
+      metrics.setPreviousEpochBreakNetworkError(epochSnapshot.getPreviousEpochBreakNetworkError());
+      metrics.setLearnStartTime(System.currentTimeMillis() - epochSnapshot.getLearnTime());
+      completedEpochs = epochSnapshot.getCompletedEpochs();
+    }
+    Random nudgeRandom = networkRandom;
+    flatLearningRule.setEpochListener((rule, learningStopped) -> {
+      handleEpoch(metrics, rule.getCurrentIteration(), rule.getTotalNetworkError(), learningStopped, () -> {
+        rule.setMomentum(randomizeMomentum(nudgeRandom));
+        randomizeNetworkWeights(rule.getNetwork(), nudgeRandom);
+        rule.clearPreviousWeightChanges();
+        log.info("Adding another 500 iterations to the max...");
+        rule.setMaxIterations(rule.getMaxIterations() + 500);
+      });
+      //
+      // Snapshot every epoch break (unless this is the last epoch, there's no picking that back up)
+      if (!learningStopped && configuration.getTrainingCheckpointIntervalSeconds() > 0
+          && rule.getCurrentIteration() % configuration.getEpochBreakIterationCount() == 0
+          && rule.getTotalNetworkError() >= rule.getMaxError()
+          && rule.getCurrentIteration() < rule.getMaxIterations()) {
+        EpochSnapshot snapshot = EpochSnapshot.take(rule, metrics.getPreviousEpochBreakNetworkError(),
+            System.currentTimeMillis() - metrics.getLearnStartTime(), nudgeRandom);
+        synchronized (checkpointLock) {
+          epochSnapshots.put(ctvIterationIndex, snapshot);
+        }
+        checkpointIfDue(false);
+      }
+    });
+    flatLearningRule.learn(trainingData, rowOrder, completedEpochs);
+    //
+    // Copy everything back into the Neuroph network (which is what gets validated and saved)
+    flatNetwork.copyWeightsTo(network);
+    learningRule.setMomentum(flatLearningRule.getMomentum());
+    learningRule.setMaxIterations(flatLearningRule.getMaxIterations());
+    metrics.setNetworkError(flatLearningRule.getTotalNetworkError());
+  }
+
   /**
    * Loads training data for the specified years. The data is assumed to be at a location
    * specified by the {@link NetworkProperties} object (or <code>network.properties</code> file
    * if the default location is to be overridden).
+   * <p>
+   * Each year's columnar training data file (see {@link TrainingData}) is memory-mapped, and the
+   * years are concatenated without copying any rows. A year that only has a (Neuroph) DataSet
+   * training data file, from before there was a columnar format, is loaded from that instead.
    * 
    * @param yearsForTrainingData
    *          The years for which training data is to be loaded. Each element
    *          should contain a separate year.
    * 
-   * @return Neuroph {@link DataSet} object containing all of the training data to be used.
+   * @return {@link TrainingData} object containing all of the training data to be used.
    */
-  protected DataSet loadTrainingData(Integer[] yearsForTrainingData) {
-    DataSet ret = new DataSet(NetworkProperties.getNumberOfInputs(), NetworkProperties.getNumberOfOutputs());
-    List<DataSet> dataSets = new ArrayList<>();
+  protected TrainingData loadTrainingData(Integer[] yearsForTrainingData) {
+    List<TrainingData> trainingDataByYear = new ArrayList<>();
     //
     // Build out the expected file name based on the constants
     /// and the years in the parameter
     for (Integer year : yearsForTrainingData) {
-      String filename = NetworkUtils.computeTrainingDataFileName(year);
-      // NetworkProperties.getBaseDirectory() + File.separator + trainingDataDirectory
-      // + File.separator +
-      // NetworkProperties.getTrainingDataFileBase() + "-" + year + NetworkProperties.getTrainingDataFileExtension();
-      log.info("Loading training data from file: '" + filename + "'...");
-      DataSet loadedDataSet = DataSet.load(filename);
-      log.info("Training data loaded: " + loadedDataSet.getRows().size() + " rows.");
-      dataSets.add(loadedDataSet);
-    }
-    //
-    // Now combine all of the data sets into one
-    for (DataSet dataSet : dataSets) {
-      for (DataSetRow row : dataSet.getRows()) {
-        ret.addRow(row);
+      File trainingDataFile = new File(NetworkUtils.computeColumnarTrainingDataFileName(year));
+      TrainingData loadedTrainingData;
+      if (trainingDataFile.exists()) {
+        log.info("Mapping training data from file: '" + trainingDataFile + "'...");
+        try {
+          loadedTrainingData = TrainingData.map(trainingDataFile);
+        } catch (IOException e) {
+          String message = "Could not read training data file '" + trainingDataFile + "': " + e.getLocalizedMessage();
+          log.error(message, e);
+          throw new RuntimeException(message, e);
+        }
+      } else {
+        String filename = NetworkUtils.computeTrainingDataFileName(year);
+        log.warn("No columnar training data file '" + trainingDataFile + "' (run DataCreator for " + year
+            + " to create it), loading training data from file: '" + filename + "'...");
+        loadedTrainingData = TrainingData.fromDataSet(DataSet.load(filename));
       }
+      if (loadedTrainingData.getInputSize() != configuration.getNumberOfInputs()
+          || loadedTrainingData.getOutputSize() != configuration.getNumberOfOutputs()) {
+        String message = "Training data for " + year + " has " + loadedTrainingData.getInputSize() + " inputs and "
+            + loadedTrainingData.getOutputSize() + " outputs, but the network has " + configuration.getNumberOfInputs()
+            + " inputs and " + configuration.getNumberOfOutputs() + " outputs. Cannot continue!";
+        log.error(message);
+        throw new RuntimeException(message);
+      }
+      log.info("Training data loaded: " + loadedTrainingData.size() + " rows.");
+      trainingDataByYear.add(loadedTrainingData);
     }
-    log.info("Combined " + dataSets.size() + " data sets, consisting of a total of " + ret.size() + " rows.");
     //
-    log.info("Shuffling training data...");
-    ret.shuffle();
+    // Now combine all of the years into one (no copying, see TrainingData)
+    TrainingData ret = TrainingData.concatenate(trainingDataByYear);
+    log.info("Combined " + trainingDataByYear.size() + " data sets, consisting of a total of " + ret.size()
+        + " rows.");
+    //
+    // No need to shuffle here: each CTV iteration visits the rows in its own order (with its own
+    /// seed, so the order doesn't change if the run is resumed).
     return ret;
   }
 
@@ -431,8 +1229,8 @@ public class MlpNetworkTrainer implements LearningEventListener {
       int[] hiddenNeurons = networksToTry[aa];
       //
       // Now setup the complete network descriptor for this network
-      List<Integer> networkToTry = setupNeuronLayers(NetworkProperties.getNumberOfInputs(),
-          NetworkProperties.getNumberOfOutputs(), hiddenNeurons);
+      List<Integer> networkToTry = setupNeuronLayers(configuration.getNumberOfInputs(),
+          configuration.getNumberOfOutputs(), hiddenNeurons);
       ret.add(networkToTry);
     }
     return ret;
@@ -465,27 +1263,79 @@ public class MlpNetworkTrainer implements LearningEventListener {
   }
 
   /**
-   * Randomizes the network weights based on settings in {@link NetworkProperties}, rather than
+   * Randomizes the network weights based on settings in the {@link NetworkConfiguration}, rather than
    * letting Neuroph do it for us.
    * 
    * @param network
    *          The network (must support BackPropagation learning rule) for which its weights
    *          are to be randomized.
+   * @param random
+   *          Where the random numbers come from.
    */
-  private void randomizeNetworkWeights(NeuralNetwork<BackPropagation> network) {
-    Random randWeight = new Random();
+  private void randomizeNetworkWeights(NeuralNetwork<BackPropagation> network, Random random) {
+    //
+    // Neuroph's randomizeWeights() can't be seeded, so randomize a flat copy of the network
+    /// (same thing, but with our random numbers), and copy the weights back.
+    FlatMlpNetwork flatNetwork = FlatMlpNetwork.fromNetwork(network);
+    randomizeNetworkWeights(flatNetwork, random);
+    flatNetwork.copyWeightsTo(network);
+  }
+
+  /**
+   * Makes Neuroph's MomentumBackpropagation forget the momentum it built up before the
+   * weights were changed out from under it (by {@link #randomizeNetworkWeights(NeuralNetwork, Random)}),
+   * just like {@link FlatMomentumBackpropagation#clearPreviousWeightChanges()} does for the flat engine.
+   * Neuroph computes the momentum term from the difference between a weight's current value and the
+   * value it had before its last update, so setting the previous value to the current value means
+   * the first update after the nudge has no momentum term.
+   *
+   * @param network
+   *          The network whose weights were just randomized.
+   */
+  private static void clearPreviousWeightChanges(NeuralNetwork<BackPropagation> network) {
+    for (Layer layer : network.getLayers()) {
+      for (Neuron neuron : layer.getNeurons()) {
+        for (Connection connection : neuron.getInputConnections()) {
+          Weight weight = connection.getWeight();
+          //
+          // The training data isn't there until learning has started
+          if (weight.getTrainingData() instanceof MomentumWeightTrainingData) {
+            ((MomentumWeightTrainingData) weight.getTrainingData()).previousValue = weight.getValue();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #randomizeNetworkWeights(NeuralNetwork, Random)}, but for a {@link FlatMlpNetwork}.
+   */
+  private void randomizeNetworkWeights(FlatMlpNetwork network, Random random) {
+    double[] weightRange = randomizeWeightRange(random);
+    network.randomizeWeights(weightRange[0], weightRange[1], random);
+  }
+
+  /**
+   * Computes a random min and max weight, within the range specified in the configuration.
+   * 
+   * @param random
+   *          Where the random numbers come from.
+   * 
+   * @return double[] - element 0 is the min weight, element 1 is the max weight.
+   */
+  private double[] randomizeWeightRange(Random random) {
     double minWeight =
-        randWeight.nextDouble() * (NetworkProperties.getMinWeight() - NetworkProperties.getMinMinWeight())
-            + NetworkProperties.getMinMinWeight();
+        random.nextDouble() * (configuration.getMinWeight() - configuration.getMinMinWeight())
+            + configuration.getMinMinWeight();
     double maxWeight =
-        randWeight.nextDouble() * (NetworkProperties.getMaxWeight() - NetworkProperties.getMinMaxWeight())
-            + NetworkProperties.getMinMaxWeight();
+        random.nextDouble() * (configuration.getMaxWeight() - configuration.getMinMaxWeight())
+            + configuration.getMinMaxWeight();
     log.info("Randomizing weights: min=" + minWeight + ", max=" + maxWeight);
-    network.randomizeWeights(minWeight, maxWeight);
+    return new double[] { minWeight, maxWeight };
   }
 
   /**
-   * Randomizes the momentum between MIN and MAX values as specified in {@NetworkProperties}.
+   * Randomizes the momentum between MIN and MAX values as specified in the {@link NetworkConfiguration}.
    * The learning momentum is a component that determines how fast the weights are adjusted between
    * each epoch, meaning, it is a component in how fast a network can be trained. But the value should
    * not be too high, or the weights will be adjusted so fast the network can't be trained, or so low
@@ -493,18 +1343,20 @@ public class MlpNetworkTrainer implements LearningEventListener {
    * 
    * Only randomize momentum if the system is configured to do so.
    * 
+   * @param random
+   *          Where the random numbers come from.
+   * 
    * @return The new momentum value.
    */
-  private double randomizeMomentum() {
-    double ret = NetworkProperties.getMomentumDefaultValue();
+  private double randomizeMomentum(Random random) {
+    double ret = configuration.getMomentumDefaultValue();
     //
     // If the system is configured to randomize momentum, then calculate
     /// a new random value between the MIN and MAX
-    if (NetworkProperties.getRandomizeMomentum()) {
-      Random momentumRandomNg = new Random();
-      double momentum = momentumRandomNg.nextDouble()
-          * (NetworkProperties.getLearningRuleMomentumMax() - NetworkProperties.getLearningRuleMomentumMin())
-          + NetworkProperties.getLearningRuleMomentumMin();
+    if (configuration.getRandomizeMomentum()) {
+      double momentum = random.nextDouble()
+          * (configuration.getLearningRuleMomentumMax() - configuration.getLearningRuleMomentumMin())
+          + configuration.getLearningRuleMomentumMin();
       ret = momentum;
     }
     log.info("Momentum value: " + ret);
@@ -512,11 +1364,26 @@ public class MlpNetworkTrainer implements LearningEventListener {
   }
 
   /**
-   * Validate the network for the specified years.
+   * Creates the {@link ValidationFixture} used to validate every network trained during the run.
+   * 
+   * @param yearsToSimulate
+   *          The years whose tournament games are to be simulated.
+   * 
+   * @return ValidationFixture - the fixture.
+   */
+  protected ValidationFixture createValidationFixture(Integer[] yearsToSimulate) {
+    log.info("*********** CREATING VALIDATION FIXTURE FOR YEARS " + Arrays.toString(yearsToSimulate)
+        + " **************");
+    return new ValidationFixture(yearsToSimulate, seasonDataDao, tournamentResultDao, seasonAnalyticsDao);
+  }
+
+  /**
+   * Validate the network for the years in the specified validation fixture.
    * 
    * @param network
+   * @param validationFixture
    */
-  private void validateNetwork(MultiLayerPerceptron network) {
+  private void validateNetwork(MultiLayerPerceptron network, ValidationFixture validationFixture) {
     int numberOfWinners = 0;
     int numberOfGames = 0;
 
@@ -525,22 +1392,27 @@ public class MlpNetworkTrainer implements LearningEventListener {
     NetworkMetrics metrics = networkMetricsCache.get(network);
     log.info("********* BEGINNING VALIDATION FOR YEARS " + Arrays.toString(metrics.getSimulationYears())
         + " **************");
+    BatchNetworkEvaluator batchNetworkEvaluator = BatchNetworkEvaluator
+        .fromNetworks(Collections.singletonList(network));
     for (Integer yearToSimulate : metrics.getSimulationYears()) {
       int numberOfWinnersThisYear = 0;
       int numberOfGamesThisYear = 0;
-      List<TournamentResult> tournamentResults = pullTournamentResults(yearToSimulate);
-      SeasonAnalytics seasonAnalytics = pullSeasonAnalytics(yearToSimulate);
+      List<ValidationGame> validationGames = validationFixture.getGames(yearToSimulate);
       //
       // Let's test the network - winner (LHS) and loser (RHS)
       log.debug("Testing the network with data from year..." + yearToSimulate);
       //
-      // Simulate all games for the current yearToSimulate
-      for (TournamentResult tournamentResult : tournamentResults) {
-        numberOfWinnersThisYear += computeSimulatedGameCorrectPicks(network, seasonAnalytics, tournamentResult);
+      // Run every game for the current yearToSimulate through the network in one batch
+      double[][] networkOutputs = batchNetworkEvaluator.evaluate(validationFixture.getNetworkInputs(yearToSimulate))[0];
+      //
+      // Then score all games for the current yearToSimulate
+      for (int gameIndex = 0; gameIndex < validationGames.size(); gameIndex++) {
+        numberOfWinnersThisYear += computeSimulatedGameCorrectPicks(network, validationGames.get(gameIndex),
+            networkOutputs, gameIndex);
       }
       //
       // Each game is simulated twice
-      numberOfGamesThisYear = tournamentResults.size() * 2;
+      numberOfGamesThisYear = validationGames.size() * ValidationGame.NUMBER_OF_ORIENTATIONS;
       numberOfGames += numberOfGamesThisYear;
       numberOfWinners += numberOfWinnersThisYear;
       //
@@ -558,10 +1430,6 @@ public class MlpNetworkTrainer implements LearningEventListener {
     log.info("WINNING PERCENTAGE (TOTAL): " +
         BigDecimal.valueOf(numberOfWinners * 100.0 / numberOfGames).setScale(2, RoundingMode.HALF_UP) +
         "% (" + numberOfWinners + "/" + numberOfGames + ")");
-    //
-    // Calculate stats across all the simulated years and save the network
-    /// if the average over all games picked in those years exceeds the threshold.
-    computeStatsAndSaveNetworkIfNecessary(network);
   }
 
   /**
@@ -575,24 +1443,28 @@ public class MlpNetworkTrainer implements LearningEventListener {
    * @param network
    *          The trained MLP network to run in the simulation.
    * 
-   * @param seasonAnalytics
-   *          The {@link SeasonAnalytics} object, used to normalize the data.
-   * 
-   * @param tournamentResult
-   *          The historical tournament game that will be simulated. Since it
+   * @param validationGame
+   *          The historical tournament game that will be simulated (already normalized). Since it
    *          already happened, we know, well, what happened, which is exactly what we need when validating
    *          the network.
    * 
+   * @param networkOutputs
+   *          The network's output for every row of the year's {@link ValidationFixture#getNetworkInputs(Integer)}.
+   * 
+   * @param gameIndex
+   *          The index of <code>validationGame</code> in its year's games.
+   * 
    * @return int - The number of correct picks for this simulation.
    */
-  protected int computeSimulatedGameCorrectPicks(MultiLayerPerceptron network,
-      SeasonAnalytics seasonAnalytics, TournamentResult tournamentResult) {
+  protected int computeSimulatedGameCorrectPicks(MultiLayerPerceptron network, ValidationGame validationGame,
+      double[][] networkOutputs, int gameIndex) {
     //
     // Get the network metrics
     NetworkMetrics metrics = networkMetricsCache.get(network);
     //
     // Now simulate a single historical tournament game and see how many picks were correct.
-    int numberOfCorrectPicks = simulateSingleHistoricalTournamentGame(network, seasonAnalytics, tournamentResult);
+    int numberOfCorrectPicks = simulateSingleHistoricalTournamentGame(network, validationGame, networkOutputs,
+        gameIndex);
     //
     // Symmetric wins/losses are wins/losses where the same team wins/loses as both home (LHS) and away (RHS).
     /// This means the relationships in the network picked them as a winner/loser regardless of LHS/RHS,
@@ -623,55 +1495,26 @@ public class MlpNetworkTrainer implements LearningEventListener {
    * Simulate a single historical tournament game using the trained MLP network.
    * 
    * @param network
-   * @param seasonAnalytics
-   * @param tournamentResult
+   * @param validationGame
+   * @param networkOutputs
+   * @param gameIndex
    * 
    * @return int The number of correct picks for this simulation.
    */
-  private int simulateSingleHistoricalTournamentGame(MultiLayerPerceptron network,
-      SeasonAnalytics seasonAnalytics, TournamentResult tournamentResult) {
+  private int simulateSingleHistoricalTournamentGame(MultiLayerPerceptron network, ValidationGame validationGame,
+      double[][] networkOutputs, int gameIndex) {
     int numberOfCorrectPicks = 0;
     //
-    // Get the winner and loser from the historical tournament game, and create an array
-    /// to hold their season data.
-    String winningTeamName = tournamentResult.getWinningTeamName();
-    String losingTeamName = tournamentResult.getLosingTeamName();
-    //
-    // Let's store the season data in such a way that we can blindly retrieve it
-    /// using the simulation index of the loop.
-    // Simulate the game twice, once with the home team as LHS, then with home
-    /// team as RHS. This is an attempt to eliminate positional bias in the network.
-    SeasonData[] seasonDataHomeTeam = new SeasonData[2];
-    SeasonData[] seasonDataAwayTeam = new SeasonData[2];
-    Integer yearToSimulate = tournamentResult.getYear();
-    for (int simulationIndex = 0; simulationIndex < 2; simulationIndex++) {
-      //
-      // Switch up the team order of every other game in this loop.
-      /// This presumes the numberOfSimulationsPerGame is an even number.
-      if (simulationIndex % 2 == 0) {
-        seasonDataHomeTeam[simulationIndex] = pullSeasonData(yearToSimulate, winningTeamName);
-        seasonDataAwayTeam[simulationIndex] = pullSeasonData(yearToSimulate, losingTeamName);
-      } else {
-        seasonDataHomeTeam[simulationIndex] = pullSeasonData(yearToSimulate, losingTeamName);
-        seasonDataAwayTeam[simulationIndex] = pullSeasonData(yearToSimulate, winningTeamName);
-      }
+    // Simulate the game twice, once with the winner as LHS, then with the winner
+    /// as RHS. This is an attempt to eliminate positional bias in the network.
+    for (int orientation = 0; orientation < ValidationGame.NUMBER_OF_ORIENTATIONS; orientation++) {
       //
-      // Create the simulation data and validate the network's predictive capabilities
-      // If true is returned, the network predicted correctly.
-      //
-      // Get the normalized data for the home and away teams. Each iteration of the loop
-      /// the actual teams switch places to hopefully eliminate any positional bias in the network,
-      /// the idea being to get better picks.
-      DataSetRow dataSetRow =
-          DataCreator.processAsDataSetRowForSimulation(seasonAnalytics, seasonDataHomeTeam[simulationIndex],
-              seasonDataAwayTeam[simulationIndex]);
-      //
-      // Run the network and capture the output, which contains the win(index 0) and loss(index 1) percentages.
-      double[] networkOutput = runNetwork(network, dataSetRow.getInput());
+      // The network output contains the win(index 0) and loss(index 1) percentages.
+      double[] networkOutput = networkOutputs[ValidationFixture.computeNetworkInputRow(gameIndex, orientation)];
       //
       // Check whether network predicted the outcome of this game correctly.
-      boolean networkPredictionIsCorrect = computeNetworkPrediction(network, tournamentResult, seasonDataHomeTeam,
-          seasonDataAwayTeam, simulationIndex, networkOutput);
+      boolean networkPredictionIsCorrect = computeNetworkPrediction(network, validationGame.getTournamentResult(),
+          validationGame.getHomeTeamName(orientation), validationGame.getAwayTeamName(orientation), networkOutput);
       //
       // Increment number of correct picks if network prediction was correct
       if (networkPredictionIsCorrect) {
@@ -687,26 +1530,25 @@ public class MlpNetworkTrainer implements LearningEventListener {
    * 
    * @param network
    * @param tournamentResult
-   * @param seasonDataHomeTeam
-   * @param seasonDataAwayTeam
-   * @param simulationIndex
+   * @param homeTeamName
+   * @param awayTeamName
    * @param networkOutput
    * 
    * @return - Returns true if the network predicted correctly, or false if it did not.
    */
   private boolean computeNetworkPrediction(MultiLayerPerceptron network, TournamentResult tournamentResult,
-      SeasonData[] seasonDataHomeTeam, SeasonData[] seasonDataAwayTeam, int simulationIndex, double[] networkOutput) {
+      String homeTeamName, String awayTeamName, double[] networkOutput) {
     boolean ret = false;
     // Default to LHS (index 0 in the output array)
-    String predictedWinner = seasonDataHomeTeam[simulationIndex].getTeamName();
-    String predictedLoser = seasonDataAwayTeam[simulationIndex].getTeamName();
+    String predictedWinner = homeTeamName;
+    String predictedLoser = awayTeamName;
     Double predictedWinningProbability = networkOutput[0];
     Double predictedLosingProbability = networkOutput[1];
     NetworkMetrics metrics = networkMetricsCache.get(network);
     if (networkOutput[1] >= networkOutput[0]) {
       // Unless RHS (index 1 in the output array) wins
-      predictedWinner = seasonDataAwayTeam[simulationIndex].getTeamName();
-      predictedLoser = seasonDataHomeTeam[simulationIndex].getTeamName();
+      predictedWinner = awayTeamName;
+      predictedLoser = homeTeamName;
       predictedWinningProbability = networkOutput[1];
       predictedLosingProbability = networkOutput[0];
     }
@@ -808,9 +1650,9 @@ public class MlpNetworkTrainer implements LearningEventListener {
     //
     // Return true if winning percentage and symmetric winning percentage are both above the threshold, false otherwise
     return
-      currentPerformance.doubleValue() >= NetworkProperties.getPerformanceThreshold().doubleValue()
+      currentPerformance.doubleValue() >= configuration.getPerformanceThreshold().doubleValue()
         &&
-        currentSymmetricPerformance.doubleValue() >= NetworkProperties.getSymmetricPerformanceThreshold().doubleValue()
+        currentSymmetricPerformance.doubleValue() >= configuration.getSymmetricPerformanceThreshold().doubleValue()
       ;
   }
 
@@ -838,7 +1680,7 @@ public class MlpNetworkTrainer implements LearningEventListener {
     // String momentum = BigDecimal.valueOf(learningRule.getMomentum()).setScale(5,
     // RoundingMode.HALF_UP).toPlainString();
     String networkError =
-        BigDecimal.valueOf(100.0 * learningRule.getTotalNetworkError()).setScale(2, RoundingMode.HALF_UP)
+        BigDecimal.valueOf(100.0 * metrics.getNetworkError()).setScale(2, RoundingMode.HALF_UP)
             .toPlainString();
     BigDecimal winningPercentage = BigDecimal
         .valueOf(100.0 * metrics.getNumberOfWinsThisIteration() / metrics.getNumberOfGamesThisIteration()).setScale(5,
@@ -851,7 +1693,7 @@ public class MlpNetworkTrainer implements LearningEventListener {
     String networkDirectory = NetworkUtils.fetchNetworkDirectoryAndCreateIfNecessary();
     String filename = networkDirectory
         + File.separator
-        + NetworkProperties.getNetworkFileBase() +
+        + configuration.getNetworkFileBase() +
         "-SimYrs_" + yearsToSimulate
         // "-Type_" + networkType + "-xferfn_" +
         // neuronProperties.getTransferFunction().getName() + "-ipfn_" +
@@ -866,7 +1708,7 @@ public class MlpNetworkTrainer implements LearningEventListener {
         + "-Dt_" + date
         + "-TotErr_" + networkError
         + "-winpct_" + winningPercentage + "_" + metrics.getNumberOfAcceptableNetworks()
-        + NetworkProperties.getNetworkFileExtension();
+        + configuration.getNetworkFileExtension();
     log.info("*** PERFORMANCE THRESHOLD EXCEEDED ON ITERATION " + metrics.getNumberOfIterationsSoFar() + " ***");
     logNetworkInfo(metrics, neuronProperties, (MomentumBackpropagation) network.getLearningRule());
     // Network has exceeded performance. Saving it (so we don't lose it)....
@@ -880,17 +1722,16 @@ public class MlpNetworkTrainer implements LearningEventListener {
    */
   protected void logFinalGeneratorStats() {
     log.info("**** PRINTING STATS FOR ALL NETWORKS... ****");
-    for (MultiLayerPerceptron network : networkMetricsCache.keySet()) {
-      logIterationStatsForNetwork(network);
+    for (NetworkMetrics metrics : layerStructureMetrics.values()) {
+      logIterationStats(metrics);
     }
   }
 
   /**
    * Logs/prints metrics for the current CTV iteration of the network.
-   * @param network
+   * @param metrics
    */
-  private void logIterationStatsForNetwork(MultiLayerPerceptron network) {
-    NetworkMetrics metrics = networkMetricsCache.get(network);
+  private void logIterationStats(NetworkMetrics metrics) {
     log.info("*********************************************************************");
     log.info("* Network Layer Structure         : " + metrics.getLayerStructure());
     log.info(
@@ -985,50 +1826,11 @@ public class MlpNetworkTrainer implements LearningEventListener {
     sb.append("\tMomentum            : " + momentum + "\n");
     sb.append("\tLayer Structure     : " + metrics.getLayerStructure() + "\n");
     sb.append("\tTotal Network Error : "
-        + BigDecimal.valueOf(learningRule.getTotalNetworkError() * 100.0).setScale(2, RoundingMode.HALF_UP));
+        + BigDecimal.valueOf(metrics.getNetworkError() * 100.0).setScale(2, RoundingMode.HALF_UP));
     log.info(sb.toString());
 
   }
 
-  /**
-   * Runs the specified network using the double array as input data. This data should
-   * be normalized or things will get real weird, real quick.
-   * 
-   * @param network
-   *          The MLP network to be run
-   * @param input
-   *          The normalized input data to use to run the network
-   * @return double[] - The network's "answers" from running the network. For the networks
-   *         CTV'd with input data created by DataCreator, this means two doubles, whose range is
-   *         between 0.0 and 1.0:
-   *         <ol>
-   *         <li>ret[0] - The probability the Home team wins (Away team loses)</li>
-   *         <li>ret[1] - The probability the Home team loses (Away team wins)</li>
-   *         </ol>
-   */
-  protected double[] runNetwork(MultiLayerPerceptron network, double[] input) {
-    double[] ret;
-    network.setInput(input);
-    network.calculate();
-    // Return value is the network's output
-    ret = network.getOutput();
-    if (log.isTraceEnabled()) {
-      StringBuilder sb = new StringBuilder();
-      sb.append("Comparison: Input to Output:\n");
-      sb.append("Input : ");
-      sb.append(Arrays.toString(input));
-      sb.append('\n');
-      sb.append("Output: ");
-      sb.append(Arrays.toString(ret));
-      log.trace(sb.toString());
-    }
-    if (log.isTraceEnabled()) {
-      log.trace("Network Input : " + Arrays.toString(input));
-      log.trace("Network Output: " + Arrays.toString(ret));
-    }
-    return ret;
-  }
-
   /**
    * Handles the Neuroph LearningEvent event triggered by the Neuroph framework.
    * After each epoch we need to determine what the network error is doing: is it getting
@@ -1042,33 +1844,65 @@ public class MlpNetworkTrainer implements LearningEventListener {
   @Override
   public void handleLearningEvent(LearningEvent event) {
     MomentumBackpropagation mbp = (MomentumBackpropagation) event.getSource();
-    double currentNetworkError = mbp.getTotalNetworkError();
-    if (mbp.getCurrentIteration() == 1) {
-      log.info("Epoch: " + mbp.getCurrentIteration() + " | Network error: " +
+    NetworkMetrics metrics = networkMetricsCache.get(mbp.getNeuralNetwork());
+    Random random = networkRandomCache.get(mbp.getNeuralNetwork());
+    handleEpoch(metrics, mbp.getCurrentIteration(), mbp.getTotalNetworkError(),
+        event.getEventType().equals(LearningEvent.Type.LEARNING_STOPPED), () -> {
+          //
+          // Alter the momentum to see if it helps get us out of this upward error trend,
+          /// rather than just giving up on this CTV iteration
+          mbp.setMomentum(randomizeMomentum(random));
+          randomizeNetworkWeights(mbp.getNeuralNetwork(), random);
+          clearPreviousWeightChanges(mbp.getNeuralNetwork());
+          log.info("Adding another 500 iterations to the max...");
+          mbp.setMaxIterations(mbp.getMaxIterations() + 500);
+        });
+  }
+
+  /**
+   * Does the work of {@link #handleLearningEvent(LearningEvent)}, independent of the network
+   * engine doing the training.
+   * 
+   * @param metrics
+   *          The metrics for the network being trained.
+   * @param currentIteration
+   *          The current epoch.
+   * @param currentNetworkError
+   *          The network error at the end of the current epoch.
+   * @param learningStopped
+   *          Whether or not training is complete.
+   * @param nudgeNetwork
+   *          What to do to the network if the network error is trending upwards.
+   */
+  private void handleEpoch(NetworkMetrics metrics, int currentIteration, double currentNetworkError,
+      boolean learningStopped, Runnable nudgeNetwork) {
+    if (currentIteration == 1) {
+      log.info("Epoch: " + currentIteration + " | Network error: " +
           BigDecimal.valueOf(currentNetworkError * 100.0).setScale(2, RoundingMode.HALF_UP) + "%");
-      NetworkMetrics metrics = networkMetricsCache.get(mbp.getNeuralNetwork());
       metrics.setPreviousEpochBreakNetworkError(currentNetworkError);
     }
-    if (event.getEventType().equals(LearningEvent.Type.LEARNING_STOPPED)) {
-      log.info("Epoch: " + mbp.getCurrentIteration() + " | Network error: " +
+    if (learningStopped) {
+      log.info("Epoch: " + currentIteration + " | Network error: " +
           BigDecimal.valueOf(currentNetworkError * 100.0).setScale(2, RoundingMode.HALF_UP) + "%");
-      log.info("Training completed in " + mbp.getCurrentIteration() + " Epochs");
+      long learnTime = System.currentTimeMillis() - metrics.getLearnStartTime();
+      log.info("Training completed in " + currentIteration + " Epochs ("
+          + BigDecimal.valueOf((double) learnTime / Math.max(currentIteration, 1)).setScale(3, RoundingMode.HALF_UP)
+          + " ms/Epoch)");
     } else {
-      if (log.isTraceEnabled() && mbp.getCurrentIteration() % 100 == 0) {
-        log.trace("Epoch: " + mbp.getCurrentIteration() + " | Network error: " +
+      if (log.isTraceEnabled() && currentIteration % 100 == 0) {
+        log.trace("Epoch: " + currentIteration + " | Network error: " +
             BigDecimal.valueOf(currentNetworkError * 100.0).setScale(2, RoundingMode.HALF_UP) + "%");
       }
       //
       // Every epoch break, let's see what's going on
-      if (mbp.getCurrentIteration() % NetworkProperties.getEpochBreakIterationCount() == 0) {
-        NetworkMetrics metrics = networkMetricsCache.get(mbp.getNeuralNetwork());
+      if (currentIteration % configuration.getEpochBreakIterationCount() == 0) {
         double networkErrorUptrend = currentNetworkError - metrics.getPreviousEpochBreakNetworkError();
         //
         // If the network error is going up, we will randomize the momentum and weights
         /// to nudge the network along (rather than just bailing on this CTV iteration)
         if (metrics.getPreviousEpochBreakNetworkError() != 0.0 &&
             currentNetworkError > metrics.getPreviousEpochBreakNetworkError()
-            && (networkErrorUptrend >= NetworkProperties.getMaxNetworkErrorUptrend())) {
+            && (networkErrorUptrend >= configuration.getMaxNetworkErrorUptrend())) {
           log.warn("* Network error trending upwards: previous error: "
               + BigDecimal.valueOf(metrics.getPreviousEpochBreakNetworkError() * 100.0).setScale(2,
                   RoundingMode.HALF_UP)
@@ -1076,20 +1910,14 @@ public class MlpNetworkTrainer implements LearningEventListener {
               "%, current error: " + BigDecimal.valueOf(currentNetworkError * 100.0).setScale(2, RoundingMode.HALF_UP) +
               ", trend is " + BigDecimal.valueOf(networkErrorUptrend * 100.0).setScale(2, RoundingMode.HALF_UP)
               + "% (max allowable is "
-              + BigDecimal.valueOf(NetworkProperties.getMaxNetworkErrorUptrend() * 100.0).setScale(2,
+              + BigDecimal.valueOf(configuration.getMaxNetworkErrorUptrend() * 100.0).setScale(2,
                   RoundingMode.HALF_UP)
               + "%), computing new Momentum value...");
-          //
-          // Alter the momentum to see if it helps get us out of this upward error trend,
-          /// rather than just giving up on this CTV iteration
-          mbp.setMomentum(randomizeMomentum());
-          randomizeNetworkWeights(mbp.getNeuralNetwork());
-          log.info("Adding another 500 iterations to the max...");
-          mbp.setMaxIterations(mbp.getMaxIterations() + 500);
+          nudgeNetwork.run();
         }
         //
         // Log stats for the current "epoch break"
-        log.info("Epoch: " + mbp.getCurrentIteration() + " | " +
+        log.info("Epoch: " + currentIteration + " | " +
             "Current network error: " +
             BigDecimal.valueOf(currentNetworkError * 100.0).setScale(5, RoundingMode.HALF_UP) +
             // currentNetworkError * 100.0 +
@@ -1114,8 +1942,9 @@ public class MlpNetworkTrainer implements LearningEventListener {
   protected static void usage() {
     System.out.println("Usage: ");
     System.out.println("\t" + MlpNetworkTrainer.class.getSimpleName()
-        + " TRAINING_YEAR_1, TRAINING_YEAR_2, ..., TRAINING_YEAR_N SIMULATED_YEAR");
+        + " [" + RESUME_OPTION + "] TRAINING_YEAR_1, TRAINING_YEAR_2, ..., TRAINING_YEAR_N SIMULATED_YEAR");
     System.out.println("\t Where:");
+    System.out.println("\t " + RESUME_OPTION + " picks up an interrupted run (same years) from its checkpoint");
     System.out.println("\t TRAINING_YEAR_x is the year for which training data is to be loaded");
     System.out.println("\t SIMULATED_YEAR is the year for which the sumlation is to run (to build the network)");
   }
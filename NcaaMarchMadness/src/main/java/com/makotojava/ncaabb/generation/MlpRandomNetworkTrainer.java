@@ -16,7 +16,11 @@
 package com.makotojava.ncaabb.generation;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.apache.log4j.Logger;
@@ -24,16 +28,26 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import com.makotojava.ncaabb.springconfig.ApplicationConfig;
+import com.makotojava.ncaabb.util.NetworkConfiguration;
 import com.makotojava.ncaabb.util.NetworkProperties;
+import com.makotojava.ncaabb.util.NetworkUtils;
 
 /**
  * Just a little experiment. Trying to figure out the perfect
- * number of hidden layers. Let nature be the guide. Randomize
- * the mutations until something works better than what we
- * already have.
+ * number of hidden layers. Let nature be the guide. Start with
+ * a population of random networks, then breed (see {@link ArchitectureEvolver})
+ * the ones that do best, generation after generation, so the
+ * training time goes to the kinds of networks that are working.
  * 
- * There are general guidelines, but they can always be
- * changed. See {@link #randomizeNetwork()} comments for more info.
+ * There are general guidelines for the random networks we start
+ * with, but they can always be changed. See {@link #randomizeNetwork(Random)}
+ * comments for more info.
+ * 
+ * The search runs for max.network.iterations generations. Each network is
+ * trained (one CTV iteration) the first time it shows up, and its score (see
+ * {@link CtvIterationScore}) is remembered, so a network that gets bred again
+ * isn't trained again. The networks of a generation are trained concurrently
+ * if training.worker.threads says to.
  * 
  * ***************************
  * **** WARNING ****
@@ -49,11 +63,23 @@ public class MlpRandomNetworkTrainer extends MlpNetworkTrainer {
 
   private static final Logger log = Logger.getLogger(MlpRandomNetworkTrainer.class);
 
-  private static final int MAX_RANDOM_NETWORKS = 5;
+  /**
+   * The number of networks that survive from one generation to the next (and the number
+   * of random networks we start with)
+   */
+  private static final int POPULATION_SIZE = 6;
+  /**
+   * The number of new networks bred each generation
+   */
+  private static final int OFFSPRING_PER_GENERATION = 3;
+  /**
+   * How many times to try to breed a network that hasn't been tried yet before giving up
+   */
+  private static final int MAX_BREEDING_ATTEMPTS = 20;
   private static final int MAX_HIDDEN_LAYERS = 4;
 
-  public MlpRandomNetworkTrainer(ApplicationContext applicationContext) {
-    super(applicationContext);
+  public MlpRandomNetworkTrainer(ApplicationContext applicationContext, NetworkConfiguration configuration) {
+    super(applicationContext, configuration);
   }
 
   /**
@@ -62,14 +88,17 @@ public class MlpRandomNetworkTrainer extends MlpNetworkTrainer {
    * @param args
    */
   public static void main(String[] args) {
-    if (args.length < 2) {
+    if (args.length < 2 || (RESUME_OPTION.equals(args[0]) && args.length < 3)) {
       usage();
       System.exit(-1);
     }
     //
+    // Parse (and validate) the configuration before doing anything else
+    NetworkConfiguration configuration = NetworkProperties.getConfiguration();
+    //
     // Create the network generator
     MlpRandomNetworkTrainer generator = new MlpRandomNetworkTrainer(
-        new AnnotationConfigApplicationContext(ApplicationConfig.class));
+        new AnnotationConfigApplicationContext(ApplicationConfig.class), configuration);
     generator.go(args);
   }
 
@@ -77,63 +106,132 @@ public class MlpRandomNetworkTrainer extends MlpNetworkTrainer {
   protected List<List<Integer>> setupNetworksToTry() {
     List<List<Integer>> ret = new ArrayList<>();
     log.info("*** RANDOMIZING NETWORKS ***");
-    for (int aa = 0; aa < MAX_RANDOM_NETWORKS; aa++) {
-      ret.add(randomizeNetwork());
+    Random random = new Random();
+    for (int aa = 0; aa < POPULATION_SIZE; aa++) {
+      ret.add(randomizeNetwork(random));
+    }
+    return ret;
+  }
+
+  /**
+   * Evolves the networks to try (the first generation), rather than searching them the way the
+   * configuration says to.
+   */
+  @Override
+  protected void runSearch(CtvIterationFactory ctvIterationFactory) {
+    NetworkConfiguration configuration = getConfiguration();
+    ArchitectureEvolver architectureEvolver = new ArchitectureEvolver(configuration.getNumberOfInputs(),
+        configuration.getNumberOfOutputs(), MAX_HIDDEN_LAYERS);
+    //
+    // Seeded from the run seed (but not the same sequence as the CTV iteration seeds), so a
+    /// resumed run breeds the same networks the original run did.
+    Random random = new Random(~getRunSeed());
+    Map<List<Integer>, CtvIterationScore> scoreCache = new HashMap<>();
+    List<List<Integer>> population = new ArrayList<>(new LinkedHashSet<>(getNetworksToTry()));
+    evaluate(population, ctvIterationFactory, scoreCache);
+    population = rank(population, scoreCache);
+    logPopulation(1, population, scoreCache);
+    for (int generation = 2; generation <= configuration.getMaxNetworkIterations(); generation++) {
+      List<List<Integer>> offspring = new ArrayList<>();
+      for (int aa = 0; aa < OFFSPRING_PER_GENERATION; aa++) {
+        for (int attempt = 0; attempt < MAX_BREEDING_ATTEMPTS; attempt++) {
+          List<Integer> child = architectureEvolver.breed(population, random);
+          if (!scoreCache.containsKey(child) && !offspring.contains(child)) {
+            offspring.add(child);
+            break;
+          }
+        }
+      }
+      if (offspring.isEmpty()) {
+        log.info("Could not breed any networks that haven't been tried already, search complete.");
+        break;
+      }
+      evaluate(offspring, ctvIterationFactory, scoreCache);
+      population.addAll(offspring);
+      population = rank(population, scoreCache);
+      population = new ArrayList<>(population.subList(0, Math.min(POPULATION_SIZE, population.size())));
+      logPopulation(generation, population, scoreCache);
+    }
+  }
+
+  /**
+   * Trains (one CTV iteration) each of the specified networks, and caches their scores.
+   */
+  private void evaluate(List<List<Integer>> networks, CtvIterationFactory ctvIterationFactory,
+      Map<List<Integer>, CtvIterationScore> scoreCache) {
+    List<List<CtvIteration>> ctvIterationsByNetwork = new ArrayList<>();
+    runCtvIterations(ctvIterationFactory.create(networks, 1, getConfiguration().getMaxLearningIterations(),
+        ctvIterationsByNetwork));
+    for (int networkIndex = 0; networkIndex < networks.size(); networkIndex++) {
+      scoreCache.put(networks.get(networkIndex), getCtvIterationScore(ctvIterationsByNetwork.get(networkIndex).get(0)));
     }
+  }
+
+  /**
+   * @return List - the specified networks, best score first (ties keep their order).
+   */
+  private static List<List<Integer>> rank(List<List<Integer>> networks,
+      Map<List<Integer>, CtvIterationScore> scoreCache) {
+    List<List<Integer>> ret = new ArrayList<>(networks);
+    Collections.sort(ret, (left, right) -> CtvIterationScore.BEST_FIRST.compare(scoreCache.get(left),
+        scoreCache.get(right)));
     return ret;
   }
 
+  private static void logPopulation(int generation, List<List<Integer>> population,
+      Map<List<Integer>, CtvIterationScore> scoreCache) {
+    log.info("**** GENERATION " + generation + " (" + scoreCache.size() + " networks tried so far), BEST FIRST ****");
+    for (List<Integer> network : population) {
+      log.info(NetworkUtils.generateLayerStructureString(network) + ": " + scoreCache.get(network));
+    }
+  }
+
   /**
    * Randomize, well, pretty much everything about the hidden layers,
    * including the number of hidden layers, and the number of neurons
    * in each layer.
    * 
+   * @param random
+   *          Where the random numbers come from.
+   * 
    * @return List<Integer> The network layer topology.
    */
-  private List<Integer> randomizeNetwork() {
+  private List<Integer> randomizeNetwork(Random random) {
     List<Integer> ret = new ArrayList<>();
     log.info("Creating random network...");
     //
     // The number of inputs is fixed, as is the number of outputs
     // (based on the training data)
-    int numberOfInputs = NetworkProperties.getNumberOfInputs();
+    int numberOfInputs = getConfiguration().getNumberOfInputs();
     log.debug("Number of inputs : " + numberOfInputs);
-    int numberOfOutputs = NetworkProperties.getNumberOfOutputs();
+    int numberOfOutputs = getConfiguration().getNumberOfOutputs();
     log.debug("Number of outputs : " + numberOfOutputs);
     //
     // Create random hidden layers
     // TODO: Use a ANN to get this right. Hardwire for now.
-    Random randHiddenLayers = new Random();
-    int numberOfHiddenLayers = 0;
     //
-    // Always want at least (numberOfOutputs) hidden layers
-    while (numberOfHiddenLayers < numberOfOutputs) {
-      numberOfHiddenLayers = randHiddenLayers.nextInt(MAX_HIDDEN_LAYERS);
-    }
+    // Always want at least (numberOfOutputs) hidden layers (if there's room)
+    int numberOfHiddenLayers = randomBetween(random, Math.min(numberOfOutputs, MAX_HIDDEN_LAYERS - 1),
+        MAX_HIDDEN_LAYERS - 1);
     log.debug("Network will have " + numberOfHiddenLayers + " hidden layers");
     int[] hiddenNeurons = new int[numberOfHiddenLayers];
     for (int aa = 0; aa < numberOfHiddenLayers; aa++) {
-      Random randNeurons = new Random();
-      int numberOfNeuronsInThisLayer = 0;
+      int numberOfNeuronsInThisLayer;
       if (aa == 0) {
         //
         // The minimum number of neurons in the first hidden layer needs to be
         /// at least 1/3 the number of inputs
-        while (numberOfNeuronsInThisLayer < numberOfInputs / 3) {
-          numberOfNeuronsInThisLayer = randNeurons.nextInt(numberOfInputs / 2) + numberOfOutputs;
-        }
+        numberOfNeuronsInThisLayer = randomBetween(random, Math.max(numberOfInputs / 3, numberOfOutputs),
+            numberOfInputs / 2 + numberOfOutputs - 1);
       } else if (aa % 2 != 0) {
         //
         // Every odd layer has up to twice as many neurons in the layer before it
         int numberOfNeuronsInPreviousLayer = hiddenNeurons[aa - 1];
-        while (numberOfNeuronsInThisLayer < (numberOfOutputs * 2)) {
-          numberOfNeuronsInThisLayer = randNeurons.nextInt(numberOfNeuronsInPreviousLayer * 2);
-        }
+        numberOfNeuronsInThisLayer = randomBetween(random, numberOfOutputs * 2, numberOfNeuronsInPreviousLayer * 2 - 1);
       } else {
         // Even layers must have at least (numberOfInputs / 2 * loop index) neurons
-        while (numberOfNeuronsInThisLayer < (numberOfInputs / (2 * aa))) {
-          numberOfNeuronsInThisLayer = randNeurons.nextInt(numberOfInputs / aa) + numberOfOutputs;
-        }
+        numberOfNeuronsInThisLayer = randomBetween(random, Math.max(numberOfInputs / (2 * aa), numberOfOutputs),
+            numberOfInputs / aa + numberOfOutputs - 1);
       }
       hiddenNeurons[aa] = numberOfNeuronsInThisLayer;
       log.debug("Number of neurons : " + hiddenNeurons[aa] + " (hidden layer #" + (aa + 1) + ")");
@@ -143,4 +241,11 @@ public class MlpRandomNetworkTrainer extends MlpNetworkTrainer {
     return ret;
   }
 
+  /**
+   * @return int - a random number between min and max (inclusive), or min if max is less than min.
+   */
+  private static int randomBetween(Random random, int min, int max) {
+    return (max <= min) ? min : min + random.nextInt(max - min + 1);
+  }
+
 }
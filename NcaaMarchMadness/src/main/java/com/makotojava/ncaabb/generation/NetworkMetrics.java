@@ -15,6 +15,9 @@
  */
 package com.makotojava.ncaabb.generation;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.Set;
 import java.util.TreeSet;
@@ -203,6 +206,11 @@ public class NetworkMetrics implements Comparator<NetworkMetrics> {
    * see how the network training is progressing.
    */
   private double previousEpochBreakNetworkError = 0.0;
+
+  /**
+   * The network error when training completed
+   */
+  private double networkError = 0.0;
   
   
   public int getNumberOfAcceptableNetworks() {
@@ -447,5 +455,140 @@ public class NetworkMetrics implements Comparator<NetworkMetrics> {
   public void setPreviousEpochBreakNetworkError(double previousEpochBreakNetworkError) {
     this.previousEpochBreakNetworkError = previousEpochBreakNetworkError;
   }
+
+  public double getNetworkError() {
+    return networkError;
+  }
+
+  public void setNetworkError(double networkError) {
+    this.networkError = networkError;
+  }
+
+  /**
+   * Folds the metrics of a single CTV iteration (tracked in their own, isolated
+   * NetworkMetrics object) into this object, which tracks the metrics for all CTV
+   * iterations of a network layer structure. The "this iteration" values are
+   * copied, and the totals, best/worst values and incorrect picks are accumulated.
+   * 
+   * Note: the network stats (total games, total wins, acceptable networks, etc) are
+   * not touched here. They are computed later, against the accumulated metrics.
+   * 
+   * @param iterationMetrics
+   *          The metrics of the CTV iteration that just completed.
+   */
+  public void accumulate(NetworkMetrics iterationMetrics) {
+    setNeuronProperties(iterationMetrics.getNeuronProperties());
+    setLayerStructure(iterationMetrics.getLayerStructure());
+    setSimulationYears(iterationMetrics.getSimulationYears());
+    setNumberOfIterationsSoFar(getNumberOfIterationsSoFar() + 1);
+    setIterationStartTime(iterationMetrics.getIterationStartTime());
+    setLearnStartTime(iterationMetrics.getLearnStartTime());
+    setIterationLearnTime(iterationMetrics.getIterationLearnTime());
+    setTotalLearnTime(getTotalLearnTime() + iterationMetrics.getIterationLearnTime());
+    setNumberOfAbortedRuns(getNumberOfAbortedRuns() + iterationMetrics.getNumberOfAbortedRuns());
+    setNumberOfTrainingDataRows(iterationMetrics.getNumberOfTrainingDataRows());
+    setPreviousEpochBreakNetworkError(iterationMetrics.getPreviousEpochBreakNetworkError());
+    setNetworkError(iterationMetrics.getNetworkError());
+    setNumberOfGamesThisIteration(iterationMetrics.getNumberOfGamesThisIteration());
+    setNumberOfWinsThisIteration(iterationMetrics.getNumberOfWinsThisIteration());
+    setNumberOfAsymmetricWinsThisIteration(iterationMetrics.getNumberOfAsymmetricWinsThisIteration());
+    setNumberOfSymmetricWinsThisIteration(iterationMetrics.getNumberOfSymmetricWinsThisIteration());
+    setNumberOfSymmetricLossesThisIteration(iterationMetrics.getNumberOfSymmetricLossesThisIteration());
+    if (iterationMetrics.getNumberOfAbortedRuns() == 0) {
+      //
+      // An aborted iteration may still have been validated (to score it), but its
+      /// results don't count towards the totals. Only these have an iteration time.
+      setTotalNumberOfAsymmetricWins(
+          getTotalNumberOfAsymmetricWins() + iterationMetrics.getTotalNumberOfAsymmetricWins());
+      setTotalNumberOfSymmetricWins(getTotalNumberOfSymmetricWins() + iterationMetrics.getTotalNumberOfSymmetricWins());
+      setTotalNumberOfSymmetricLosses(
+          getTotalNumberOfSymmetricLosses() + iterationMetrics.getTotalNumberOfSymmetricLosses());
+      getIncorrectPicks().addAll(iterationMetrics.getIncorrectPicks());
+      setIterationTime(iterationMetrics.getIterationTime());
+    }
+  }
+
+  /**
+   * Reads metrics written by {@link #write(DataOutput)}. The incorrect picks and the
+   * NeuronProperties are not part of that, so the metrics come back without them (the
+   * NeuronProperties get set again by the next {@link #accumulate(NetworkMetrics)}).
+   */
+  public static NetworkMetrics read(DataInput in) throws IOException {
+    NetworkMetrics ret = new NetworkMetrics();
+    ret.layerStructure = in.readUTF();
+    ret.simulationYears = new Integer[in.readInt()];
+    for (int aa = 0; aa < ret.simulationYears.length; aa++) {
+      ret.simulationYears[aa] = in.readInt();
+    }
+    ret.numberOfIterationsSoFar = in.readInt();
+    ret.numberOfAcceptableNetworks = in.readInt();
+    ret.bestNetworkWinPercentage = in.readDouble();
+    ret.worstNetworkWinPercentage = in.readDouble();
+    ret.totalNumberOfAsymmetricWins = in.readInt();
+    ret.totalNumberOfSymmetricWins = in.readInt();
+    ret.totalNumberOfSymmetricLosses = in.readInt();
+    ret.totalNumberOfWins = in.readInt();
+    ret.totalNumberOfGames = in.readInt();
+    ret.numberOfGamesThisIteration = in.readInt();
+    ret.numberOfAsymmetricWinsThisIteration = in.readInt();
+    ret.numberOfSymmetricWinsThisIteration = in.readInt();
+    ret.numberOfSymmetricLossesThisIteration = in.readInt();
+    ret.numberOfWinsThisIteration = in.readInt();
+    ret.iterationStartTime = in.readLong();
+    ret.learnStartTime = in.readLong();
+    ret.iterationLearnTime = in.readLong();
+    ret.bestLearnTime = in.readLong();
+    ret.worstLearnTime = in.readLong();
+    ret.totalLearnTime = in.readLong();
+    ret.iterationTime = in.readLong();
+    ret.totalIterationTime = in.readLong();
+    ret.bestIterationTime = in.readLong();
+    ret.worstIterationTime = in.readLong();
+    ret.numberOfAbortedRuns = in.readInt();
+    ret.numberOfTrainingDataRows = in.readInt();
+    ret.previousEpochBreakNetworkError = in.readDouble();
+    ret.networkError = in.readDouble();
+    return ret;
+  }
+
+  /**
+   * Writes the numbers (so a long training run can be checkpointed, and picked up later
+   * with the same stats). See {@link #read(DataInput)}.
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeUTF(layerStructure);
+    out.writeInt(simulationYears.length);
+    for (Integer simulationYear : simulationYears) {
+      out.writeInt(simulationYear);
+    }
+    out.writeInt(numberOfIterationsSoFar);
+    out.writeInt(numberOfAcceptableNetworks);
+    out.writeDouble(bestNetworkWinPercentage);
+    out.writeDouble(worstNetworkWinPercentage);
+    out.writeInt(totalNumberOfAsymmetricWins);
+    out.writeInt(totalNumberOfSymmetricWins);
+    out.writeInt(totalNumberOfSymmetricLosses);
+    out.writeInt(totalNumberOfWins);
+    out.writeInt(totalNumberOfGames);
+    out.writeInt(numberOfGamesThisIteration);
+    out.writeInt(numberOfAsymmetricWinsThisIteration);
+    out.writeInt(numberOfSymmetricWinsThisIteration);
+    out.writeInt(numberOfSymmetricLossesThisIteration);
+    out.writeInt(numberOfWinsThisIteration);
+    out.writeLong(iterationStartTime);
+    out.writeLong(learnStartTime);
+    out.writeLong(iterationLearnTime);
+    out.writeLong(bestLearnTime);
+    out.writeLong(worstLearnTime);
+    out.writeLong(totalLearnTime);
+    out.writeLong(iterationTime);
+    out.writeLong(totalIterationTime);
+    out.writeLong(bestIterationTime);
+    out.writeLong(worstIterationTime);
+    out.writeInt(numberOfAbortedRuns);
+    out.writeInt(numberOfTrainingDataRows);
+    out.writeDouble(previousEpochBreakNetworkError);
+    out.writeDouble(networkError);
+  }
   
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Works out a successive halving search of a set of candidate networks: rather than giving
+ * every candidate the whole training budget (the max number of CTV iterations, each of them
+ * the max number of epochs), every candidate is trained briefly in the first round, then only
+ * the best 1/<code>factor</code> of them go on to the next round, where they get
+ * <code>factor</code> times as many CTV iterations, of <code>factor</code> times as many
+ * epochs, and so on. The last round has one candidate left, and it gets the whole budget.
+ * 
+ * With N candidates there are ceil(log<sub>factor</sub>(N)) + 1 rounds. In round r (counting
+ * from zero, the last round is R) there are ceil(N / factor<sup>r</sup>) candidates, and each
+ * of them gets max(1, max CTV iterations / factor<sup>R - r</sup>) CTV iterations of
+ * max(1, max epochs / factor<sup>R - r</sup>) epochs.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class SuccessiveHalvingScheduler {
+
+  private final int numberOfCandidates;
+  private final int factor;
+  private final int maxNetworkIterations;
+  private final int maxLearningIterations;
+  private final int numberOfRounds;
+
+  /**
+   * Constructor.
+   * 
+   * @param numberOfCandidates
+   *          The number of candidate networks.
+   * @param factor
+   *          The factor by which each round cuts the number of candidates (at least 2).
+   * @param maxNetworkIterations
+   *          The number of CTV iterations the candidate left standing at the end gets.
+   * @param maxLearningIterations
+   *          The number of epochs each of those CTV iterations gets.
+   */
+  public SuccessiveHalvingScheduler(int numberOfCandidates, int factor, int maxNetworkIterations,
+      int maxLearningIterations) {
+    if (numberOfCandidates < 1 || factor < 2) {
+      throw new IllegalArgumentException("Need at least one candidate, and a factor of at least 2: "
+          + numberOfCandidates + " candidates, factor " + factor);
+    }
+    this.numberOfCandidates = numberOfCandidates;
+    this.factor = factor;
+    this.maxNetworkIterations = maxNetworkIterations;
+    this.maxLearningIterations = maxLearningIterations;
+    int rounds = 1;
+    for (long remaining = numberOfCandidates; remaining > 1; remaining = divideRoundingUp(remaining, factor)) {
+      rounds++;
+    }
+    this.numberOfRounds = rounds;
+  }
+
+  public int getNumberOfRounds() {
+    return numberOfRounds;
+  }
+
+  /**
+   * @return int - the number of candidates in the specified round.
+   */
+  public int computeNumberOfCandidates(int round) {
+    long ret = numberOfCandidates;
+    for (int aa = 0; aa < round; aa++) {
+      ret = divideRoundingUp(ret, factor);
+    }
+    return (int) ret;
+  }
+
+  /**
+   * @return int - the number of CTV iterations each candidate gets in the specified round.
+   */
+  public int computeNumberOfIterations(int round) {
+    return scaleToRound(maxNetworkIterations, round);
+  }
+
+  /**
+   * @return int - the max number of epochs of each CTV iteration in the specified round.
+   */
+  public int computeMaxLearningIterations(int round) {
+    return scaleToRound(maxLearningIterations, round);
+  }
+
+  /**
+   * Picks the candidates that go on to the next round: the ones whose average score (over
+   * their CTV iterations this round) is best. Ties go to the candidate that comes first.
+   * 
+   * @param candidates
+   *          The candidates in the round that just completed.
+   * @param scores
+   *          The scores of the CTV iterations of each candidate, in the same order as
+   *          <code>candidates</code>.
+   * @param round
+   *          The round that just completed.
+   * 
+   * @return List - the candidates for the next round, best first.
+   */
+  public <T> List<T> selectSurvivors(List<T> candidates, List<List<CtvIterationScore>> scores, int round) {
+    List<Integer> ranking = new ArrayList<>(candidates.size());
+    List<CtvIterationScore> averageScores = new ArrayList<>(candidates.size());
+    for (int candidateIndex = 0; candidateIndex < candidates.size(); candidateIndex++) {
+      ranking.add(candidateIndex);
+      averageScores.add(CtvIterationScore.average(scores.get(candidateIndex)));
+    }
+    // Collections.sort() is stable, so ties stay in candidate order
+    Collections.sort(ranking, (left, right) -> CtvIterationScore.BEST_FIRST.compare(averageScores.get(left),
+        averageScores.get(right)));
+    int numberOfSurvivors = Math.min(computeNumberOfCandidates(round + 1), candidates.size());
+    List<T> ret = new ArrayList<>(numberOfSurvivors);
+    for (Integer candidateIndex : ranking.subList(0, numberOfSurvivors)) {
+      ret.add(candidates.get(candidateIndex));
+    }
+    return ret;
+  }
+
+  /**
+   * @return int - the specified budget (for the last round) divided by the factor once
+   *         for every round between the specified one and the last, but never less than one.
+   */
+  private int scaleToRound(int budget, int round) {
+    long ret = budget;
+    for (int aa = round; aa < numberOfRounds - 1 && ret > 1; aa++) {
+      ret /= factor;
+    }
+    return (int) Math.max(1, ret);
+  }
+
+  private static long divideRoundingUp(long dividend, int divisor) {
+    return (dividend + divisor - 1) / divisor;
+  }
+
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Everything {@link MlpNetworkTrainer} needs to pick a long training run back up where it
+ * left off: the arguments and random seed of the run, the network engine and search strategy,
+ * the networks being tried, the score of each CTV iteration completed (and accumulated) so far
+ * (the search strategy may need them to work out which CTV iterations come next), the metrics
+ * accumulated for each network layer structure so far, and an {@link EpochSnapshot} of each
+ * CTV iteration that was in the middle of training.
+ *
+ * File layout (big endian): int magic number, int format version, long run seed, the training
+ * years, the simulation years, UTF network engine, UTF search strategy, the networks (each one an
+ * int count followed by the layer sizes), the completed CTV iteration scores (an int count followed
+ * by the {@link CtvIterationScore}s), the layer structure metrics (each one the layer sizes followed
+ * by the {@link NetworkMetrics}), and the epoch snapshots (each one an int CTV iteration index
+ * followed by the snapshot).
+ *
+ * @author J Steven Perry
+ *
+ */
+public class TrainingCheckpoint {
+
+  /**
+   * "NCTC", so we know it's one of ours
+   */
+  public static final int MAGIC_NUMBER = 0x4E435443;
+
+  /**
+   * Bump this any time the file layout changes.
+   */
+  public static final int FORMAT_VERSION = 2;
+
+  private final long runSeed;
+  private final Integer[] yearsForTrainingData;
+  private final Integer[] yearsToSimulate;
+  private final String networkEngine;
+  private final String searchStrategy;
+  private final List<List<Integer>> networks;
+  private final List<CtvIterationScore> ctvIterationScores;
+  private final Map<List<Integer>, NetworkMetrics> layerStructureMetrics;
+  private final Map<Integer, EpochSnapshot> epochSnapshots;
+
+  /**
+   * Constructor.
+   *
+   * @param runSeed
+   *          The seed every random number of the run is derived from.
+   * @param yearsForTrainingData
+   *          The years the training data comes from.
+   * @param yearsToSimulate
+   *          The years the networks are validated against.
+   * @param networkEngine
+   *          The network engine doing the training.
+   * @param searchStrategy
+   *          How the networks are being searched.
+   * @param networks
+   *          The complete layer structure of each network being tried, in order.
+   * @param ctvIterationScores
+   *          The score of each CTV iteration (in the order they were scheduled) that is done,
+   *          and whose metrics are in <code>layerStructureMetrics</code>.
+   * @param layerStructureMetrics
+   *          The metrics accumulated so far for each network layer structure.
+   * @param epochSnapshots
+   *          The state of each CTV iteration that was part way through training, by CTV
+   *          iteration index.
+   */
+  public TrainingCheckpoint(long runSeed, Integer[] yearsForTrainingData, Integer[] yearsToSimulate,
+      String networkEngine, String searchStrategy, List<List<Integer>> networks,
+      List<CtvIterationScore> ctvIterationScores, Map<List<Integer>, NetworkMetrics> layerStructureMetrics,
+      Map<Integer, EpochSnapshot> epochSnapshots) {
+    this.runSeed = runSeed;
+    this.yearsForTrainingData = yearsForTrainingData;
+    this.yearsToSimulate = yearsToSimulate;
+    this.networkEngine = networkEngine;
+    this.searchStrategy = searchStrategy;
+    this.networks = networks;
+    this.ctvIterationScores = ctvIterationScores;
+    this.layerStructureMetrics = layerStructureMetrics;
+    this.epochSnapshots = epochSnapshots;
+  }
+
+  public long getRunSeed() {
+    return runSeed;
+  }
+
+  public Integer[] getYearsForTrainingData() {
+    return yearsForTrainingData;
+  }
+
+  public Integer[] getYearsToSimulate() {
+    return yearsToSimulate;
+  }
+
+  public String getNetworkEngine() {
+    return networkEngine;
+  }
+
+  public String getSearchStrategy() {
+    return searchStrategy;
+  }
+
+  public List<List<Integer>> getNetworks() {
+    return networks;
+  }
+
+  public List<CtvIterationScore> getCtvIterationScores() {
+    return ctvIterationScores;
+  }
+
+  /**
+   * @return int - the number of CTV iterations (in the order they were scheduled) that are done.
+   */
+  public int getNumberOfCompletedIterations() {
+    return ctvIterationScores.size();
+  }
+
+  public Map<List<Integer>, NetworkMetrics> getLayerStructureMetrics() {
+    return layerStructureMetrics;
+  }
+
+  public Map<Integer, EpochSnapshot> getEpochSnapshots() {
+    return epochSnapshots;
+  }
+
+  /**
+   * Reads the specified checkpoint file.
+   *
+   * @param checkpointFile
+   *          The checkpoint file.
+   *
+   * @return TrainingCheckpoint - the checkpoint.
+   *
+   * @throws IOException
+   *           If the file cannot be read, or is not a checkpoint file this code understands.
+   */
+  public static TrainingCheckpoint read(File checkpointFile) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+      if (in.readInt() != MAGIC_NUMBER) {
+        throw new IOException("File " + checkpointFile.getName() + " is not a training checkpoint file!");
+      }
+      int formatVersion = in.readInt();
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IOException("Training checkpoint file " + checkpointFile.getName() + " is format version "
+            + formatVersion + ", but only version " + FORMAT_VERSION + " is supported.");
+      }
+      long runSeed = in.readLong();
+      Integer[] yearsForTrainingData = readYears(in);
+      Integer[] yearsToSimulate = readYears(in);
+      String networkEngine = in.readUTF();
+      String searchStrategy = in.readUTF();
+      int numberOfNetworks = in.readInt();
+      List<List<Integer>> networks = new ArrayList<>(numberOfNetworks);
+      for (int aa = 0; aa < numberOfNetworks; aa++) {
+        networks.add(readNeuronLayerDescriptor(in));
+      }
+      int numberOfCompletedIterations = in.readInt();
+      List<CtvIterationScore> ctvIterationScores = new ArrayList<>(numberOfCompletedIterations);
+      for (int aa = 0; aa < numberOfCompletedIterations; aa++) {
+        ctvIterationScores.add(CtvIterationScore.read(in));
+      }
+      int numberOfLayerStructures = in.readInt();
+      Map<List<Integer>, NetworkMetrics> layerStructureMetrics = new LinkedHashMap<>();
+      for (int aa = 0; aa < numberOfLayerStructures; aa++) {
+        layerStructureMetrics.put(readNeuronLayerDescriptor(in), NetworkMetrics.read(in));
+      }
+      int numberOfEpochSnapshots = in.readInt();
+      Map<Integer, EpochSnapshot> epochSnapshots = new TreeMap<>();
+      for (int aa = 0; aa < numberOfEpochSnapshots; aa++) {
+        epochSnapshots.put(in.readInt(), EpochSnapshot.read(in));
+      }
+      return new TrainingCheckpoint(runSeed, yearsForTrainingData, yearsToSimulate, networkEngine, searchStrategy,
+          networks, ctvIterationScores, layerStructureMetrics, epochSnapshots);
+    } catch (EOFException e) {
+      throw new IOException("Training checkpoint file " + checkpointFile.getName() + " is truncated!", e);
+    }
+  }
+
+  /**
+   * Writes this checkpoint to the specified file. The file is written under a temporary
+   * name and then moved into place, so if the run dies while the checkpoint is being
+   * written, the previous checkpoint is still there, intact.
+   *
+   * @param checkpointFile
+   *          The checkpoint file.
+   *
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  public void write(File checkpointFile) throws IOException {
+    File tempFile = new File(checkpointFile.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(MAGIC_NUMBER);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(runSeed);
+      writeYears(out, yearsForTrainingData);
+      writeYears(out, yearsToSimulate);
+      out.writeUTF(networkEngine);
+      out.writeUTF(searchStrategy);
+      out.writeInt(networks.size());
+      for (List<Integer> neuronLayerDescriptor : networks) {
+        writeNeuronLayerDescriptor(out, neuronLayerDescriptor);
+      }
+      out.writeInt(ctvIterationScores.size());
+      for (CtvIterationScore ctvIterationScore : ctvIterationScores) {
+        ctvIterationScore.write(out);
+      }
+      out.writeInt(layerStructureMetrics.size());
+      for (Map.Entry<List<Integer>, NetworkMetrics> entry : layerStructureMetrics.entrySet()) {
+        writeNeuronLayerDescriptor(out, entry.getKey());
+        entry.getValue().write(out);
+      }
+      out.writeInt(epochSnapshots.size());
+      for (Map.Entry<Integer, EpochSnapshot> entry : epochSnapshots.entrySet()) {
+        out.writeInt(entry.getKey());
+        entry.getValue().write(out);
+      }
+    }
+    Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  static Integer[] readYears(DataInput in) throws IOException {
+    Integer[] ret = new Integer[in.readInt()];
+    for (int aa = 0; aa < ret.length; aa++) {
+      ret[aa] = in.readInt();
+    }
+    return ret;
+  }
+
+  static void writeYears(DataOutput out, Integer[] years) throws IOException {
+    out.writeInt(years.length);
+    for (Integer year : years) {
+      out.writeInt(year);
+    }
+  }
+
+  static List<Integer> readNeuronLayerDescriptor(DataInput in) throws IOException {
+    int numberOfLayers = in.readInt();
+    List<Integer> ret = new ArrayList<>(numberOfLayers);
+    for (int aa = 0; aa < numberOfLayers; aa++) {
+      ret.add(in.readInt());
+    }
+    return ret;
+  }
+
+  static void writeNeuronLayerDescriptor(DataOutput out, List<Integer> neuronLayerDescriptor)
+      throws IOException {
+    out.writeInt(neuronLayerDescriptor.size());
+    for (Integer layerSize : neuronLayerDescriptor) {
+      out.writeInt(layerSize);
+    }
+  }
+
+  private static double[] readDoubles(DataInput in) throws IOException {
+    double[] ret = new double[in.readInt()];
+    for (int aa = 0; aa < ret.length; aa++) {
+      ret[aa] = in.readDouble();
+    }
+    return ret;
+  }
+
+  private static void writeDoubles(DataOutput out, double[] values) throws IOException {
+    out.writeInt(values.length);
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+  }
+
+  /**
+   * The state of a CTV iteration part way through training (at an epoch break), with
+   * enough in it to continue training exactly as if it had never stopped: the weights
+   * of the network, the state of the {@link FlatMomentumBackpropagation} learning rule,
+   * and the state of the random number generator used to nudge the network.
+   *
+   * @author J Steven Perry
+   *
+   */
+  public static class EpochSnapshot {
+
+    private final int completedEpochs;
+    private final int maxIterations;
+    private final double learningRate;
+    private final double momentum;
+    private final double previousEpochBreakNetworkError;
+    private final long learnTime;
+    private final double[] weights;
+    private final double[] previousWeightChanges;
+    private final byte[] randomState;
+
+    private EpochSnapshot(int completedEpochs, int maxIterations, double learningRate, double momentum,
+        double previousEpochBreakNetworkError, long learnTime, double[] weights, double[] previousWeightChanges,
+        byte[] randomState) {
+      this.completedEpochs = completedEpochs;
+      this.maxIterations = maxIterations;
+      this.learningRate = learningRate;
+      this.momentum = momentum;
+      this.previousEpochBreakNetworkError = previousEpochBreakNetworkError;
+      this.learnTime = learnTime;
+      this.weights = weights;
+      this.previousWeightChanges = previousWeightChanges;
+      this.randomState = randomState;
+    }
+
+    /**
+     * Takes a snapshot of the specified learning rule (and its network). Must be called from the
+     * thread doing the training, between epochs.
+     *
+     * @param learningRule
+     *          The learning rule.
+     * @param previousEpochBreakNetworkError
+     *          The network error at the last epoch break.
+     * @param learnTime
+     *          How long (in millis) the network has been training.
+     * @param random
+     *          The random number generator the CTV iteration is using.
+     *
+     * @return EpochSnapshot - the snapshot.
+     */
+    public static EpochSnapshot take(FlatMomentumBackpropagation learningRule, double previousEpochBreakNetworkError,
+        long learnTime, Random random) {
+      ByteArrayOutputStream randomBytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(randomBytes)) {
+        out.writeObject(random);
+      } catch (IOException e) {
+        // Can't happen, it's all in memory
+        throw new IllegalStateException("Could not save the random number generator state", e);
+      }
+      return new EpochSnapshot(learningRule.getCurrentIteration(), learningRule.getMaxIterations(),
+          learningRule.getLearningRate(), learningRule.getMomentum(), previousEpochBreakNetworkError, learnTime,
+          learningRule.getNetwork().getWeights().clone(), learningRule.getPreviousWeightChanges().clone(),
+          randomBytes.toByteArray());
+    }
+
+    /**
+     * Puts the specified learning rule (and its network) back the way it was when this snapshot
+     * was taken.
+     */
+    public void restore(FlatMomentumBackpropagation learningRule) {
+      double[] networkWeights = learningRule.getNetwork().getWeights();
+      if (weights.length != networkWeights.length) {
+        throw new IllegalArgumentException("Expected " + networkWeights.length + " weights, got " + weights.length);
+      }
+      System.arraycopy(weights, 0, networkWeights, 0, weights.length);
+      learningRule.setPreviousWeightChanges(previousWeightChanges);
+      learningRule.setLearningRate(learningRate);
+      learningRule.setMomentum(momentum);
+      learningRule.setMaxIterations(maxIterations);
+    }
+
+    /**
+     * @return Random - a random number generator in exactly the state the CTV iteration's
+     *         was in when this snapshot was taken.
+     */
+    public Random restoreRandom() {
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(randomState))) {
+        return (Random) in.readObject();
+      } catch (IOException | ClassNotFoundException e) {
+        throw new IllegalStateException("Could not restore the random number generator state", e);
+      }
+    }
+
+    public int getCompletedEpochs() {
+      return completedEpochs;
+    }
+
+    public double getPreviousEpochBreakNetworkError() {
+      return previousEpochBreakNetworkError;
+    }
+
+    public long getLearnTime() {
+      return learnTime;
+    }
+
+    static EpochSnapshot read(DataInput in) throws IOException {
+      int completedEpochs = in.readInt();
+      int maxIterations = in.readInt();
+      double learningRate = in.readDouble();
+      double momentum = in.readDouble();
+      double previousEpochBreakNetworkError = in.readDouble();
+      long learnTime = in.readLong();
+      double[] weights = readDoubles(in);
+      double[] previousWeightChanges = readDoubles(in);
+      byte[] randomState = new byte[in.readInt()];
+      in.readFully(randomState);
+      return new EpochSnapshot(completedEpochs, maxIterations, learningRate, momentum, previousEpochBreakNetworkError,
+          learnTime, weights, previousWeightChanges, randomState);
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeInt(completedEpochs);
+      out.writeInt(maxIterations);
+      out.writeDouble(learningRate);
+      out.writeDouble(momentum);
+      out.writeDouble(previousEpochBreakNetworkError);
+      out.writeLong(learnTime);
+      writeDoubles(out, weights);
+      writeDoubles(out, previousWeightChanges);
+      out.writeInt(randomState.length);
+      out.write(randomState);
+    }
+
+  }
+
+}
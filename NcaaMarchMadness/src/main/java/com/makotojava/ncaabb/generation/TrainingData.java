@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.neuroph.core.data.DataSet;
+import org.neuroph.core.data.DataSetRow;
+
+/**
+ * Training data, stored by column block rather than by row: all of the inputs (one row after
+ * another) in one dense block of doubles, and all of the desired outputs in another. Written
+ * by {@link DataCreator} (one file per year), and read by {@link MlpNetworkTrainer} through a
+ * read-only memory-mapped view of the file, so the rows are never deserialized or copied into
+ * row objects: each value is read straight out of the mapped file when it's needed.
+ *
+ * Several years of training data are {@link #concatenate(List) concatenated} into one
+ * TrainingData without copying anything (it just keeps track of which block each row is in).
+ * And rather than moving rows around to shuffle them, each CTV iteration visits them in its own
+ * order (see {@link #computeShuffledOrder(Random)}).
+ *
+ * Neuroph can only learn from a DataSet, so for the Neuroph network engine the rows are copied
+ * into DataSetRows once (the first time {@link #toDataSet(int[])} is called), and every DataSet
+ * after that just puts those same rows in its own order.
+ *
+ * Only absolute reads are done on the blocks, so a TrainingData can be read by any number of
+ * threads at once.
+ *
+ * File layout (big endian): int magic number, int format version, int number of rows, int number
+ * of inputs, int number of outputs, int padding (so the blocks are 8 byte aligned), then the
+ * inputs of every row (number of rows x number of inputs doubles), then the desired outputs of
+ * every row (number of rows x number of outputs doubles).
+ *
+ * @author J Steven Perry
+ *
+ */
+public final class TrainingData {
+
+  /**
+   * "NCTD", so we know it's one of ours
+   */
+  public static final int MAGIC_NUMBER = 0x4E435444;
+
+  /**
+   * Bump this any time the file layout changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_LENGTH = 6 * Integer.BYTES;
+
+  private final int inputSize;
+  private final int outputSize;
+  /**
+   * The inputs of each block of rows (one block per file, usually)
+   */
+  private final DoubleBuffer[] inputBlocks;
+  /**
+   * The desired outputs of each block of rows, same order as the input blocks
+   */
+  private final DoubleBuffer[] outputBlocks;
+  /**
+   * The first row of each block, followed by the total number of rows
+   */
+  private final int[] blockStartRows;
+  /**
+   * Every row as a (Neuroph) DataSetRow, in order. Built by {@link #toDataSet(int[])} the first
+   * time it's needed, and shared by every DataSet it creates after that.
+   */
+  private DataSetRow[] dataSetRows;
+
+  private TrainingData(int inputSize, int outputSize, DoubleBuffer[] inputBlocks, DoubleBuffer[] outputBlocks) {
+    this.inputSize = inputSize;
+    this.outputSize = outputSize;
+    this.inputBlocks = inputBlocks;
+    this.outputBlocks = outputBlocks;
+    this.blockStartRows = new int[inputBlocks.length + 1];
+    for (int blockIndex = 0; blockIndex < inputBlocks.length; blockIndex++) {
+      blockStartRows[blockIndex + 1] = blockStartRows[blockIndex] + inputBlocks[blockIndex].capacity() / inputSize;
+    }
+  }
+
+  /**
+   * Maps the specified training data file (read-only). The mapping outlives the file channel,
+   * and goes away when the TrainingData is garbage collected.
+   *
+   * @param trainingDataFile
+   *          The training data file (written by {@link #write(File, DataSet)}).
+   *
+   * @return TrainingData - a view of the training data in the file.
+   *
+   * @throws IOException
+   *           If the file cannot be read, or is not a training data file this code understands.
+   */
+  public static TrainingData map(File trainingDataFile) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(trainingDataFile.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_LENGTH) {
+        throw new IOException("Training data file " + trainingDataFile.getName() + " is truncated!");
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.getInt() != MAGIC_NUMBER) {
+      throw new IOException("File " + trainingDataFile.getName() + " is not a training data file!");
+    }
+    int formatVersion = buffer.getInt();
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IOException("Training data file " + trainingDataFile.getName() + " is format version "
+          + formatVersion + ", but only version " + FORMAT_VERSION + " is supported.");
+    }
+    int numberOfRows = buffer.getInt();
+    int inputSize = buffer.getInt();
+    int outputSize = buffer.getInt();
+    long inputBlockLength = (long) numberOfRows * inputSize * Double.BYTES;
+    long outputBlockLength = (long) numberOfRows * outputSize * Double.BYTES;
+    if (numberOfRows < 0 || inputSize <= 0 || outputSize <= 0
+        || buffer.capacity() != HEADER_LENGTH + inputBlockLength + outputBlockLength) {
+      throw new IOException("Training data file " + trainingDataFile.getName() + " is corrupt (" + numberOfRows
+          + " rows of " + inputSize + " inputs and " + outputSize + " outputs, but " + buffer.capacity()
+          + " bytes long)!");
+    }
+    buffer.position(HEADER_LENGTH);
+    ByteBuffer inputBytes = buffer.slice();
+    inputBytes.limit((int) inputBlockLength);
+    buffer.position(HEADER_LENGTH + (int) inputBlockLength);
+    ByteBuffer outputBytes = buffer.slice();
+    return new TrainingData(inputSize, outputSize, new DoubleBuffer[] { inputBytes.asDoubleBuffer() },
+        new DoubleBuffer[] { outputBytes.asDoubleBuffer() });
+  }
+
+  /**
+   * Copies the rows of the specified (Neuroph) DataSet into a TrainingData that lives on the heap.
+   * For training data that only exists as a DataSet (say, a training data file from before
+   * there was a columnar format).
+   */
+  public static TrainingData fromDataSet(DataSet dataSet) {
+    int inputSize = dataSet.getInputSize();
+    int outputSize = dataSet.getOutputSize();
+    double[] inputs = new double[dataSet.size() * inputSize];
+    double[] outputs = new double[dataSet.size() * outputSize];
+    int rowIndex = 0;
+    for (DataSetRow row : dataSet.getRows()) {
+      System.arraycopy(row.getInput(), 0, inputs, rowIndex * inputSize, inputSize);
+      System.arraycopy(row.getDesiredOutput(), 0, outputs, rowIndex * outputSize, outputSize);
+      rowIndex++;
+    }
+    return new TrainingData(inputSize, outputSize, new DoubleBuffer[] { DoubleBuffer.wrap(inputs) },
+        new DoubleBuffer[] { DoubleBuffer.wrap(outputs) });
+  }
+
+  /**
+   * Concatenates the specified training data (the rows of the first, then the rows of the second,
+   * and so on) without copying any of it.
+   *
+   * @param trainingData
+   *          The training data to concatenate (at least one). They must all have the same number of
+   *          inputs and outputs.
+   *
+   * @return TrainingData - a view of all of the rows of all of the training data.
+   */
+  public static TrainingData concatenate(List<TrainingData> trainingData) {
+    TrainingData first = trainingData.get(0);
+    List<DoubleBuffer> inputBlocks = new ArrayList<>();
+    List<DoubleBuffer> outputBlocks = new ArrayList<>();
+    for (TrainingData part : trainingData) {
+      if (part.inputSize != first.inputSize || part.outputSize != first.outputSize) {
+        throw new IllegalArgumentException("Cannot concatenate training data with " + part.inputSize + " inputs and "
+            + part.outputSize + " outputs to training data with " + first.inputSize + " inputs and "
+            + first.outputSize + " outputs");
+      }
+      for (int blockIndex = 0; blockIndex < part.inputBlocks.length; blockIndex++) {
+        //
+        // Empty blocks would just get in the way of finding which block a row is in
+        if (part.inputBlocks[blockIndex].capacity() > 0) {
+          inputBlocks.add(part.inputBlocks[blockIndex]);
+          outputBlocks.add(part.outputBlocks[blockIndex]);
+        }
+      }
+    }
+    return new TrainingData(first.inputSize, first.outputSize, inputBlocks.toArray(new DoubleBuffer[0]),
+        outputBlocks.toArray(new DoubleBuffer[0]));
+  }
+
+  /**
+   * Writes the rows of the specified DataSet to the specified file. The file is written under a
+   * temporary name and then moved into place, so a reader never sees half of a file.
+   *
+   * @param trainingDataFile
+   *          The file to write.
+   * @param dataSet
+   *          The training data.
+   *
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  public static void write(File trainingDataFile, DataSet dataSet) throws IOException {
+    File tempFile = new File(trainingDataFile.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(MAGIC_NUMBER);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(dataSet.size());
+      out.writeInt(dataSet.getInputSize());
+      out.writeInt(dataSet.getOutputSize());
+      out.writeInt(0);
+      for (DataSetRow row : dataSet.getRows()) {
+        writeValues(out, row.getInput(), dataSet.getInputSize());
+      }
+      for (DataSetRow row : dataSet.getRows()) {
+        writeValues(out, row.getDesiredOutput(), dataSet.getOutputSize());
+      }
+    }
+    Files.move(tempFile.toPath(), trainingDataFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void writeValues(DataOutputStream out, double[] values, int expectedLength) throws IOException {
+    if (values.length != expectedLength) {
+      throw new IllegalArgumentException("Expected " + expectedLength + " values, got " + values.length);
+    }
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+  }
+
+  /**
+   * @return int - the number of rows.
+   */
+  public int size() {
+    return blockStartRows[blockStartRows.length - 1];
+  }
+
+  public int getInputSize() {
+    return inputSize;
+  }
+
+  public int getOutputSize() {
+    return outputSize;
+  }
+
+  /**
+   * Reads the inputs of the specified row into the specified array (which must hold at least
+   * {@link #getInputSize()} values).
+   */
+  public void readInput(int rowIndex, double[] input) {
+    int blockIndex = findBlock(rowIndex);
+    readValues(inputBlocks[blockIndex], (rowIndex - blockStartRows[blockIndex]) * inputSize, input, inputSize);
+  }
+
+  /**
+   * Reads the desired outputs of the specified row into the specified array (which must hold at
+   * least {@link #getOutputSize()} values).
+   */
+  public void readDesiredOutput(int rowIndex, double[] desiredOutput) {
+    int blockIndex = findBlock(rowIndex);
+    readValues(outputBlocks[blockIndex], (rowIndex - blockStartRows[blockIndex]) * outputSize, desiredOutput,
+        outputSize);
+  }
+
+  private static void readValues(DoubleBuffer block, int offset, double[] values, int length) {
+    for (int aa = 0; aa < length; aa++) {
+      values[aa] = block.get(offset + aa);
+    }
+  }
+
+  /**
+   * @return int - the index of the block the specified row is in.
+   */
+  private int findBlock(int rowIndex) {
+    if (rowIndex < 0 || rowIndex >= size()) {
+      throw new IndexOutOfBoundsException("Row " + rowIndex + " of " + size());
+    }
+    if (inputBlocks.length == 1) {
+      return 0;
+    }
+    int ret = Arrays.binarySearch(blockStartRows, rowIndex);
+    return (ret >= 0) ? ret : -ret - 2;
+  }
+
+  /**
+   * Computes a random order to visit the rows in: the same permutation Collections.shuffle() would
+   * put the rows in, given the same Random.
+   *
+   * @param random
+   *          Where the random numbers come from.
+   *
+   * @return int[] - the row indexes, shuffled.
+   */
+  public int[] computeShuffledOrder(Random random) {
+    int[] ret = new int[size()];
+    for (int rowIndex = 0; rowIndex < ret.length; rowIndex++) {
+      ret[rowIndex] = rowIndex;
+    }
+    for (int aa = ret.length; aa > 1; aa--) {
+      int other = random.nextInt(aa);
+      int rowIndex = ret[aa - 1];
+      ret[aa - 1] = ret[other];
+      ret[other] = rowIndex;
+    }
+    return ret;
+  }
+
+  /**
+   * Puts the specified rows, in the specified order, into a (Neuroph) DataSet, for training a
+   * network with Neuroph (which only knows about DataSets). The rows themselves are only copied
+   * out of the training data once: every DataSet shares the same DataSetRow objects (Neuroph
+   * never changes them), only the order is different.
+   *
+   * @param rowOrder
+   *          The rows, in the order they are to appear in the DataSet.
+   *
+   * @return DataSet - the rows.
+   */
+  public DataSet toDataSet(int[] rowOrder) {
+    DataSetRow[] rows = getDataSetRows();
+    DataSet ret = new DataSet(inputSize, outputSize);
+    for (int rowIndex : rowOrder) {
+      ret.addRow(rows[rowIndex]);
+    }
+    return ret;
+  }
+
+  /**
+   * @return DataSetRow[] - every row as a DataSetRow, in order (built the first time through).
+   */
+  private synchronized DataSetRow[] getDataSetRows() {
+    if (dataSetRows == null) {
+      DataSetRow[] rows = new DataSetRow[size()];
+      for (int rowIndex = 0; rowIndex < rows.length; rowIndex++) {
+        double[] input = new double[inputSize];
+        double[] desiredOutput = new double[outputSize];
+        readInput(rowIndex, input);
+        readDesiredOutput(rowIndex, desiredOutput);
+        rows[rowIndex] = new DataSetRow(input, desiredOutput);
+      }
+      dataSetRows = rows;
+    }
+    return dataSetRows;
+  }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.dao.SeasonAnalyticsDao;
+import com.makotojava.ncaabb.dao.SeasonDataDao;
+import com.makotojava.ncaabb.dao.TournamentResultDao;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+import com.makotojava.ncaabb.model.SeasonData;
+import com.makotojava.ncaabb.model.TournamentResult;
+
+/**
+ * Everything needed to validate a trained network against the historical tournament
+ * games of the simulation years: the normalized network input for both orientations
+ * of every game (winner as LHS, then loser as LHS), along with the actual result.
+ *
+ * Built once per training run, so validating a network is nothing but forward
+ * passes: no database I/O. Immutable once built, so it can be shared by all
+ * CTV iterations, no matter what thread they run on.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class ValidationFixture {
+
+  private static final Logger log = Logger.getLogger(ValidationFixture.class);
+
+  /**
+   * The games for each simulation year, in the order the years were specified.
+   */
+  private final Map<Integer, List<ValidationGame>> gamesByYear = new LinkedHashMap<>();
+
+  /**
+   * The network inputs for each simulation year, as one feature matrix (see {@link #getNetworkInputs(Integer)}).
+   */
+  private final Map<Integer, double[][]> networkInputsByYear = new LinkedHashMap<>();
+
+  /**
+   * Constructor. Pulls everything needed from the database for the specified years
+   * and computes the network inputs for every game.
+   *
+   * @param yearsToSimulate
+   *          The years whose tournament games are to be used for validation.
+   * @param seasonDataDao
+   *          DAO for the season data of the teams in each game.
+   * @param tournamentResultDao
+   *          DAO for the tournament results.
+   * @param seasonAnalyticsDao
+   *          DAO for the analytics used to normalize the season data.
+   */
+  public ValidationFixture(Integer[] yearsToSimulate, SeasonDataDao seasonDataDao,
+      TournamentResultDao tournamentResultDao, SeasonAnalyticsDao seasonAnalyticsDao) {
+    //
+    // Pull the season data for all of the years in one shot
+    Map<Integer, Map<String, SeasonData>> seasonDataByYear =
+        seasonDataDao.fetchAllByYears(Arrays.asList(yearsToSimulate));
+    for (Integer yearToSimulate : yearsToSimulate) {
+      List<TournamentResult> tournamentResults = tournamentResultDao.fetchAllByYear(yearToSimulate);
+      FeatureNormalizer featureNormalizer = new FeatureNormalizer(seasonAnalyticsDao.fetchByYear(yearToSimulate));
+      Map<String, SeasonData> seasonDataByTeamName = seasonDataByYear.get(yearToSimulate);
+      if (seasonDataByTeamName == null) {
+        seasonDataByTeamName = Collections.emptyMap();
+      }
+      List<ValidationGame> games = new ArrayList<>(tournamentResults.size());
+      for (TournamentResult tournamentResult : tournamentResults) {
+        SeasonData winningTeamSeasonData = fetchSeasonData(seasonDataByTeamName, yearToSimulate,
+            tournamentResult.getWinningTeamName());
+        SeasonData losingTeamSeasonData = fetchSeasonData(seasonDataByTeamName, yearToSimulate,
+            tournamentResult.getLosingTeamName());
+        games.add(new ValidationGame(tournamentResult, featureNormalizer, winningTeamSeasonData,
+            losingTeamSeasonData));
+      }
+      gamesByYear.put(yearToSimulate, Collections.unmodifiableList(games));
+      double[][] networkInputs = new double[games.size() * ValidationGame.NUMBER_OF_ORIENTATIONS][];
+      for (int gameIndex = 0; gameIndex < games.size(); gameIndex++) {
+        for (int orientation = 0; orientation < ValidationGame.NUMBER_OF_ORIENTATIONS; orientation++) {
+          networkInputs[computeNetworkInputRow(gameIndex, orientation)] = games.get(gameIndex)
+              .getNetworkInput(orientation);
+        }
+      }
+      networkInputsByYear.put(yearToSimulate, networkInputs);
+      log.info("Validation fixture: " + games.size() + " games for year " + yearToSimulate);
+    }
+  }
+
+  private static SeasonData fetchSeasonData(Map<String, SeasonData> seasonDataByTeamName, Integer year,
+      String teamName) {
+    SeasonData ret = seasonDataByTeamName.get(teamName);
+    if (ret == null) {
+      String message = "Requested team/year combination (" + teamName + "/" + year + ") does not exist in the DB!";
+      log.error(message);
+      throw new RuntimeException(message);
+    }
+    return ret;
+  }
+
+  /**
+   * @return List<Integer> - the simulation years, in the order they were specified.
+   */
+  public List<Integer> getYears() {
+    return new ArrayList<>(gamesByYear.keySet());
+  }
+
+  /**
+   * @return List<ValidationGame> - the games for the specified year (empty if the
+   *         year is not part of this fixture).
+   */
+  public List<ValidationGame> getGames(Integer year) {
+    List<ValidationGame> ret = gamesByYear.get(year);
+    return (ret == null) ? Collections.<ValidationGame> emptyList() : ret;
+  }
+
+  /**
+   * Returns the network inputs for every game of the specified year as one feature matrix,
+   * ready to be run through a {@link com.makotojava.ncaabb.simulation.BatchNetworkEvaluator}.
+   * The input for each game and orientation is at {@link #computeNetworkInputRow(int, int)}.
+   *
+   * @return double[][] - the feature matrix (empty if the year is not part of this fixture).
+   *         Do not modify it.
+   */
+  public double[][] getNetworkInputs(Integer year) {
+    double[][] ret = networkInputsByYear.get(year);
+    return (ret == null) ? new double[0][] : ret;
+  }
+
+  /**
+   * @return int - the row of {@link #getNetworkInputs(Integer)} that holds the input for the
+   *         specified game (its index in {@link #getGames(Integer)}) and orientation.
+   */
+  public static int computeNetworkInputRow(int gameIndex, int orientation) {
+    return gameIndex * ValidationGame.NUMBER_OF_ORIENTATIONS + orientation;
+  }
+
+  /**
+   * A single historical tournament game, ready to be run through a network both ways:
+   * orientation 0 has the winner as home team (LHS), orientation 1 has the loser as home team.
+   *
+   * @author J Steven Perry
+   *
+   */
+  public static class ValidationGame {
+
+    /**
+     * Each game is simulated twice
+     */
+    public static final int NUMBER_OF_ORIENTATIONS = 2;
+
+    private final TournamentResult tournamentResult;
+    private final String[] homeTeamNames = new String[NUMBER_OF_ORIENTATIONS];
+    private final String[] awayTeamNames = new String[NUMBER_OF_ORIENTATIONS];
+    private final double[][] networkInputs = new double[NUMBER_OF_ORIENTATIONS][];
+
+    ValidationGame(TournamentResult tournamentResult, FeatureNormalizer featureNormalizer,
+        SeasonData winningTeamSeasonData, SeasonData losingTeamSeasonData) {
+      this.tournamentResult = tournamentResult;
+      for (int orientation = 0; orientation < NUMBER_OF_ORIENTATIONS; orientation++) {
+        //
+        // Switch up the team order every other orientation, to eliminate
+        /// positional bias in the network.
+        SeasonData homeTeamSeasonData = (orientation % 2 == 0) ? winningTeamSeasonData : losingTeamSeasonData;
+        SeasonData awayTeamSeasonData = (orientation % 2 == 0) ? losingTeamSeasonData : winningTeamSeasonData;
+        homeTeamNames[orientation] = homeTeamSeasonData.getTeamName();
+        awayTeamNames[orientation] = awayTeamSeasonData.getTeamName();
+        networkInputs[orientation] = DataCreator
+            .processAsDataSetRowForSimulation(featureNormalizer, homeTeamSeasonData, awayTeamSeasonData).getInput();
+      }
+    }
+
+    public TournamentResult getTournamentResult() {
+      return tournamentResult;
+    }
+
+    public String getHomeTeamName(int orientation) {
+      return homeTeamNames[orientation];
+    }
+
+    public String getAwayTeamName(int orientation) {
+      return awayTeamNames[orientation];
+    }
+
+    /**
+     * @return double[] - the network input for the specified orientation. Do not modify it.
+     */
+    public double[] getNetworkInput(int orientation) {
+      return networkInputs[orientation];
+    }
+
+  }
+
+}
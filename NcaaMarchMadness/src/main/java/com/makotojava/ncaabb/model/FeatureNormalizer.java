@@ -0,0 +1,329 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.function.Function;
+
+import com.makotojava.ncaabb.util.StatsUtils;
+
+/**
+ * Normalizes {@link SeasonData} for a single year using primitive arithmetic. Built once
+ * per {@link SeasonAnalytics} (i.e., once per year), after which normalizing a team is
+ * nothing but a handful of long multiplies and divides, and writing a matchup into the
+ * network input is just copying doubles.
+ *
+ * Produces exactly what the BigDecimal normalization did (see StatsUtils.normalize() and
+ * StatsUtils.normalizeInverted(), followed by rounding to StatsUtils.SCALE in the SeasonData
+ * setters), bit for bit, including HALF_UP ties and the clamping at StatsUtils.MIN_ALLOWABLE_VALUE
+ * and StatsUtils.MAX_ALLOWABLE_VALUE: the division is done on the unscaled values in long
+ * arithmetic, never in floating point. Like the BigDecimal code, a feature whose max equals
+ * its min throws ArithmeticException.
+ *
+ * The features are in the same order as the network input (see {@link NormalizedData}),
+ * where the LHS and RHS teams are interleaved: LHS feature 0, RHS feature 0, LHS feature 1, ...
+ *
+ * Immutable, so it can be shared by any number of threads.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class FeatureNormalizer {
+
+  /**
+   * Number of features per team. The network input is two teams' worth.
+   */
+  public static final int NUMBER_OF_FEATURES = 23;
+
+  /**
+   * The features, in network input order
+   */
+  private static final Feature[] FEATURES = {
+      // Defense
+      new Feature(SeasonData::getAvgOpponentPointsPerGame, SeasonAnalytics::getMinAvgOpponentPointsPg,
+          SeasonAnalytics::getMaxAvgOpponentPointsPg, true),
+      new Feature(SeasonData::getBlocksPerGame, SeasonAnalytics::getMinBlocksPg, SeasonAnalytics::getMaxBlocksPg,
+          false),
+      new Feature(SeasonData::getNumOpp3pAttemptsPerGame, SeasonAnalytics::getMinNumOpp3pAttemptsPg,
+          SeasonAnalytics::getMaxNumOpp3pAttemptsPg, true),
+      new Feature(SeasonData::getOpp3pPercentage, SeasonAnalytics::getMinOpp3pPercentage,
+          SeasonAnalytics::getMaxOpp3pPercentage, true),
+      new Feature(SeasonData::getNumOppFgAttemptsPerGame, SeasonAnalytics::getMinNumOppFgAttemptsPg,
+          SeasonAnalytics::getMaxNumOppFgAttemptsPg, true),
+      new Feature(SeasonData::getOppFgPercentage, SeasonAnalytics::getMinOppFgPercentage,
+          SeasonAnalytics::getMaxOppFgPercentage, true),
+      new Feature(SeasonData::getTurnoversPerGame, SeasonAnalytics::getMinTurnoversPg,
+          SeasonAnalytics::getMaxTurnoversPg, true),
+      new Feature(SeasonData::getReboundMargin, SeasonAnalytics::getMinReboundMargin,
+          SeasonAnalytics::getMaxReboundMargin, false),
+      new Feature(SeasonData::getStealsPerGame, SeasonAnalytics::getMinStealsPg, SeasonAnalytics::getMaxStealsPg,
+          false),
+      // Errors
+      new Feature(SeasonData::getFoulsPerGame, SeasonAnalytics::getMinFoulsPg, SeasonAnalytics::getMaxFoulsPg, true),
+      new Feature(SeasonData::getNumDq, SeasonAnalytics::getMinNumDq, SeasonAnalytics::getMaxNumDq, true),
+      new Feature(SeasonData::getOppTurnoversPerGame, SeasonAnalytics::getMinOppTurnoversPg,
+          SeasonAnalytics::getMaxOppTurnoversPg, false),
+      // Offense
+      new Feature(SeasonData::getAvgPointsPerGame, SeasonAnalytics::getMinAvgPointsPg,
+          SeasonAnalytics::getMaxAvgPointsPg, false),
+      new Feature(SeasonData::getScoringMarginPerGame, SeasonAnalytics::getMinScoringMarginPg,
+          SeasonAnalytics::getMaxScoringMarginPg, false),
+      new Feature(SeasonData::getNumFgAttemptsPerGame, SeasonAnalytics::getMinNumFgAttemptsPg,
+          SeasonAnalytics::getMaxNumFgAttemptsPg, false),
+      new Feature(SeasonData::getFgPercentage, SeasonAnalytics::getMinFgPercentage,
+          SeasonAnalytics::getMaxFgPercentage, false),
+      new Feature(SeasonData::getNumFtAttemptsPerGame, SeasonAnalytics::getMinNumFtAttemptsPg,
+          SeasonAnalytics::getMaxNumFtAttemptsPg, false),
+      new Feature(SeasonData::getFtPercentage, SeasonAnalytics::getMinFtPercentage,
+          SeasonAnalytics::getMaxFtPercentage, false),
+      new Feature(SeasonData::getNum3pAttemptsPerGame, SeasonAnalytics::getMinNum3pAttemptsPg,
+          SeasonAnalytics::getMaxNum3pAttemptsPg, false),
+      new Feature(SeasonData::getNum3pPerGame, SeasonAnalytics::getMinNum3pPerGame,
+          SeasonAnalytics::getMaxNum3pPerGame, false),
+      new Feature(SeasonData::getT3pPercentage, SeasonAnalytics::getMinT3pPercentage,
+          SeasonAnalytics::getMaxT3pPercentage, false),
+      new Feature(SeasonData::getAssistsPerGame, SeasonAnalytics::getMinAssistsPg,
+          SeasonAnalytics::getMaxAssistsPg, false),
+      new Feature(SeasonData::getAtoRatio, SeasonAnalytics::getMinAtoRatio, SeasonAnalytics::getMaxAtoRatio, false),
+  };
+
+  /**
+   * Past this many decimal places, the unscaled values may not fit in a long, so
+   * those (unusual) values are left to StatsUtils
+   */
+  private static final int MAX_SCALE = 18;
+
+  /**
+   * POWERS_OF_TEN[n] = 10^n
+   */
+  private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int aa = 1; aa <= MAX_SCALE; aa++) {
+      POWERS_OF_TEN[aa] = POWERS_OF_TEN[aa - 1] * 10;
+    }
+  }
+
+  /**
+   * 10^SCALE: the normalized values are rounded to StatsUtils.SCALE decimal places
+   */
+  private static final double OUTPUT_SCALE_FACTOR = POWERS_OF_TEN[StatsUtils.SCALE];
+
+  private final BigDecimal[] min = new BigDecimal[NUMBER_OF_FEATURES];
+  private final BigDecimal[] max = new BigDecimal[NUMBER_OF_FEATURES];
+  //
+  // The min and range (max - min) as unscaled longs, so (value - min) / range can be
+  /// done exactly, the way BigDecimal.divide() did it, without allocating BigDecimals.
+  private final long[] unscaledMin = new long[NUMBER_OF_FEATURES];
+  private final int[] minScale = new int[NUMBER_OF_FEATURES];
+  private final long[] unscaledRange = new long[NUMBER_OF_FEATURES];
+  private final int[] rangeScale = new int[NUMBER_OF_FEATURES];
+  private final boolean[] fitsInLong = new boolean[NUMBER_OF_FEATURES];
+
+  /**
+   * Constructor.
+   *
+   * @param seasonAnalytics
+   *          The SeasonAnalytics (min and max values) for the year whose
+   *          data is to be normalized.
+   */
+  public FeatureNormalizer(SeasonAnalytics seasonAnalytics) {
+    for (int aa = 0; aa < NUMBER_OF_FEATURES; aa++) {
+      min[aa] = FEATURES[aa].min.apply(seasonAnalytics);
+      max[aa] = FEATURES[aa].max.apply(seasonAnalytics);
+      BigDecimal range = max[aa].subtract(min[aa]);
+      fitsInLong[aa] = fitsInLong(min[aa].unscaledValue()) && fitsInLong(range.unscaledValue());
+      if (fitsInLong[aa]) {
+        unscaledMin[aa] = min[aa].unscaledValue().longValue();
+        minScale[aa] = min[aa].scale();
+        unscaledRange[aa] = range.unscaledValue().longValue();
+        rangeScale[aa] = range.scale();
+      }
+    }
+  }
+
+  /**
+   * Normalizes the specified team's SeasonData.
+   *
+   * @param seasonData
+   *          The raw (un-normalized) data.
+   *
+   * @return double[] - the NUMBER_OF_FEATURES normalized values, in network input order.
+   */
+  public double[] normalize(SeasonData seasonData) {
+    double[] ret = new double[NUMBER_OF_FEATURES];
+    normalize(seasonData, ret, 0, 1);
+    return ret;
+  }
+
+  /**
+   * Normalizes the specified team's SeasonData straight into the specified array.
+   *
+   * @param seasonData
+   *          The raw (un-normalized) data.
+   * @param destination
+   *          Where the normalized values go.
+   * @param offset
+   *          Index in destination of the first feature.
+   * @param stride
+   *          Distance in destination between features (2 to interleave two teams).
+   */
+  public void normalize(SeasonData seasonData, double[] destination, int offset, int stride) {
+    for (int aa = 0; aa < NUMBER_OF_FEATURES; aa++) {
+      destination[offset + aa * stride] = normalize(aa, FEATURES[aa].value.apply(seasonData));
+    }
+  }
+
+  /**
+   * Writes the network input for the specified matchup into the specified array, without
+   * allocating anything.
+   *
+   * @param left
+   *          The LHS (home) team's normalized features, from normalize(SeasonData).
+   * @param right
+   *          The RHS (away) team's normalized features, from normalize(SeasonData).
+   * @param destination
+   *          Where the input goes. Must hold at least 2 * NUMBER_OF_FEATURES values; anything
+   *          past that (e.g., the outputs) is left alone.
+   */
+  public static void writeInputs(double[] left, double[] right, double[] destination) {
+    for (int aa = 0; aa < NUMBER_OF_FEATURES; aa++) {
+      destination[2 * aa] = left[aa];
+      destination[2 * aa + 1] = right[aa];
+    }
+  }
+
+  /**
+   * Normalizes the specified teams' SeasonData straight into the network input.
+   *
+   * @param left
+   *          The LHS (home) team's raw SeasonData.
+   * @param right
+   *          The RHS (away) team's raw SeasonData.
+   * @param destination
+   *          Where the input goes. Must hold at least 2 * NUMBER_OF_FEATURES values; anything
+   *          past that (e.g., the outputs) is left alone.
+   */
+  public void writeInputs(SeasonData left, SeasonData right, double[] destination) {
+    normalize(left, destination, 0, 2);
+    normalize(right, destination, 1, 2);
+  }
+
+  /**
+   * Normalizes a single feature value exactly the way StatsUtils.normalize() (or
+   * normalizeInverted()) followed by rounding to StatsUtils.SCALE did, but in long
+   * arithmetic. Values that won't fit in a long go through StatsUtils itself.
+   */
+  private double normalize(int featureIndex, BigDecimal value) {
+    if (unscaledRange[featureIndex] == 0 && fitsInLong[featureIndex]) {
+      // Same thing BigDecimal.divide() would do
+      throw new ArithmeticException("Division by zero: max == min (" + max[featureIndex] + ") for feature "
+          + featureIndex);
+    }
+    //
+    // If the value is null, then set it to the min (nulls cause the program to crash)
+    if (value == null) {
+      return FEATURES[featureIndex].inverted ? StatsUtils.MAX_ALLOWABLE_VALUE : StatsUtils.MIN_ALLOWABLE_VALUE;
+    }
+    int quotientScale = Math.max(value.scale(), minScale[featureIndex]);
+    // unscaledValue() allocates a BigInteger, so only ask for it once
+    BigInteger unscaled = value.unscaledValue();
+    if (!fitsInLong[featureIndex] || !fitsInLong(unscaled) || quotientScale > MAX_SCALE
+        || rangeScale[featureIndex] > MAX_SCALE) {
+      return normalizeWithStatsUtils(featureIndex, value);
+    }
+    long unscaledQuotient;
+    try {
+      //
+      // (value - min) at the larger of the two scales, which is the scale BigDecimal.divide()
+      /// rounds the quotient to: unscaledQuotient = (value - min) * 10^rangeScale / range
+      long dividend = Math.subtractExact(
+          Math.multiplyExact(unscaled.longValue(), POWERS_OF_TEN[quotientScale - value.scale()]),
+          Math.multiplyExact(unscaledMin[featureIndex], POWERS_OF_TEN[quotientScale - minScale[featureIndex]]));
+      unscaledQuotient = divideHalfUp(Math.multiplyExact(dividend, POWERS_OF_TEN[rangeScale[featureIndex]]),
+          unscaledRange[featureIndex]);
+    } catch (ArithmeticException e) {
+      // Overflow
+      return normalizeWithStatsUtils(featureIndex, value);
+    }
+    //
+    // Clamp the same way StatsUtils does (10^quotientScale is exact as a double, so this is
+    /// the same double BigDecimal.doubleValue() produces)
+    boolean inverted = FEATURES[featureIndex].inverted;
+    double quotient = unscaledQuotient / (double) POWERS_OF_TEN[quotientScale];
+    if (quotient >= 1.0) {
+      return inverted ? StatsUtils.MIN_ALLOWABLE_VALUE : StatsUtils.MAX_ALLOWABLE_VALUE;
+    } else if (quotient <= 0.0) {
+      return inverted ? StatsUtils.MAX_ALLOWABLE_VALUE : StatsUtils.MIN_ALLOWABLE_VALUE;
+    }
+    if (inverted) {
+      unscaledQuotient = POWERS_OF_TEN[quotientScale] - unscaledQuotient;
+    }
+    //
+    // Now round HALF_UP to StatsUtils.SCALE (the SeasonData setters)
+    long unscaledValue = (quotientScale >= StatsUtils.SCALE)
+        ? divideHalfUp(unscaledQuotient, POWERS_OF_TEN[quotientScale - StatsUtils.SCALE])
+        : unscaledQuotient * POWERS_OF_TEN[StatsUtils.SCALE - quotientScale];
+    return unscaledValue / OUTPUT_SCALE_FACTOR;
+  }
+
+  /**
+   * The slow way, for values with too many digits to do in a long.
+   */
+  private double normalizeWithStatsUtils(int featureIndex, BigDecimal value) {
+    BigDecimal normalized = FEATURES[featureIndex].inverted
+        ? StatsUtils.normalizeInverted(value, min[featureIndex], max[featureIndex])
+        : StatsUtils.normalize(value, min[featureIndex], max[featureIndex]);
+    return normalized.setScale(StatsUtils.SCALE, RoundingMode.HALF_UP).doubleValue();
+  }
+
+  /**
+   * Integer division, rounded HALF_UP (ties away from zero), like RoundingMode.HALF_UP.
+   */
+  private static long divideHalfUp(long dividend, long divisor) {
+    long quotient = dividend / divisor;
+    long remainder = Math.abs(dividend % divisor);
+    if (remainder != 0 && remainder >= Math.abs(divisor) - remainder) {
+      quotient += ((dividend < 0) == (divisor < 0)) ? 1 : -1;
+    }
+    return quotient;
+  }
+
+  private static boolean fitsInLong(BigInteger unscaledValue) {
+    return unscaledValue.bitLength() < Long.SIZE - 1;
+  }
+
+  /**
+   * Where to find the value, min and max for a single feature.
+   */
+  private static final class Feature {
+    private final Function<SeasonData, BigDecimal> value;
+    private final Function<SeasonAnalytics, BigDecimal> min;
+    private final Function<SeasonAnalytics, BigDecimal> max;
+    private final boolean inverted;
+
+    Feature(Function<SeasonData, BigDecimal> value, Function<SeasonAnalytics, BigDecimal> min,
+        Function<SeasonAnalytics, BigDecimal> max, boolean inverted) {
+      this.value = value;
+      this.min = min;
+      this.max = max;
+      this.inverted = inverted;
+    }
+  }
+
+}
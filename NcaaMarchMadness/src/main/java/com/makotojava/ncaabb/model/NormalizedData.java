@@ -15,10 +15,6 @@
  */
 package com.makotojava.ncaabb.model;
 
-import org.apache.commons.lang3.tuple.Pair;
-
-import com.makotojava.ncaabb.util.StatsUtils;
-
 /**
  * Wrapper around {@link SeasonData} to use when training or running the network.
  * 
@@ -28,21 +24,13 @@ import com.makotojava.ncaabb.util.StatsUtils;
 public class NormalizedData {
 
   /**
-   * Commons lang3 Pair object to hold the pair of SeasonData objects containing
-   * normalized data.
+   * The normalized data for both teams, followed by room for the outputs, in the
+   * order the network expects it (see {@link FeatureNormalizer}).
    */
-  private Pair<SeasonData, SeasonData> seasonDataPair;
+  private final double[] inputAndOutput = new double[2 * FeatureNormalizer.NUMBER_OF_FEATURES + 2];
 
-  private Pair<SeasonData, SeasonData> getSeasonDataPair() {
-    if (seasonDataPair == null) {
-      throw new RuntimeException("Configuration Error! The seasonDataPair object cannot be null!");
-    }
-    return seasonDataPair;
-  }
-  
   /**
-   * Constructor - the one and only way to create an instance of this class.
-   * The data is normalized at the moment of creation.
+   * Constructor. The data is normalized at the moment of creation.
    * 
    * @param seasonAnalytics
    *          The SeasonAnalytics object needed to normalize the data
@@ -55,138 +43,38 @@ public class NormalizedData {
    *          The RHS SeasonData object with raw values (un-normalized)
    */
   public NormalizedData(SeasonAnalytics seasonAnalytics, SeasonData team1, SeasonData team2) {
-    //
-    // Create the Pair object
-    seasonDataPair = Pair.of(new SeasonData(), new SeasonData());
-
-    //
-    // Normalize the left-hand data
-    normalizeData(seasonAnalytics, getSeasonDataPair().getLeft(), team1);
-    //
-    // Normalize the right-hand data
-    normalizeData(seasonAnalytics, getSeasonDataPair().getRight(), team2);
+    this(new FeatureNormalizer(seasonAnalytics), team1, team2);
   }
 
   /**
-   * Performs the normalization. This class seems like the place to encapsulate that
-   * logic.
+   * Constructor. The data is normalized at the moment of creation. Use this one when
+   * normalizing more than one matchup for the same year, so the FeatureNormalizer
+   * only gets built once.
    * 
-   * @param seasonAnalytics
-   *          Needed to perform the normalization.
-   * @param normalized
-   *          The SeasonData object where the normalized data goes (i.e., the destination)
-   * @param raw
-   *          The SeasonData object where the source data comes from (i.e., the source)
+   * @param featureNormalizer
+   *          The FeatureNormalizer for the year of the data
+   * 
+   * @param team1
+   *          The LHS SeasonData object with raw values (un-normalized)
+   * 
+   * @param team2
+   *          The RHS SeasonData object with raw values (un-normalized)
    */
-  private void normalizeData(SeasonAnalytics seasonAnalytics, SeasonData normalized, SeasonData raw) {
-    normalized.setTeamName(raw.getTeamName());
-    normalized
-        .setAvgPointsPerGame(StatsUtils.normalize(raw.getAvgPointsPerGame(), seasonAnalytics.getMinAvgPointsPg(),
-            seasonAnalytics.getMaxAvgPointsPg()));
-    normalized.setScoringMarginPerGame(StatsUtils.normalize(raw.getScoringMarginPerGame(),
-        seasonAnalytics.getMinScoringMarginPg(), seasonAnalytics.getMaxScoringMarginPg()));
-    normalized.setNumFgAttemptsPerGame(StatsUtils.normalize(raw.getNumFgAttemptsPerGame(),
-        seasonAnalytics.getMinNumFgAttemptsPg(), seasonAnalytics.getMaxNumFgAttemptsPg()));
-    normalized
-        .setFgPercentage(StatsUtils.normalize(raw.getFgPercentage(), seasonAnalytics.getMinFgPercentage(),
-            seasonAnalytics.getMaxFgPercentage()));
-    normalized.setNumFtAttemptsPerGame(StatsUtils.normalize(raw.getNumFtAttemptsPerGame(),
-        seasonAnalytics.getMinNumFtAttemptsPg(), seasonAnalytics.getMaxNumFtAttemptsPg()));
-    normalized
-        .setFtPercentage(StatsUtils.normalize(raw.getFtPercentage(), seasonAnalytics.getMinFtPercentage(),
-            seasonAnalytics.getMaxFtPercentage()));
-    normalized.setNum3pAttemptsPerGame(StatsUtils.normalize(raw.getNum3pAttemptsPerGame(),
-        seasonAnalytics.getMinNum3pAttemptsPg(), seasonAnalytics.getMaxNum3pAttemptsPg()));
-    normalized
-        .setNum3pPerGame(StatsUtils.normalize(raw.getNum3pPerGame(), seasonAnalytics.getMinNum3pPerGame(),
-            seasonAnalytics.getMaxNum3pPerGame()));
-    normalized
-        .setT3pPercentage(StatsUtils.normalize(raw.getT3pPercentage(), seasonAnalytics.getMinT3pPercentage(),
-            seasonAnalytics.getMaxT3pPercentage()));
-    normalized
-        .setAssistsPerGame(StatsUtils.normalize(raw.getAssistsPerGame(), seasonAnalytics.getMinAssistsPg(),
-            seasonAnalytics.getMaxAssistsPg()));
-    normalized.setAtoRatio(
-        StatsUtils.normalize(raw.getAtoRatio(), seasonAnalytics.getMinAtoRatio(), seasonAnalytics.getMaxAtoRatio()));
-    normalized
-        .setAvgOpponentPointsPerGame(StatsUtils.normalizeInverted(raw.getAvgOpponentPointsPerGame(),
-            seasonAnalytics.getMinAvgOpponentPointsPg(), seasonAnalytics.getMaxAvgOpponentPointsPg()));
-    normalized.setBlocksPerGame(
-        StatsUtils.normalize(raw.getBlocksPerGame(), seasonAnalytics.getMinBlocksPg(),
-            seasonAnalytics.getMaxBlocksPg()));
-    normalized
-        .setNumOpp3pAttemptsPerGame(StatsUtils.normalizeInverted(raw.getNumOpp3pAttemptsPerGame(),
-            seasonAnalytics.getMinNumOpp3pAttemptsPg(), seasonAnalytics.getMaxNumOpp3pAttemptsPg()));
-    normalized
-        .setNumOppFgAttemptsPerGame(StatsUtils.normalizeInverted(raw.getNumOppFgAttemptsPerGame(),
-            seasonAnalytics.getMinNumOppFgAttemptsPg(), seasonAnalytics.getMaxNumOppFgAttemptsPg()));
-    normalized.setOpp3pPercentage(StatsUtils.normalizeInverted(raw.getOpp3pPercentage(),
-        seasonAnalytics.getMinOpp3pPercentage(), seasonAnalytics.getMaxOpp3pPercentage()));
-    normalized.setOppFgPercentage(StatsUtils.normalizeInverted(raw.getOppFgPercentage(),
-        seasonAnalytics.getMinOppFgPercentage(), seasonAnalytics.getMaxOppFgPercentage()));
-    normalized.setOppTurnoversPerGame(StatsUtils.normalize(raw.getOppTurnoversPerGame(),
-        seasonAnalytics.getMinOppTurnoversPg(), seasonAnalytics.getMaxOppTurnoversPg()));
-    normalized
-        .setReboundMargin(StatsUtils.normalize(raw.getReboundMargin(), seasonAnalytics.getMinReboundMargin(),
-            seasonAnalytics.getMaxReboundMargin()));
-    normalized.setStealsPerGame(
-        StatsUtils.normalize(raw.getStealsPerGame(), seasonAnalytics.getMinStealsPg(),
-            seasonAnalytics.getMaxStealsPg()));
-    normalized
-        .setFoulsPerGame(StatsUtils.normalizeInverted(raw.getFoulsPerGame(), seasonAnalytics.getMinFoulsPg(),
-            seasonAnalytics.getMaxFoulsPg()));
-    normalized.setNumDq(
-        StatsUtils.normalizeInverted(raw.getNumDq(), seasonAnalytics.getMinNumDq(), seasonAnalytics.getMaxNumDq()));
-    normalized.setTurnoversPerGame(StatsUtils.normalizeInverted(raw.getTurnoversPerGame(),
-        seasonAnalytics.getMinTurnoversPg(), seasonAnalytics.getMaxTurnoversPg()));
+  public NormalizedData(FeatureNormalizer featureNormalizer, SeasonData team1, SeasonData team2) {
+    featureNormalizer.writeInputs(team1, team2, inputAndOutput);
   }
 
   /**
    * Converts the contents of this object to a double array for processing
    * by the network.
    * 
+   * Defense, then errors, then offense, with the LHS and RHS values side by side,
+   * and the outputs (zeroes) at the end.
+   * 
    * @return double[] - The contents of this object, including the outputs
    */
   public double[] asInputAndOutput() {
-    //
-    // Create the training data line
-    SeasonData left = getSeasonDataPair().getLeft();
-    SeasonData right = getSeasonDataPair().getRight();
-    double[] ret = {
-        // Defense
-        left.getAvgOpponentPointsPerGame().doubleValue(), right.getAvgOpponentPointsPerGame().doubleValue(),
-        left.getBlocksPerGame().doubleValue(), right.getBlocksPerGame().doubleValue(),
-        left.getNumOpp3pAttemptsPerGame().doubleValue(), right.getNumOpp3pAttemptsPerGame().doubleValue(),
-        left.getOpp3pPercentage().doubleValue(), right.getOpp3pPercentage().doubleValue(),
-        left.getNumOppFgAttemptsPerGame().doubleValue(), right.getNumOppFgAttemptsPerGame().doubleValue(),
-        left.getOppFgPercentage().doubleValue(), right.getOppFgPercentage().doubleValue(),
-        left.getTurnoversPerGame().doubleValue(), right.getTurnoversPerGame().doubleValue(),
-        left.getReboundMargin().doubleValue(), right.getReboundMargin().doubleValue(),
-        left.getStealsPerGame().doubleValue(), right.getStealsPerGame().doubleValue(),
-        // Errors
-        left.getFoulsPerGame().doubleValue(), right.getFoulsPerGame().doubleValue(),
-        left.getNumDq().doubleValue(), right.getNumDq().doubleValue(),
-        left.getOppTurnoversPerGame().doubleValue(), right.getOppTurnoversPerGame().doubleValue(),
-        // Offense
-        left.getAvgPointsPerGame().doubleValue(), right.getAvgPointsPerGame().doubleValue(),
-        left.getScoringMarginPerGame().doubleValue(), right.getScoringMarginPerGame().doubleValue(),
-        left.getNumFgAttemptsPerGame().doubleValue(), right.getNumFgAttemptsPerGame().doubleValue(),
-        left.getFgPercentage().doubleValue(), right.getFgPercentage().doubleValue(),
-        left.getNumFtAttemptsPerGame().doubleValue(), right.getNumFtAttemptsPerGame().doubleValue(),
-        left.getFtPercentage().doubleValue(), right.getFtPercentage().doubleValue(),
-        left.getNum3pAttemptsPerGame().doubleValue(), right.getNum3pAttemptsPerGame().doubleValue(),
-        left.getNum3pPerGame().doubleValue(), right.getNum3pPerGame().doubleValue(),
-        left.getT3pPercentage().doubleValue(), right.getT3pPercentage().doubleValue(),
-        left.getAssistsPerGame().doubleValue(), right.getAssistsPerGame().doubleValue(),
-        left.getAtoRatio().doubleValue(), right.getAtoRatio().doubleValue(),
-        //
-        // The outputs are at the end
-        0.0, 0.0
-    };
-    //
-    // Return the line
-    return ret;
-
+    return inputAndOutput.clone();
   }
 
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.util.List;
+
+/**
+ * The result of a Monte Carlo simulation of a tournament: how often each team made it
+ * to each round.
+ * 
+ * Round 0 is the bracket proper (after the play-in games), round 1 is the round after
+ * that, and so on. The last round is "champion" (the team won it all).
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class AdvancementOdds {
+
+  private final List<String> teamNames;
+  private final int numberOfSlots;
+  private final int numberOfLevels;
+  private final long numberOfTournaments;
+
+  /**
+   * The number of tournaments in which team t reached round r, at [t * numberOfLevels + r]
+   */
+  private final long[] counts;
+
+  /**
+   * Constructor.
+   * 
+   * @param bracket
+   *          The bracket that was simulated.
+   * @param numberOfTournaments
+   *          The number of tournaments that were simulated.
+   * @param counts
+   *          The number of tournaments in which team t reached round r, at [t * numberOfLevels + r],
+   *          where numberOfLevels is the number of rounds in the bracket, plus one.
+   */
+  public AdvancementOdds(Bracket bracket, long numberOfTournaments, long[] counts) {
+    this.teamNames = bracket.getTeamNames();
+    this.numberOfSlots = bracket.getNumberOfSlots();
+    this.numberOfLevels = bracket.getNumberOfRounds() + 1;
+    this.numberOfTournaments = numberOfTournaments;
+    this.counts = counts;
+  }
+
+  public List<String> getTeamNames() {
+    return teamNames;
+  }
+
+  public long getNumberOfTournaments() {
+    return numberOfTournaments;
+  }
+
+  /**
+   * @return int - the number of rounds a team can reach: the bracket proper, every round
+   *         after that, and champion.
+   */
+  public int getNumberOfLevels() {
+    return numberOfLevels;
+  }
+
+  /**
+   * @return long - the number of tournaments in which the specified team reached the specified round.
+   */
+  public long getCount(int teamIndex, int level) {
+    return counts[teamIndex * numberOfLevels + level];
+  }
+
+  /**
+   * @return double - the probability the specified team reaches the specified round.
+   */
+  public double getProbability(int teamIndex, int level) {
+    return (double) getCount(teamIndex, level) / numberOfTournaments;
+  }
+
+  /**
+   * @return double - the probability the specified team wins the tournament.
+   */
+  public double getChampionshipProbability(int teamIndex) {
+    return getProbability(teamIndex, numberOfLevels - 1);
+  }
+
+  /**
+   * @return String - the name of the specified round, by the number of teams left in it
+   *         ("ROUND OF 64", "SWEET 16", etc).
+   */
+  public String getLevelName(int level) {
+    int numberOfTeamsLeft = numberOfSlots >> level;
+    switch (numberOfTeamsLeft) {
+    case 1:
+      return "CHAMPION";
+    case 2:
+      return "CHAMPIONSHIP";
+    case 4:
+      return "FINAL 4";
+    case 8:
+      return "ELITE 8";
+    case 16:
+      return "SWEET 16";
+    default:
+      return "ROUND OF " + numberOfTeamsLeft;
+    }
+  }
+
+}
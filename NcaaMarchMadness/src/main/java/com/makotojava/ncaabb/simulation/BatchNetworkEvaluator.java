@@ -0,0 +1,384 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.neuroph.core.NeuralNetwork;
+import org.neuroph.nnet.learning.BackPropagation;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+
+/**
+ * Runs a whole matrix of network inputs (one row per game) through an ensemble of
+ * networks at once, rather than one row and one network at a time.
+ * 
+ * Networks with the same architecture (layer sizes and bias) are grouped together, and
+ * their weights are stacked, so the first layer of a block of networks is a single
+ * matrix-matrix multiply against a block of input rows. The layers after that belong
+ * to each network alone, so they are multiplied one network at a time (but still a
+ * block of rows at a time). The multiplies are tiled so the rows and weights being
+ * worked on stay in cache.
+ * 
+ * Every output is computed exactly the way {@link FlatMlpNetwork} computes it (same
+ * summation order, same sigmoid), so the results are identical to running each network
+ * one row at a time, and within 1e-12 of Neuroph.
+ * 
+ * Immutable once built, and all scratch space belongs to the call, so a single evaluator
+ * can be used by any number of threads at once.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class BatchNetworkEvaluator {
+
+  private static final Logger log = Logger.getLogger(BatchNetworkEvaluator.class);
+
+  /**
+   * The number of input rows pushed through the networks at once.
+   */
+  static final int ROW_BLOCK_SIZE = 64;
+
+  /**
+   * The number of networks (of the same architecture) whose first layer weights
+   * are multiplied at once.
+   */
+  static final int NETWORK_BLOCK_SIZE = 16;
+
+  /**
+   * The number of neurons (weight matrix rows) multiplied against a block of input
+   * rows before moving on to the next neurons.
+   */
+  static final int NEURON_BLOCK_SIZE = 64;
+
+  private final int numberOfNetworks;
+  private final int inputsCount;
+  private final int outputsCount;
+  private final List<ArchitectureGroup> architectureGroups;
+
+  /**
+   * Creates a BatchNetworkEvaluator for the specified Neuroph networks (which are copied,
+   * so changing them afterward has no effect on the evaluator).
+   * 
+   * @param networks
+   *          The ensemble. Every network must have the same number of inputs and outputs.
+   * 
+   * @return BatchNetworkEvaluator - the new evaluator.
+   */
+  public static BatchNetworkEvaluator fromNetworks(List<? extends NeuralNetwork<BackPropagation>> networks) {
+    List<FlatMlpNetwork> flatNetworks = new ArrayList<>(networks.size());
+    for (NeuralNetwork<BackPropagation> network : networks) {
+      flatNetworks.add(FlatMlpNetwork.fromNetwork(network));
+    }
+    return new BatchNetworkEvaluator(flatNetworks);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param networks
+   *          The ensemble. Every network must have the same number of inputs and outputs.
+   *          The weights are copied, so changing them afterward has no effect on the evaluator.
+   */
+  public BatchNetworkEvaluator(List<FlatMlpNetwork> networks) {
+    if (networks.isEmpty()) {
+      throw new IllegalArgumentException("At least one network is required!");
+    }
+    numberOfNetworks = networks.size();
+    inputsCount = networks.get(0).getInputsCount();
+    outputsCount = networks.get(0).getOutputsCount();
+    //
+    // Group the networks by architecture, in the order each architecture first appears
+    Map<String, List<Integer>> networkIndexesByArchitecture = new LinkedHashMap<>();
+    for (int networkIndex = 0; networkIndex < numberOfNetworks; networkIndex++) {
+      FlatMlpNetwork network = networks.get(networkIndex);
+      if (network.getInputsCount() != inputsCount || network.getOutputsCount() != outputsCount) {
+        throw new IllegalArgumentException("Network " + networkIndex + " has " + network.getInputsCount()
+            + " inputs and " + network.getOutputsCount() + " outputs, expected " + inputsCount + " and "
+            + outputsCount);
+      }
+      networkIndexesByArchitecture.computeIfAbsent(computeArchitectureKey(network), key -> new ArrayList<>())
+          .add(networkIndex);
+    }
+    architectureGroups = new ArrayList<>(networkIndexesByArchitecture.size());
+    for (List<Integer> networkIndexes : networkIndexesByArchitecture.values()) {
+      architectureGroups.add(new ArchitectureGroup(networks, networkIndexes));
+    }
+    log.debug("Batch evaluator: " + numberOfNetworks + " networks in " + architectureGroups.size()
+        + " architecture group(s)");
+  }
+
+  private static String computeArchitectureKey(FlatMlpNetwork network) {
+    StringBuilder sb = new StringBuilder(Arrays.toString(network.getLayerSizes()));
+    for (int layerIndex = 0; layerIndex < network.getLayersCount(); layerIndex++) {
+      sb.append(network.layerHasBias(layerIndex) ? 'B' : '-');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Runs every row of the specified feature matrix through every network in the ensemble.
+   * 
+   * @param features
+   *          The feature matrix: one row per network input (each must be normalized, and the
+   *          size of the input layer).
+   * 
+   * @return double[][][] - the outputs, indexed by [network][row][output], where network
+   *         is the position of the network in the List the evaluator was built from.
+   */
+  public double[][][] evaluate(double[][] features) {
+    int numberOfRows = features.length;
+    double[][][] ret = new double[numberOfNetworks][numberOfRows][outputsCount];
+    //
+    // Scratch space: a block of (packed) input rows, and each group's layer outputs
+    /// for a block of rows and networks
+    double[] inputBlock = new double[ROW_BLOCK_SIZE * inputsCount];
+    double[][][] activationsByGroup = new double[architectureGroups.size()][][];
+    for (int groupIndex = 0; groupIndex < architectureGroups.size(); groupIndex++) {
+      activationsByGroup[groupIndex] = architectureGroups.get(groupIndex).createActivations();
+    }
+    for (int rowStart = 0; rowStart < numberOfRows; rowStart += ROW_BLOCK_SIZE) {
+      int blockRows = Math.min(ROW_BLOCK_SIZE, numberOfRows - rowStart);
+      //
+      // Pack the input rows into one contiguous block
+      for (int row = 0; row < blockRows; row++) {
+        double[] feature = features[rowStart + row];
+        if (feature.length != inputsCount) {
+          throw new IllegalArgumentException("Row " + (rowStart + row) + " has " + feature.length
+              + " features, expected " + inputsCount);
+        }
+        System.arraycopy(feature, 0, inputBlock, row * inputsCount, inputsCount);
+      }
+      for (int groupIndex = 0; groupIndex < architectureGroups.size(); groupIndex++) {
+        architectureGroups.get(groupIndex).evaluate(inputBlock, blockRows, rowStart, activationsByGroup[groupIndex],
+            ret);
+      }
+    }
+    return ret;
+  }
+
+  public int getNumberOfNetworks() {
+    return numberOfNetworks;
+  }
+
+  public int getNumberOfArchitectureGroups() {
+    return architectureGroups.size();
+  }
+
+  public int getInputsCount() {
+    return inputsCount;
+  }
+
+  public int getOutputsCount() {
+    return outputsCount;
+  }
+
+  /**
+   * Multiplies a block of input rows by a weight matrix (plus bias), and runs the result
+   * through the sigmoid. Each weighted sum is accumulated in the same order as
+   * {@link FlatMlpNetwork} does it. Works four rows at a time, so each weight is loaded
+   * once for all four, and a block of neurons at a time, so their weights stay in cache
+   * while every row is run through them.
+   * 
+   * @param input
+   *          The input rows.
+   * @param inputOffset
+   *          Where the first input row starts.
+   * @param inputStride
+   *          The distance from the start of one input row to the start of the next.
+   * @param inputsCount
+   *          The number of inputs in each row.
+   * @param numberOfRows
+   *          The number of rows.
+   * @param weights
+   *          The weight matrix: one row of <code>inputsCount + 1</code> weights per neuron
+   *          (the last one is the bias).
+   * @param weightOffset
+   *          Where the weight matrix starts.
+   * @param neuronsCount
+   *          The number of neurons (weight matrix rows).
+   * @param hasBias
+   *          Whether or not to add the bias.
+   * @param output
+   *          Where the output rows go.
+   * @param outputOffset
+   *          Where the first output row starts.
+   * @param outputStride
+   *          The distance from the start of one output row to the start of the next.
+   */
+  static void multiplyAndActivate(double[] input, int inputOffset, int inputStride, int inputsCount,
+      int numberOfRows, double[] weights, int weightOffset, int neuronsCount, boolean hasBias, double[] output,
+      int outputOffset, int outputStride) {
+    int weightStride = inputsCount + 1;
+    for (int neuronStart = 0; neuronStart < neuronsCount; neuronStart += NEURON_BLOCK_SIZE) {
+      int neuronEnd = Math.min(neuronsCount, neuronStart + NEURON_BLOCK_SIZE);
+      int row = 0;
+      for (; row + 4 <= numberOfRows; row += 4) {
+        int input0 = inputOffset + row * inputStride;
+        int input1 = input0 + inputStride;
+        int input2 = input1 + inputStride;
+        int input3 = input2 + inputStride;
+        int output0 = outputOffset + row * outputStride;
+        for (int neuron = neuronStart; neuron < neuronEnd; neuron++) {
+          int weightRow = weightOffset + neuron * weightStride;
+          double netInput0 = 0.0;
+          double netInput1 = 0.0;
+          double netInput2 = 0.0;
+          double netInput3 = 0.0;
+          for (int column = 0; column < inputsCount; column++) {
+            double weight = weights[weightRow + column];
+            netInput0 += input[input0 + column] * weight;
+            netInput1 += input[input1 + column] * weight;
+            netInput2 += input[input2 + column] * weight;
+            netInput3 += input[input3 + column] * weight;
+          }
+          if (hasBias) {
+            double bias = weights[weightRow + inputsCount];
+            netInput0 += bias;
+            netInput1 += bias;
+            netInput2 += bias;
+            netInput3 += bias;
+          }
+          output[output0 + neuron] = FlatMlpNetwork.sigmoid(netInput0);
+          output[output0 + outputStride + neuron] = FlatMlpNetwork.sigmoid(netInput1);
+          output[output0 + 2 * outputStride + neuron] = FlatMlpNetwork.sigmoid(netInput2);
+          output[output0 + 3 * outputStride + neuron] = FlatMlpNetwork.sigmoid(netInput3);
+        }
+      }
+      //
+      // Whatever rows are left over, one at a time
+      for (; row < numberOfRows; row++) {
+        int inputRow = inputOffset + row * inputStride;
+        int outputRow = outputOffset + row * outputStride;
+        for (int neuron = neuronStart; neuron < neuronEnd; neuron++) {
+          int weightRow = weightOffset + neuron * weightStride;
+          double netInput = 0.0;
+          for (int column = 0; column < inputsCount; column++) {
+            netInput += input[inputRow + column] * weights[weightRow + column];
+          }
+          if (hasBias) {
+            netInput += weights[weightRow + inputsCount];
+          }
+          output[outputRow + neuron] = FlatMlpNetwork.sigmoid(netInput);
+        }
+      }
+    }
+  }
+
+  /**
+   * The networks that share one architecture, with their weights stacked layer by layer:
+   * for each layer, the weight matrix of every network in the group, one after the other.
+   * Stacked that way, the first layer weights of a block of networks form one big weight
+   * matrix (since they all see the same input).
+   * 
+   * @author J Steven Perry
+   *
+   */
+  private static class ArchitectureGroup {
+
+    private final int[] networkIndexes;
+    private final int[] layerSizes;
+    private final boolean[] layerHasBias;
+    private final double[][] stackedWeights;
+
+    ArchitectureGroup(List<FlatMlpNetwork> networks, List<Integer> networkIndexes) {
+      FlatMlpNetwork firstNetwork = networks.get(networkIndexes.get(0));
+      this.networkIndexes = new int[networkIndexes.size()];
+      this.layerSizes = firstNetwork.getLayerSizes();
+      this.layerHasBias = new boolean[layerSizes.length];
+      this.stackedWeights = new double[layerSizes.length][];
+      for (int layerIndex = 0; layerIndex < layerSizes.length; layerIndex++) {
+        layerHasBias[layerIndex] = firstNetwork.layerHasBias(layerIndex);
+      }
+      for (int layerIndex = 1; layerIndex < layerSizes.length; layerIndex++) {
+        stackedWeights[layerIndex] = new double[networkIndexes.size() * getLayerWeightsCount(layerIndex)];
+      }
+      for (int aa = 0; aa < networkIndexes.size(); aa++) {
+        this.networkIndexes[aa] = networkIndexes.get(aa);
+        FlatMlpNetwork network = networks.get(this.networkIndexes[aa]);
+        for (int layerIndex = 1; layerIndex < layerSizes.length; layerIndex++) {
+          int layerWeightsCount = getLayerWeightsCount(layerIndex);
+          System.arraycopy(network.getWeights(), network.getWeightOffset(layerIndex), stackedWeights[layerIndex],
+              aa * layerWeightsCount, layerWeightsCount);
+        }
+      }
+    }
+
+    private int getLayerWeightsCount(int layerIndex) {
+      return layerSizes[layerIndex] * (layerSizes[layerIndex - 1] + 1);
+    }
+
+    /**
+     * @return double[][] - scratch space for the outputs of each layer (except the input
+     *         layer), for a block of rows and a block of networks.
+     */
+    double[][] createActivations() {
+      double[][] ret = new double[layerSizes.length][];
+      for (int layerIndex = 1; layerIndex < layerSizes.length; layerIndex++) {
+        ret[layerIndex] = new double[ROW_BLOCK_SIZE * NETWORK_BLOCK_SIZE * layerSizes[layerIndex]];
+      }
+      return ret;
+    }
+
+    /**
+     * Runs a block of input rows through every network in the group, a block of networks
+     * at a time. Within the activations of each layer, row <code>r</code> holds the outputs
+     * of every network in the block, one after the other.
+     */
+    void evaluate(double[] inputBlock, int blockRows, int rowStart, double[][] activations, double[][][] outputs) {
+      int inputsCount = layerSizes[0];
+      int outputLayerIndex = layerSizes.length - 1;
+      int outputsCount = layerSizes[outputLayerIndex];
+      for (int networkStart = 0; networkStart < networkIndexes.length; networkStart += NETWORK_BLOCK_SIZE) {
+        int blockNetworks = Math.min(NETWORK_BLOCK_SIZE, networkIndexes.length - networkStart);
+        //
+        // The first layer: every network in the block sees the same input, so it's one multiply
+        int firstLayerSize = layerSizes[1];
+        multiplyAndActivate(inputBlock, 0, inputsCount, inputsCount, blockRows, stackedWeights[1],
+            networkStart * getLayerWeightsCount(1), blockNetworks * firstLayerSize, layerHasBias[0],
+            activations[1], 0, blockNetworks * firstLayerSize);
+        //
+        // The rest of the layers: each network sees only its own outputs from the layer before
+        for (int layerIndex = 2; layerIndex < layerSizes.length; layerIndex++) {
+          int previousLayerSize = layerSizes[layerIndex - 1];
+          int layerSize = layerSizes[layerIndex];
+          for (int network = 0; network < blockNetworks; network++) {
+            multiplyAndActivate(activations[layerIndex - 1], network * previousLayerSize,
+                blockNetworks * previousLayerSize, previousLayerSize, blockRows, stackedWeights[layerIndex],
+                (networkStart + network) * getLayerWeightsCount(layerIndex), layerSize,
+                layerHasBias[layerIndex - 1], activations[layerIndex], network * layerSize, blockNetworks * layerSize);
+          }
+        }
+        //
+        // Copy the output layer into the outputs tensor
+        double[] outputLayer = activations[outputLayerIndex];
+        for (int network = 0; network < blockNetworks; network++) {
+          double[][] networkOutputs = outputs[networkIndexes[networkStart + network]];
+          for (int row = 0; row < blockRows; row++) {
+            System.arraycopy(outputLayer, (row * blockNetworks + network) * outputsCount,
+                networkOutputs[rowStart + row], 0, outputsCount);
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.util.NetworkProperties;
+import com.makotojava.ncaabb.util.NetworkUtils;
+
+/**
+ * The tournament bracket: which teams play each other in the first round, and so on
+ * until there is a champion.
+ * 
+ * Teams are taken in the order they appear in the bracket file (bracket_file_<year>.txt,
+ * the same format as the tournament teams file), and each team plays the team next to it.
+ * The bracket itself (the round of 64, for March Madness) is the biggest power of two that
+ * fits the field. Any teams beyond that play their way in (the "First Four"): the last teams
+ * in the file are paired off in play-in games, and the winner of each takes one of the last
+ * spots in the bracket.
+ * 
+ * Without a bracket file, the tournament teams file is used instead. The ones that come with
+ * the project list the teams alphabetically (there is no seeding or region information in
+ * them), so the bracket built from one of those is only nominal: it is loaded (so there is
+ * something to simulate), but with a loud warning. To simulate the real bracket, list the
+ * teams in bracket order in a bracket file.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class Bracket {
+
+  private static final Logger log = Logger.getLogger(Bracket.class);
+
+  /**
+   * The tournament teams file starts with a header (a few lines of text, then a blank line)
+   */
+  private static final int MAX_HEADER_LINES = 3;
+
+  private final List<String> teamNames;
+
+  /**
+   * The team (index into {@link #teamNames}) in each bracket slot. For a slot filled
+   * by a play-in game, this is one of the teams in that game.
+   */
+  private final int[] slotTeams;
+
+  /**
+   * The other team in the play-in game for each slot, or -1 if there isn't one.
+   */
+  private final int[] slotPlayInOpponents;
+
+  /**
+   * Loads the bracket for the specified tournament: from the bracket file if there is one,
+   * otherwise from the tournament teams file (see {@link #computeFileName(Integer)}).
+   * 
+   * @param tournamentYear
+   *          The tournament year.
+   * 
+   * @return Bracket - the bracket.
+   */
+  public static Bracket loadForTournament(Integer tournamentYear) {
+    return load(computeFileName(tournamentYear));
+  }
+
+  /**
+   * @return String - the file the bracket for the specified tournament comes from: the
+   *         bracket file if there is one, otherwise the tournament teams file.
+   */
+  public static String computeFileName(Integer tournamentYear) {
+    String bracketFileName = NetworkUtils.computeBracketFileName(tournamentYear);
+    return new File(bracketFileName).exists() ? bracketFileName
+        : NetworkUtils.computeTournamentTeamsFileName(tournamentYear);
+  }
+
+  /**
+   * Loads the bracket from the specified bracket (or tournament teams) file.
+   * 
+   * @param fileName
+   *          The bracket file (e.g., bracket_file_2019.txt) or tournament teams file
+   *          (e.g., tourney_teams_file_2019.txt).
+   * 
+   * @return Bracket - the bracket.
+   */
+  public static Bracket load(String fileName) {
+    List<String> teamNames = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+      List<String> lines = new ArrayList<>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(StringUtils.strip(line));
+      }
+      //
+      // Skip the header, if there is one: everything before the first blank line,
+      /// as long as that's no more than a few lines in
+      int firstBlankLine = lines.indexOf(StringUtils.EMPTY);
+      int firstTeamLine = (firstBlankLine >= 0 && firstBlankLine <= MAX_HEADER_LINES) ? firstBlankLine : 0;
+      for (String teamName : lines.subList(firstTeamLine, lines.size())) {
+        if (StringUtils.isNotEmpty(teamName)) {
+          teamNames.add(teamName);
+        }
+      }
+    } catch (IOException e) {
+      String message = "IOException occurred while reading tournament teams file '" + fileName
+          + "'. Cannot continue!";
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+    log.info("Loaded " + teamNames.size() + " teams from '" + fileName + "'");
+    if (isInAlphabeticalOrder(teamNames)) {
+      log.warn("The teams in '" + fileName + "' are in alphabetical order, not bracket order, so the bracket is "
+          + "only nominal: the games (and the odds) will NOT match the real tournament. List the teams in bracket "
+          + "order in a bracket file (" + NetworkProperties.getBracketFileBase() + "_<year>"
+          + NetworkProperties.getTournamentTeamsFileExtension() + ") to simulate the real bracket.");
+    }
+    return new Bracket(teamNames);
+  }
+
+  /**
+   * @return boolean - true if the specified teams are in alphabetical order (ignoring case),
+   *         which is how the tournament teams files list them, and a real bracket never is.
+   */
+  static boolean isInAlphabeticalOrder(List<String> teamNames) {
+    for (int aa = 1; aa < teamNames.size(); aa++) {
+      if (String.CASE_INSENSITIVE_ORDER.compare(teamNames.get(aa - 1), teamNames.get(aa)) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param teamNames
+   *          The teams in the tournament, in bracket order.
+   */
+  public Bracket(List<String> teamNames) {
+    if (teamNames.size() < 2) {
+      throw new IllegalArgumentException("A tournament needs at least two teams, not " + teamNames.size());
+    }
+    Set<String> uniqueTeamNames = new HashSet<>(teamNames);
+    if (uniqueTeamNames.size() != teamNames.size()) {
+      throw new IllegalArgumentException("Every team in the bracket must be unique: " + teamNames);
+    }
+    this.teamNames = Collections.unmodifiableList(new ArrayList<>(teamNames));
+    int numberOfSlots = Integer.highestOneBit(teamNames.size());
+    int numberOfPlayInGames = teamNames.size() - numberOfSlots;
+    int firstPlayInSlot = numberOfSlots - numberOfPlayInGames;
+    slotTeams = new int[numberOfSlots];
+    slotPlayInOpponents = new int[numberOfSlots];
+    for (int slot = 0; slot < numberOfSlots; slot++) {
+      if (slot < firstPlayInSlot) {
+        slotTeams[slot] = slot;
+        slotPlayInOpponents[slot] = -1;
+      } else {
+        int playInGame = slot - firstPlayInSlot;
+        slotTeams[slot] = firstPlayInSlot + 2 * playInGame;
+        slotPlayInOpponents[slot] = firstPlayInSlot + 2 * playInGame + 1;
+      }
+    }
+  }
+
+  /**
+   * @return List<String> - the teams, in bracket order.
+   */
+  public List<String> getTeamNames() {
+    return teamNames;
+  }
+
+  public int getNumberOfTeams() {
+    return teamNames.size();
+  }
+
+  /**
+   * @return int - the number of slots in the bracket proper (after the play-in games).
+   */
+  public int getNumberOfSlots() {
+    return slotTeams.length;
+  }
+
+  /**
+   * @return int - the number of rounds after the play-in games (6 for a field of 64).
+   */
+  public int getNumberOfRounds() {
+    return Integer.numberOfTrailingZeros(slotTeams.length);
+  }
+
+  public int getNumberOfPlayInGames() {
+    return teamNames.size() - slotTeams.length;
+  }
+
+  /**
+   * @return int - the team in the specified slot (for a play-in slot, one of the teams in
+   *         the play-in game).
+   */
+  public int getSlotTeam(int slot) {
+    return slotTeams[slot];
+  }
+
+  /**
+   * @return int - the other team in the play-in game for the specified slot, or -1 if the
+   *         slot has no play-in game.
+   */
+  public int getSlotPlayInOpponent(int slot) {
+    return slotPlayInOpponents[slot];
+  }
+
+}
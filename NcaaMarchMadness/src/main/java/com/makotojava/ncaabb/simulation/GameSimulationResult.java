@@ -17,7 +17,9 @@ package com.makotojava.ncaabb.simulation;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.neuroph.core.NeuralNetwork;
@@ -39,6 +41,12 @@ import org.neuroph.nnet.learning.BackPropagation;
  * However, this class (as much of the code in this project) could be
  * easily extended to cover other sports as well.
  * 
+ * There is one of these for every matchup in the tournament matrix, so it is
+ * kept lean: the network outputs are primitive arrays indexed by network ordinal
+ * (the network's index in the List of networks, which all results share), and
+ * each network's prediction is a single byte. The List getters are read only
+ * views over those arrays.
+ * 
  * @author J Steven Perry
  *
  * @param <T>
@@ -60,61 +68,89 @@ public class GameSimulationResult<T extends NeuralNetwork<BackPropagation>> {
    */
   public static final String PUSH = "->PUSH";
 
+  /**
+   * Network prediction: the team won (both home and away)
+   */
+  public static final byte PREDICTION_WIN = 0;
+  /**
+   * Network prediction: the opponent won (the team lost both home and away)
+   */
+  public static final byte PREDICTION_LOSS = 1;
+  /**
+   * Network prediction: {@link #PUSH}
+   */
+  public static final byte PREDICTION_PUSH = 2;
+  /**
+   * No prediction has been recorded (yet) for the network
+   */
+  public static final byte PREDICTION_NONE = -1;
+
   /**
    * The team for which we are simulating
    */
-  private String teamName;
+  private final String teamName;
   /**
    * The team's opponent
    */
-  private String opponentName;
+  private final String opponentName;
   /**
    * The networks that went into deciding the result wrapped by this class
+   * (shared by every result in the matrix)
    */
-  private List<T> networks;// read only
+  private final List<T> networks;
   /**
-   * Predictions from all networks in a nice List of String
-   * (for easy printing/logging)
+   * Each network's prediction (see {@link #PREDICTION_WIN}, etc.)
    */
-  private List<String> networkPredictions;// read only
+  private final byte[] predictions;
   /**
    * The win probabilities for the team as the home team
    */
-  private List<Double> teamHomeResults;// read only
+  private final double[] teamHomeResults;
   /**
    * The win probabilities for the team as the away team
    */
-  private List<Double> teamAwayResults;// read only
+  private final double[] teamAwayResults;
   /**
    * The opposing team's win probabilities as the away team.
    */
-  private List<Double> opponentAwayResults;// read only
+  private final double[] opponentAwayResults;
   /**
    * The opposing team's win probabilities as the home team.
    */
-  private List<Double> opponentHomeResults;// read only
+  private final double[] opponentHomeResults;
   /**
    * The number of wins across all networks for the team
    */
-  private Integer numberOfWins = 0;
+  private int numberOfWins;
   /**
    * The number of losses across all networks for the team
    */
-  private Integer numberOfLosses = 0;
+  private int numberOfLosses;
   /**
    * The number of pushes across all networks for the team
    */
-  private Integer numberOfPushes = 0;
-  
+  private int numberOfPushes;
+
   /**
    * Constructor.
    * 
    * @param teamName
    * @param opponentName
+   * @param networks
+   *          The networks the game is simulated with. The List is not copied, so
+   *          every result in the matrix can share it.
    */
-  public GameSimulationResult(String teamName, String opponentName) {
+  public GameSimulationResult(String teamName, String opponentName, List<T> networks) {
     this.teamName = teamName;
     this.opponentName = opponentName;
+    this.networks = networks;
+    int numberOfNetworks = networks.size();
+    this.predictions = new byte[numberOfNetworks];
+    Arrays.fill(predictions, PREDICTION_NONE);
+    this.teamHomeResults = new double[numberOfNetworks];
+    this.teamAwayResults = new double[numberOfNetworks];
+    this.opponentHomeResults = new double[numberOfNetworks];
+    this.opponentAwayResults = new double[numberOfNetworks];
   }
 
   public String getTeamName() {
@@ -126,62 +162,141 @@ public class GameSimulationResult<T extends NeuralNetwork<BackPropagation>> {
   }
 
   public List<T> getNetworks() {
-    if (networks == null) {
-      networks = new ArrayList<>();
-    }
-    return networks;
+    return Collections.unmodifiableList(networks);
   }
 
+  /**
+   * @return List<String> - the name of the team each network picked, or {@link #PUSH}
+   *         (for easy printing/logging). A read only view.
+   */
   public List<String> getNetworkPredictions() {
-    if (networkPredictions == null) {
-      networkPredictions = new ArrayList<>();
-    }
-    return networkPredictions;
+    return new AbstractList<String>() {
+      @Override
+      public String get(int networkIndex) {
+        switch (predictions[networkIndex]) {
+        case PREDICTION_WIN:
+          return teamName;
+        case PREDICTION_LOSS:
+          return opponentName;
+        case PREDICTION_PUSH:
+          return PUSH;
+        default:
+          return null;
+        }
+      }
+
+      @Override
+      public int size() {
+        return predictions.length;
+      }
+    };
   }
 
   // Derived attribute
   public Integer getNumberOfNetworks() {
-    return getNetworks().size();
+    return predictions.length;
   }
 
   public List<Double> getTeamHomeResults() {
-    if (teamHomeResults == null) {
-      teamHomeResults = new ArrayList<>();
-    }
-    return teamHomeResults;
+    return asList(teamHomeResults);
   }
 
   public List<Double> getTeamAwayResults() {
-    if (teamAwayResults == null) {
-      teamAwayResults = new ArrayList<>();
-    }
-    return teamAwayResults;
+    return asList(teamAwayResults);
   }
 
   public List<Double> getOpponentHomeResults() {
-    if (opponentHomeResults == null) {
-      opponentHomeResults = new ArrayList<>();
-    }
-    return opponentHomeResults;
+    return asList(opponentHomeResults);
   }
 
   public List<Double> getOpponentAwayResults() {
-    if (opponentAwayResults == null) {
-      opponentAwayResults = new ArrayList<>();
+    return asList(opponentAwayResults);
+  }
+
+  /**
+   * @return byte - the specified network's prediction ({@link #PREDICTION_WIN}, etc).
+   */
+  public byte getPrediction(int networkIndex) {
+    return predictions[networkIndex];
+  }
+
+  public double getTeamHomeResult(int networkIndex) {
+    return teamHomeResults[networkIndex];
+  }
+
+  public double getTeamAwayResult(int networkIndex) {
+    return teamAwayResults[networkIndex];
+  }
+
+  public double getOpponentHomeResult(int networkIndex) {
+    return opponentHomeResults[networkIndex];
+  }
+
+  public double getOpponentAwayResult(int networkIndex) {
+    return opponentAwayResults[networkIndex];
+  }
+
+  /**
+   * Records the outputs of the specified network.
+   * 
+   * @param networkIndex
+   *          The network's index in {@link #getNetworks()}.
+   * @param teamHomeResult
+   *          The team's output as home (LHS).
+   * @param opponentAwayResult
+   *          The opponent's output as away (RHS), same simulation as teamHomeResult.
+   * @param teamAwayResult
+   *          The team's output as away (RHS).
+   * @param opponentHomeResult
+   *          The opponent's output as home (LHS), same simulation as teamAwayResult.
+   */
+  public void setNetworkResults(int networkIndex, double teamHomeResult, double opponentAwayResult,
+      double teamAwayResult, double opponentHomeResult) {
+    teamHomeResults[networkIndex] = teamHomeResult;
+    opponentAwayResults[networkIndex] = opponentAwayResult;
+    teamAwayResults[networkIndex] = teamAwayResult;
+    opponentHomeResults[networkIndex] = opponentHomeResult;
+  }
+
+  /**
+   * Records the prediction of the specified network, and counts it as a win, loss or push.
+   * 
+   * @param networkIndex
+   *          The network's index in {@link #getNetworks()}.
+   * @param prediction
+   *          {@link #PREDICTION_WIN}, {@link #PREDICTION_LOSS} or {@link #PREDICTION_PUSH}.
+   */
+  public void setPrediction(int networkIndex, byte prediction) {
+    if (predictions[networkIndex] != PREDICTION_NONE) {
+      throw new IllegalStateException("Network " + networkIndex + " already has a prediction for " + teamName
+          + " vs " + opponentName);
+    }
+    switch (prediction) {
+    case PREDICTION_WIN:
+      numberOfWins++;
+      break;
+    case PREDICTION_LOSS:
+      numberOfLosses++;
+      break;
+    case PREDICTION_PUSH:
+      numberOfPushes++;
+      break;
+    default:
+      throw new IllegalArgumentException("Invalid prediction: " + prediction);
     }
-    return opponentAwayResults;
+    predictions[networkIndex] = prediction;
   }
 
-  public void incrementNumberOfWins() {
-    this.numberOfWins += 1;
+  public int getNumberOfWins() {
+    return numberOfWins;
   }
 
-  public void incrementNumberOfLosses() {
-    this.numberOfLosses += 1;
+  public int getNumberOfLosses() {
+    return numberOfLosses;
   }
 
-  public void incrementNumberOfPushes() {
-    this.numberOfPushes += 1;
+  public int getNumberOfPushes() {
+    return numberOfPushes;
   }
 
   /**
@@ -214,4 +329,21 @@ public class GameSimulationResult<T extends NeuralNetwork<BackPropagation>> {
     return BigDecimal.valueOf(100.0 * numberOfPushes / getNumberOfNetworks()).setScale(2, RoundingMode.HALF_UP);
   }
 
+  /**
+   * Read only List view of the specified results (boxes on the way out only).
+   */
+  private static List<Double> asList(double[] results) {
+    return new AbstractList<Double>() {
+      @Override
+      public Double get(int networkIndex) {
+        return results[networkIndex];
+      }
+
+      @Override
+      public int size() {
+        return results.length;
+      }
+    };
+  }
+
 }
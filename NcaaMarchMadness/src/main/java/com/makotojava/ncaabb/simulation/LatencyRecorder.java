@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Keeps track of how long something (like a request to the {@link PredictionServer}) takes,
+ * so the latency percentiles can be reported.
+ *
+ * Only the most recent samples are kept (in a ring buffer), so the percentiles reflect
+ * how things are going now, and the memory used never grows. Thread safe.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class LatencyRecorder {
+
+  /**
+   * The percentiles reported by {@link #toString()}
+   */
+  static final double[] REPORTED_PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+  private final long[] samples;
+  private int nextSample;
+  private long count;
+  private long maxNanos;
+
+  /**
+   * Constructor.
+   *
+   * @param maxSamples
+   *          The number of (most recent) samples to keep.
+   */
+  public LatencyRecorder(int maxSamples) {
+    if (maxSamples < 1) {
+      throw new IllegalArgumentException("Max samples must be at least 1, not " + maxSamples);
+    }
+    this.samples = new long[maxSamples];
+  }
+
+  /**
+   * Records a single sample.
+   *
+   * @param nanos
+   *          How long it took, in nanoseconds.
+   */
+  public synchronized void record(long nanos) {
+    samples[nextSample] = nanos;
+    nextSample = (nextSample + 1) % samples.length;
+    count++;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  /**
+   * @return long - the number of samples ever recorded.
+   */
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * @return long - the longest sample ever recorded, in nanoseconds.
+   */
+  public synchronized long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * Computes the specified percentiles (nearest rank) of the samples being kept.
+   *
+   * @param percentiles
+   *          The percentiles (0-100) to compute.
+   *
+   * @return long[] - the percentiles, in nanoseconds (all zeroes if nothing has been recorded).
+   */
+  public long[] computePercentiles(double... percentiles) {
+    long[] sortedSamples;
+    synchronized (this) {
+      sortedSamples = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+    }
+    Arrays.sort(sortedSamples);
+    long[] ret = new long[percentiles.length];
+    if (sortedSamples.length > 0) {
+      for (int aa = 0; aa < percentiles.length; aa++) {
+        int rank = (int) Math.ceil(percentiles[aa] / 100.0 * sortedSamples.length);
+        ret[aa] = sortedSamples[Math.max(0, Math.min(sortedSamples.length, rank) - 1)];
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @return String - the count, the reported percentiles and the max as a JSON object
+   *         (times in milliseconds).
+   */
+  public String toJson() {
+    long[] percentiles = computePercentiles(REPORTED_PERCENTILES);
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"count\":").append(getCount());
+    for (int aa = 0; aa < REPORTED_PERCENTILES.length; aa++) {
+      sb.append(",\"p").append(formatPercentile(REPORTED_PERCENTILES[aa])).append("Millis\":")
+          .append(toMillis(percentiles[aa]));
+    }
+    sb.append(",\"maxMillis\":").append(toMillis(getMaxNanos())).append('}');
+    return sb.toString();
+  }
+
+  private static String formatPercentile(double percentile) {
+    return (percentile == Math.rint(percentile)) ? Integer.toString((int) percentile)
+        : Double.toString(percentile).replace('.', '_');
+  }
+
+  private static String toMillis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1000000.0);
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+import com.makotojava.ncaabb.simulation.MatchupEvaluator.Matchup;
+
+/**
+ * Simulates matchups for any number of concurrent callers, batching up the matchups
+ * that are asked for at about the same time so they all go through the ensemble in a
+ * single {@link BatchNetworkEvaluator} pass.
+ *
+ * A single batching thread takes the first matchup waiting in the queue, along with
+ * whatever else has piled up behind it (up to the max batch size), and runs them all at
+ * once. While one batch is running, the next one piles up, so the busier it gets, the
+ * bigger (and more efficient) the batches get. Like {@link MatchupEvaluator}, every matchup
+ * is only simulated once: the result (or the pending result) is remembered, and the
+ * opponent's side of the game is derived from the team's side.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class MatchupBatcher implements AutoCloseable {
+
+  private static final Logger log = Logger.getLogger(MatchupBatcher.class);
+
+  private final List<MultiLayerPerceptron> networks;
+  private final BatchNetworkEvaluator batchNetworkEvaluator;
+  private final Map<String, double[]> normalizedDataByTeamName;
+  private final int maxBatchSize;
+
+  /**
+   * The results so far (finished or not), keyed by matchup (team name, opponent name)
+   */
+  private final ConcurrentMap<Matchup, CompletableFuture<GameSimulationResult<MultiLayerPerceptron>>> results =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Matchups waiting to be simulated (always in alphabetical order: team, then opponent)
+   */
+  private final BlockingQueue<PendingMatchup> queue = new LinkedBlockingQueue<>();
+
+  private final Thread batchingThread;
+
+  private volatile boolean closed;
+
+  private final AtomicLong numberOfBatches = new AtomicLong();
+  private final AtomicLong numberOfMatchupsSimulated = new AtomicLong();
+
+  /**
+   * Constructor. Starts the batching thread.
+   *
+   * @param networks
+   *          The trained networks to be used.
+   * @param batchNetworkEvaluator
+   *          Runs the networks (must have been created from <code>networks</code>).
+   * @param normalizedDataByTeamName
+   *          The normalized data (see {@link FeatureNormalizer}) for every team whose
+   *          matchups might be asked for.
+   * @param maxBatchSize
+   *          The max number of matchups to run through the ensemble at once.
+   */
+  public MatchupBatcher(List<MultiLayerPerceptron> networks, BatchNetworkEvaluator batchNetworkEvaluator,
+      Map<String, double[]> normalizedDataByTeamName, int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("Max batch size must be at least 1, not " + maxBatchSize);
+    }
+    this.networks = networks;
+    this.batchNetworkEvaluator = batchNetworkEvaluator;
+    this.normalizedDataByTeamName = normalizedDataByTeamName;
+    this.maxBatchSize = maxBatchSize;
+    this.batchingThread = new Thread(this::runBatches, MatchupBatcher.class.getSimpleName());
+    batchingThread.setDaemon(true);
+    batchingThread.start();
+  }
+
+  /**
+   * Returns the result of the specified matchup, waiting for it to be simulated if this is
+   * the first time it has been asked for.
+   *
+   * @param teamName
+   *          The team.
+   * @param opponentName
+   *          The team's opponent.
+   *
+   * @return GameSimulationResult<MultiLayerPerceptron> - the result, from the team's point of view.
+   *
+   * @throws IllegalArgumentException
+   *           If either team is unknown.
+   */
+  public GameSimulationResult<MultiLayerPerceptron> evaluate(String teamName, String opponentName) {
+    try {
+      return submit(teamName, opponentName).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Asks for the result of the specified matchup, without waiting for it.
+   *
+   * @throws IllegalArgumentException
+   *           If either team is unknown.
+   * @throws IllegalStateException
+   *           If this MatchupBatcher has been closed.
+   */
+  public CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> submit(String teamName,
+      String opponentName) {
+    if (closed) {
+      throw new IllegalStateException("MatchupBatcher has been closed");
+    }
+    validateTeamName(teamName);
+    validateTeamName(opponentName);
+    Matchup matchup = new Matchup(teamName, opponentName);
+    CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> ret = results.get(matchup);
+    if (ret == null) {
+      if (teamName.compareTo(opponentName) <= 0) {
+        ret = results.computeIfAbsent(matchup, key -> {
+          CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> pendingResult = new CompletableFuture<>();
+          queue.add(new PendingMatchup(key, pendingResult));
+          return pendingResult;
+        });
+        if (closed) {
+          //
+          // Closed while it was being queued, so the batching thread may never see it
+          failQueuedMatchups();
+        }
+      } else {
+        //
+        // Ask for the other way around first: computeIfAbsent() can't be nested
+        CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> pendingResult = submit(opponentName,
+            teamName);
+        CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> mirroredResult = new CompletableFuture<>();
+        ret = results.putIfAbsent(matchup, mirroredResult);
+        if (ret == null) {
+          ret = mirroredResult;
+          pendingResult.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+              //
+              // Forget this side of the game too (before anybody waiting on it is let go), so it
+              /// can be asked for again
+              results.remove(matchup, mirroredResult);
+              mirroredResult.completeExceptionally(throwable);
+            } else {
+              mirroredResult.complete(MatchupEvaluator.createMirroredResult(result));
+            }
+          });
+        }
+      }
+    }
+    return ret;
+  }
+
+  private void validateTeamName(String teamName) {
+    if (teamName == null || !normalizedDataByTeamName.containsKey(teamName)) {
+      throw new IllegalArgumentException("Unknown team: '" + teamName + "'");
+    }
+  }
+
+  /**
+   * The batching thread: runs batch after batch, until it is interrupted.
+   */
+  private void runBatches() {
+    List<PendingMatchup> batch = new ArrayList<>(maxBatchSize);
+    try {
+      while (true) {
+        batch.add(queue.take());
+        queue.drainTo(batch, maxBatchSize - 1);
+        runBatch(batch);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      log.debug("Batching thread stopped");
+    }
+    failQueuedMatchups();
+  }
+
+  /**
+   * Lets go of anybody waiting on a matchup that will never be simulated (because this
+   * MatchupBatcher has been closed).
+   */
+  private void failQueuedMatchups() {
+    List<PendingMatchup> neverSimulated = new ArrayList<>();
+    queue.drainTo(neverSimulated);
+    for (PendingMatchup pendingMatchup : neverSimulated) {
+      results.remove(pendingMatchup.matchup, pendingMatchup.result);
+      pendingMatchup.result.completeExceptionally(
+          new IllegalStateException("MatchupBatcher was closed before " + pendingMatchup.matchup.getTeamName()
+              + " vs " + pendingMatchup.matchup.getOpponentName() + " was simulated"));
+    }
+  }
+
+  /**
+   * Runs every matchup in the batch through every network at once.
+   */
+  private void runBatch(List<PendingMatchup> batch) {
+    try {
+      //
+      // Two rows per matchup: the team as home (LHS), then the opponent as home
+      double[][] features = new double[2 * batch.size()][];
+      for (int aa = 0; aa < batch.size(); aa++) {
+        Matchup matchup = batch.get(aa).matchup;
+        double[] teamNormalizedData = normalizedDataByTeamName.get(matchup.getTeamName());
+        double[] opponentNormalizedData = normalizedDataByTeamName.get(matchup.getOpponentName());
+        features[2 * aa] = new double[2 * FeatureNormalizer.NUMBER_OF_FEATURES];
+        features[2 * aa + 1] = new double[2 * FeatureNormalizer.NUMBER_OF_FEATURES];
+        FeatureNormalizer.writeInputs(teamNormalizedData, opponentNormalizedData, features[2 * aa]);
+        FeatureNormalizer.writeInputs(opponentNormalizedData, teamNormalizedData, features[2 * aa + 1]);
+      }
+      double[][][] outputs = batchNetworkEvaluator.evaluate(features);
+      //
+      // Count the batch before anybody waiting on it is let go
+      numberOfBatches.incrementAndGet();
+      numberOfMatchupsSimulated.addAndGet(batch.size());
+      for (int aa = 0; aa < batch.size(); aa++) {
+        Matchup matchup = batch.get(aa).matchup;
+        GameSimulationResult<MultiLayerPerceptron> gameSimulationResult = new GameSimulationResult<>(
+            matchup.getTeamName(), matchup.getOpponentName(), networks);
+        for (int networkIndex = 0; networkIndex < networks.size(); networkIndex++) {
+          MatchupEvaluator.recordNetworkSimulationResult(networkIndex, outputs[networkIndex][2 * aa],
+              outputs[networkIndex][2 * aa + 1], gameSimulationResult);
+        }
+        batch.get(aa).result.complete(gameSimulationResult);
+      }
+      log.debug("Simulated a batch of " + batch.size() + " matchups");
+    } catch (RuntimeException e) {
+      log.error("Batch of " + batch.size() + " matchups failed: " + e.getLocalizedMessage(), e);
+      for (PendingMatchup pendingMatchup : batch) {
+        //
+        // Forget it, so it can be asked for again
+        results.remove(pendingMatchup.matchup, pendingMatchup.result);
+        pendingMatchup.result.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * @return long - the number of batches run through the ensemble so far.
+   */
+  public long getNumberOfBatches() {
+    return numberOfBatches.get();
+  }
+
+  /**
+   * @return long - the number of matchups actually simulated so far.
+   */
+  public long getNumberOfMatchupsSimulated() {
+    return numberOfMatchupsSimulated.get();
+  }
+
+  /**
+   * Stops the batching thread. Anything still waiting in the queue is never simulated:
+   * its result completes exceptionally (IllegalStateException) instead.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    batchingThread.interrupt();
+    failQueuedMatchups();
+  }
+
+  /**
+   * A matchup waiting to be simulated, along with its (future) result.
+   */
+  private static final class PendingMatchup {
+    private final Matchup matchup;
+    private final CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> result;
+
+    PendingMatchup(Matchup matchup, CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> result) {
+      this.matchup = matchup;
+      this.result = result;
+    }
+  }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+
+/**
+ * Simulates matchups on demand: the first time a matchup is asked for, it is run
+ * through every network, and the result is remembered, so asking again costs nothing.
+ * 
+ * A-vs-B and B-vs-A run exactly the same two inputs through every network, so only the
+ * one with the teams in alphabetical order is ever simulated; the other is derived from it.
+ * 
+ * Thread safe: any number of threads can ask for matchups at once, and each matchup is
+ * still only simulated once.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class MatchupEvaluator {
+
+  private static final Logger log = Logger.getLogger(MatchupEvaluator.class);
+
+  private final List<MultiLayerPerceptron> networks;
+  private final BatchNetworkEvaluator batchNetworkEvaluator;
+  private final Map<String, double[]> normalizedDataByTeamName;
+
+  /**
+   * The results so far, keyed by matchup (team name, opponent name)
+   */
+  private final ConcurrentMap<Matchup, GameSimulationResult<MultiLayerPerceptron>> results =
+      new ConcurrentHashMap<>();
+
+  private final AtomicInteger numberOfMatchupsSimulated = new AtomicInteger();
+
+  /**
+   * Constructor.
+   * 
+   * @param networks
+   *          The trained networks to be used.
+   * @param batchNetworkEvaluator
+   *          Runs the networks (must have been created from <code>networks</code>).
+   * @param normalizedDataByTeamName
+   *          The normalized data (see {@link FeatureNormalizer}) for every team whose
+   *          matchups might be asked for.
+   */
+  public MatchupEvaluator(List<MultiLayerPerceptron> networks, BatchNetworkEvaluator batchNetworkEvaluator,
+      Map<String, double[]> normalizedDataByTeamName) {
+    this.networks = networks;
+    this.batchNetworkEvaluator = batchNetworkEvaluator;
+    this.normalizedDataByTeamName = normalizedDataByTeamName;
+  }
+
+  /**
+   * Returns the result of the specified matchup, simulating it if this is the first time
+   * it has been asked for.
+   * 
+   * @param teamName
+   *          The team.
+   * @param opponentName
+   *          The team's opponent.
+   * 
+   * @return GameSimulationResult<MultiLayerPerceptron> - the result, from the team's point of view.
+   */
+  public GameSimulationResult<MultiLayerPerceptron> evaluate(String teamName, String opponentName) {
+    Matchup matchup = new Matchup(teamName, opponentName);
+    GameSimulationResult<MultiLayerPerceptron> ret = results.get(matchup);
+    if (ret == null) {
+      if (teamName.compareTo(opponentName) <= 0) {
+        ret = results.computeIfAbsent(matchup, key -> simulate(teamName, opponentName));
+      } else {
+        //
+        // Get (or simulate) the other way around first: computeIfAbsent() can't be nested
+        GameSimulationResult<MultiLayerPerceptron> gameSimulationResult = evaluate(opponentName, teamName);
+        ret = results.computeIfAbsent(matchup, key -> createMirroredResult(gameSimulationResult));
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @return int - the number of matchups actually simulated (run through the networks) so far.
+   */
+  public int getNumberOfMatchupsSimulated() {
+    return numberOfMatchupsSimulated.get();
+  }
+
+  /**
+   * Runs the specified matchup through every network, as home and away.
+   */
+  private GameSimulationResult<MultiLayerPerceptron> simulate(String teamName, String opponentName) {
+    log.debug("Simulating " + teamName + " versus " + opponentName + "...");
+    double[] teamNormalizedData = fetchNormalizedData(teamName);
+    double[] opponentNormalizedData = fetchNormalizedData(opponentName);
+    //
+    // Home has the team on the LHS, away has the opponent on the LHS. A team against
+    /// itself: home and away are the same input, so one row does it.
+    boolean selfMatchup = teamName.equals(opponentName);
+    double[][] features = new double[selfMatchup ? 1 : 2][2 * FeatureNormalizer.NUMBER_OF_FEATURES];
+    FeatureNormalizer.writeInputs(teamNormalizedData, opponentNormalizedData, features[0]);
+    if (!selfMatchup) {
+      FeatureNormalizer.writeInputs(opponentNormalizedData, teamNormalizedData, features[1]);
+    }
+    double[][][] outputs = batchNetworkEvaluator.evaluate(features);
+    GameSimulationResult<MultiLayerPerceptron> ret = new GameSimulationResult<>(teamName, opponentName, networks);
+    for (int networkIndex = 0; networkIndex < networks.size(); networkIndex++) {
+      recordNetworkSimulationResult(networkIndex, outputs[networkIndex][0],
+          outputs[networkIndex][features.length - 1], ret);
+    }
+    numberOfMatchupsSimulated.incrementAndGet();
+    return ret;
+  }
+
+  private double[] fetchNormalizedData(String teamName) {
+    double[] ret = normalizedDataByTeamName.get(teamName);
+    if (ret == null) {
+      String message = "No season data for team '" + teamName + "'. Cannot continue!";
+      log.error(message);
+      throw new RuntimeException(message);
+    }
+    return ret;
+  }
+
+  /**
+   * Records the results of a single network simulation (as home and away to eliminate
+   * positional bias) and computes the result.
+   * 
+   * @param networkIndex
+   *          The index of the network in the result's List of networks
+   * @param homeResults
+   *          Network output with the current team as "home" (LHS)
+   * @param awayResults
+   *          Network output with the opponent as "home" (LHS)
+   * @param gameSimulationResult
+   */
+  static void recordNetworkSimulationResult(int networkIndex, double[] homeResults, double[] awayResults,
+      GameSimulationResult<MultiLayerPerceptron> gameSimulationResult) {
+    //
+    // Home - in this simulation, currentTeam is "home", so their output is index 0,
+    /// and the opponent is "away" so their output is index 1
+    boolean homeWin = homeResults[0] > homeResults[1];
+    //
+    // Away - in this simulation, currentTeam is "away", so their output is index 1,
+    /// and the opponent is "home" so their output is index 0
+    boolean awayWin = awayResults[1] > awayResults[0];
+    gameSimulationResult.setNetworkResults(networkIndex, homeResults[0], homeResults[1], awayResults[1],
+        awayResults[0]);
+    //
+    // Compute results
+    computeResult(gameSimulationResult, networkIndex, homeWin, awayWin);
+  }
+
+  /**
+   * Derives the opponent's side of the specified result: the opponent's home game
+   * is the team's away game and vice versa, so the network outputs just trade places.
+   * 
+   * @param gameSimulationResult
+   *          The simulated result (team vs opponent).
+   * 
+   * @return GameSimulationResult - the opponent vs team result, exactly as if
+   *         it had been simulated.
+   */
+  static GameSimulationResult<MultiLayerPerceptron> createMirroredResult(
+      GameSimulationResult<MultiLayerPerceptron> gameSimulationResult) {
+    GameSimulationResult<MultiLayerPerceptron> ret = new GameSimulationResult<>(
+        gameSimulationResult.getOpponentName(), gameSimulationResult.getTeamName(),
+        gameSimulationResult.getNetworks());
+    for (int aa = 0; aa < gameSimulationResult.getNumberOfNetworks(); aa++) {
+      double teamHomeResult = gameSimulationResult.getOpponentHomeResult(aa);
+      double opponentAwayResult = gameSimulationResult.getTeamAwayResult(aa);
+      double teamAwayResult = gameSimulationResult.getOpponentAwayResult(aa);
+      double opponentHomeResult = gameSimulationResult.getTeamHomeResult(aa);
+      ret.setNetworkResults(aa, teamHomeResult, opponentAwayResult, teamAwayResult, opponentHomeResult);
+      computeResult(ret, aa, teamHomeResult > opponentAwayResult, teamAwayResult > opponentHomeResult);
+    }
+    return ret;
+  }
+
+  /**
+   * Records a single network's prediction: a win if the team won both at home and
+   * away, a loss if it lost both, and a push otherwise.
+   */
+  static void computeResult(GameSimulationResult<MultiLayerPerceptron> gameSimulationResult, int networkIndex,
+      boolean homeWin, boolean awayWin) {
+    if (homeWin && awayWin) {
+      gameSimulationResult.setPrediction(networkIndex, GameSimulationResult.PREDICTION_WIN);
+    } else if (!homeWin && !awayWin) {
+      gameSimulationResult.setPrediction(networkIndex, GameSimulationResult.PREDICTION_LOSS);
+    } else {
+      // Push indicates there is some positional bias in this network.
+      /// We do not want to count this result.
+      gameSimulationResult.setPrediction(networkIndex, GameSimulationResult.PREDICTION_PUSH);
+    }
+  }
+
+  /**
+   * Cache key (also used by {@link MatchupBatcher}).
+   */
+  static final class Matchup {
+    private final String teamName;
+    private final String opponentName;
+
+    Matchup(String teamName, String opponentName) {
+      this.teamName = teamName;
+      this.opponentName = opponentName;
+    }
+
+    String getTeamName() {
+      return teamName;
+    }
+
+    String getOpponentName() {
+      return opponentName;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Matchup)) {
+        return false;
+      }
+      Matchup that = (Matchup) other;
+      return teamName.equals(that.teamName) && opponentName.equals(that.opponentName);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * teamName.hashCode() + opponentName.hashCode();
+    }
+  }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.util.NetworkUtils;
+import com.opencsv.CSVWriter;
+
+/**
+ * Exports a tournament {@link MatrixFile} as one CSV file per team, in the simulation
+ * directory.
+ * 
+ * Of course, tournaments aren't played this way, but especially for bracket-style
+ * tournaments (like the NCAA Men's Basketball Tournament, a.k.a., March Madness), having
+ * the matchups in this format makes it easier when picking your brackets. You just look
+ * at the team CSV file for the home team, locate their opponent, and see what they
+ * network array predicted, and fill in that game. Then move to the next game, etc.
+ * 
+ * Run by the {@link TournamentMatrixPredictor} (unless simulation.matrix.csv.export is
+ * turned off), or on its own against a matrix file that has already been written.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class MatrixCsvExporter {
+
+  private static final Logger log = Logger.getLogger(MatrixCsvExporter.class);
+
+  private static final String[] EMPTY_LINE = { "" };
+
+  /**
+   * The number of columns before the network predictions
+   */
+  private static final int BASE_INDEX = 5;
+
+  /**
+   * Driver for the program.
+   * 
+   * @param args
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      usage();
+      System.exit(-1);
+    }
+    Integer year = Integer.valueOf(args[0]);
+    NetworkUtils.validateYear(year);
+    String matrixFileName = NetworkUtils.computeMatrixFileName(year);
+    try {
+      export(MatrixFile.open(matrixFileName));
+    } catch (IOException e) {
+      String message = "Could not read matrix file " + matrixFileName + ": " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+  }
+
+  /**
+   * Usage message. Pretty self-explanatory.
+   */
+  protected static void usage() {
+    System.out.println("Usage: ");
+    System.out.println("\t" + MatrixCsvExporter.class.getSimpleName() + " YEAR");
+    System.out.println("\t Where:");
+    System.out.println("\t YEAR is the year of the tournament matrix to export.");
+  }
+
+  /**
+   * Writes a CSV file for each team in the matrix, containing the results of the simulated
+   * matchups of that team against every opponent it was simulated against.
+   * 
+   * @param matrixFile
+   *          The matrix.
+   */
+  public static void export(MatrixFile matrixFile) {
+    String simulationDirectory = NetworkUtils.fetchSimulationDirectoryAndCreateIfNecessary();
+    String[] heading = generateHeading(matrixFile);
+    for (int teamIndex = 0; teamIndex < matrixFile.getNumberOfTeams(); teamIndex++) {
+      String teamName = matrixFile.getTeamNames().get(teamIndex);
+      String teamPredictionFilename = simulationDirectory + File.separator + teamName + ".csv";
+      //
+      // Write out the file for the current team (teamName)
+      try (CSVWriter csvWriter = new CSVWriter(new BufferedWriter(new FileWriter(teamPredictionFilename)))) {
+        csvWriter.writeNext(EMPTY_LINE);
+        log.debug("**** TEAM -> " + teamName + ", file:  " + teamPredictionFilename + "***");
+        String[] teamSeparatorLine = { "", teamName.toUpperCase() + " VS", "NETWORK PREDICTED:", "NETWORK PREDICTED:",
+            "NETWORK PREDICTED:" };
+        csvWriter.writeNext(teamSeparatorLine);
+        csvWriter.writeNext(heading);
+        boolean firstRow = true;
+        //
+        // Write out the game simulation data for teamName against every opponent
+        for (int opponentIndex = 0; opponentIndex < matrixFile.getNumberOfTeams(); opponentIndex++) {
+          if (matrixFile.hasMatchup(teamIndex, opponentIndex)) {
+            csvWriter.writeNext(generateRow(matrixFile, teamIndex, opponentIndex, firstRow));
+            firstRow = false;
+          }
+        }
+      } catch (IOException e) {
+        String message = "Could not write team matrix file " + teamPredictionFilename + ": " + e.getLocalizedMessage();
+        log.error(message, e);
+        throw new RuntimeException(message, e);
+      }
+    }
+    log.info("Exported matrix for " + matrixFile.getNumberOfTeams() + " teams to " + simulationDirectory);
+  }
+
+  /**
+   * Generate a heading for the CSV file. Makes it easier to read when loaded into Open Office
+   * or whatever Office product you use.
+   * 
+   * The first few headings are where the relevant info is including team (and even an entry
+   * of the team against itself, which you will note is always PUSH), opponent, and average win/loss/push
+   * percentages.
+   * 
+   * The heading will contain the structure of each network used in the array so you can see
+   * the individual network picks (if you care).
+   * 
+   * @return String[] - the headings, one element per header
+   */
+  static String[] generateHeading(MatrixFile matrixFile) {
+    String[] ret = new String[BASE_INDEX + matrixFile.getNumberOfNetworks()];
+    ret[0] = "TEAM";
+    ret[1] = "OPPONENT";
+    ret[2] = "WIN %";
+    ret[3] = "LOSS %";
+    ret[4] = "PUSH %";
+    for (int networkIndex = 0; networkIndex < matrixFile.getNumberOfNetworks(); networkIndex++) {
+      ret[BASE_INDEX + networkIndex] = matrixFile.getNetworkDescriptions().get(networkIndex);
+    }
+    return ret;
+  }
+
+  /**
+   * Output contains: Team (first row only), Opponent name, percent wins, percent losses,
+   * percent push, plus the prediction of each network (the name of the team it picked,
+   * or {@link GameSimulationResult#PUSH}).
+   */
+  static String[] generateRow(MatrixFile matrixFile, int teamIndex, int opponentIndex, boolean firstRow) {
+    String teamName = matrixFile.getTeamNames().get(teamIndex);
+    String opponentName = matrixFile.getTeamNames().get(opponentIndex);
+    String[] ret = new String[BASE_INDEX + matrixFile.getNumberOfNetworks()];
+    if (firstRow) {
+      ret[0] = teamName;
+    }
+    ret[1] = opponentName;
+    ret[2] = matrixFile.getPercentWins(teamIndex, opponentIndex).toPlainString() + "%";
+    ret[3] = matrixFile.getPercentLosses(teamIndex, opponentIndex).toPlainString() + "%";
+    ret[4] = matrixFile.getPercentPushes(teamIndex, opponentIndex).toPlainString() + "%";
+    for (int networkIndex = 0; networkIndex < matrixFile.getNumberOfNetworks(); networkIndex++) {
+      byte prediction = matrixFile.getPrediction(teamIndex, opponentIndex, networkIndex);
+      ret[BASE_INDEX + networkIndex] = (prediction == MatrixFile.PREDICTION_WIN) ? teamName
+          : (prediction == MatrixFile.PREDICTION_LOSS) ? opponentName : GameSimulationResult.PUSH;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Opponent: " + opponentName +
+          " | Win % " + ret[2] +
+          " | Loss %" + ret[3] +
+          " | Push % " + ret[4] +
+          " | Network Results -> " + describeNetworkResults(matrixFile, teamIndex, opponentIndex, ret));
+    }
+    return ret;
+  }
+
+  /**
+   * Debug only: each network's pick, along with the outputs it was based on.
+   */
+  private static String describeNetworkResults(MatrixFile matrixFile, int teamIndex, int opponentIndex,
+      String[] row) {
+    StringBuilder sb = new StringBuilder();
+    for (int aa = 0; aa < matrixFile.getNumberOfNetworks(); aa++) {
+      if (aa > 0) {
+        sb.append(" | ");
+      }
+      sb.append(row[BASE_INDEX + aa]);
+      sb.append(" (H->");
+      sb.append(round(matrixFile.getTeamHomeResult(teamIndex, opponentIndex, aa)));
+      sb.append(":");
+      sb.append(round(matrixFile.getOpponentAwayResult(teamIndex, opponentIndex, aa)));
+      sb.append(" | A->");
+      sb.append(round(matrixFile.getOpponentHomeResult(teamIndex, opponentIndex, aa)));
+      sb.append(":");
+      sb.append(round(matrixFile.getTeamAwayResult(teamIndex, opponentIndex, aa)));
+      sb.append(")");
+    }
+    return sb.toString();
+  }
+
+  private static BigDecimal round(float value) {
+    return Float.isNaN(value) ? null : BigDecimal.valueOf(value).setScale(3, RoundingMode.HALF_UP);
+  }
+
+}
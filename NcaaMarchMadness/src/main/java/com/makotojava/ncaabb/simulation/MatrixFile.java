@@ -0,0 +1,405 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.neuroph.core.NeuralNetwork;
+import org.neuroph.nnet.learning.BackPropagation;
+
+/**
+ * The tournament matrix (every team's simulated result against every opponent, from
+ * every network), in a compact binary file that can be read back at random without
+ * parsing anything: the file is memory-mapped, and every value is at a fixed offset.
+ *
+ * File layout (big endian):
+ * <ul>
+ * <li>int magic number, int format version</li>
+ * <li>int year</li>
+ * <li>int number of teams, then each team name</li>
+ * <li>int number of networks, then a description (the layer structure) of each network</li>
+ * <li>int[teams][teams][3] - the number of wins, losses and pushes for each (team, opponent)
+ * matchup. All zero means the matchup was not simulated.</li>
+ * <li>byte[teams][teams][networks] - each network's prediction for each matchup (see
+ * {@link #PREDICTION_WIN}, etc)</li>
+ * <li>float[teams][teams][networks][2] - each network's output for the team in each
+ * matchup, as home (LHS) and as away (RHS). The opponent's outputs are the team's outputs
+ * in the opposite (opponent, team) matchup.</li>
+ * </ul>
+ * Strings are stored as an int length and UTF-8 bytes. Teams are in alphabetical order.
+ *
+ * Once opened, a MatrixFile is read only, so it can be shared by any number of threads.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class MatrixFile {
+
+  private static final Logger log = Logger.getLogger(MatrixFile.class);
+
+  /**
+   * "NCAM", so we know it's one of ours
+   */
+  public static final int MAGIC_NUMBER = 0x4E43414D;
+
+  /**
+   * Bump this any time the file layout changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  /**
+   * The network picked the team (it won both home and away)
+   */
+  public static final byte PREDICTION_WIN = GameSimulationResult.PREDICTION_WIN;
+  /**
+   * The network picked the opponent (the team lost both home and away)
+   */
+  public static final byte PREDICTION_LOSS = GameSimulationResult.PREDICTION_LOSS;
+  /**
+   * The network could not decide (see {@link GameSimulationResult#PUSH})
+   */
+  public static final byte PREDICTION_PUSH = GameSimulationResult.PREDICTION_PUSH;
+  /**
+   * The matchup was not simulated
+   */
+  public static final byte PREDICTION_NONE = GameSimulationResult.PREDICTION_NONE;
+
+  private static final int COUNTS_PER_MATCHUP = 3;
+  private static final int OUTPUTS_PER_NETWORK = 2;
+
+  private final MappedByteBuffer buffer;
+  private final int year;
+  private final List<String> teamNames;
+  private final Map<String, Integer> teamIndexesByName;
+  private final List<String> networkDescriptions;
+  private final int countsOffset;
+  private final int predictionsOffset;
+  private final int outputsOffset;
+
+  private MatrixFile(MappedByteBuffer buffer, int year, List<String> teamNames, List<String> networkDescriptions) {
+    this.buffer = buffer;
+    this.year = year;
+    this.teamNames = Collections.unmodifiableList(teamNames);
+    this.teamIndexesByName = new HashMap<>();
+    for (int teamIndex = 0; teamIndex < teamNames.size(); teamIndex++) {
+      teamIndexesByName.put(teamNames.get(teamIndex), teamIndex);
+    }
+    this.networkDescriptions = Collections.unmodifiableList(networkDescriptions);
+    int numberOfMatchups = teamNames.size() * teamNames.size();
+    this.countsOffset = buffer.position();
+    this.predictionsOffset = countsOffset + numberOfMatchups * COUNTS_PER_MATCHUP * Integer.BYTES;
+    this.outputsOffset = predictionsOffset + numberOfMatchups * networkDescriptions.size();
+  }
+
+  /**
+   * Writes the specified matrix to the specified file. The file is written under a temporary
+   * name and then moved into place, so a reader never sees half of a matrix.
+   *
+   * @param fileName
+   *          The name of the matrix file.
+   * @param year
+   *          The tournament year.
+   * @param matrix
+   *          The matrix: a List of GameSimulationResults for each team, keyed by team name.
+   *          Every result must come from the same networks, in the same order.
+   * @param networkDescriptions
+   *          A description of each network, in the order the networks were run.
+   *
+   * @throws IOException
+   *           If something goes wrong.
+   */
+  public static <T extends NeuralNetwork<BackPropagation>> void write(String fileName, int year,
+      Map<String, List<GameSimulationResult<T>>> matrix, List<String> networkDescriptions) throws IOException {
+    List<String> teamNames = new ArrayList<>(matrix.keySet());
+    Collections.sort(teamNames);
+    Map<String, Integer> teamIndexesByName = new HashMap<>();
+    for (int teamIndex = 0; teamIndex < teamNames.size(); teamIndex++) {
+      teamIndexesByName.put(teamNames.get(teamIndex), teamIndex);
+    }
+    int numberOfTeams = teamNames.size();
+    int numberOfNetworks = networkDescriptions.size();
+    //
+    // Lay out the blocks in memory first, since the results come in whatever order they come in
+    int[] counts = new int[numberOfTeams * numberOfTeams * COUNTS_PER_MATCHUP];
+    byte[] predictions = new byte[numberOfTeams * numberOfTeams * numberOfNetworks];
+    float[] outputs = new float[predictions.length * OUTPUTS_PER_NETWORK];
+    Arrays.fill(predictions, PREDICTION_NONE);
+    Arrays.fill(outputs, Float.NaN);
+    for (int teamIndex = 0; teamIndex < numberOfTeams; teamIndex++) {
+      for (GameSimulationResult<T> gameSimulationResult : matrix.get(teamNames.get(teamIndex))) {
+        Integer opponentIndex = teamIndexesByName.get(gameSimulationResult.getOpponentName());
+        if (opponentIndex == null) {
+          throw new IllegalArgumentException("Opponent " + gameSimulationResult.getOpponentName() + " of team "
+              + teamNames.get(teamIndex) + " is not in the matrix!");
+        }
+        if (gameSimulationResult.getNumberOfNetworks() != numberOfNetworks) {
+          throw new IllegalArgumentException("Matchup " + teamNames.get(teamIndex) + " vs "
+              + gameSimulationResult.getOpponentName() + " was simulated by " + gameSimulationResult.getNumberOfNetworks()
+              + " networks, expected " + numberOfNetworks);
+        }
+        int matchupIndex = teamIndex * numberOfTeams + opponentIndex;
+        for (int networkIndex = 0; networkIndex < numberOfNetworks; networkIndex++) {
+          int predictionIndex = matchupIndex * numberOfNetworks + networkIndex;
+          byte prediction = gameSimulationResult.getPrediction(networkIndex);
+          if (prediction == PREDICTION_NONE) {
+            throw new IllegalArgumentException("Network " + networkIndex + " has no prediction for "
+                + teamNames.get(teamIndex) + " vs " + gameSimulationResult.getOpponentName());
+          }
+          counts[matchupIndex * COUNTS_PER_MATCHUP + prediction]++;
+          predictions[predictionIndex] = prediction;
+          outputs[predictionIndex * OUTPUTS_PER_NETWORK] = (float) gameSimulationResult
+              .getTeamHomeResult(networkIndex);
+          outputs[predictionIndex * OUTPUTS_PER_NETWORK + 1] = (float) gameSimulationResult
+              .getTeamAwayResult(networkIndex);
+        }
+      }
+    }
+    File file = new File(fileName);
+    File tempFile = new File(fileName + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(MAGIC_NUMBER);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(year);
+      out.writeInt(numberOfTeams);
+      for (String teamName : teamNames) {
+        writeString(out, teamName);
+      }
+      out.writeInt(numberOfNetworks);
+      for (String networkDescription : networkDescriptions) {
+        writeString(out, networkDescription);
+      }
+      for (int count : counts) {
+        out.writeInt(count);
+      }
+      out.write(predictions);
+      for (float output : outputs) {
+        out.writeFloat(output);
+      }
+    }
+    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    log.info("Wrote matrix of " + numberOfTeams + " teams and " + numberOfNetworks + " networks (" + file.length()
+        + " bytes) to file: " + fileName);
+  }
+
+  /**
+   * Opens the specified matrix file. The file is memory-mapped, and only the header
+   * (team names and network descriptions) is read up front.
+   *
+   * @param fileName
+   *          The name of the matrix file.
+   *
+   * @return MatrixFile - the matrix.
+   *
+   * @throws IOException
+   *           If the file cannot be read, or is not a matrix file this code understands.
+   */
+  public static MatrixFile open(String fileName) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        FileChannel channel = file.getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < 8 || buffer.getInt() != MAGIC_NUMBER) {
+        throw new IOException("File " + fileName + " is not a matrix file!");
+      }
+      int formatVersion = buffer.getInt();
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IOException("Matrix file " + fileName + " is format version " + formatVersion
+            + ", but only version " + FORMAT_VERSION + " is supported. Run the predictor again.");
+      }
+      int year = buffer.getInt();
+      int numberOfTeams = buffer.getInt();
+      List<String> teamNames = new ArrayList<>(numberOfTeams);
+      for (int aa = 0; aa < numberOfTeams; aa++) {
+        teamNames.add(readString(buffer));
+      }
+      int numberOfNetworks = buffer.getInt();
+      List<String> networkDescriptions = new ArrayList<>(numberOfNetworks);
+      for (int aa = 0; aa < numberOfNetworks; aa++) {
+        networkDescriptions.add(readString(buffer));
+      }
+      MatrixFile ret = new MatrixFile(buffer, year, teamNames, networkDescriptions);
+      long expectedSize = (long) ret.outputsOffset
+          + (long) numberOfTeams * numberOfTeams * numberOfNetworks * OUTPUTS_PER_NETWORK * Float.BYTES;
+      if (channel.size() != expectedSize) {
+        throw new IOException("Matrix file " + fileName + " is " + channel.size() + " bytes, expected "
+            + expectedSize + ". It is truncated or corrupt!");
+      }
+      log.info("Opened matrix file " + fileName + ": " + numberOfTeams + " teams, " + numberOfNetworks
+          + " networks");
+      return ret;
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Matrix file " + fileName + " is truncated!", e);
+    }
+  }
+
+  public int getYear() {
+    return year;
+  }
+
+  /**
+   * @return List<String> - the teams, in alphabetical order.
+   */
+  public List<String> getTeamNames() {
+    return teamNames;
+  }
+
+  public int getNumberOfTeams() {
+    return teamNames.size();
+  }
+
+  /**
+   * @return int - the index of the specified team, or -1 if it's not in the matrix.
+   */
+  public int getTeamIndex(String teamName) {
+    Integer ret = teamIndexesByName.get(teamName);
+    return (ret == null) ? -1 : ret;
+  }
+
+  /**
+   * @return List<String> - a description (the layer structure) of each network.
+   */
+  public List<String> getNetworkDescriptions() {
+    return networkDescriptions;
+  }
+
+  public int getNumberOfNetworks() {
+    return networkDescriptions.size();
+  }
+
+  /**
+   * @return boolean - whether or not the specified matchup was simulated.
+   */
+  public boolean hasMatchup(int teamIndex, int opponentIndex) {
+    return getNumberOfWins(teamIndex, opponentIndex) + getNumberOfLosses(teamIndex, opponentIndex)
+        + getNumberOfPushes(teamIndex, opponentIndex) > 0;
+  }
+
+  public int getNumberOfWins(int teamIndex, int opponentIndex) {
+    return getCount(teamIndex, opponentIndex, PREDICTION_WIN);
+  }
+
+  public int getNumberOfLosses(int teamIndex, int opponentIndex) {
+    return getCount(teamIndex, opponentIndex, PREDICTION_LOSS);
+  }
+
+  public int getNumberOfPushes(int teamIndex, int opponentIndex) {
+    return getCount(teamIndex, opponentIndex, PREDICTION_PUSH);
+  }
+
+  /**
+   * @return BigDecimal - the percentage of networks that picked the team, to 2 decimal
+   *         places (same as {@link GameSimulationResult#getPercentWins()}).
+   */
+  public BigDecimal getPercentWins(int teamIndex, int opponentIndex) {
+    return computePercentage(getNumberOfWins(teamIndex, opponentIndex));
+  }
+
+  public BigDecimal getPercentLosses(int teamIndex, int opponentIndex) {
+    return computePercentage(getNumberOfLosses(teamIndex, opponentIndex));
+  }
+
+  public BigDecimal getPercentPushes(int teamIndex, int opponentIndex) {
+    return computePercentage(getNumberOfPushes(teamIndex, opponentIndex));
+  }
+
+  private BigDecimal computePercentage(int count) {
+    return BigDecimal.valueOf(100.0 * count / getNumberOfNetworks()).setScale(2, RoundingMode.HALF_UP);
+  }
+
+  /**
+   * @return byte - the specified network's prediction for the specified matchup
+   *         ({@link #PREDICTION_WIN}, {@link #PREDICTION_LOSS}, {@link #PREDICTION_PUSH}, or
+   *         {@link #PREDICTION_NONE} if the matchup was not simulated).
+   */
+  public byte getPrediction(int teamIndex, int opponentIndex, int networkIndex) {
+    return buffer.get(predictionsOffset + computeNetworkIndex(teamIndex, opponentIndex, networkIndex));
+  }
+
+  /**
+   * @return float - the specified network's output for the team as home (LHS).
+   */
+  public float getTeamHomeResult(int teamIndex, int opponentIndex, int networkIndex) {
+    return getOutput(teamIndex, opponentIndex, networkIndex, 0);
+  }
+
+  /**
+   * @return float - the specified network's output for the team as away (RHS).
+   */
+  public float getTeamAwayResult(int teamIndex, int opponentIndex, int networkIndex) {
+    return getOutput(teamIndex, opponentIndex, networkIndex, 1);
+  }
+
+  /**
+   * @return float - the specified network's output for the opponent as home (LHS).
+   */
+  public float getOpponentHomeResult(int teamIndex, int opponentIndex, int networkIndex) {
+    return getTeamHomeResult(opponentIndex, teamIndex, networkIndex);
+  }
+
+  /**
+   * @return float - the specified network's output for the opponent as away (RHS).
+   */
+  public float getOpponentAwayResult(int teamIndex, int opponentIndex, int networkIndex) {
+    return getTeamAwayResult(opponentIndex, teamIndex, networkIndex);
+  }
+
+  private int getCount(int teamIndex, int opponentIndex, int which) {
+    int matchupIndex = teamIndex * teamNames.size() + opponentIndex;
+    return buffer.getInt(countsOffset + (matchupIndex * COUNTS_PER_MATCHUP + which) * Integer.BYTES);
+  }
+
+  private float getOutput(int teamIndex, int opponentIndex, int networkIndex, int which) {
+    int index = computeNetworkIndex(teamIndex, opponentIndex, networkIndex) * OUTPUTS_PER_NETWORK + which;
+    return buffer.getFloat(outputsOffset + index * Float.BYTES);
+  }
+
+  private int computeNetworkIndex(int teamIndex, int opponentIndex, int networkIndex) {
+    return (teamIndex * teamNames.size() + opponentIndex) * networkDescriptions.size() + networkIndex;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(MappedByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
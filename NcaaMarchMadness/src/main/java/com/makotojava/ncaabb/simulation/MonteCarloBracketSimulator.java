@@ -0,0 +1,327 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.makotojava.ncaabb.springconfig.ApplicationConfig;
+import com.makotojava.ncaabb.util.NetworkConfiguration;
+import com.makotojava.ncaabb.util.NetworkProperties;
+import com.makotojava.ncaabb.util.NetworkUtils;
+import com.opencsv.CSVWriter;
+
+/**
+ * Plays the whole tournament out, over and over (millions of times), using the
+ * tournament matrix to decide each game, and counts how often each team makes it
+ * to each round. The result is each team's odds of advancing to each round, which
+ * is something the pairwise matrix by itself can't tell you.
+ * 
+ * Each game is decided by a random draw against the {@link WinProbabilityTable}. The
+ * tournaments are split into fixed-size chunks, each with its own {@link SplittableRandom}
+ * stream (split from one seed, in chunk order), and the chunks are run on a pool of worker
+ * threads. Each chunk counts into its own primitive array, and the counts are added up
+ * in chunk order at the end, so for a given seed the result is the same no matter how
+ * many threads are used.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class MonteCarloBracketSimulator {
+
+  private static final Logger log = Logger.getLogger(MonteCarloBracketSimulator.class);
+
+  /**
+   * The number of tournaments each worker runs before checking in
+   */
+  static final int TOURNAMENTS_PER_CHUNK = 100000;
+
+  /**
+   * Driver for the program.
+   * 
+   * @param args
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      usage();
+      System.exit(-1);
+    }
+    //
+    // Get the tournament year
+    Integer year = Integer.valueOf(args[0]);
+    //
+    // Validate the year
+    NetworkUtils.validateYear(year);
+    //
+    // Parse (and validate) the configuration before doing anything else
+    NetworkConfiguration configuration = NetworkProperties.getConfiguration();
+    //
+    // Number of tournaments to simulate
+    long numberOfTournaments = (args.length > 1) ? Long.valueOf(args[1])
+        : configuration.getBracketSimulationTournaments();
+    //
+    // Seed for the random numbers (null means pick one)
+    Long seed = (args.length > 2) ? Long.valueOf(args[2]) : null;
+    //
+    // Let's go.
+    new MonteCarloBracketSimulator().go(new TournamentMatrixPredictor(
+        new AnnotationConfigApplicationContext(ApplicationConfig.class), configuration), year, numberOfTournaments,
+        seed);
+  }
+
+  /**
+   * Usage message. Pretty self-explanatory.
+   */
+  protected static void usage() {
+    System.out.println("Usage: ");
+    System.out.println("\t" + MonteCarloBracketSimulator.class.getSimpleName()
+        + " YEAR [NUMBER_OF_TOURNAMENTS [SEED]]");
+    System.out.println("\t Where:");
+    System.out.println("\t YEAR is the year in which the tournament occurs.");
+    System.out.println("\t NUMBER_OF_TOURNAMENTS is the number of times to simulate the tournament.");
+    System.out.println("\t SEED is the seed for the random numbers (same seed, same odds). If not specified, "
+        + "one is picked (and logged).");
+  }
+
+  /**
+   * The "do it" method. Loads the bracket, computes the matrix for the teams in it,
+   * simulates the tournament, and writes out the odds.
+   * 
+   * @param tournamentMatrixPredictor
+   *          Computes the matrix.
+   * @param tournamentYear
+   *          The tournament year.
+   * @param numberOfTournaments
+   *          The number of times to simulate the tournament.
+   * @param seed
+   *          The seed for the random numbers, or null to pick one. Either way, it's logged so the
+   *          run can be repeated.
+   */
+  public void go(TournamentMatrixPredictor tournamentMatrixPredictor, Integer tournamentYear,
+      long numberOfTournaments, Long seed) {
+    Bracket bracket = Bracket.loadForTournament(tournamentYear);
+    List<MultiLayerPerceptron> networks = tournamentMatrixPredictor.loadNetworks();
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix = tournamentMatrixPredictor
+        .computeMatrix(tournamentYear, networks, new HashSet<>(bracket.getTeamNames()));
+    WinProbabilityTable winProbabilityTable = WinProbabilityTable.fromMatrix(bracket.getTeamNames(), matrix);
+    long randomSeed = (seed != null) ? seed : System.nanoTime();
+    log.info("Simulating " + numberOfTournaments + " tournaments with seed " + randomSeed);
+    long startTime = System.currentTimeMillis();
+    AdvancementOdds advancementOdds = simulate(bracket, winProbabilityTable, numberOfTournaments,
+        tournamentMatrixPredictor.getConfiguration().getSimulationWorkerThreads(), randomSeed);
+    log.info("Simulated " + numberOfTournaments + " tournaments in " + (System.currentTimeMillis() - startTime)
+        + "ms");
+    writeOddsFile(tournamentYear, advancementOdds);
+  }
+
+  /**
+   * Simulates the tournament the specified number of times.
+   * 
+   * @param bracket
+   *          The bracket.
+   * @param winProbabilityTable
+   *          The win probabilities, for the same teams (in the same order) as the bracket.
+   * @param numberOfTournaments
+   *          The number of times to simulate the tournament.
+   * @param numberOfWorkers
+   *          The number of threads to use.
+   * @param seed
+   *          The seed for the random numbers.
+   * 
+   * @return AdvancementOdds - how often each team reached each round.
+   */
+  public static AdvancementOdds simulate(Bracket bracket, WinProbabilityTable winProbabilityTable,
+      long numberOfTournaments, int numberOfWorkers, long seed) {
+    if (!bracket.getTeamNames().equals(winProbabilityTable.getTeamNames())) {
+      throw new IllegalArgumentException("The bracket and the win probability table must have the same teams, "
+          + "in the same order");
+    }
+    //
+    // Split up the work, giving each chunk its own random number stream
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Chunk> chunks = new ArrayList<>();
+    for (long tournamentsLeft = numberOfTournaments; tournamentsLeft > 0; tournamentsLeft -= TOURNAMENTS_PER_CHUNK) {
+      chunks.add(new Chunk(bracket, winProbabilityTable, (int) Math.min(TOURNAMENTS_PER_CHUNK, tournamentsLeft),
+          random.split()));
+    }
+    long[] counts = new long[bracket.getNumberOfTeams() * (bracket.getNumberOfRounds() + 1)];
+    if (numberOfWorkers <= 1) {
+      for (Chunk chunk : chunks) {
+        addCounts(counts, chunk.call());
+      }
+    } else {
+      log.info("Simulating " + numberOfTournaments + " tournaments using " + numberOfWorkers
+          + " worker threads...");
+      ExecutorService executorService = Executors.newFixedThreadPool(numberOfWorkers);
+      try {
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+          futures.add(executorService.submit(chunk::call));
+        }
+        for (Future<long[]> future : futures) {
+          addCounts(counts, future.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        String message = "Interrupted while waiting for the tournament simulation to complete. Cannot continue!";
+        log.error(message, e);
+        throw new RuntimeException(message, e);
+      } catch (ExecutionException e) {
+        String message = "Tournament simulation failed. Cannot continue!";
+        log.error(message, e.getCause());
+        throw new RuntimeException(message, e.getCause());
+      } finally {
+        executorService.shutdownNow();
+      }
+    }
+    return new AdvancementOdds(bracket, numberOfTournaments, counts);
+  }
+
+  private static void addCounts(long[] counts, long[] chunkCounts) {
+    for (int aa = 0; aa < counts.length; aa++) {
+      counts[aa] += chunkCounts[aa];
+    }
+  }
+
+  /**
+   * Writes the odds of every team reaching every round to a CSV file in the simulation
+   * directory, favorites first.
+   */
+  private void writeOddsFile(Integer tournamentYear, AdvancementOdds advancementOdds) {
+    String oddsFilename = NetworkUtils.fetchSimulationDirectoryAndCreateIfNecessary() + File.separator
+        + "bracket-odds-" + tournamentYear + ".csv";
+    List<Integer> teamIndexes = new ArrayList<>();
+    for (int teamIndex = 0; teamIndex < advancementOdds.getTeamNames().size(); teamIndex++) {
+      teamIndexes.add(teamIndex);
+    }
+    teamIndexes.sort((teamIndex1, teamIndex2) -> Double.compare(advancementOdds.getChampionshipProbability(teamIndex2),
+        advancementOdds.getChampionshipProbability(teamIndex1)));
+    try (CSVWriter csvWriter = new CSVWriter(new BufferedWriter(new FileWriter(oddsFilename)))) {
+      String[] heading = new String[1 + advancementOdds.getNumberOfLevels()];
+      heading[0] = "TEAM";
+      for (int level = 0; level < advancementOdds.getNumberOfLevels(); level++) {
+        heading[1 + level] = advancementOdds.getLevelName(level) + " %";
+      }
+      csvWriter.writeNext(heading);
+      for (Integer teamIndex : teamIndexes) {
+        String[] output = new String[heading.length];
+        output[0] = advancementOdds.getTeamNames().get(teamIndex);
+        for (int level = 0; level < advancementOdds.getNumberOfLevels(); level++) {
+          output[1 + level] = BigDecimal.valueOf(100.0 * advancementOdds.getProbability(teamIndex, level))
+              .setScale(2, RoundingMode.HALF_UP).toPlainString() + "%";
+        }
+        csvWriter.writeNext(output);
+        if (log.isDebugEnabled()) {
+          log.debug(String.join(", ", output));
+        }
+      }
+    } catch (IOException e) {
+      String message = "IOException occurred while writing bracket odds file '" + oddsFilename + "'";
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+    log.info("Wrote bracket odds to '" + oddsFilename + "'");
+  }
+
+  /**
+   * A chunk of tournaments, run start to finish by one thread with its own random number
+   * stream and its own counters.
+   * 
+   * @author J Steven Perry
+   *
+   */
+  private static class Chunk {
+
+    private final int numberOfTeams;
+    private final int numberOfLevels;
+    private final int[] slotTeams;
+    private final int[] slotPlayInOpponents;
+    private final double[] probabilities;
+    private final int numberOfTournaments;
+    private final SplittableRandom random;
+
+    Chunk(Bracket bracket, WinProbabilityTable winProbabilityTable, int numberOfTournaments,
+        SplittableRandom random) {
+      this.numberOfTeams = bracket.getNumberOfTeams();
+      this.numberOfLevels = bracket.getNumberOfRounds() + 1;
+      this.slotTeams = new int[bracket.getNumberOfSlots()];
+      this.slotPlayInOpponents = new int[bracket.getNumberOfSlots()];
+      for (int slot = 0; slot < slotTeams.length; slot++) {
+        slotTeams[slot] = bracket.getSlotTeam(slot);
+        slotPlayInOpponents[slot] = bracket.getSlotPlayInOpponent(slot);
+      }
+      this.probabilities = winProbabilityTable.getProbabilities();
+      this.numberOfTournaments = numberOfTournaments;
+      this.random = random;
+    }
+
+    /**
+     * @return long[] - the number of tournaments in which team t reached round r, at
+     *         [t * numberOfLevels + r].
+     */
+    long[] call() {
+      long[] counts = new long[numberOfTeams * numberOfLevels];
+      int[] teamsLeft = new int[slotTeams.length];
+      for (int tournament = 0; tournament < numberOfTournaments; tournament++) {
+        //
+        // Play-in games first, to fill out the bracket
+        for (int slot = 0; slot < slotTeams.length; slot++) {
+          int team = slotTeams[slot];
+          int playInOpponent = slotPlayInOpponents[slot];
+          if (playInOpponent >= 0) {
+            team = playGame(team, playInOpponent);
+          }
+          teamsLeft[slot] = team;
+          counts[team * numberOfLevels]++;
+        }
+        //
+        // Now each round: the winner of each game moves on to face the winner of the game next to it
+        int numberOfTeamsLeft = slotTeams.length;
+        for (int level = 1; numberOfTeamsLeft > 1; level++) {
+          numberOfTeamsLeft /= 2;
+          for (int game = 0; game < numberOfTeamsLeft; game++) {
+            int winner = playGame(teamsLeft[2 * game], teamsLeft[2 * game + 1]);
+            teamsLeft[game] = winner;
+            counts[winner * numberOfLevels + level]++;
+          }
+        }
+      }
+      return counts;
+    }
+
+    private int playGame(int team, int opponent) {
+      return (random.nextDouble() < probabilities[team * numberOfTeams + opponent]) ? team : opponent;
+    }
+  }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.util.NetworkFileFingerprint;
+
+/**
+ * Persists the outputs of each network for every matchup in the tournament matrix, one
+ * file per network, so that when the networks directory changes, only the networks that
+ * are new (or changed) have to be run to recompute the matrix.
+ *
+ * The outputs of a network are only good for the exact network file they came from, the
+ * tournament year, and the exact (normalized) season data of the exact teams that were
+ * run through it. So each file is stamped with the {@link NetworkFileFingerprint} of the
+ * network file, the year, and a "feature version" (see
+ * {@link #computeFeatureVersion(List, Map)}), and is ignored if any of them don't match.
+ *
+ * File layout (big endian): int magic number, int format version, the fingerprint, int year,
+ * long feature version, the network description (int length + UTF-8 bytes), int number of
+ * matchups, then {@link #RESULTS_PER_MATCHUP} doubles per matchup (see {@link NetworkOutputs}).
+ *
+ * @author J Steven Perry
+ *
+ */
+public class NetworkOutputStore {
+
+  private static final Logger log = Logger.getLogger(NetworkOutputStore.class);
+
+  /**
+   * "NCAO", so we know it's one of ours
+   */
+  public static final int MAGIC_NUMBER = 0x4E43414F;
+
+  /**
+   * Bump this any time the file layout changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  public static final String OUTPUT_FILE_EXTENSION = ".out";
+
+  /**
+   * Team home, opponent away, team away, opponent home
+   */
+  public static final int RESULTS_PER_MATCHUP = 4;
+
+  private final File directory;
+
+  /**
+   * Constructor.
+   *
+   * @param directoryName
+   *          The directory the output files live in (one directory per tournament year).
+   */
+  public NetworkOutputStore(String directoryName) {
+    this.directory = new File(directoryName);
+  }
+
+  /**
+   * Computes the version of the network input: a CRC-32 of the team names and their
+   * normalized season data. If anything about either one changes, so does the version.
+   *
+   * @param sortedTeamNames
+   *          The teams in the matrix, in alphabetical order.
+   * @param normalizedDataByTeamName
+   *          The normalized season data for every team.
+   *
+   * @return long - the feature version.
+   */
+  public static long computeFeatureVersion(List<String> sortedTeamNames,
+      Map<String, double[]> normalizedDataByTeamName) {
+    CRC32 crc32 = new CRC32();
+    for (String teamName : sortedTeamNames) {
+      crc32.update(teamName.getBytes(StandardCharsets.UTF_8));
+      double[] normalizedData = normalizedDataByTeamName.get(teamName);
+      ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + normalizedData.length * Double.BYTES);
+      buffer.putInt(normalizedData.length);
+      for (double value : normalizedData) {
+        buffer.putDouble(value);
+      }
+      crc32.update(buffer.array());
+    }
+    return crc32.getValue();
+  }
+
+  /**
+   * @return int - the number of (unordered) matchups in a matrix of the specified number
+   *         of teams, each team against itself and every team after it.
+   */
+  public static int computeNumberOfMatchups(int numberOfTeams) {
+    return numberOfTeams * (numberOfTeams + 1) / 2;
+  }
+
+  /**
+   * @return File - the output file for the specified network file.
+   */
+  public File computeOutputFile(File networkFile) {
+    return new File(directory, networkFile.getName() + OUTPUT_FILE_EXTENSION);
+  }
+
+  /**
+   * Reads the outputs stored for the specified network file.
+   *
+   * @param networkFile
+   *          The network file.
+   * @param fingerprint
+   *          The fingerprint of the network file as it is now.
+   * @param year
+   *          The tournament year.
+   * @param featureVersion
+   *          The version of the network input, as it is now.
+   *
+   * @return NetworkOutputs - the stored outputs, or null if there aren't any or they are out
+   *         of date (in which case the network has to be run again).
+   */
+  public NetworkOutputs read(File networkFile, NetworkFileFingerprint fingerprint, int year,
+      long featureVersion) {
+    File outputFile = computeOutputFile(networkFile);
+    if (!outputFile.exists()) {
+      return null;
+    }
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(outputFile.toPath()));
+      if (buffer.getInt() != MAGIC_NUMBER || buffer.getInt() != FORMAT_VERSION) {
+        log.info("Network output file " + outputFile.getName() + " is out of date (format)");
+        return null;
+      }
+      NetworkFileFingerprint storedFingerprint = new NetworkFileFingerprint(buffer.getLong(), buffer.getLong(),
+          buffer.getLong());
+      int storedYear = buffer.getInt();
+      long storedFeatureVersion = buffer.getLong();
+      if (!storedFingerprint.equals(fingerprint) || storedYear != year || storedFeatureVersion != featureVersion) {
+        log.info("Network output file " + outputFile.getName() + " is out of date");
+        return null;
+      }
+      //
+      // Check the lengths against what's left of the file before allocating anything (a
+      /// corrupt length could be negative, or big enough to run us out of memory)
+      int networkDescriptionLength = buffer.getInt();
+      if (networkDescriptionLength < 0 || networkDescriptionLength > buffer.remaining()) {
+        log.warn("Network output file " + outputFile.getName() + " is unreadable (network description length "
+            + networkDescriptionLength + "), the network will be run again");
+        return null;
+      }
+      byte[] networkDescription = new byte[networkDescriptionLength];
+      buffer.get(networkDescription);
+      int numberOfMatchups = buffer.getInt();
+      if (numberOfMatchups < 0 || numberOfMatchups > buffer.remaining() / (RESULTS_PER_MATCHUP * Double.BYTES)) {
+        log.warn("Network output file " + outputFile.getName() + " is unreadable (number of matchups "
+            + numberOfMatchups + "), the network will be run again");
+        return null;
+      }
+      double[] results = new double[numberOfMatchups * RESULTS_PER_MATCHUP];
+      buffer.asDoubleBuffer().get(results);
+      return new NetworkOutputs(networkFile, fingerprint, new String(networkDescription, StandardCharsets.UTF_8),
+          results);
+    } catch (IOException | BufferUnderflowException e) {
+      log.warn("Could not read network output file " + outputFile.getName() + " (the network will be run again): "
+          + e.getLocalizedMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Writes the specified outputs. The file is written under a temporary name and then
+   * moved into place, so a reader never sees half of a file.
+   *
+   * @param networkOutputs
+   *          The outputs of the network.
+   * @param year
+   *          The tournament year.
+   * @param featureVersion
+   *          The version of the network input the network was run with.
+   */
+  public void write(NetworkOutputs networkOutputs, int year, long featureVersion) {
+    File outputFile = computeOutputFile(networkOutputs.getNetworkFile());
+    File tempFile = new File(outputFile.getPath() + ".tmp");
+    try {
+      directory.mkdirs();
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(MAGIC_NUMBER);
+        out.writeInt(FORMAT_VERSION);
+        networkOutputs.getFingerprint().write(out);
+        out.writeInt(year);
+        out.writeLong(featureVersion);
+        byte[] networkDescription = networkOutputs.getNetworkDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(networkDescription.length);
+        out.write(networkDescription);
+        out.writeInt(networkOutputs.getNumberOfMatchups());
+        for (double result : networkOutputs.results) {
+          out.writeDouble(result);
+        }
+      }
+      Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      String message = "Could not write network output file " + outputFile.getPath() + ": "
+          + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+  }
+
+  /**
+   * Deletes the output files of any network that is no longer in the networks directory.
+   *
+   * @param networkFiles
+   *          The network files that are still there.
+   *
+   * @return int - the number of output files deleted.
+   */
+  public int removeAllExcept(Collection<File> networkFiles) {
+    int ret = 0;
+    Set<String> outputFileNames = new HashSet<>();
+    for (File networkFile : networkFiles) {
+      outputFileNames.add(computeOutputFile(networkFile).getName());
+    }
+    File[] outputFiles = directory.listFiles((dir, name) -> name.endsWith(OUTPUT_FILE_EXTENSION));
+    if (outputFiles != null) {
+      for (File outputFile : outputFiles) {
+        if (!outputFileNames.contains(outputFile.getName())) {
+          log.info("Network for output file " + outputFile.getName() + " is gone, removing it");
+          if (outputFile.delete()) {
+            ret++;
+          }
+        }
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * The outputs of a single network for every matchup in the matrix. The matchups are in
+   * matrix row order: the first team against itself and every team after it, then the second
+   * team against itself and every team after it, and so on (teams in alphabetical order). For
+   * each matchup, there are {@link #RESULTS_PER_MATCHUP} results: the team's output at home,
+   * the opponent's output away (same run), the team's output away, and the opponent's output
+   * at home (same run).
+   *
+   * @author J Steven Perry
+   *
+   */
+  public static class NetworkOutputs {
+
+    private final File networkFile;
+    private final NetworkFileFingerprint fingerprint;
+    private final String networkDescription;
+    private final double[] results;
+
+    public NetworkOutputs(File networkFile, NetworkFileFingerprint fingerprint, String networkDescription,
+        int numberOfMatchups) {
+      this(networkFile, fingerprint, networkDescription, new double[numberOfMatchups * RESULTS_PER_MATCHUP]);
+    }
+
+    NetworkOutputs(File networkFile, NetworkFileFingerprint fingerprint, String networkDescription,
+        double[] results) {
+      this.networkFile = networkFile;
+      this.fingerprint = fingerprint;
+      this.networkDescription = networkDescription;
+      this.results = results;
+    }
+
+    public File getNetworkFile() {
+      return networkFile;
+    }
+
+    public NetworkFileFingerprint getFingerprint() {
+      return fingerprint;
+    }
+
+    public String getNetworkDescription() {
+      return networkDescription;
+    }
+
+    public int getNumberOfMatchups() {
+      return results.length / RESULTS_PER_MATCHUP;
+    }
+
+    public void setResults(int matchupIndex, double teamHomeResult, double opponentAwayResult,
+        double teamAwayResult, double opponentHomeResult) {
+      int offset = matchupIndex * RESULTS_PER_MATCHUP;
+      results[offset] = teamHomeResult;
+      results[offset + 1] = opponentAwayResult;
+      results[offset + 2] = teamAwayResult;
+      results[offset + 3] = opponentHomeResult;
+    }
+
+    public double getTeamHomeResult(int matchupIndex) {
+      return results[matchupIndex * RESULTS_PER_MATCHUP];
+    }
+
+    public double getOpponentAwayResult(int matchupIndex) {
+      return results[matchupIndex * RESULTS_PER_MATCHUP + 1];
+    }
+
+    public double getTeamAwayResult(int matchupIndex) {
+      return results[matchupIndex * RESULTS_PER_MATCHUP + 2];
+    }
+
+    public double getOpponentHomeResult(int matchupIndex) {
+      return results[matchupIndex * RESULTS_PER_MATCHUP + 3];
+    }
+
+  }
+
+}
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.makotojava.ncaabb.springconfig.ApplicationConfig;
+import com.makotojava.ncaabb.util.NetworkConfiguration;
+import com.makotojava.ncaabb.util.NetworkProperties;
+import com.makotojava.ncaabb.util.NetworkUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-lived prediction server. Loads the networks, the tournament teams' (normalized)
+ * season data and the bracket once, keeps them warm, and answers questions about them
+ * over a local HTTP API, so nobody has to pay for loading everything (and running every
+ * network over every matchup) just to ask about one game.
+ *
+ * Endpoints (all GET, all answer in JSON):
+ * <ul>
+ * <li>/matchup?team=TEAM&amp;opponent=OPPONENT - how the ensemble sees the matchup.</li>
+ * <li>/bracket-odds[?team=TEAM] - how likely each team (or just the one) is to reach each
+ * round, from a Monte Carlo simulation of the bracket (see {@link MonteCarloBracketSimulator}).
+ * Computed once, in the background, as soon as the server starts: until it's done, the answer
+ * is 503 (Service Unavailable) with a Retry-After header, so no request thread ever waits on it.</li>
+ * <li>/stats - matchup batching stats, and latency percentiles for each endpoint.</li>
+ * </ul>
+ *
+ * Matchups are simulated by a {@link MatchupBatcher}, so the matchups asked for by requests
+ * that come in at about the same time go through the ensemble together, and no matchup is
+ * simulated more than once.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class PredictionServer {
+
+  private static final Logger log = Logger.getLogger(PredictionServer.class);
+
+  public static final String MATCHUP_PATH = "/matchup";
+  public static final String BRACKET_ODDS_PATH = "/bracket-odds";
+
+  /**
+   * How long to tell the caller to wait before asking again for something that isn't ready yet
+   */
+  private static final int RETRY_AFTER_SECONDS = 1;
+  public static final String STATS_PATH = "/stats";
+
+  /**
+   * The number of (most recent) requests each endpoint's latency percentiles are computed from
+   */
+  static final int LATENCY_SAMPLES = 10000;
+
+  private final MatchupBatcher matchupBatcher;
+  private final Bracket bracket;
+  private final long numberOfTournaments;
+  private final int serverWorkerThreads;
+  private final int simulationWorkerThreads;
+
+  /**
+   * Latencies, keyed by endpoint path
+   */
+  private final Map<String, LatencyRecorder> latencyRecorders = new LinkedHashMap<>();
+
+  private HttpServer httpServer;
+  private ExecutorService executorService;
+  private long startTime;
+
+  /**
+   * The bracket odds (computed once, the first time they're needed)
+   */
+  private CompletableFuture<AdvancementOdds> advancementOdds;
+
+  /**
+   * Driver for the program.
+   *
+   * @param args
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      usage();
+      System.exit(-1);
+    }
+    //
+    // Get the tournament year
+    Integer year = Integer.valueOf(args[0]);
+    //
+    // Validate the year
+    NetworkUtils.validateYear(year);
+    //
+    // Parse (and validate) the configuration before doing anything else
+    NetworkConfiguration configuration = NetworkProperties.getConfiguration();
+    //
+    // Port to listen on
+    int port = (args.length > 1) ? Integer.valueOf(args[1]) : configuration.getServerPort();
+    //
+    // Let's go.
+    PredictionServer predictionServer = create(new TournamentMatrixPredictor(
+        new AnnotationConfigApplicationContext(ApplicationConfig.class), configuration), year);
+    Runtime.getRuntime().addShutdownHook(new Thread(predictionServer::stop));
+    predictionServer.start(port);
+  }
+
+  /**
+   * Usage message. Pretty self-explanatory.
+   */
+  protected static void usage() {
+    System.out.println("Usage: ");
+    System.out.println("\t" + PredictionServer.class.getSimpleName() + " YEAR [PORT]");
+    System.out.println("\t Where:");
+    System.out.println("\t YEAR is the year in which the tournament occurs.");
+    System.out.println("\t PORT is the (local) port to listen on.");
+  }
+
+  /**
+   * Creates a PredictionServer for the specified year, loading everything it needs up front.
+   *
+   * @param tournamentMatrixPredictor
+   *          Loads the networks and pulls the data.
+   * @param tournamentYear
+   *          The tournament year.
+   *
+   * @return PredictionServer - the new server (not started yet).
+   */
+  public static PredictionServer create(TournamentMatrixPredictor tournamentMatrixPredictor,
+      Integer tournamentYear) {
+    long startTime = System.currentTimeMillis();
+    List<MultiLayerPerceptron> networks = tournamentMatrixPredictor.loadNetworks();
+    Set<String> teamNames = tournamentMatrixPredictor.fetchTournamentTeams(tournamentYear);
+    Map<String, double[]> normalizedDataByTeamName = tournamentMatrixPredictor.pullNormalizedData(tournamentYear,
+        teamNames);
+    //
+    // The bracket is optional: without it, there are no bracket odds
+    Bracket bracket = null;
+    String bracketFileName = Bracket.computeFileName(tournamentYear);
+    if (new File(bracketFileName).exists()) {
+      bracket = Bracket.load(bracketFileName);
+      for (String teamName : bracket.getTeamNames()) {
+        if (!normalizedDataByTeamName.containsKey(teamName)) {
+          String message = "Bracket team '" + teamName + "' has no season data for year " + tournamentYear
+              + ". Cannot continue!";
+          log.error(message);
+          throw new RuntimeException(message);
+        }
+      }
+    } else {
+      log.warn("No bracket (" + bracketFileName + ") for year " + tournamentYear
+          + ", so no bracket odds will be available.");
+    }
+    NetworkConfiguration configuration = tournamentMatrixPredictor.getConfiguration();
+    MatchupBatcher matchupBatcher = new MatchupBatcher(networks, BatchNetworkEvaluator.fromNetworks(networks),
+        normalizedDataByTeamName, configuration.getServerMaxBatchSize());
+    log.info("Loaded " + networks.size() + " networks and " + normalizedDataByTeamName.size() + " teams in "
+        + (System.currentTimeMillis() - startTime) + "ms");
+    return new PredictionServer(matchupBatcher, bracket, configuration.getBracketSimulationTournaments(),
+        configuration.getServerWorkerThreads(), configuration.getSimulationWorkerThreads());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param matchupBatcher
+   *          Simulates the matchups.
+   * @param bracket
+   *          The bracket (null if there isn't one).
+   * @param numberOfTournaments
+   *          The number of times to simulate the bracket, to compute the bracket odds.
+   * @param serverWorkerThreads
+   *          The number of requests to handle at once.
+   * @param simulationWorkerThreads
+   *          The number of threads to simulate the bracket with.
+   */
+  PredictionServer(MatchupBatcher matchupBatcher, Bracket bracket, long numberOfTournaments,
+      int serverWorkerThreads, int simulationWorkerThreads) {
+    this.matchupBatcher = matchupBatcher;
+    this.bracket = bracket;
+    this.numberOfTournaments = numberOfTournaments;
+    this.serverWorkerThreads = serverWorkerThreads;
+    this.simulationWorkerThreads = simulationWorkerThreads;
+    for (String path : new String[] { MATCHUP_PATH, BRACKET_ODDS_PATH, STATS_PATH }) {
+      latencyRecorders.put(path, new LatencyRecorder(LATENCY_SAMPLES));
+    }
+  }
+
+  /**
+   * Starts listening (on the loopback address only) and kicks off the bracket odds computation.
+   *
+   * @param port
+   *          The port to listen on (0 picks any free port).
+   *
+   * @return int - the port actually listened on.
+   */
+  public synchronized int start(int port) {
+    try {
+      httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    } catch (IOException e) {
+      String message = "Could not listen on port " + port + ": " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+    httpServer.createContext(MATCHUP_PATH, exchange -> handle(exchange, MATCHUP_PATH, this::handleMatchup));
+    httpServer.createContext(BRACKET_ODDS_PATH,
+        exchange -> handle(exchange, BRACKET_ODDS_PATH, this::handleBracketOdds));
+    httpServer.createContext(STATS_PATH, exchange -> handle(exchange, STATS_PATH, this::handleStats));
+    executorService = Executors.newFixedThreadPool(serverWorkerThreads);
+    httpServer.setExecutor(executorService);
+    httpServer.start();
+    startTime = System.currentTimeMillis();
+    if (bracket != null) {
+      computeAdvancementOdds();
+    }
+    int ret = httpServer.getAddress().getPort();
+    log.info("Listening on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + ret);
+    return ret;
+  }
+
+  /**
+   * Stops listening, and stops the batching thread.
+   */
+  public synchronized void stop() {
+    if (httpServer != null) {
+      httpServer.stop(0);
+      executorService.shutdownNow();
+      httpServer = null;
+    }
+    matchupBatcher.close();
+  }
+
+  /**
+   * Handles a request to any endpoint: parses the query string, hands off to the endpoint,
+   * sends back whatever it answers (or the error), and records how long it all took.
+   */
+  private void handle(HttpExchange exchange, String path, Endpoint endpoint) throws IOException {
+    long startNanos = System.nanoTime();
+    int status = 200;
+    String body;
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        throw new HttpStatusException(405, "Only GET is supported");
+      }
+      body = endpoint.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+    } catch (HttpStatusException e) {
+      status = e.getStatus();
+      body = toErrorJson(e.getMessage());
+    } catch (IllegalArgumentException e) {
+      status = 400;
+      body = toErrorJson(e.getMessage());
+    } catch (RuntimeException e) {
+      log.error("Request to " + exchange.getRequestURI() + " failed: " + e.getLocalizedMessage(), e);
+      status = 500;
+      body = toErrorJson(e.getLocalizedMessage());
+    }
+    try {
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+      if (status == 503) {
+        exchange.getResponseHeaders().set("Retry-After", Integer.toString(RETRY_AFTER_SECONDS));
+      }
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(bytes);
+      }
+    } finally {
+      exchange.close();
+      latencyRecorders.get(path).record(System.nanoTime() - startNanos);
+    }
+  }
+
+  /**
+   * /matchup?team=TEAM&amp;opponent=OPPONENT
+   */
+  String handleMatchup(Map<String, String> parameters) {
+    String teamName = requireParameter(parameters, "team");
+    String opponentName = requireParameter(parameters, "opponent");
+    GameSimulationResult<MultiLayerPerceptron> gameSimulationResult = join(
+        matchupBatcher.submit(teamName, opponentName));
+    return "{\"team\":" + quote(teamName)
+        + ",\"opponent\":" + quote(opponentName)
+        + ",\"numberOfNetworks\":" + gameSimulationResult.getNumberOfNetworks()
+        + ",\"percentWins\":" + gameSimulationResult.getPercentWins().toPlainString()
+        + ",\"percentLosses\":" + gameSimulationResult.getPercentLosses().toPlainString()
+        + ",\"percentPushes\":" + gameSimulationResult.getPercentPushes().toPlainString()
+        + ",\"winProbability\":" + WinProbabilityTable.computeWinProbability(gameSimulationResult)
+        + "}";
+  }
+
+  /**
+   * /bracket-odds[?team=TEAM]
+   */
+  String handleBracketOdds(Map<String, String> parameters) {
+    if (bracket == null) {
+      throw new HttpStatusException(404, "There is no bracket for this tournament");
+    }
+    CompletableFuture<AdvancementOdds> advancementOdds = computeAdvancementOdds();
+    if (!advancementOdds.isDone()) {
+      throw new HttpStatusException(503, "The bracket odds are still being computed, try again shortly");
+    }
+    AdvancementOdds odds = join(advancementOdds);
+    String teamName = parameters.get("team");
+    int teamIndex = -1;
+    if (teamName != null) {
+      teamIndex = odds.getTeamNames().indexOf(teamName);
+      if (teamIndex < 0) {
+        throw new HttpStatusException(404, "Team '" + teamName + "' is not in the bracket");
+      }
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"numberOfTournaments\":").append(odds.getNumberOfTournaments()).append(",\"levels\":[");
+    for (int level = 0; level < odds.getNumberOfLevels(); level++) {
+      sb.append((level > 0) ? "," : "").append(quote(odds.getLevelName(level)));
+    }
+    sb.append("],\"teams\":[");
+    for (int aa = 0; aa < odds.getTeamNames().size(); aa++) {
+      if (teamIndex >= 0 && aa != teamIndex) {
+        continue;
+      }
+      sb.append((sb.charAt(sb.length() - 1) == '[') ? "" : ",");
+      sb.append("{\"team\":").append(quote(odds.getTeamNames().get(aa))).append(",\"probabilities\":[");
+      for (int level = 0; level < odds.getNumberOfLevels(); level++) {
+        sb.append((level > 0) ? "," : "").append(odds.getProbability(aa, level));
+      }
+      sb.append("]}");
+    }
+    sb.append("]}");
+    return sb.toString();
+  }
+
+  /**
+   * /stats
+   */
+  String handleStats(Map<String, String> parameters) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"uptimeMillis\":").append(System.currentTimeMillis() - startTime)
+        .append(",\"numberOfBatches\":").append(matchupBatcher.getNumberOfBatches())
+        .append(",\"numberOfMatchupsSimulated\":").append(matchupBatcher.getNumberOfMatchupsSimulated())
+        .append(",\"latency\":{");
+    boolean first = true;
+    for (Map.Entry<String, LatencyRecorder> entry : latencyRecorders.entrySet()) {
+      sb.append(first ? "" : ",").append(quote(entry.getKey())).append(':').append(entry.getValue().toJson());
+      first = false;
+    }
+    sb.append("}}");
+    return sb.toString();
+  }
+
+  /**
+   * Kicks off the bracket odds computation (unless it's already running, or done): every
+   * matchup in the bracket goes through the batcher at once, then the bracket is simulated.
+   * If the last attempt failed, it is tried again.
+   */
+  synchronized CompletableFuture<AdvancementOdds> computeAdvancementOdds() {
+    if (advancementOdds == null || advancementOdds.isCompletedExceptionally()) {
+      List<String> teamNames = bracket.getTeamNames();
+      List<CompletableFuture<GameSimulationResult<MultiLayerPerceptron>>> results = new ArrayList<>();
+      for (int teamIndex = 0; teamIndex < teamNames.size(); teamIndex++) {
+        for (int opponentIndex = 0; opponentIndex < teamNames.size(); opponentIndex++) {
+          results.add(matchupBatcher.submit(teamNames.get(teamIndex), teamNames.get(opponentIndex)));
+        }
+      }
+      advancementOdds = CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()]))
+          .thenApplyAsync(ignored -> {
+            long simulationStartTime = System.currentTimeMillis();
+            double[][] probabilities = new double[teamNames.size()][teamNames.size()];
+            for (int teamIndex = 0; teamIndex < teamNames.size(); teamIndex++) {
+              for (int opponentIndex = 0; opponentIndex < teamNames.size(); opponentIndex++) {
+                probabilities[teamIndex][opponentIndex] = WinProbabilityTable
+                    .computeWinProbability(results.get(teamIndex * teamNames.size() + opponentIndex).join());
+              }
+            }
+            AdvancementOdds ret = MonteCarloBracketSimulator.simulate(bracket,
+                new WinProbabilityTable(teamNames, probabilities), numberOfTournaments, simulationWorkerThreads,
+                System.nanoTime());
+            log.info("Computed bracket odds (" + numberOfTournaments + " tournaments) in "
+                + (System.currentTimeMillis() - simulationStartTime) + "ms");
+            return ret;
+          });
+    }
+    return advancementOdds;
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static String requireParameter(Map<String, String> parameters, String name) {
+    String ret = parameters.get(name);
+    if (ret == null || ret.isEmpty()) {
+      throw new IllegalArgumentException("Missing required parameter '" + name + "'");
+    }
+    return ret;
+  }
+
+  /**
+   * Parses the (raw) query string into a Map of (decoded) parameter values, keyed by name.
+   */
+  static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> ret = new HashMap<>();
+    if (rawQuery != null) {
+      for (String parameter : rawQuery.split("&")) {
+        if (!parameter.isEmpty()) {
+          int equalsIndex = parameter.indexOf('=');
+          String name = (equalsIndex < 0) ? parameter : parameter.substring(0, equalsIndex);
+          String value = (equalsIndex < 0) ? "" : parameter.substring(equalsIndex + 1);
+          ret.put(decode(name), decode(value));
+        }
+      }
+    }
+    return ret;
+  }
+
+  private static String decode(String value) {
+    try {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      // Not gonna happen: UTF-8 is always supported
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String toErrorJson(String message) {
+    return "{\"error\":" + quote(message) + "}";
+  }
+
+  /**
+   * @return String - the specified string as a JSON string literal (quoted and escaped).
+   */
+  static String quote(String string) {
+    if (string == null) {
+      return "null";
+    }
+    StringBuilder sb = new StringBuilder(string.length() + 2).append('"');
+    for (char c : string.toCharArray()) {
+      switch (c) {
+      case '"':
+        sb.append("\\\"");
+        break;
+      case '\\':
+        sb.append("\\\\");
+        break;
+      case '\n':
+        sb.append("\\n");
+        break;
+      case '\r':
+        sb.append("\\r");
+        break;
+      case '\t':
+        sb.append("\\t");
+        break;
+      default:
+        if (c < 0x20) {
+          sb.append(String.format("\\u%04x", (int) c));
+        } else {
+          sb.append(c);
+        }
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  /**
+   * An endpoint: takes the query parameters, and answers in JSON.
+   */
+  @FunctionalInterface
+  private interface Endpoint {
+    String handle(Map<String, String> parameters);
+  }
+
+  /**
+   * Thrown by an endpoint to answer with a specific HTTP status.
+   */
+  private static class HttpStatusException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    HttpStatusException(int status, String message) {
+      super(message);
+      this.status = status;
+    }
+
+    int getStatus() {
+      return status;
+    }
+  }
+
+}
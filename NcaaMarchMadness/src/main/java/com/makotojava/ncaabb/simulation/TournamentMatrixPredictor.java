@@ -15,36 +15,50 @@
  */
 package com.makotojava.ncaabb.simulation;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
-import org.neuroph.core.data.DataSetRow;
 import org.neuroph.nnet.MultiLayerPerceptron;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import com.makotojava.ncaabb.dao.SeasonAnalyticsDao;
 import com.makotojava.ncaabb.dao.SeasonDataDao;
-import com.makotojava.ncaabb.generation.DataCreator;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
 import com.makotojava.ncaabb.model.SeasonAnalytics;
 import com.makotojava.ncaabb.model.SeasonData;
+import com.makotojava.ncaabb.simulation.NetworkOutputStore.NetworkOutputs;
 import com.makotojava.ncaabb.springconfig.ApplicationConfig;
+import com.makotojava.ncaabb.util.NetworkConfiguration;
+import com.makotojava.ncaabb.util.NetworkFileFingerprint;
 import com.makotojava.ncaabb.util.NetworkProperties;
 import com.makotojava.ncaabb.util.NetworkUtils;
-import com.opencsv.CSVWriter;
 
 /**
  * Runs one or more trained networks using normalized input data to predict
@@ -62,13 +76,35 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
 
   private static final Logger log = Logger.getLogger(TournamentMatrixPredictor.class);
 
+  /**
+   * Matrix mode (see {@link NetworkConfiguration#getSimulationMatrixMode()}): every team in
+   * the DB for the year against every other team. The default.
+   */
+  public static final String MATRIX_MODE_FULL = NetworkConfiguration.MATRIX_MODE_FULL;
+
+  /**
+   * Matrix mode (see {@link NetworkConfiguration#getSimulationMatrixMode()}): only the games
+   * that can be played in the bracket (from the tournament teams file), i.e., every pair of
+   * teams in the bracket, rather than every pair of teams with season data.
+   */
+  public static final String MATRIX_MODE_BRACKET = NetworkConfiguration.MATRIX_MODE_BRACKET;
+
+  /**
+   * Command line option: keep running, and refresh the matrix as networks are added,
+   * changed or removed (see {@link #watch(Integer)}).
+   */
+  public static final String WATCH = "watch";
+
   /**
    * Constructor.
    * 
    * @param applicationContext
    *          The Spring ApplicationContext object.
+   * @param configuration
+   *          The configuration to predict with.
    */
-  public TournamentMatrixPredictor(ApplicationContext applicationContext) {
+  public TournamentMatrixPredictor(ApplicationContext applicationContext, NetworkConfiguration configuration) {
+    this.configuration = configuration;
     seasonDataDao = applicationContext.getBean(SeasonDataDao.class);
     seasonAnalyticsDao = applicationContext.getBean(SeasonAnalyticsDao.class);
     // tournamentStatsDao = applicationContext.getBean(TournamentStatsDao.class);
@@ -85,6 +121,15 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
    */
   private SeasonAnalyticsDao seasonAnalyticsDao;
 
+  /**
+   * The (already validated) configuration
+   */
+  private final NetworkConfiguration configuration;
+
+  public NetworkConfiguration getConfiguration() {
+    return configuration;
+  }
+
   /**
    * Returns a SeasonData object for the specified year and teamName.
    * 
@@ -96,6 +141,17 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
     return seasonDataDao.fetchByYearAndTeamName(year, teamName);
   }
 
+  /**
+   * Returns the SeasonData objects for the specified year and teamNames, all at once.
+   * 
+   * @param year
+   * @param teamNames
+   * @return Map of SeasonData objects, keyed by team name
+   */
+  public Map<String, SeasonData> pullSeasonData(Integer year, Collection<String> teamNames) {
+    return seasonDataDao.fetchByYearAndTeamNames(year, teamNames);
+  }
+
   /**
    * Retrieves SeasonAnalytics object for the specified year.
    * 
@@ -124,13 +180,20 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
     // Validate the year
     NetworkUtils.validateYear(year);
     //
+    // Parse (and validate) the configuration before doing anything else
+    NetworkConfiguration configuration = NetworkProperties.getConfiguration();
+    //
     // Instantiate the class and handoff
     TournamentMatrixPredictor simulator = new TournamentMatrixPredictor(
-        new AnnotationConfigApplicationContext(ApplicationConfig.class));
+        new AnnotationConfigApplicationContext(ApplicationConfig.class), configuration);
     //
     // Let's go.
     // simulator.go(networkArrayDirectory, teamsFilename, matrixFilename, year);
-    simulator.go(year);
+    if (args.length > 1 && WATCH.equalsIgnoreCase(args[1])) {
+      simulator.watch(year);
+    } else {
+      simulator.go(year);
+    }
   }
 
   /**
@@ -139,11 +202,12 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
   protected static void usage() {
     System.out.println("Usage: ");
     System.out.println("\t" + TournamentMatrixPredictor.class.getSimpleName()
-        + " YEAR");
+        + " YEAR [watch]");
     System.out.println("\t Where:");
     // System.out.println("\t NETWORK_DIRECTORY is the directory containing the trained networks to run as an array");
     // System.out.println("\t MATRIX_FILENAME is the output file containing the tournament matrix.");
     System.out.println("\t YEAR is the year in which the tournament occurs.");
+    System.out.println("\t watch (optional) keeps running, and refreshes the matrix whenever the networks change.");
   }
 
   /**
@@ -153,12 +217,15 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
   @Override
   public List<MultiLayerPerceptron> loadNetworks() {
     //
-    // Network file location is, for example, /base_directory/network_directory.
-    String networkArrayDirectory = NetworkProperties.getBaseDirectory() + File.separator
-        + NetworkProperties.getNetworkDirectoryName();
-    //
-    // Using that location, load all the networks and return the List of them.
-    return NetworkUtils.loadNetworks(networkArrayDirectory);
+    // Using the network directory, load all the networks and return the List of them.
+    return NetworkUtils.loadNetworks(computeNetworkArrayDirectory());
+  }
+
+  /**
+   * Network file location is, for example, /base_directory/network_directory.
+   */
+  private String computeNetworkArrayDirectory() {
+    return configuration.getBaseDirectory() + File.separator + configuration.getNetworkDirectoryName();
   }
 
   /**
@@ -176,19 +243,175 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
    * @param tournamentYear
    */
   public void go(Integer tournamentYear) {
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix;
+    List<String> networkDescriptions;
+    if (MATRIX_MODE_BRACKET.equals(configuration.getSimulationMatrixMode())) {
+      //
+      // Only the games that can be played in the bracket
+      List<MultiLayerPerceptron> networks = loadNetworks();
+      Bracket bracket = Bracket.loadForTournament(tournamentYear);
+      MatchupEvaluator matchupEvaluator = createMatchupEvaluator(tournamentYear, networks, bracket.getTeamNames());
+      matrix = computeBracketMatrix(bracket, matchupEvaluator);
+      networkDescriptions = describeNetworks(networks);
+      log.info("Bracket mode: simulated " + matchupEvaluator.getNumberOfMatchupsSimulated() + " matchups for "
+          + bracket.getNumberOfTeams() + " teams");
+    } else if (configuration.getSimulationIncremental()) {
+      //
+      // Every team against every other team, but only run the networks that
+      /// have not been run (as they are now) against these teams before
+      List<String> sortedTeamNames = new ArrayList<>(fetchTournamentTeams(tournamentYear));
+      Collections.sort(sortedTeamNames);
+      List<NetworkOutputs> networkOutputs = updateNetworkOutputs(tournamentYear,
+          NetworkUtils.listNetworkFiles(computeNetworkArrayDirectory()), sortedTeamNames,
+          pullNormalizedData(tournamentYear, sortedTeamNames));
+      matrix = assembleMatrix(sortedTeamNames, computeMatrixRows(sortedTeamNames, networkOutputs));
+      networkDescriptions = new ArrayList<>(networkOutputs.size());
+      for (NetworkOutputs networkOutput : networkOutputs) {
+        networkDescriptions.add(networkOutput.getNetworkDescription());
+      }
+    } else {
+      List<MultiLayerPerceptron> networks = loadNetworks();
+      Set<String> teamNames = fetchTournamentTeams(tournamentYear);
+      //
+      // Now generate the matrix. Every team in the file against
+      /// every other team in the file. This will let us make up
+      /// different brackets without having to re-run the simulator.
+      matrix = computeMatrix(tournamentYear, networks, teamNames);
+      networkDescriptions = describeNetworks(networks);
+    }
     //
-    // Load the networks
-    List<MultiLayerPerceptron> networks = loadNetworks();
-    Set<String> teamNames = fetchTournamentTeams(tournamentYear);
+    // Write the matrix file, then (optionally) the per-team CSV files from it
+    String matrixFileName = NetworkUtils.computeMatrixFileName(tournamentYear);
+    try {
+      MatrixFile.write(matrixFileName, tournamentYear, matrix, networkDescriptions);
+      if (configuration.getSimulationMatrixCsvExport()) {
+        MatrixCsvExporter.export(MatrixFile.open(matrixFileName));
+      }
+    } catch (IOException e) {
+      String message = "Could not write matrix file " + matrixFileName + ": " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+  }
+
+  /**
+   * @return List<String> - the structure of each network (for the matrix file), in order.
+   */
+  private static List<String> describeNetworks(List<MultiLayerPerceptron> networks) {
+    List<String> ret = new ArrayList<>(networks.size());
+    for (MultiLayerPerceptron network : networks) {
+      ret.add(NetworkUtils.getNetworkStructure(network));
+    }
+    return ret;
+  }
+
+  /**
+   * Simulates every game that can possibly be played in the bracket: the play-in games,
+   * then, for each game in each round, everybody who can come out of one side of it against
+   * everybody who can come out of the other side. Any two teams in the bracket can meet
+   * somewhere (in the game where their paths first cross), so that's every pair of teams
+   * in the bracket, but only those: a lot fewer than every pair of teams with season data.
+   * 
+   * Once the games are simulated, the bracket is walked round by round, favorites (the team
+   * with the better win probability, see
+   * {@link WinProbabilityTable#computeWinProbability(GameSimulationResult)}) advancing, and
+   * the picks are logged.
+   * 
+   * @param bracket
+   *          The bracket.
+   * @param matchupEvaluator
+   *          Simulates the games.
+   * 
+   * @return Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> - the games each team
+   *         can play (both ways around), keyed by team name, each List in order by opponent name.
+   */
+  public static Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> computeBracketMatrix(Bracket bracket,
+      MatchupEvaluator matchupEvaluator) {
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> ret = new TreeMap<>();
+    List<String> teamNames = bracket.getTeamNames();
+    for (String teamName : teamNames) {
+      ret.put(teamName, new ArrayList<>());
+    }
     //
-    // Now generate the matrix. Every team in the file against
-    /// every other team in the file. This will let us make up
-    /// different brackets without having to re-run the simulator.
-    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix =
-        computeMatrix(tournamentYear, networks, teamNames);
+    // Play-in games first: either team can end up in the slot
+    List<List<String>> possibleTeams = new ArrayList<>(bracket.getNumberOfSlots());
+    for (int slot = 0; slot < bracket.getNumberOfSlots(); slot++) {
+      List<String> slotTeams = new ArrayList<>();
+      slotTeams.add(teamNames.get(bracket.getSlotTeam(slot)));
+      if (bracket.getSlotPlayInOpponent(slot) >= 0) {
+        slotTeams.add(teamNames.get(bracket.getSlotPlayInOpponent(slot)));
+        simulateBracketGame(slotTeams.get(0), slotTeams.get(1), matchupEvaluator, ret);
+      }
+      possibleTeams.add(slotTeams);
+    }
     //
-    // Write the matrix to CSV file (TODO: use POI?)
-    writeMatrixFile(matrix);
+    // Now each round: anybody who can come out of one side of a game can meet anybody who
+    /// can come out of the other side, and any of them can move on
+    while (possibleTeams.size() > 1) {
+      List<List<String>> nextRound = new ArrayList<>(possibleTeams.size() / 2);
+      for (int game = 0; game < possibleTeams.size() / 2; game++) {
+        List<String> topTeams = possibleTeams.get(2 * game);
+        List<String> bottomTeams = possibleTeams.get(2 * game + 1);
+        for (String teamName : topTeams) {
+          for (String opponentName : bottomTeams) {
+            simulateBracketGame(teamName, opponentName, matchupEvaluator, ret);
+          }
+        }
+        List<String> winners = new ArrayList<>(topTeams);
+        winners.addAll(bottomTeams);
+        nextRound.add(winners);
+      }
+      possibleTeams = nextRound;
+    }
+    logFavorites(bracket, matchupEvaluator);
+    for (List<GameSimulationResult<MultiLayerPerceptron>> gameSimulationResults : ret.values()) {
+      gameSimulationResults.sort((simulationResult1, simulationResult2) -> simulationResult1.getOpponentName()
+          .compareTo(simulationResult2.getOpponentName()));
+    }
+    return ret;
+  }
+
+  /**
+   * Simulates a single bracket game and records it (both ways around) in the specified matrix.
+   */
+  private static void simulateBracketGame(String teamName, String opponentName, MatchupEvaluator matchupEvaluator,
+      Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix) {
+    matrix.get(teamName).add(matchupEvaluator.evaluate(teamName, opponentName));
+    matrix.get(opponentName).add(matchupEvaluator.evaluate(opponentName, teamName));
+  }
+
+  /**
+   * Walks the (already simulated) bracket round by round, favorites advancing, and logs who
+   * advances from each game.
+   */
+  private static void logFavorites(Bracket bracket, MatchupEvaluator matchupEvaluator) {
+    List<String> teamNames = bracket.getTeamNames();
+    String[] teamsLeft = new String[bracket.getNumberOfSlots()];
+    for (int slot = 0; slot < bracket.getNumberOfSlots(); slot++) {
+      teamsLeft[slot] = teamNames.get(bracket.getSlotTeam(slot));
+      if (bracket.getSlotPlayInOpponent(slot) >= 0) {
+        teamsLeft[slot] = pickFavorite(teamsLeft[slot], teamNames.get(bracket.getSlotPlayInOpponent(slot)),
+            matchupEvaluator);
+      }
+    }
+    for (int numberOfTeamsLeft = teamsLeft.length / 2; numberOfTeamsLeft > 0; numberOfTeamsLeft /= 2) {
+      for (int game = 0; game < numberOfTeamsLeft; game++) {
+        teamsLeft[game] = pickFavorite(teamsLeft[2 * game], teamsLeft[2 * game + 1], matchupEvaluator);
+      }
+    }
+    log.info("Bracket winner: " + teamsLeft[0]);
+  }
+
+  /**
+   * @return String - the name of the favorite in the specified (already simulated) game.
+   */
+  private static String pickFavorite(String teamName, String opponentName, MatchupEvaluator matchupEvaluator) {
+    double winProbability = WinProbabilityTable.computeWinProbability(matchupEvaluator.evaluate(teamName,
+        opponentName));
+    String ret = (winProbability >= 0.5) ? teamName : opponentName;
+    log.info(teamName + " vs " + opponentName + ": " + ret + " advances (" + BigDecimal
+        .valueOf(100.0 * Math.max(winProbability, 1.0 - winProbability)).setScale(2, RoundingMode.HALF_UP) + "%)");
+    return ret;
   }
 
   /**
@@ -207,10 +430,58 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
     return ret;
   }
 
+  /**
+   * Pulls the season data for every one of the specified teams in one shot, and normalizes
+   * it once. There is no reason to retrieve it over and over from the Database, or to
+   * normalize it over and over for every matchup and network.
+   * 
+   * @param year
+   * @param teamNames
+   * @return Map of normalized season data (see {@link FeatureNormalizer}), keyed by team name
+   */
+  public Map<String, double[]> pullNormalizedData(Integer year, Collection<String> teamNames) {
+    FeatureNormalizer featureNormalizer = new FeatureNormalizer(pullSeasonAnalytics(year));
+    Map<String, SeasonData> seasonDataByTeamName = pullSeasonData(year, teamNames);
+    Map<String, double[]> ret = new HashMap<>();
+    for (Map.Entry<String, SeasonData> entry : seasonDataByTeamName.entrySet()) {
+      ret.put(entry.getKey(), featureNormalizer.normalize(entry.getValue()));
+    }
+    return ret;
+  }
+
+  /**
+   * Creates a {@link MatchupEvaluator} for the specified teams, which simulates any matchup
+   * between them on demand (and only once).
+   * 
+   * @param year
+   *          The tournament year
+   * @param networks
+   *          The trained networks to be used
+   * @param teamNames
+   *          The teams whose matchups can be simulated
+   * @return MatchupEvaluator - the new evaluator.
+   */
+  public MatchupEvaluator createMatchupEvaluator(Integer year, List<MultiLayerPerceptron> networks,
+      Collection<String> teamNames) {
+    return new MatchupEvaluator(networks, BatchNetworkEvaluator.fromNetworks(networks),
+        pullNormalizedData(year, teamNames));
+  }
+
   /**
    * Uses the specified List of networks, and team names to compute a matrix of
-   * GameSimulationResults, where each team plays every other team (except itself
-   * of course).
+   * GameSimulationResults, where each team plays every other team (and itself, which
+   * is pointless, but it keeps the matrix square).
+   * 
+   * A-vs-B and B-vs-A run exactly the same two inputs through every network (the home
+   * run of one is the away run of the other), so only one of each pair is actually
+   * simulated, and the other is derived from it.
+   * 
+   * The networks are run by a {@link BatchNetworkEvaluator}, which pushes every matchup in
+   * a row of the matrix (a team against itself and every team after it) through the whole
+   * ensemble at once. The evaluator is stateless (unlike Neuroph networks, which keep their
+   * state in their neurons), so if {@link NetworkConfiguration#getSimulationWorkerThreads()} says
+   * to use more than one thread, the rows are simulated concurrently. Either way, the rows
+   * are merged in team order, so the matrix comes out exactly the same.
    * 
    * @param year
    *          The tournament year
@@ -224,261 +495,389 @@ public class TournamentMatrixPredictor implements NetworkRunner<MultiLayerPercep
    * @return Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> - a Map of
    *         List of GameSimulationResults. The Map is keyed by team name. The value is a List
    *         of GameSimulationResult objects, one for each simulated game between that team
-   *         and every other team (except itself of course).
+   *         and every team in the tournament, in order by opponent name.
    */
-  private Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> computeMatrix(Integer year,
+  public Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> computeMatrix(Integer year,
       List<MultiLayerPerceptron> networks, Set<String> teamNames) {
-    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> ret = new TreeMap<>();
     //
-    // We need to iterate over the same list in two different loops, and while
-    /// we are not modifying the list in either loop, it's probably better to work
-    /// on different copies, just to prevent bugs down the road
-    List<String> opponentTeamNames = new ArrayList<>();
-    opponentTeamNames.addAll(teamNames);
-    Collections.sort(opponentTeamNames);
-    SeasonAnalytics seasonAnalytics = pullSeasonAnalytics(year);
-    //
-    // Loop through the list of team names
-    for (String currentTeamName : teamNames) {
-      //
-      // Create the List of GameSimulationResult objects
-      List<GameSimulationResult<MultiLayerPerceptron>> gameSimulationResults = new ArrayList<>();
-      SeasonData currentTeamSeasonData = fetchSeasonDataFromCache(year, currentTeamName);
-      //
-      // Now simulate the current team against every other team
-      for (String opponentTeamName : opponentTeamNames) {
-        log.debug("Current Team: " + currentTeamName + " versus " + opponentTeamName + "...");
-        //
-        // No need to match a team up against itself
-        // if (opponentTeamName.equals(currentTeamName))
-        // continue;
-        //
-        // Create the GameSimulationResult for this matchup
-        GameSimulationResult<MultiLayerPerceptron> gameSimulationResult = new GameSimulationResult<>(currentTeamName,
-            opponentTeamName);
-        //
-        // Loop through the list of networks
-        SeasonData opponentSeasonData = fetchSeasonDataFromCache(year, opponentTeamName);
-        int simulationNumber = 0;
-        for (MultiLayerPerceptron network : networks) {
-          log.trace("Network simulation # " + simulationNumber++ + "...");
-          runNetworkSimulationAndComputeResult(network, seasonAnalytics, currentTeamSeasonData, gameSimulationResult,
-              opponentSeasonData);
-        }
-        gameSimulationResults.add(gameSimulationResult);
+    // Work through the teams in alphabetical order, so each team's List of results
+    /// comes out in order by opponent name
+    List<String> sortedTeamNames = new ArrayList<>();
+    sortedTeamNames.addAll(teamNames);
+    Collections.sort(sortedTeamNames);
+    Map<String, double[]> normalizedDataByTeamName = pullNormalizedData(year, teamNames);
+    return assembleMatrix(sortedTeamNames, simulateMatrixRows(sortedTeamNames, normalizedDataByTeamName, networks));
+  }
+
+  /**
+   * Simulates each row of the matrix (the current team against itself, and every team after it),
+   * on as many threads as {@link NetworkConfiguration#getSimulationWorkerThreads()} says to use.
+   * 
+   * @return List of rows, in the same order as <code>sortedTeamNames</code>.
+   */
+  private List<List<GameSimulationResult<MultiLayerPerceptron>>> simulateMatrixRows(List<String> sortedTeamNames,
+      Map<String, double[]> normalizedDataByTeamName, List<MultiLayerPerceptron> networks) {
+    return simulateMatrixRows(configuration.getSimulationWorkerThreads(), sortedTeamNames, normalizedDataByTeamName,
+        networks, BatchNetworkEvaluator.fromNetworks(networks));
+  }
+
+  /**
+   * Same as {@link #simulateMatrixRows(List, Map, List)}, but on the specified number of threads,
+   * with the specified batch evaluator.
+   * 
+   * @return List of rows, in the same order as <code>sortedTeamNames</code>, no matter how many
+   *         threads are used.
+   */
+  static List<List<GameSimulationResult<MultiLayerPerceptron>>> simulateMatrixRows(int numberOfWorkers,
+      List<String> sortedTeamNames, Map<String, double[]> normalizedDataByTeamName,
+      List<MultiLayerPerceptron> networks, BatchNetworkEvaluator batchNetworkEvaluator) {
+    List<List<GameSimulationResult<MultiLayerPerceptron>>> ret;
+    if (numberOfWorkers <= 1) {
+      ret = new ArrayList<>();
+      for (int teamIndex = 0; teamIndex < sortedTeamNames.size(); teamIndex++) {
+        ret.add(simulateMatrixRow(teamIndex, sortedTeamNames, normalizedDataByTeamName, networks,
+            batchNetworkEvaluator));
       }
-      //
-      // Sort the list in alphabetical order or we will never be able to find anything
-      gameSimulationResults.sort((simulationResult1, simulationResult2) -> simulationResult1.getOpponentName()
-          .compareTo(simulationResult2.getOpponentName()));
-      //
-      // Add the List to the Map
-      ret.put(currentTeamName, gameSimulationResults);
+    } else {
+      ret = simulateMatrixRowsConcurrently(numberOfWorkers, sortedTeamNames, normalizedDataByTeamName, networks,
+          batchNetworkEvaluator);
     }
     return ret;
   }
 
   /**
-   * Run a single network simulation (as home and away to eliminate positional bias)
-   * and compute the results.
+   * Fills in the matrix from its rows (see {@link #simulateMatrixRow}), deriving the opponent's
+   * side of each game.
    * 
-   * @param network
-   * @param seasonAnalytics
-   * @param currentTeamSeasonData
-   * @param gameSimulationResult
-   * @param opponentTeamSeasonData
-   */
-  private void runNetworkSimulationAndComputeResult(MultiLayerPerceptron network, SeasonAnalytics seasonAnalytics,
-      SeasonData currentTeamSeasonData, GameSimulationResult<MultiLayerPerceptron> gameSimulationResult,
-      SeasonData opponentTeamSeasonData) {
-    //
-    // Simulate network
-    gameSimulationResult.getNetworks().add(network);
-    //
-    // Home - in this simulation, currentTeam is "home", so their output is index 0,
-    /// and the opponent is "away" so their output is index 1
-    DataSetRow dataHome = DataCreator.processAsDataSetRowForSimulation(seasonAnalytics, currentTeamSeasonData,
-        opponentTeamSeasonData);
-    double[] homeResults = runNetwork(network, dataHome.getInput());
-    gameSimulationResult.getTeamHomeResults().add(homeResults[0]);
-    gameSimulationResult.getOpponentAwayResults().add(homeResults[1]);
-    boolean homeWin = homeResults[0] > homeResults[1];
-    //
-    // Away - in this simulation, currentTeam is "away", so their output is index 1,
-    /// and the opponent is "home" so their output is index 0
-    DataSetRow dataAway = DataCreator.processAsDataSetRowForSimulation(seasonAnalytics, opponentTeamSeasonData,
-        currentTeamSeasonData);
-    double[] awayResults = runNetwork(network, dataAway.getInput());
-    gameSimulationResult.getTeamAwayResults().add(awayResults[1]);
-    gameSimulationResult.getOpponentHomeResults().add(awayResults[0]);
-    boolean awayWin = awayResults[1] > awayResults[0];
+   * @return Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> - the matrix (see
+   *         {@link #computeMatrix(Integer, List, Set)}).
+   */
+  private static Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> assembleMatrix(
+      List<String> sortedTeamNames, List<List<GameSimulationResult<MultiLayerPerceptron>>> rows) {
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> ret = new TreeMap<>();
+    for (String teamName : sortedTeamNames) {
+      ret.put(teamName, new ArrayList<>());
+    }
+    for (List<GameSimulationResult<MultiLayerPerceptron>> row : rows) {
+      for (GameSimulationResult<MultiLayerPerceptron> gameSimulationResult : row) {
+        ret.get(gameSimulationResult.getTeamName()).add(gameSimulationResult);
+        if (!gameSimulationResult.getTeamName().equals(gameSimulationResult.getOpponentName())) {
+          ret.get(gameSimulationResult.getOpponentName())
+              .add(MatchupEvaluator.createMirroredResult(gameSimulationResult));
+        }
+      }
+    }
     //
-    // Compute results
-    if (homeWin && awayWin) {
-      gameSimulationResult.getNetworkPredictions().add(currentTeamSeasonData.getTeamName());
-      gameSimulationResult.incrementNumberOfWins();
-    } else if (!homeWin && !awayWin) {
-      gameSimulationResult.getNetworkPredictions().add(opponentTeamSeasonData.getTeamName());
-      gameSimulationResult.incrementNumberOfLosses();
-    } else {
-      // Push indicates there is some positional bias in this network.
-      /// We do not want to count this result.
-      gameSimulationResult.getNetworkPredictions().add(GameSimulationResult.PUSH);
-      gameSimulationResult.incrementNumberOfPushes();
+    // Sort each List in alphabetical order or we will never be able to find anything
+    /// (they should already be, but let's not count on it)
+    for (List<GameSimulationResult<MultiLayerPerceptron>> gameSimulationResults : ret.values()) {
+      gameSimulationResults.sort((simulationResult1, simulationResult2) -> simulationResult1.getOpponentName()
+          .compareTo(simulationResult2.getOpponentName()));
     }
+    return ret;
   }
 
   /**
-   * Cache the SeasonData. There is no reason to retrieve it over and over from
-   * the Database. The map is keyed by team name.
+   * Brings the stored outputs of every network up to date, so the matrix can be computed
+   * without running any network that has already been run (as it is now) against these
+   * teams (as they are now). See {@link NetworkOutputStore}.
+   * 
+   * Networks that are new, or whose file has changed, are loaded and run, and their outputs
+   * stored. The outputs of networks that are no longer in the network directory are removed.
+   * 
+   * @param year
+   *          The tournament year
+   * @param networkFiles
+   *          The network files, in order by file name
+   * @param sortedTeamNames
+   *          The teams participating in the tournament, in alphabetical order
+   * @param normalizedDataByTeamName
+   *          The normalized data for every team
+   * 
+   * @return List<NetworkOutputs> - the outputs of each network, in the same order as the
+   *         network files (any network that could not be loaded is left out).
    */
-  private Map<String, SeasonData> seasonDataCache;
+  public List<NetworkOutputs> updateNetworkOutputs(Integer year, List<File> networkFiles,
+      List<String> sortedTeamNames, Map<String, double[]> normalizedDataByTeamName) {
+    NetworkOutputStore networkOutputStore = new NetworkOutputStore(
+        NetworkUtils.computeNetworkOutputDirectoryName(year));
+    long featureVersion = NetworkOutputStore.computeFeatureVersion(sortedTeamNames, normalizedDataByTeamName);
+    int numberOfMatchups = NetworkOutputStore.computeNumberOfMatchups(sortedTeamNames.size());
+    Map<File, NetworkOutputs> networkOutputsByFile = new HashMap<>();
+    Map<File, NetworkFileFingerprint> fingerprintsToRun = new LinkedHashMap<>();
+    for (File networkFile : networkFiles) {
+      NetworkFileFingerprint fingerprint;
+      try {
+        fingerprint = NetworkFileFingerprint.compute(networkFile);
+      } catch (IOException e) {
+        log.warn("Could not read network file '" + networkFile.getName() + "'. Skipping...", e);
+        continue;
+      }
+      NetworkOutputs networkOutputs = networkOutputStore.read(networkFile, fingerprint, year, featureVersion);
+      if (networkOutputs != null && networkOutputs.getNumberOfMatchups() == numberOfMatchups) {
+        networkOutputsByFile.put(networkFile, networkOutputs);
+      } else {
+        fingerprintsToRun.put(networkFile, fingerprint);
+      }
+    }
+    log.info("Stored outputs are up to date for " + networkOutputsByFile.size() + " networks, "
+        + fingerprintsToRun.size() + " networks are new or changed");
+    if (!fingerprintsToRun.isEmpty()) {
+      Map<File, MultiLayerPerceptron> networksByFile = NetworkUtils
+          .loadNetworksByFile(new ArrayList<>(fingerprintsToRun.keySet()));
+      List<MultiLayerPerceptron> networks = new ArrayList<>(networksByFile.values());
+      List<List<GameSimulationResult<MultiLayerPerceptron>>> rows = networks.isEmpty() ? Collections.emptyList()
+          : simulateMatrixRows(sortedTeamNames, normalizedDataByTeamName, networks);
+      int networkIndex = 0;
+      for (Map.Entry<File, MultiLayerPerceptron> entry : networksByFile.entrySet()) {
+        NetworkOutputs networkOutputs = new NetworkOutputs(entry.getKey(), fingerprintsToRun.get(entry.getKey()),
+            NetworkUtils.getNetworkStructure(entry.getValue()), numberOfMatchups);
+        int matchupIndex = 0;
+        for (List<GameSimulationResult<MultiLayerPerceptron>> row : rows) {
+          for (GameSimulationResult<MultiLayerPerceptron> gameSimulationResult : row) {
+            networkOutputs.setResults(matchupIndex++, gameSimulationResult.getTeamHomeResult(networkIndex),
+                gameSimulationResult.getOpponentAwayResult(networkIndex),
+                gameSimulationResult.getTeamAwayResult(networkIndex),
+                gameSimulationResult.getOpponentHomeResult(networkIndex));
+          }
+        }
+        networkOutputStore.write(networkOutputs, year, featureVersion);
+        networkOutputsByFile.put(entry.getKey(), networkOutputs);
+        networkIndex++;
+      }
+    }
+    int numberRemoved = networkOutputStore.removeAllExcept(networkFiles);
+    if (numberRemoved > 0) {
+      log.info("Removed the stored outputs of " + numberRemoved + " networks that are gone");
+    }
+    List<NetworkOutputs> ret = new ArrayList<>(networkOutputsByFile.size());
+    for (File networkFile : networkFiles) {
+      if (networkOutputsByFile.containsKey(networkFile)) {
+        ret.add(networkOutputsByFile.get(networkFile));
+      }
+    }
+    return ret;
+  }
 
   /**
-   * Retrieves the SeasonData object for the specified year and teamName from
-   * the cache, if it is there, or from the DB if not (then stores it in the cache).
+   * Rebuilds the rows of the matrix (see {@link #simulateMatrixRow}) from the stored outputs
+   * of every network, exactly as if the networks had been run. The networks themselves are not
+   * needed (and most of them have not been loaded), so the networks of every result are null.
    * 
-   * @param year
-   * @param teamName
-   * @return
+   * @return List of rows, in the same order as <code>sortedTeamNames</code>.
    */
-  private SeasonData fetchSeasonDataFromCache(Integer year, String teamName) {
-    SeasonData ret = null;
-    //
-    // Create the cache itself lazily
-    if (seasonDataCache == null) {
-      seasonDataCache = new HashMap<>();
-    }
-    //
-    // See if the SeasonData object is in the cache
-    ret = seasonDataCache.get(teamName);
-    if (ret == null) {
-      // No it is not, retrieve it from the DB
-      ret = pullSeasonData(year, teamName);
-      // And store it in the cache
-      seasonDataCache.put(teamName, ret);
+  static List<List<GameSimulationResult<MultiLayerPerceptron>>> computeMatrixRows(List<String> sortedTeamNames,
+      List<NetworkOutputs> networkOutputs) {
+    List<MultiLayerPerceptron> networks = Collections.nCopies(networkOutputs.size(), null);
+    List<List<GameSimulationResult<MultiLayerPerceptron>>> ret = new ArrayList<>(sortedTeamNames.size());
+    int matchupIndex = 0;
+    for (int teamIndex = 0; teamIndex < sortedTeamNames.size(); teamIndex++) {
+      List<GameSimulationResult<MultiLayerPerceptron>> row = new ArrayList<>(sortedTeamNames.size() - teamIndex);
+      for (int opponentIndex = teamIndex; opponentIndex < sortedTeamNames.size(); opponentIndex++) {
+        GameSimulationResult<MultiLayerPerceptron> gameSimulationResult = new GameSimulationResult<>(
+            sortedTeamNames.get(teamIndex), sortedTeamNames.get(opponentIndex), networks);
+        for (int networkIndex = 0; networkIndex < networkOutputs.size(); networkIndex++) {
+          NetworkOutputs networkOutput = networkOutputs.get(networkIndex);
+          double teamHomeResult = networkOutput.getTeamHomeResult(matchupIndex);
+          double opponentAwayResult = networkOutput.getOpponentAwayResult(matchupIndex);
+          double teamAwayResult = networkOutput.getTeamAwayResult(matchupIndex);
+          double opponentHomeResult = networkOutput.getOpponentHomeResult(matchupIndex);
+          gameSimulationResult.setNetworkResults(networkIndex, teamHomeResult, opponentAwayResult, teamAwayResult,
+              opponentHomeResult);
+          MatchupEvaluator.computeResult(gameSimulationResult, networkIndex, teamHomeResult > opponentAwayResult,
+              teamAwayResult > opponentHomeResult);
+        }
+        row.add(gameSimulationResult);
+        matchupIndex++;
+      }
+      ret.add(row);
     }
     return ret;
   }
 
   /**
-   * Writes the specified matrix of GameSimulationResult to a CSV file.
-   * The file contains the results of a simulated matchup of each team against every other
-   * team in the tournament, in the form of a matrix (implemented as a Map of List of
-   * GameResultSimulation, may is keyed by team name).
+   * Runs the matrix (see {@link #go(Integer)}), then keeps running, watching the network
+   * directory, and runs it again whenever a network file is added, changed or removed (for
+   * example, as the trainer saves networks). Unless simulation.incremental is turned off,
+   * only the new and changed networks are run each time.
    * 
-   * Of course, tournaments aren't played this way, but especially for bracket-style
-   * tournaments (like the NCAA Men's Basketball Tournament, a.k.a., March Madness),having
-   * the matchups in this format makes it easier when picking your brackets. You just look
-   * at the team CSV file for the home team, locate their opponent, and see what they
-   * network array predicted, and fill in that game. Then move to the next game, etc.
+   * The matrix is not refreshed until the directory has been quiet for
+   * {@link NetworkConfiguration#getSimulationWatchQuietMillis()}, so that a network file is not
+   * read while it is still being written, and a burst of new networks is handled all at once.
    * 
-   * @param matrix
-   *          A Map (keyed by team name) of List of GameSimulationResult objects.
+   * @param tournamentYear
    */
-  private void writeMatrixFile(Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix) {
-    //
-    //
-    String[] EMPTY_LINE = { "" };
-    for (String teamName : matrix.keySet()) {
-      String teamPredictionFilename = NetworkUtils.fetchSimulationDirectoryAndCreateIfNecessary() +
-          File.separator + teamName + ".csv";
-      //
-      // Write out the file for the current team (teamName)
-      try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(teamPredictionFilename))) {
-        CSVWriter csvWriter = new CSVWriter(bufferedWriter);
-        csvWriter.writeNext(EMPTY_LINE);
-        if (log.isDebugEnabled()) {
-          log.debug("**** TEAM -> " + teamName + ", file:  " + teamPredictionFilename + "***");
+  public void watch(Integer tournamentYear) {
+    go(tournamentYear);
+    Path networkArrayDirectory = Paths.get(computeNetworkArrayDirectory());
+    try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+      networkArrayDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+      log.info("Watching " + networkArrayDirectory + " for network changes...");
+      while (true) {
+        boolean networksChanged = pollNetworkChanges(watchService.take());
+        WatchKey watchKey;
+        while ((watchKey = watchService.poll(configuration.getSimulationWatchQuietMillis(),
+            TimeUnit.MILLISECONDS)) != null) {
+          networksChanged |= pollNetworkChanges(watchKey);
         }
-        String[] teamSeparatorLine = { "", teamName.toUpperCase() + " VS", "NETWORK PREDICTED:", "NETWORK PREDICTED:",
-            "NETWORK PREDICTED:" };
-        csvWriter.writeNext(teamSeparatorLine);
-        List<GameSimulationResult<MultiLayerPerceptron>> gameSimulationResults = matrix.get(teamName);
-        String[] heading = generateHeading(gameSimulationResults);
-        csvWriter.writeNext(heading);
-        int index = 0;
-        //
-        // Write out the game simulation data for teamName against every other team
-        /// in the tournament.
-        for (GameSimulationResult<MultiLayerPerceptron> gsr : gameSimulationResults) {
-          //
-          // Output contains:
-          // Team, Opponent name, percent wins, percent losses, percent push, plus
-          // Network predictions for each participant
-          int BASE_INDEX = 5;
-          String[] output = new String[BASE_INDEX + gsr.getNumberOfNetworks()];
-          if (index++ == 0) {
-            output[0] = gsr.getTeamName();
-          }
-          output[1] = gsr.getOpponentName();
-          output[2] = gsr.getPercentWins().setScale(2, RoundingMode.HALF_UP).toPlainString() + "%";
-          output[3] = gsr.getPercentLosses().setScale(2, RoundingMode.HALF_UP).toPlainString() + "%";
-          output[4] = gsr.getPercentPushes().setScale(2, RoundingMode.HALF_UP).toPlainString() + "%";
-          StringBuilder sb = new StringBuilder();
-          for (int aa = 0; aa < gsr.getNumberOfNetworks(); aa++) {
-            if (aa > 0)
-              sb.append(" | ");
-            sb.append(gsr.getNetworkPredictions().get(aa));
-            output[aa + BASE_INDEX] = gsr.getNetworkPredictions().get(aa);
-            sb.append(" (H->");
-            sb.append(BigDecimal.valueOf(gsr.getTeamHomeResults().get(aa)).setScale(3, RoundingMode.HALF_UP));
-            sb.append(":");
-            sb.append(BigDecimal.valueOf(gsr.getOpponentAwayResults().get(aa)).setScale(3, RoundingMode.HALF_UP));
-            sb.append(" | A->");
-            sb.append(BigDecimal.valueOf(gsr.getOpponentHomeResults().get(aa)).setScale(3, RoundingMode.HALF_UP));
-            sb.append(":");
-            sb.append(BigDecimal.valueOf(gsr.getTeamAwayResults().get(aa)).setScale(3, RoundingMode.HALF_UP));
-            sb.append(")");
-          }
-          if (log.isDebugEnabled()) {
-            log.debug("Opponent: " + gsr.getOpponentName() +
-                " | Win % " + gsr.getPercentWins() +
-                " | Loss %" + gsr.getPercentLosses() +
-                " | Push % " + gsr.getPercentPushes() +
-                ((log.isDebugEnabled()) ? " | Network Results -> " + sb.toString() : ""));
+        if (networksChanged) {
+          log.info("Networks changed, refreshing the matrix...");
+          try {
+            go(tournamentYear);
+          } catch (RuntimeException e) {
+            log.error("Could not refresh the matrix (will try again when the networks change): "
+                + e.getLocalizedMessage(), e);
           }
-          csvWriter.writeNext(output);
         }
-        csvWriter.close();
-      } catch (IOException e) {
-
       }
+    } catch (IOException e) {
+      String message = "Could not watch " + networkArrayDirectory + ": " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.info("Interrupted, no longer watching " + networkArrayDirectory);
     }
+  }
 
+  /**
+   * @return boolean - whether or not any of the events on the specified key are for a network file.
+   */
+  private static boolean pollNetworkChanges(WatchKey watchKey) {
+    boolean ret = false;
+    for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+      Object context = watchEvent.context();
+      if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW
+          || (context != null && StringUtils.endsWithIgnoreCase(context.toString(), ".ann"))) {
+        ret = true;
+      }
+    }
+    watchKey.reset();
+    return ret;
   }
 
   /**
-   * Generate a heading for the CSV file. Makes it easier to read when loaded into Open Office
-   * or whatever Office product you use.
-   * 
-   * The first few headings are where the relevant info is including team (and even an entry
-   * of the team against itself, which you will note is always PUSH), opponent, and average win/loss/push
-   * percentages.
+   * Simulates the rows of the matrix on a pool of worker threads, all sharing the
+   * (stateless) batch evaluator.
    * 
-   * The heading will contain the result of each network used in the array so you can see
-   * the individual network picks (if you care).
+   * @return List of rows, in the same order as <code>sortedTeamNames</code>.
+   */
+  private static List<List<GameSimulationResult<MultiLayerPerceptron>>> simulateMatrixRowsConcurrently(
+      int numberOfWorkers, List<String> sortedTeamNames, Map<String, double[]> normalizedDataByTeamName,
+      List<MultiLayerPerceptron> networks, BatchNetworkEvaluator batchNetworkEvaluator) {
+    List<List<GameSimulationResult<MultiLayerPerceptron>>> ret = new ArrayList<>();
+    log.info("Simulating " + sortedTeamNames.size() + " teams against " + networks.size() + " networks using "
+        + numberOfWorkers + " worker threads...");
+    ExecutorService executorService = Executors.newFixedThreadPool(numberOfWorkers);
+    try {
+      //
+      // The first rows are the longest, and they go in first, so the work evens out
+      /// across the workers as the rows get shorter
+      List<Future<List<GameSimulationResult<MultiLayerPerceptron>>>> futures = new ArrayList<>();
+      for (int teamIndex = 0; teamIndex < sortedTeamNames.size(); teamIndex++) {
+        final int rowIndex = teamIndex;
+        futures.add(executorService.submit(
+            () -> simulateMatrixRow(rowIndex, sortedTeamNames, normalizedDataByTeamName, networks,
+                batchNetworkEvaluator)));
+      }
+      for (Future<List<GameSimulationResult<MultiLayerPerceptron>>> future : futures) {
+        ret.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      String message = "Interrupted while waiting for the matrix simulation to complete. Cannot continue!";
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    } catch (ExecutionException e) {
+      String message = "Matrix simulation failed. Cannot continue!";
+      log.error(message, e.getCause());
+      throw new RuntimeException(message, e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+    return ret;
+  }
+
+  /**
+   * Simulates one row of the matrix: the team at <code>teamIndex</code> against itself, and
+   * against every team after it. Every matchup in the row goes through the whole ensemble in
+   * a single batch. Uses nothing but local state, so it's safe to run rows concurrently.
    * 
-   * @param results
-   *          The matrix of game simulations.
+   * @param teamIndex
+   *          Index (into <code>sortedTeamNames</code>) of the current team.
+   * @param sortedTeamNames
+   *          All of the team names, in alphabetical order.
+   * @param normalizedDataByTeamName
+   *          The normalized data for every team.
+   * @param networks
+   *          The trained networks to be used.
+   * @param batchNetworkEvaluator
+   *          Runs the networks.
    * 
-   * @return String[] - the headings, one element per header
+   * @return List<GameSimulationResult<MultiLayerPerceptron>> - the row, in order by opponent name.
    */
-  private String[] generateHeading(List<GameSimulationResult<MultiLayerPerceptron>> results) {
-    GameSimulationResult<MultiLayerPerceptron> result = results.get(0);
-    String[] ret = new String[5 + result.getNumberOfNetworks()];
+  private static List<GameSimulationResult<MultiLayerPerceptron>> simulateMatrixRow(int teamIndex,
+      List<String> sortedTeamNames, Map<String, double[]> normalizedDataByTeamName,
+      List<MultiLayerPerceptron> networks, BatchNetworkEvaluator batchNetworkEvaluator) {
+    int numberOfMatchups = sortedTeamNames.size() - teamIndex;
+    List<GameSimulationResult<MultiLayerPerceptron>> ret = new ArrayList<>(numberOfMatchups);
+    String currentTeamName = sortedTeamNames.get(teamIndex);
+    double[] currentTeamNormalizedData = normalizedDataByTeamName.get(currentTeamName);
     //
-    ret[0] = "TEAM";
-    ret[1] = "OPPONENT";
-    ret[2] = "WIN %";
-    ret[3] = "LOSS %";
-    ret[4] = "PUSH %";
-    List<MultiLayerPerceptron> networks = result.getNetworks();
-    int aa = 5;
-    for (MultiLayerPerceptron network : networks) {
-      ret[aa++] = NetworkUtils.getNetworkStructure(network);
+    // Build the feature matrix for the row. The first matchup is the current team against
+    /// itself: home and away are the same input, so there is just one row for it. Every
+    /// other matchup gets two: home has currentTeam on the LHS, away has the opponent on the LHS.
+    double[][] features = new double[2 * numberOfMatchups - 1][];
+    features[0] = new double[2 * FeatureNormalizer.NUMBER_OF_FEATURES];
+    FeatureNormalizer.writeInputs(currentTeamNormalizedData, currentTeamNormalizedData, features[0]);
+    for (int matchupIndex = 1; matchupIndex < numberOfMatchups; matchupIndex++) {
+      double[] opponentNormalizedData = normalizedDataByTeamName.get(sortedTeamNames.get(teamIndex + matchupIndex));
+      double[] homeInput = new double[2 * FeatureNormalizer.NUMBER_OF_FEATURES];
+      double[] awayInput = new double[2 * FeatureNormalizer.NUMBER_OF_FEATURES];
+      FeatureNormalizer.writeInputs(currentTeamNormalizedData, opponentNormalizedData, homeInput);
+      FeatureNormalizer.writeInputs(opponentNormalizedData, currentTeamNormalizedData, awayInput);
+      features[computeHomeFeatureRow(matchupIndex)] = homeInput;
+      features[computeAwayFeatureRow(matchupIndex)] = awayInput;
+    }
+    //
+    // Run them all through every network at once
+    double[][][] outputs = batchNetworkEvaluator.evaluate(features);
+    for (int matchupIndex = 0; matchupIndex < numberOfMatchups; matchupIndex++) {
+      String opponentTeamName = sortedTeamNames.get(teamIndex + matchupIndex);
+      log.debug("Current Team: " + currentTeamName + " versus " + opponentTeamName + "...");
+      //
+      // Create the GameSimulationResult for this matchup
+      GameSimulationResult<MultiLayerPerceptron> gameSimulationResult = new GameSimulationResult<>(currentTeamName,
+          opponentTeamName, networks);
+      int homeFeatureRow = computeHomeFeatureRow(matchupIndex);
+      int awayFeatureRow = computeAwayFeatureRow(matchupIndex);
+      //
+      // Loop through the list of networks
+      for (int networkIndex = 0; networkIndex < networks.size(); networkIndex++) {
+        log.trace("Network simulation # " + networkIndex + "...");
+        MatchupEvaluator.recordNetworkSimulationResult(networkIndex, outputs[networkIndex][homeFeatureRow],
+            outputs[networkIndex][awayFeatureRow], gameSimulationResult);
+      }
+      ret.add(gameSimulationResult);
     }
     return ret;
   }
 
+  /**
+   * @return int - the row of a matrix row's feature matrix that holds the home input for
+   *         the specified matchup.
+   */
+  private static int computeHomeFeatureRow(int matchupIndex) {
+    return (matchupIndex == 0) ? 0 : 2 * matchupIndex - 1;
+  }
+
+  /**
+   * @return int - the row of a matrix row's feature matrix that holds the away input for
+   *         the specified matchup (for a team against itself, that's the home input).
+   */
+  private static int computeAwayFeatureRow(int matchupIndex) {
+    return (matchupIndex == 0) ? 0 : 2 * matchupIndex;
+  }
+
 }
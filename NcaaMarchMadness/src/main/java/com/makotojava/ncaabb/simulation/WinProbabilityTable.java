@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.neuroph.core.NeuralNetwork;
+import org.neuroph.nnet.learning.BackPropagation;
+
+/**
+ * The probability of each team beating each other team, taken from the tournament
+ * matrix: a team's chance of winning is the percentage of networks that picked it,
+ * plus half the pushes (a push means the network could not decide).
+ * 
+ * The probabilities are kept in one flat array, indexed by the two teams' positions
+ * in the List of team names, so looking one up costs next to nothing.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class WinProbabilityTable {
+
+  private static final Logger log = Logger.getLogger(WinProbabilityTable.class);
+
+  private final List<String> teamNames;
+
+  /**
+   * The probability that team i beats team j, at [i * numberOfTeams + j]
+   */
+  private final double[] probabilities;
+
+  /**
+   * Creates a WinProbabilityTable for the specified teams from the tournament matrix.
+   * 
+   * @param teamNames
+   *          The teams. Every matchup between them must be in the matrix.
+   * @param matrix
+   *          The tournament matrix, as computed by {@link TournamentMatrixPredictor}.
+   * 
+   * @return WinProbabilityTable - the new table.
+   */
+  public static <T extends NeuralNetwork<BackPropagation>> WinProbabilityTable fromMatrix(List<String> teamNames,
+      Map<String, List<GameSimulationResult<T>>> matrix) {
+    double[][] probabilities = new double[teamNames.size()][teamNames.size()];
+    for (int teamIndex = 0; teamIndex < teamNames.size(); teamIndex++) {
+      String teamName = teamNames.get(teamIndex);
+      List<GameSimulationResult<T>> gameSimulationResults = matrix.get(teamName);
+      if (gameSimulationResults == null) {
+        String message = "Team '" + teamName + "' is not in the tournament matrix. Cannot continue!";
+        log.error(message);
+        throw new RuntimeException(message);
+      }
+      Map<String, GameSimulationResult<T>> gameSimulationResultsByOpponentName = new HashMap<>();
+      for (GameSimulationResult<T> gameSimulationResult : gameSimulationResults) {
+        gameSimulationResultsByOpponentName.put(gameSimulationResult.getOpponentName(), gameSimulationResult);
+      }
+      for (int opponentIndex = 0; opponentIndex < teamNames.size(); opponentIndex++) {
+        GameSimulationResult<T> gameSimulationResult = gameSimulationResultsByOpponentName
+            .get(teamNames.get(opponentIndex));
+        if (gameSimulationResult == null) {
+          String message = "Matchup '" + teamName + "' vs '" + teamNames.get(opponentIndex)
+              + "' is not in the tournament matrix. Cannot continue!";
+          log.error(message);
+          throw new RuntimeException(message);
+        }
+        probabilities[teamIndex][opponentIndex] = computeWinProbability(gameSimulationResult);
+      }
+    }
+    return new WinProbabilityTable(teamNames, probabilities);
+  }
+
+  /**
+   * @return double - the probability the team in the specified result beats the opponent:
+   *         its win percentage, plus half its push percentage.
+   */
+  public static double computeWinProbability(GameSimulationResult<?> gameSimulationResult) {
+    return (gameSimulationResult.getPercentWins().doubleValue()
+        + 0.5 * gameSimulationResult.getPercentPushes().doubleValue()) / 100.0;
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param teamNames
+   *          The teams.
+   * @param probabilities
+   *          The probability that team i beats team j, at [i][j].
+   */
+  public WinProbabilityTable(List<String> teamNames, double[][] probabilities) {
+    this.teamNames = teamNames;
+    int numberOfTeams = teamNames.size();
+    this.probabilities = new double[numberOfTeams * numberOfTeams];
+    for (int teamIndex = 0; teamIndex < numberOfTeams; teamIndex++) {
+      System.arraycopy(probabilities[teamIndex], 0, this.probabilities, teamIndex * numberOfTeams, numberOfTeams);
+    }
+  }
+
+  public List<String> getTeamNames() {
+    return teamNames;
+  }
+
+  public int getNumberOfTeams() {
+    return teamNames.size();
+  }
+
+  /**
+   * @return double - the probability that the team at <code>teamIndex</code> beats the team
+   *         at <code>opponentIndex</code>.
+   */
+  public double getWinProbability(int teamIndex, int opponentIndex) {
+    return probabilities[teamIndex * teamNames.size() + opponentIndex];
+  }
+
+  /**
+   * @return double[] - the probabilities themselves (not a copy): team i beats team j
+   *         at [i * numberOfTeams + j].
+   */
+  double[] getProbabilities() {
+    return probabilities;
+  }
+
+}
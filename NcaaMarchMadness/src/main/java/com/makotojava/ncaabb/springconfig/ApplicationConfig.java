@@ -15,23 +15,39 @@
  */
 package com.makotojava.ncaabb.springconfig;
 
+import java.io.IOException;
+
 import javax.sql.DataSource;
 
+import org.apache.log4j.Logger;
+
 import org.postgresql.ds.PGSimpleDataSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import com.makotojava.ncaabb.dao.CachingSeasonAnalyticsDao;
+import com.makotojava.ncaabb.dao.CachingSeasonDataDao;
+import com.makotojava.ncaabb.dao.CachingTournamentAnalyticsDao;
+import com.makotojava.ncaabb.dao.CachingTournamentResultDao;
+import com.makotojava.ncaabb.dao.DataSnapshot;
+import com.makotojava.ncaabb.dao.PooledDataSource;
 import com.makotojava.ncaabb.dao.SeasonAnalyticsDao;
 import com.makotojava.ncaabb.dao.SeasonAnalyticsJdbcDao;
+import com.makotojava.ncaabb.dao.SeasonAnalyticsSnapshotDao;
 import com.makotojava.ncaabb.dao.SeasonDataDao;
 import com.makotojava.ncaabb.dao.SeasonDataJdbcDao;
+import com.makotojava.ncaabb.dao.SeasonDataSnapshotDao;
 import com.makotojava.ncaabb.dao.TournamentAnalyticsDao;
 import com.makotojava.ncaabb.dao.TournamentAnalyticsJdbcDao;
+import com.makotojava.ncaabb.dao.TournamentAnalyticsSnapshotDao;
 import com.makotojava.ncaabb.dao.TournamentResultDao;
 import com.makotojava.ncaabb.dao.TournamentResultJdbcDao;
+import com.makotojava.ncaabb.dao.TournamentResultSnapshotDao;
 import com.makotojava.ncaabb.util.NetworkProperties;
+import com.makotojava.ncaabb.util.NetworkUtils;
 
 /**
  * Spring configuration class. Saves having to use XML files to configure Spring.
@@ -46,35 +62,115 @@ import com.makotojava.ncaabb.util.NetworkProperties;
 @EnableTransactionManagement
 public class ApplicationConfig {
 
-  @Bean(name = "dataSource")
+  private static final Logger log = Logger.getLogger(ApplicationConfig.class);
+
+  /**
+   * The DataSource shared by all of the DAOs: a bounded pool of connections, each with
+   * its own PreparedStatement cache.
+   */
+  @Bean(name = "dataSource", destroyMethod = "close")
   public DataSource getDataSource() {
-    PGSimpleDataSource ret = new PGSimpleDataSource();
+    return createDataSource();
+  }
+
+  /**
+   * Creates the pooled DataSource the DAOs use (see {@link #getDataSource()}), without starting
+   * up Spring. For programs that must talk to the DB no matter what dao.source is set to (and
+   * so can't have the DAO beans, which might want a snapshot that isn't there).
+   * 
+   * @return PooledDataSource - the DataSource. Close it when done.
+   */
+  public static PooledDataSource createDataSource() {
+    PGSimpleDataSource physicalDataSource = new PGSimpleDataSource();
+    //
+    physicalDataSource.setDatabaseName(NetworkProperties.getDatabaseName());
+    physicalDataSource.setPortNumber(5432);
+    physicalDataSource.setUser(NetworkProperties.getDatabaseUser());
     //
-    ret.setDatabaseName(NetworkProperties.getDatabaseName());
-    ret.setPortNumber(5432);
-    ret.setUser(NetworkProperties.getDatabaseUser());
+    // Statements are reused by the pool, so have the server prepare them right away
+    physicalDataSource.setPrepareThreshold(NetworkProperties.getDatabasePrepareThreshold());
 
+    PooledDataSource ret = new PooledDataSource(physicalDataSource,
+        NetworkProperties.getDatabasePoolMaxSize(),
+        NetworkProperties.getDatabasePoolAcquireTimeoutMillis(),
+        NetworkProperties.getDatabasePoolValidationQuery(),
+        NetworkProperties.getDatabasePoolValidationIntervalMillis(),
+        NetworkProperties.getDatabaseStatementCacheSize());
     return ret;
   }
 
+  /**
+   * The snapshot the DAOs read from when dao.source=snapshot. Only loaded if
+   * it's actually used.
+   */
+  @Bean(name = "dataSnapshot")
+  @Lazy
+  public DataSnapshot getDataSnapshot() {
+    String snapshotFileName = NetworkUtils.computeSnapshotFileName();
+    try {
+      return DataSnapshot.load(snapshotFileName);
+    } catch (IOException e) {
+      String message = "Could not load data snapshot file " + snapshotFileName + ": " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    }
+  }
+
+  private static boolean isSnapshotDaoSource() {
+    return NetworkProperties.DAO_SOURCE_SNAPSHOT.equalsIgnoreCase(NetworkProperties.getDaoSource());
+  }
+
+  //
+  // The snapshot is already in memory, so the snapshot DAOs are used as is. Otherwise,
+  /// season data for past years never changes, so unless told otherwise, the JDBC DAOs
+  /// are wrapped in read-through caches (see NetworkProperties.getDaoCacheEnabled()).
+
   @Bean(name = "seasonDataDao")
-  public SeasonDataDao getSeasonDataDao() {
-    return new SeasonDataJdbcDao(getDataSource());
+  public SeasonDataDao getSeasonDataDao(DataSource dataSource) {
+    if (isSnapshotDaoSource()) {
+      return new SeasonDataSnapshotDao(getDataSnapshot());
+    }
+    SeasonDataDao ret = new SeasonDataJdbcDao(dataSource);
+    if (NetworkProperties.getDaoCacheEnabled()) {
+      ret = new CachingSeasonDataDao(ret, NetworkProperties.getDaoCacheMaxEntries());
+    }
+    return ret;
   }
 
   @Bean(name = "tournamentResultDao")
-  public TournamentResultDao getTournamentResultDao() {
-    return new TournamentResultJdbcDao(getDataSource());
+  public TournamentResultDao getTournamentResultDao(DataSource dataSource) {
+    if (isSnapshotDaoSource()) {
+      return new TournamentResultSnapshotDao(getDataSnapshot());
+    }
+    TournamentResultDao ret = new TournamentResultJdbcDao(dataSource);
+    if (NetworkProperties.getDaoCacheEnabled()) {
+      ret = new CachingTournamentResultDao(ret, NetworkProperties.getDaoCacheMaxEntries());
+    }
+    return ret;
   }
 
   @Bean(name = "SeasonAnalyticsDao")
-  public SeasonAnalyticsDao getSeasonAnalyticsDao() {
-    return new SeasonAnalyticsJdbcDao(getDataSource());
+  public SeasonAnalyticsDao getSeasonAnalyticsDao(DataSource dataSource) {
+    if (isSnapshotDaoSource()) {
+      return new SeasonAnalyticsSnapshotDao(getDataSnapshot());
+    }
+    SeasonAnalyticsDao ret = new SeasonAnalyticsJdbcDao(dataSource);
+    if (NetworkProperties.getDaoCacheEnabled()) {
+      ret = new CachingSeasonAnalyticsDao(ret, NetworkProperties.getDaoCacheMaxEntries());
+    }
+    return ret;
   }
 
   @Bean(name = "tournamentAnalyticsDao")
-  public TournamentAnalyticsDao getTournamentAnalyticsDao() {
-    return new TournamentAnalyticsJdbcDao(getDataSource());
+  public TournamentAnalyticsDao getTournamentAnalyticsDao(DataSource dataSource) {
+    if (isSnapshotDaoSource()) {
+      return new TournamentAnalyticsSnapshotDao(getDataSnapshot());
+    }
+    TournamentAnalyticsDao ret = new TournamentAnalyticsJdbcDao(dataSource);
+    if (NetworkProperties.getDaoCacheEnabled()) {
+      ret = new CachingTournamentAnalyticsDao(ret, NetworkProperties.getDaoCacheMaxEntries());
+    }
+    return ret;
   }
 
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.neuroph.core.NeuralNetwork;
+import org.neuroph.nnet.learning.BackPropagation;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+
+/**
+ * Keeps a compact copy of each network (.ann) file alongside it, so the network can be
+ * loaded without going through Java serialization of Neuroph's entire object graph,
+ * which is what makes loading a few hundred networks so slow.
+ *
+ * The compact copy (the network file name plus {@link #CACHE_FILE_EXTENSION}) holds the
+ * layer structure and the flat weights of the network (see {@link FlatMlpNetwork}), along
+ * with the {@link NetworkFileFingerprint} of the .ann file it was made from. If the .ann
+ * file changes, the fingerprints no longer match, and the compact copy is rebuilt from the
+ * .ann file the next time the network is loaded. If anything goes wrong with the compact
+ * copy, the .ann file is loaded instead.
+ *
+ * File layout (big endian): int magic number, int format version, the fingerprint, int
+ * number of layers, int[] layer sizes, boolean useBias, int number of weights, double[] weights.
+ *
+ * @author J Steven Perry
+ *
+ */
+public class CompactNetworkCache {
+
+  private static final Logger log = Logger.getLogger(CompactNetworkCache.class);
+
+  /**
+   * "NCAN", so we know it's one of ours
+   */
+  public static final int MAGIC_NUMBER = 0x4E43414E;
+
+  /**
+   * Bump this any time the file layout changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  public static final String CACHE_FILE_EXTENSION = ".flat";
+
+  /**
+   * @return File - the compact copy of the specified network file.
+   */
+  public static File computeCacheFile(File networkFile) {
+    return new File(networkFile.getPath() + CACHE_FILE_EXTENSION);
+  }
+
+  /**
+   * Loads the specified network file, from its compact copy if there is an up to date one.
+   * If not, the .ann file is loaded, and the compact copy is (re)built from it.
+   *
+   * @param networkFile
+   *          The network (.ann) file.
+   *
+   * @return NeuralNetwork - the network.
+   */
+  @SuppressWarnings("unchecked")
+  public static NeuralNetwork<BackPropagation> load(File networkFile) {
+    File cacheFile = computeCacheFile(networkFile);
+    NetworkFileFingerprint fingerprint = null;
+    try {
+      fingerprint = NetworkFileFingerprint.compute(networkFile);
+      FlatMlpNetwork flatNetwork = read(cacheFile, fingerprint);
+      if (flatNetwork != null) {
+        log.debug("Loaded network '" + networkFile.getName() + "' from compact copy");
+        return flatNetwork.toNetwork();
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not use compact copy of network '" + networkFile.getName() + "', loading .ann file: "
+          + e.getLocalizedMessage());
+    }
+    NeuralNetwork<BackPropagation> ret = NeuralNetwork.createFromFile(networkFile);
+    if (fingerprint != null) {
+      try {
+        write(cacheFile, fingerprint, FlatMlpNetwork.fromNetwork(ret));
+        log.info("Wrote compact copy of network '" + networkFile.getName() + "'");
+      } catch (IOException | RuntimeException e) {
+        log.warn("Could not write compact copy of network '" + networkFile.getName() + "': "
+            + e.getLocalizedMessage());
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Reads the specified compact copy.
+   *
+   * @param cacheFile
+   *          The compact copy.
+   * @param fingerprint
+   *          The fingerprint of the network file as it is now.
+   *
+   * @return FlatMlpNetwork - the network, or null if there is no compact copy, or it was
+   *         made from a different version of the network file (or by a different version
+   *         of this code).
+   *
+   * @throws IOException
+   *           If the compact copy cannot be read, or is corrupt.
+   */
+  static FlatMlpNetwork read(File cacheFile, NetworkFileFingerprint fingerprint) throws IOException {
+    if (!cacheFile.exists()) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile.toPath()));
+    try {
+      if (buffer.getInt() != MAGIC_NUMBER) {
+        throw new IOException("File " + cacheFile.getName() + " is not a compact network file!");
+      }
+      if (buffer.getInt() != FORMAT_VERSION) {
+        log.info("Compact network file " + cacheFile.getName() + " is out of date (format version)");
+        return null;
+      }
+      NetworkFileFingerprint cachedFingerprint = new NetworkFileFingerprint(buffer.getLong(), buffer.getLong(),
+          buffer.getLong());
+      if (!cachedFingerprint.equals(fingerprint)) {
+        log.info("Compact network file " + cacheFile.getName() + " is out of date (" + cachedFingerprint
+            + ", network file is now " + fingerprint + ")");
+        return null;
+      }
+      int numberOfLayers = buffer.getInt();
+      List<Integer> neuronLayerDescriptor = new ArrayList<>(numberOfLayers);
+      for (int aa = 0; aa < numberOfLayers; aa++) {
+        neuronLayerDescriptor.add(buffer.getInt());
+      }
+      boolean useBias = buffer.get() != 0;
+      FlatMlpNetwork ret = new FlatMlpNetwork(neuronLayerDescriptor, useBias);
+      double[] weights = ret.getWeights();
+      if (buffer.getInt() != weights.length) {
+        throw new IOException("Compact network file " + cacheFile.getName() + " has the wrong number of weights!");
+      }
+      buffer.asDoubleBuffer().get(weights);
+      return ret;
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Compact network file " + cacheFile.getName() + " is truncated!", e);
+    }
+  }
+
+  /**
+   * Writes a compact copy of the specified network. The file is written under a temporary
+   * name and then moved into place, so a reader never sees half of a network.
+   *
+   * @param cacheFile
+   *          The compact copy.
+   * @param fingerprint
+   *          The fingerprint of the network file the network was loaded from.
+   * @param network
+   *          The network.
+   *
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  static void write(File cacheFile, NetworkFileFingerprint fingerprint, FlatMlpNetwork network)
+      throws IOException {
+    File tempFile = new File(cacheFile.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(MAGIC_NUMBER);
+      out.writeInt(FORMAT_VERSION);
+      fingerprint.write(out);
+      out.writeInt(network.getLayersCount());
+      for (int layerSize : network.getLayerSizes()) {
+        out.writeInt(layerSize);
+      }
+      out.writeBoolean(network.layerHasBias(0));
+      double[] weights = network.getWeights();
+      out.writeInt(weights.length);
+      for (double weight : weights) {
+        out.writeDouble(weight);
+      }
+    }
+    Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+}
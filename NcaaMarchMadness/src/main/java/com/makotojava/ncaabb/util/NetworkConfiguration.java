@@ -0,0 +1,517 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+
+/**
+ * An immutable, typed snapshot of the network properties used by the trainers, the
+ * {@link com.makotojava.ncaabb.generation.DataCreator DataCreator} and the
+ * {@link com.makotojava.ncaabb.simulation.TournamentMatrixPredictor TournamentMatrixPredictor}.
+ * Same property names, same defaults (this is where they live now; {@link NetworkProperties}
+ * hands out the values from its own snapshot).
+ * <p>
+ * Every property is parsed and validated once, when the snapshot is created. If anything
+ * is wrong with any of them (not a number, out of range, an unknown engine, etc.), a
+ * RuntimeException listing every problem is thrown right then, rather than whenever
+ * the bad value happens to be read (which might be hours into a training run). After that,
+ * reading a value is just reading a field, so it's fine to do it as often as you like.
+ * 
+ * @author J Steven Perry
+ *
+ */
+public class NetworkConfiguration {
+
+  private static final Logger log = Logger.getLogger(NetworkConfiguration.class);
+
+  /**
+   * Values for the network.engine property
+   */
+  public static final String NETWORK_ENGINE_NEUROPH = "neuroph";
+  public static final String NETWORK_ENGINE_FLAT = "flat";
+
+  /**
+   * Values for the simulation.matrix.mode property
+   */
+  public static final String MATRIX_MODE_FULL = "full";
+  public static final String MATRIX_MODE_BRACKET = "bracket";
+
+  /**
+   * Values for the search.strategy property
+   */
+  public static final String SEARCH_STRATEGY_EXHAUSTIVE = "exhaustive";
+  public static final String SEARCH_STRATEGY_HALVING = "halving";
+
+  private final String baseDirectory;
+  private final int bracketSimulationTournaments;
+  private final int epochBreakIterationCount;
+  private final String experimentStoreFileName;
+  private final int experimentStoreMaxRuns;
+  private final boolean learningRuleIsBatchMode;
+  private final double learningRuleLearningRate;
+  private final double learningRuleMomentumMax;
+  private final double learningRuleMomentumMin;
+  private final int maxLearningIterations;
+  private final double maxNetworkError;
+  private final double maxNetworkErrorUptrend;
+  private final int maxNetworkIterations;
+  private final double maxWeight;
+  private final double minMaxWeight;
+  private final double minMinWeight;
+  private final double minWeight;
+  private final double momentumDefaultValue;
+  private final String networkDirectoryName;
+  private final String networkEngine;
+  private final String networkFileBase;
+  private final String networkFileExtension;
+  private final int numberOfInputs;
+  private final int numberOfOutputs;
+  private final BigDecimal performanceThreshold;
+  private final boolean randomizeMomentum;
+  private final int searchHalvingFactor;
+  private final String searchStrategy;
+  private final int serverMaxBatchSize;
+  private final int serverPort;
+  private final int serverWorkerThreads;
+  private final boolean simulationIncremental;
+  private final boolean simulationMatrixCsvExport;
+  private final String simulationMatrixMode;
+  private final int simulationWatchQuietMillis;
+  private final int simulationWorkerThreads;
+  private final BigDecimal symmetricPerformanceThreshold;
+  private final String trainingCheckpointFileName;
+  private final int trainingCheckpointIntervalSeconds;
+  private final int trainingWorkerThreads;
+  private final boolean useBiasNeurons;
+
+  /**
+   * Constructor. Parses and validates the specified properties. Any property not specified
+   * gets its default value, so an empty Properties object gets you the defaults.
+   * 
+   * @param properties
+   *          The properties.
+   * 
+   * @throws RuntimeException
+   *           If any of the properties has a bad value.
+   */
+  public NetworkConfiguration(Properties properties) {
+    this(new PropertiesFile(properties));
+  }
+
+  /**
+   * Constructor. Parses and validates the properties in the specified file.
+   * 
+   * @param propertiesFile
+   *          The properties.
+   * 
+   * @throws RuntimeException
+   *           If any of the properties has a bad value.
+   */
+  NetworkConfiguration(PropertiesFile propertiesFile) {
+    PropertyReader reader = new PropertyReader(propertiesFile);
+    baseDirectory = reader.readString(NetworkProperties.BASE_DIRECTORY, ".");
+    bracketSimulationTournaments = reader.readInteger("bracket.simulation.tournaments", 10000000, 1);
+    epochBreakIterationCount = reader.readInteger("epoch.break.iteration.count", 3000, 1);
+    experimentStoreFileName = reader.readString("experiment.store.file.name", "mlp-experiments.store");
+    experimentStoreMaxRuns = reader.readInteger("experiment.store.max.runs", 0, 0);
+    learningRuleIsBatchMode = reader.readBoolean("learning.rule.is.batch.mode", false);
+    learningRuleLearningRate = reader.readPositiveDouble("learning.rule.learning.rate", 0.05);
+    learningRuleMomentumMax = reader.readFraction("learning.rule.momentum.max", 0.25);
+    learningRuleMomentumMin = reader.readFraction("learning.rule.momentum.min", 0.1);
+    maxLearningIterations = reader.readInteger("max.learning.iterations", 20000, 1);
+    maxNetworkError = reader.readPositiveDouble("max.network.error", 0.0075);
+    maxNetworkErrorUptrend = reader.readDouble("max.network.error.uptrend", -0.001);
+    maxNetworkIterations = reader.readInteger("max.network.iterations", 10, 1);
+    maxWeight = reader.readDouble("max.weight", 1.0);
+    minMaxWeight = reader.readDouble("min.max.weight", 0.7);
+    minMinWeight = reader.readDouble("min.min.weight", -0.7);
+    minWeight = reader.readDouble("min.weight", -1.0);
+    momentumDefaultValue = reader.readFraction("momentum.default.value", 0.10);
+    networkDirectoryName = reader.readString("network.directory.name", "Networks");
+    networkEngine = reader.readChoice("network.engine", NETWORK_ENGINE_NEUROPH,
+        NETWORK_ENGINE_NEUROPH, NETWORK_ENGINE_FLAT);
+    networkFileBase = reader.readString("network.file.base", "NCAA-BB-MLP-Network");
+    networkFileExtension = reader.readString("network.file.extension", ".ann");
+    numberOfInputs = reader.readInteger("number.of.inputs", 46, 1);
+    numberOfOutputs = reader.readInteger("number.of.outputs", 2, 1);
+    performanceThreshold = reader.readPercentage("performance.threshold", 70);
+    randomizeMomentum = reader.readBoolean("randomize.momentum", true);
+    searchHalvingFactor = reader.readInteger("search.halving.factor", 3, 2);
+    searchStrategy = reader.readChoice("search.strategy", SEARCH_STRATEGY_EXHAUSTIVE,
+        SEARCH_STRATEGY_EXHAUSTIVE, SEARCH_STRATEGY_HALVING);
+    serverMaxBatchSize = reader.readInteger("server.max.batch.size", 256, 1);
+    serverPort = reader.readInteger("server.port", 8080, 0);
+    serverWorkerThreads = reader.readInteger("server.worker.threads", Runtime.getRuntime().availableProcessors(), 1);
+    simulationIncremental = reader.readBoolean("simulation.incremental", true);
+    simulationMatrixCsvExport = reader.readBoolean("simulation.matrix.csv.export", true);
+    simulationMatrixMode = reader.readChoice("simulation.matrix.mode", MATRIX_MODE_FULL,
+        MATRIX_MODE_FULL, MATRIX_MODE_BRACKET);
+    simulationWatchQuietMillis = reader.readInteger("simulation.watch.quiet.millis", 5000, 0);
+    simulationWorkerThreads = reader.readInteger("simulation.worker.threads", 1, 1);
+    symmetricPerformanceThreshold = reader.readPercentage("symmetric.performance.threshold", 60);
+    trainingCheckpointFileName = reader.readString("training.checkpoint.file.name", "mlp-trainer.checkpoint");
+    trainingCheckpointIntervalSeconds = reader.readInteger("training.checkpoint.interval.seconds", 600, 0);
+    trainingWorkerThreads = reader.readInteger("training.worker.threads", 1, 1);
+    useBiasNeurons = reader.readBoolean("use.bias.neurons", true);
+    //
+    // Now make sure the values make sense together
+    List<String> problems = reader.problems;
+    if (numberOfInputs != 2 * FeatureNormalizer.NUMBER_OF_FEATURES) {
+      problems.add("number.of.inputs must be " + (2 * FeatureNormalizer.NUMBER_OF_FEATURES)
+          + " (the number of features for both teams), not " + numberOfInputs);
+    }
+    if (numberOfOutputs != 2) {
+      problems.add("number.of.outputs must be 2 (one score for each team), not " + numberOfOutputs);
+    }
+    if (!(minWeight <= minMinWeight && minMinWeight <= minMaxWeight && minMaxWeight <= maxWeight)) {
+      problems.add("The weight range must be min.weight <= min.min.weight <= min.max.weight <= max.weight, not "
+          + minWeight + ", " + minMinWeight + ", " + minMaxWeight + ", " + maxWeight);
+    }
+    if (learningRuleMomentumMin > learningRuleMomentumMax) {
+      problems.add("learning.rule.momentum.min (" + learningRuleMomentumMin
+          + ") must not be greater than learning.rule.momentum.max (" + learningRuleMomentumMax + ")");
+    }
+    if (!problems.isEmpty()) {
+      String message = "Invalid network properties:\n\t" + String.join("\n\t", problems);
+      log.error(message);
+      throw new RuntimeException(message);
+    }
+  }
+
+  public String getBaseDirectory() {
+    return baseDirectory;
+  }
+
+  public int getBracketSimulationTournaments() {
+    return bracketSimulationTournaments;
+  }
+
+  public int getEpochBreakIterationCount() {
+    return epochBreakIterationCount;
+  }
+
+  public String getExperimentStoreFileName() {
+    return experimentStoreFileName;
+  }
+
+  /**
+   * @return int - the number of CTV iterations of a configuration in the experiment store after
+   *         which the trainer doesn't train it again. Zero means always train it.
+   */
+  public int getExperimentStoreMaxRuns() {
+    return experimentStoreMaxRuns;
+  }
+
+  public boolean getLearningRuleIsBatchMode() {
+    return learningRuleIsBatchMode;
+  }
+
+  public double getLearningRuleLearningRate() {
+    return learningRuleLearningRate;
+  }
+
+  public double getLearningRuleMomentumMax() {
+    return learningRuleMomentumMax;
+  }
+
+  public double getLearningRuleMomentumMin() {
+    return learningRuleMomentumMin;
+  }
+
+  public int getMaxLearningIterations() {
+    return maxLearningIterations;
+  }
+
+  public double getMaxNetworkError() {
+    return maxNetworkError;
+  }
+
+  public double getMaxNetworkErrorUptrend() {
+    return maxNetworkErrorUptrend;
+  }
+
+  public int getMaxNetworkIterations() {
+    return maxNetworkIterations;
+  }
+
+  public double getMaxWeight() {
+    return maxWeight;
+  }
+
+  public double getMinMaxWeight() {
+    return minMaxWeight;
+  }
+
+  public double getMinMinWeight() {
+    return minMinWeight;
+  }
+
+  public double getMinWeight() {
+    return minWeight;
+  }
+
+  public double getMomentumDefaultValue() {
+    return momentumDefaultValue;
+  }
+
+  public String getNetworkDirectoryName() {
+    return networkDirectoryName;
+  }
+
+  public String getNetworkEngine() {
+    return networkEngine;
+  }
+
+  public String getNetworkFileBase() {
+    return networkFileBase;
+  }
+
+  public String getNetworkFileExtension() {
+    return networkFileExtension;
+  }
+
+  public int getNumberOfInputs() {
+    return numberOfInputs;
+  }
+
+  public int getNumberOfOutputs() {
+    return numberOfOutputs;
+  }
+
+  public BigDecimal getPerformanceThreshold() {
+    return performanceThreshold;
+  }
+
+  public boolean getRandomizeMomentum() {
+    return randomizeMomentum;
+  }
+
+  /**
+   * @return int - the factor by which each successive halving round cuts the number of networks
+   *         (and grows the training budget of the ones that are left).
+   */
+  public int getSearchHalvingFactor() {
+    return searchHalvingFactor;
+  }
+
+  public String getSearchStrategy() {
+    return searchStrategy;
+  }
+
+  public int getServerMaxBatchSize() {
+    return serverMaxBatchSize;
+  }
+
+  public int getServerPort() {
+    return serverPort;
+  }
+
+  public int getServerWorkerThreads() {
+    return serverWorkerThreads;
+  }
+
+  public boolean getSimulationIncremental() {
+    return simulationIncremental;
+  }
+
+  public boolean getSimulationMatrixCsvExport() {
+    return simulationMatrixCsvExport;
+  }
+
+  public String getSimulationMatrixMode() {
+    return simulationMatrixMode;
+  }
+
+  public int getSimulationWatchQuietMillis() {
+    return simulationWatchQuietMillis;
+  }
+
+  public int getSimulationWorkerThreads() {
+    return simulationWorkerThreads;
+  }
+
+  public BigDecimal getSymmetricPerformanceThreshold() {
+    return symmetricPerformanceThreshold;
+  }
+
+  public String getTrainingCheckpointFileName() {
+    return trainingCheckpointFileName;
+  }
+
+  /**
+   * @return int - how often (at most) the trainer writes a checkpoint. Zero means never.
+   */
+  public int getTrainingCheckpointIntervalSeconds() {
+    return trainingCheckpointIntervalSeconds;
+  }
+
+  public int getTrainingWorkerThreads() {
+    return trainingWorkerThreads;
+  }
+
+  public boolean getUseBiasNeurons() {
+    return useBiasNeurons;
+  }
+
+  /**
+   * @return boolean - whether or not to train networks using the flat network engine
+   *         (batch mode is only supported by the Neuroph engine).
+   */
+  public boolean useFlatNetworkEngine() {
+    return NETWORK_ENGINE_FLAT.equals(networkEngine) && !learningRuleIsBatchMode;
+  }
+
+  /**
+   * @return boolean - whether or not to search the networks with successive halving, rather
+   *         than giving every network the whole training budget.
+   */
+  public boolean useSuccessiveHalvingSearch() {
+    return SEARCH_STRATEGY_HALVING.equals(searchStrategy);
+  }
+
+  /**
+   * Reads (and parses) the properties, keeping track of everything wrong with them.
+   */
+  private static class PropertyReader {
+
+    private final PropertiesFile propertiesFile;
+    private final List<String> problems = new ArrayList<>();
+
+    PropertyReader(PropertiesFile propertiesFile) {
+      this.propertiesFile = propertiesFile;
+    }
+
+    private String readString(String propertyName, String defaultValue) {
+      String ret = propertiesFile.getProperty(propertyName);
+      return (ret == null) ? defaultValue : ret.trim();
+    }
+
+    /**
+     * Reads the specified property, which must be one of the specified choices (ignoring case).
+     * 
+     * @return String - the choice (as specified in <code>choices</code>).
+     */
+    private String readChoice(String propertyName, String defaultValue, String... choices) {
+      String propertyValue = readString(propertyName, defaultValue);
+      for (String choice : choices) {
+        if (choice.equalsIgnoreCase(propertyValue)) {
+          return choice;
+        }
+      }
+      problems.add(propertyName + " must be one of " + Arrays.toString(choices) + ", not '" + propertyValue + "'");
+      return defaultValue;
+    }
+
+    /**
+     * Reads the specified property, which must be <code>true</code> or <code>false</code> (ignoring case).
+     * Anything else is a mistake, not a sneaky way of saying false.
+     */
+    private boolean readBoolean(String propertyName, boolean defaultValue) {
+      String propertyValue = readString(propertyName, Boolean.toString(defaultValue));
+      if (Boolean.TRUE.toString().equalsIgnoreCase(propertyValue)) {
+        return true;
+      }
+      if (Boolean.FALSE.toString().equalsIgnoreCase(propertyValue)) {
+        return false;
+      }
+      problems.add(propertyName + " must be true or false, not '" + propertyValue + "'");
+      return defaultValue;
+    }
+
+    /**
+     * Reads the specified integer property, which must be at least <code>minValue</code>.
+     */
+    private int readInteger(String propertyName, int defaultValue, int minValue) {
+      String propertyValue = readString(propertyName, Integer.toString(defaultValue));
+      try {
+        int ret = Integer.parseInt(propertyValue);
+        if (ret < minValue) {
+          problems.add(propertyName + " must be at least " + minValue + ", not " + ret);
+          return defaultValue;
+        }
+        return ret;
+      } catch (NumberFormatException e) {
+        problems.add(propertyName + " must be an integer, not '" + propertyValue + "'");
+        return defaultValue;
+      }
+    }
+
+    /**
+     * Reads the specified double property, which must be a finite number.
+     */
+    private double readDouble(String propertyName, double defaultValue) {
+      String propertyValue = readString(propertyName, Double.toString(defaultValue));
+      try {
+        double ret = Double.parseDouble(propertyValue);
+        if (Double.isNaN(ret) || Double.isInfinite(ret)) {
+          problems.add(propertyName + " must be a finite number, not " + propertyValue);
+          return defaultValue;
+        }
+        return ret;
+      } catch (NumberFormatException e) {
+        problems.add(propertyName + " must be a number, not '" + propertyValue + "'");
+        return defaultValue;
+      }
+    }
+
+    /**
+     * Reads the specified double property, which must be greater than zero.
+     */
+    private double readPositiveDouble(String propertyName, double defaultValue) {
+      double ret = readDouble(propertyName, defaultValue);
+      if (ret <= 0.0) {
+        problems.add(propertyName + " must be greater than 0, not " + ret);
+        ret = defaultValue;
+      }
+      return ret;
+    }
+
+    /**
+     * Reads the specified double property, which must be between 0 and 1 (a momentum, for example).
+     */
+    private double readFraction(String propertyName, double defaultValue) {
+      double ret = readDouble(propertyName, defaultValue);
+      if (ret < 0.0 || ret > 1.0) {
+        problems.add(propertyName + " must be between 0 and 1, not " + ret);
+        ret = defaultValue;
+      }
+      return ret;
+    }
+
+    /**
+     * Reads the specified percentage (an integer from 0 to 100) property.
+     */
+    private BigDecimal readPercentage(String propertyName, int defaultValue) {
+      int ret = readInteger(propertyName, defaultValue, 0);
+      if (ret > 100) {
+        problems.add(propertyName + " must be a percentage (0-100), not " + ret);
+        ret = defaultValue;
+      }
+      return BigDecimal.valueOf(ret).setScale(0, RoundingMode.HALF_UP);
+    }
+
+  }
+
+}
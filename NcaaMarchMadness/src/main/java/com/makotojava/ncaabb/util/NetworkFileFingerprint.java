@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Identifies the exact contents of a network (.ann) file: its size, its last modified
+ * time, and a CRC-32 of its bytes. Anything derived from a network file (a cached copy
+ * of the network, the network's outputs, etc) can be stored along with the fingerprint
+ * of the file it was derived from, and thrown out when the fingerprints no longer match.
+ *
+ * @author J Steven Perry
+ *
+ */
+public final class NetworkFileFingerprint {
+
+  private final long size;
+  private final long lastModified;
+  private final long checksum;
+
+  public NetworkFileFingerprint(long size, long lastModified, long checksum) {
+    this.size = size;
+    this.lastModified = lastModified;
+    this.checksum = checksum;
+  }
+
+  /**
+   * Computes the fingerprint of the specified file (reads the whole file).
+   *
+   * @param file
+   *          The file.
+   *
+   * @return NetworkFileFingerprint - the fingerprint.
+   *
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public static NetworkFileFingerprint compute(File file) throws IOException {
+    CRC32 crc32 = new CRC32();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = new FileInputStream(file)) {
+      int bytesRead;
+      while ((bytesRead = in.read(buffer)) != -1) {
+        crc32.update(buffer, 0, bytesRead);
+      }
+    }
+    return new NetworkFileFingerprint(file.length(), file.lastModified(), crc32.getValue());
+  }
+
+  /**
+   * Reads a fingerprint written by {@link #write(DataOutput)}.
+   */
+  public static NetworkFileFingerprint read(DataInput in) throws IOException {
+    return new NetworkFileFingerprint(in.readLong(), in.readLong(), in.readLong());
+  }
+
+  public void write(DataOutput out) throws IOException {
+    out.writeLong(size);
+    out.writeLong(lastModified);
+    out.writeLong(checksum);
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  public long getChecksum() {
+    return checksum;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof NetworkFileFingerprint)) {
+      return false;
+    }
+    NetworkFileFingerprint that = (NetworkFileFingerprint) other;
+    return size == that.size && lastModified == that.lastModified && checksum == that.checksum;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * Long.hashCode(size) + Long.hashCode(lastModified)) + Long.hashCode(checksum);
+  }
+
+  @Override
+  public String toString() {
+    return "size=" + size + ", lastModified=" + lastModified + ", crc32=" + Long.toHexString(checksum);
+  }
+
+}
@@ -36,6 +36,10 @@ import java.util.Properties;
  * <li>You don't like the default value and want to override it.</li>
  * </ol>
  * Other than that, putting ANYTHING in the properties file is unnecessary.
+ * <p>
+ * The properties used by the trainers, the data creator and the predictor (which are read
+ * over and over) are parsed and validated once, into a {@link NetworkConfiguration} (see
+ * {@link #getConfiguration()}), and the getters for those properties just hand out its values.
  * 
  * @author J Steven Perry
  *
@@ -48,6 +52,13 @@ public class NetworkProperties {
   public static final String BASE_DIRECTORY = "base.directory";
   public static final String NETWORK_PROPERTIES_FILE = "network.properties.file";
 
+  /**
+   * Values for the dao.source property: the DAOs either read from the DB (the default),
+   * or from a snapshot file (see getSnapshotFileName()).
+   */
+  public static final String DAO_SOURCE_JDBC = "jdbc";
+  public static final String DAO_SOURCE_SNAPSHOT = "snapshot";
+
   /**
    * Private constructor.
    */
@@ -62,6 +73,11 @@ public class NetworkProperties {
    */
   private static PropertiesFile propertiesFile;
 
+  /**
+   * The typed snapshot of (most of) the properties
+   */
+  private static NetworkConfiguration configuration;
+
   /**
    * The properties file
    */
@@ -101,6 +117,23 @@ public class NetworkProperties {
     return propertiesFile;
   }
 
+  /**
+   * Returns the typed, validated snapshot of the properties used by the trainers, the data creator
+   * and the predictor. Created (and validated) the first time it is asked for, so call this early
+   * on to find out about any bad property values right away.
+   * 
+   * @return NetworkConfiguration - the snapshot.
+   * 
+   * @throws RuntimeException
+   *           If any of the properties has a bad value.
+   */
+  public static synchronized NetworkConfiguration getConfiguration() {
+    if (configuration == null) {
+      configuration = new NetworkConfiguration(getPropertiesFile());
+    }
+    return configuration;
+  }
+
   /**
    * The base directory. Used a LOT by the application. You MUST PROVIDE A
    * VALUE IN THE PROPERTIES FILE FOR THIS PROPERTY!
@@ -110,13 +143,53 @@ public class NetworkProperties {
    * @return String The Base directory property value.
    */
   public static String getBaseDirectory() {
-    return getStringPropertyValue(BASE_DIRECTORY, ".");
+    return getConfiguration().getBaseDirectory();
+  }
+
+  public static Integer getBracketSimulationTournaments() {
+    return getConfiguration().getBracketSimulationTournaments();
   }
 
   public static String getDatabaseName() {
     return getStringPropertyValue("database.name", "ncaabb");
   }
 
+  public static Boolean getDaoCacheEnabled() {
+    return getBooleanPropertyValue("dao.cache.enabled", Boolean.TRUE);
+  }
+
+  public static Integer getDaoCacheMaxEntries() {
+    return getIntegerPropertyValue("dao.cache.max.entries", 4096);
+  }
+
+  public static String getDaoSource() {
+    return getStringPropertyValue("dao.source", DAO_SOURCE_JDBC);
+  }
+
+  public static Integer getDatabasePoolMaxSize() {
+    return getIntegerPropertyValue("database.pool.max.size", 8);
+  }
+
+  public static Integer getDatabasePoolAcquireTimeoutMillis() {
+    return getIntegerPropertyValue("database.pool.acquire.timeout.millis", 30000);
+  }
+
+  public static String getDatabasePoolValidationQuery() {
+    return getStringPropertyValue("database.pool.validation.query", "SELECT 1");
+  }
+
+  public static Integer getDatabasePoolValidationIntervalMillis() {
+    return getIntegerPropertyValue("database.pool.validation.interval.millis", 5000);
+  }
+
+  public static Integer getDatabaseStatementCacheSize() {
+    return getIntegerPropertyValue("database.statement.cache.size", 32);
+  }
+
+  public static Integer getDatabasePrepareThreshold() {
+    return getIntegerPropertyValue("database.prepare.threshold", 1);
+  }
+
   public static String getDatabaseUser() {
     return getStringPropertyValue("database.user", "sperry");
   }
@@ -126,7 +199,7 @@ public class NetworkProperties {
   }
 
   public static Integer getEpochBreakIterationCount() {
-    return getIntegerPropertyValue("epoch.break.iteration.count", 3000);
+    return getConfiguration().getEpochBreakIterationCount();
   }
 
   public static String getHeaderRank() {
@@ -134,67 +207,83 @@ public class NetworkProperties {
   }
 
   public static Boolean getLearningRuleIsBatchMode() {
-    return getBooleanPropertyValue("learning.rule.is.batch.mode", false);
+    return getConfiguration().getLearningRuleIsBatchMode();
   }
 
   public static Double getLearningRuleLearningRate() {
-    return getDoublePropertyValue("learning.rule.learning.rate", 0.05);
+    return getConfiguration().getLearningRuleLearningRate();
   }
 
   public static Double getLearningRuleMomentumMax() {
-    return getDoublePropertyValue("learning.rule.momentum.max", 0.25);
+    return getConfiguration().getLearningRuleMomentumMax();
   }
 
   public static Double getLearningRuleMomentumMin() {
-    return getDoublePropertyValue("learning.rule.momentum.min", 0.1);
+    return getConfiguration().getLearningRuleMomentumMin();
   }
 
   public static Integer getMaxLearningIterations() {
-    return getIntegerPropertyValue("max.learning.iterations", 20000);
+    return getConfiguration().getMaxLearningIterations();
   }
 
   public static Double getMaxNetworkError() {
-    return getDoublePropertyValue("max.network.error", 0.0075);
+    return getConfiguration().getMaxNetworkError();
   }
 
   public static Double getMaxNetworkErrorUptrend() {
-    return getDoublePropertyValue("max.network.error.uptrend", -0.001);
+    return getConfiguration().getMaxNetworkErrorUptrend();
   }
 
   public static Integer getMaxNetworkIterations() {
-    return getIntegerPropertyValue("max.network.iterations", 10);
+    return getConfiguration().getMaxNetworkIterations();
+  }
+
+  public static Integer getTrainingWorkerThreads() {
+    return getConfiguration().getTrainingWorkerThreads();
   }
 
   public static Double getMaxWeight() {
-    return getDoublePropertyValue("max.weight", 1.0);
+    return getConfiguration().getMaxWeight();
   }
 
   public static Double getMinMaxWeight() {
-    return getDoublePropertyValue("min.max.weight", 0.7);
+    return getConfiguration().getMinMaxWeight();
   }
 
   public static Double getMinMinWeight() {
-    return getDoublePropertyValue("min.min.weight", -0.7);
+    return getConfiguration().getMinMinWeight();
   }
 
   public static Double getMinWeight() {
-    return getDoublePropertyValue("min.weight", -1.0);
+    return getConfiguration().getMinWeight();
   }
 
   public static Double getMomentumDefaultValue() {
-    return getDoublePropertyValue("momentum.default.value", 0.10);
+    return getConfiguration().getMomentumDefaultValue();
+  }
+
+  public static Boolean getNetworkCacheEnabled() {
+    return getBooleanPropertyValue("network.cache.enabled", Boolean.TRUE);
   }
 
   public static String getNetworkDirectoryName() {
-    return getStringPropertyValue("network.directory.name", "Networks");
+    return getConfiguration().getNetworkDirectoryName();
+  }
+
+  public static String getNetworkEngine() {
+    return getConfiguration().getNetworkEngine();
   }
 
   public static String getNetworkFileBase() {
-    return getStringPropertyValue("network.file.base", "NCAA-BB-MLP-Network");
+    return getConfiguration().getNetworkFileBase();
   }
 
   public static String getNetworkFileExtension() {
-    return getStringPropertyValue("network.file.extension", ".ann");
+    return getConfiguration().getNetworkFileExtension();
+  }
+
+  public static Integer getNetworkLoadWorkerThreads() {
+    return getIntegerPropertyValue("network.load.worker.threads", Runtime.getRuntime().availableProcessors());
   }
 
   public static String getNetworksFileName() {
@@ -202,27 +291,61 @@ public class NetworkProperties {
   }
 
   public static Integer getNumberOfInputs() {
-    return getIntegerPropertyValue("number.of.inputs", 46);
+    return getConfiguration().getNumberOfInputs();
   }
 
   public static Integer getNumberOfOutputs() {
-    return getIntegerPropertyValue("number.of.outputs", 2);
+    return getConfiguration().getNumberOfOutputs();
   }
 
   public static BigDecimal getPerformanceThreshold() {
-    Integer performanceThreshold = getIntegerPropertyValue("performance.threshold", 70);
-    return BigDecimal.valueOf(performanceThreshold).setScale(0, RoundingMode.HALF_UP);
+    return getConfiguration().getPerformanceThreshold();
   }
 
   public static BigDecimal getSymmetricPerformanceThreshold() {
-    Integer performanceThreshold = getIntegerPropertyValue("symmetric.performance.threshold", 60);
-    return BigDecimal.valueOf(performanceThreshold).setScale(0, RoundingMode.HALF_UP);
+    return getConfiguration().getSymmetricPerformanceThreshold();
+  }
+
+  public static Integer getServerMaxBatchSize() {
+    return getConfiguration().getServerMaxBatchSize();
+  }
+
+  public static Integer getServerPort() {
+    return getConfiguration().getServerPort();
+  }
+
+  public static Integer getServerWorkerThreads() {
+    return getConfiguration().getServerWorkerThreads();
   }
 
   public static String getSimulationDirectoryName() {
     return getStringPropertyValue("simulation.directory.name", "Simulation");
   }
 
+  public static Boolean getSimulationIncremental() {
+    return getConfiguration().getSimulationIncremental();
+  }
+
+  public static Boolean getSimulationMatrixCsvExport() {
+    return getConfiguration().getSimulationMatrixCsvExport();
+  }
+
+  public static String getSimulationMatrixMode() {
+    return getConfiguration().getSimulationMatrixMode();
+  }
+
+  public static Integer getSimulationWatchQuietMillis() {
+    return getConfiguration().getSimulationWatchQuietMillis();
+  }
+
+  public static Integer getSimulationWorkerThreads() {
+    return getConfiguration().getSimulationWorkerThreads();
+  }
+
+  public static String getSnapshotFileName() {
+    return getStringPropertyValue("snapshot.file.name", "ncaabb-data.snapshot");
+  }
+
   public static String getStatcatHeader() {
     return getStringPropertyValue("statcat.header", "NCAA Men's Basketball");
   }
@@ -232,13 +355,25 @@ public class NetworkProperties {
   }
 
   public static Boolean getRandomizeMomentum() {
-    return getBooleanPropertyValue("randomize.momentum", Boolean.TRUE);
+    return getConfiguration().getRandomizeMomentum();
   }
 
   public static String getTeamMatrixFileName() {
     return getStringPropertyValue("team.matrix.file.name", "all-vs");
   }
 
+  public static String getBracketFileBase() {
+    return getStringPropertyValue("bracket.file.base", "bracket_file");
+  }
+
+  public static String getTournamentTeamsFileBase() {
+    return getStringPropertyValue("tournament.teams.file.base", "tourney_teams_file");
+  }
+
+  public static String getTournamentTeamsFileExtension() {
+    return getStringPropertyValue("tournament.teams.file.extension", ".txt");
+  }
+
   public static String getTrainingDataFileBase() {
     return getStringPropertyValue("training.data.file.base", "NCAA-BB-TRAINING_DATA");
   }
@@ -247,12 +382,16 @@ public class NetworkProperties {
     return getStringPropertyValue("training.data.file.extension", ".trn");
   }
 
+  public static String getTrainingDataColumnarFileExtension() {
+    return getStringPropertyValue("training.data.columnar.file.extension", ".tdc");
+  }
+
   public static String getTrainingDirectoryName() {
     return getStringPropertyValue("training.directory", "TrainingData");
   }
 
   public static Boolean getUseBiasNeurons() {
-    return getBooleanPropertyValue("use.bias.neurons", Boolean.TRUE);
+    return getConfiguration().getUseBiasNeurons();
   }
 
   // ****************************
@@ -23,7 +23,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -91,46 +97,106 @@ public class NetworkUtils {
   }
 
   /**
-   * Loads all networks from the specified directory and returns them in a List.
+   * Loads all networks from the specified directory and returns them in a List, in
+   * order by file name. The networks are loaded in parallel, each one from its compact
+   * copy if there is an up to date one (see {@link CompactNetworkCache}).
    * 
    * @param networkArrayDirectory
    * @return
    */
   public static <T extends NeuralNetwork<BackPropagation>> List<T> loadNetworks(String networkArrayDirectory) {
-    List<T> ret = new ArrayList<>();
-    //
-    // Load all of the networks in the specified directory
+    return loadNetworks(listNetworkFiles(networkArrayDirectory));
+  }
+
+  /**
+   * Returns the network (.ann) files in the specified directory, in order by file name.
+   * 
+   * @param networkArrayDirectory
+   * @return
+   */
+  public static List<File> listNetworkFiles(String networkArrayDirectory) {
     File arrayDirectory = new File(networkArrayDirectory);
-    if (arrayDirectory.exists()) {
-      File[] networkFiles = arrayDirectory.listFiles(new FileFilter() {
-        @Override
-        public boolean accept(File pathname) {
-          //
-          // Only accept files that are neural networks
-          return StringUtils.endsWithIgnoreCase(pathname.getName(), ".ann");
-        }
-      });
-      log.info("Found " + networkFiles.length + " networks in directory '" + arrayDirectory.getPath() + "'...");
-      for (File networkFile : networkFiles) {
-        try {
-          log.info("Loading network file '" + networkFile.getName() + "'...");
-          @SuppressWarnings("unchecked")
-          T network = (T) NeuralNetwork.createFromFile(networkFile);
-          ret.add(network);
-        } catch (Exception e) {
-          String message = "Could not load file '" + networkFile.getName() + "'. Skipping...";
-          log.warn(message, e);
-        }
-      }
-    } else {
+    if (!arrayDirectory.exists()) {
       String message = "** ERROR: directory '" + networkArrayDirectory
           + "' does not appear to exist. Check the name and try again.";
       log.error(message);
       throw new RuntimeException(message);
     }
+    File[] networkFiles = arrayDirectory.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File pathname) {
+        //
+        // Only accept files that are neural networks
+        return StringUtils.endsWithIgnoreCase(pathname.getName(), ".ann");
+      }
+    });
+    Arrays.sort(networkFiles);
+    log.info("Found " + networkFiles.length + " networks in directory '" + arrayDirectory.getPath() + "'...");
+    return Arrays.asList(networkFiles);
+  }
+
+  /**
+   * Loads the specified network files in parallel, and returns the networks in the same
+   * order. Any file that cannot be loaded is skipped.
+   * 
+   * @param networkFiles
+   * @return
+   */
+  public static <T extends NeuralNetwork<BackPropagation>> List<T> loadNetworks(List<File> networkFiles) {
+    return new ArrayList<>(NetworkUtils.<T> loadNetworksByFile(networkFiles).values());
+  }
+
+  /**
+   * Loads the specified network files in parallel, and returns the networks keyed by the
+   * file they were loaded from, in the same order as the files. Any file that cannot be
+   * loaded is skipped.
+   * 
+   * @param networkFiles
+   * @return
+   */
+  public static <T extends NeuralNetwork<BackPropagation>> Map<File, T> loadNetworksByFile(
+      List<File> networkFiles) {
+    Map<File, T> ret = new LinkedHashMap<>();
+    int numberOfThreads = Math.max(1, Math.min(NetworkProperties.getNetworkLoadWorkerThreads(),
+        networkFiles.size()));
+    ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+    try {
+      List<Future<T>> futures = new ArrayList<>(networkFiles.size());
+      for (File networkFile : networkFiles) {
+        futures.add(executorService.submit(() -> NetworkUtils.<T> loadNetwork(networkFile)));
+      }
+      for (int aa = 0; aa < networkFiles.size(); aa++) {
+        try {
+          ret.put(networkFiles.get(aa), futures.get(aa).get());
+        } catch (ExecutionException e) {
+          String message = "Could not load file '" + networkFiles.get(aa).getName() + "'. Skipping...";
+          log.warn(message, e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      String message = "Interrupted while loading networks: " + e.getLocalizedMessage();
+      log.error(message, e);
+      throw new RuntimeException(message, e);
+    } finally {
+      executorService.shutdownNow();
+    }
+    log.info("Loaded " + ret.size() + " networks using " + numberOfThreads + " thread(s)");
     return ret;
   }
 
+  /**
+   * Loads a single network file (from its compact copy, unless network.cache.enabled is off).
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends NeuralNetwork<BackPropagation>> T loadNetwork(File networkFile) {
+    log.info("Loading network file '" + networkFile.getName() + "'...");
+    if (NetworkProperties.getNetworkCacheEnabled()) {
+      return (T) CompactNetworkCache.load(networkFile);
+    }
+    return (T) NeuralNetwork.createFromFile(networkFile);
+  }
+
   /**
    * Runs the specified network using the Neuroph API.
    * 
@@ -166,6 +232,83 @@ public class NetworkUtils {
     return filename;
   }
 
+  /**
+   * Computes the columnar training data file name (see {@link com.makotojava.ncaabb.generation.TrainingData})
+   * based on the year and the NetworkProperties settings. Same as {@link #computeTrainingDataFileName(Integer)},
+   * but with the columnar file extension.
+   * 
+   * @param year
+   * @return
+   */
+  public static String computeColumnarTrainingDataFileName(Integer year) {
+    return NetworkProperties.getBaseDirectory() + File.separator + NetworkProperties.getTrainingDirectoryName()
+        + File.separator + NetworkProperties.getTrainingDataFileBase() + "-" + year
+        + NetworkProperties.getTrainingDataColumnarFileExtension();
+  }
+
+  /**
+   * Computes the tournament teams file name (the list of teams in the tournament, in
+   * base.directory) based on the year and the NetworkProperties settings.
+   * Provides consistency across the application.
+   * 
+   * @param year
+   * @return
+   */
+  public static String computeTournamentTeamsFileName(Integer year) {
+    return NetworkProperties.getBaseDirectory() + File.separator + NetworkProperties.getTournamentTeamsFileBase()
+        + "_" + year + NetworkProperties.getTournamentTeamsFileExtension();
+  }
+
+  /**
+   * Computes the bracket file name (the teams in the tournament, in bracket order, in
+   * base.directory) based on the year and the NetworkProperties settings.
+   * Provides consistency across the application.
+   * 
+   * @param year
+   * @return
+   */
+  public static String computeBracketFileName(Integer year) {
+    return NetworkProperties.getBaseDirectory() + File.separator + NetworkProperties.getBracketFileBase()
+        + "_" + year + NetworkProperties.getTournamentTeamsFileExtension();
+  }
+
+  /**
+   * Computes the binary tournament matrix file name (in the simulation directory, which is
+   * created if necessary) based on the year and the NetworkProperties settings.
+   * Provides consistency across the application.
+   * 
+   * @param year
+   * @return
+   */
+  public static String computeMatrixFileName(Integer year) {
+    return fetchSimulationDirectoryAndCreateIfNecessary() + File.separator + NetworkProperties.getTeamMatrixFileName()
+        + "-" + year + ".matrix";
+  }
+
+  /**
+   * Computes the name of the directory (in the simulation directory, created if necessary)
+   * where the outputs of each network are kept for the specified tournament year.
+   * Provides consistency across the application.
+   * 
+   * @param year
+   * @return
+   */
+  public static String computeNetworkOutputDirectoryName(Integer year) {
+    String ret = fetchSimulationDirectoryAndCreateIfNecessary() + File.separator + "network-outputs-" + year;
+    createDirectoryIfNecessary(ret);
+    return ret;
+  }
+
+  /**
+   * Computes the data snapshot file name based on the NetworkProperties settings.
+   * Provides consistency across the application.
+   * 
+   * @return
+   */
+  public static String computeSnapshotFileName() {
+    return NetworkProperties.getBaseDirectory() + File.separator + NetworkProperties.getSnapshotFileName();
+  }
+
   /**
    * Fetches the name of the network directory using NetworkProperties settings
    * and returns that name to the caller.
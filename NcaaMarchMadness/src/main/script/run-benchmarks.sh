@@ -0,0 +1,43 @@
+#! 
+#
+# Script to run the JMH benchmarks (see the benchmark profile in pom.xml).
+#
+# Set DEBUG to something other than true to turn it off
+DEBUG=true
+
+function usage {
+  echo "Usage: $0 [JMH arguments]"
+  echo "Description: builds the project with the benchmark profile and runs the JMH benchmarks"
+  echo "against synthetic data (no database needed). The results are written as JSON"
+  echo "to target/jmh-result.json (unless -rff says otherwise)."
+  echo "Where:"
+  echo -e "\tJMH arguments (optional) are passed straight through to JMH."
+  echo "Examples:"
+  echo "Run all of the benchmarks:"
+  echo -e "\t$0"
+  echo "Run just the matrix benchmark, one fork, for ensembles of 10 and 100 networks:"
+  echo -e "\t$0 -f 1 -p ensembleSize=10,100 MatrixBenchmark"
+  echo   
+}
+
+if [[ "$1" == "-h" || "$1" == "--help" ]]; then
+  usage
+  exit 0
+fi
+if [[ "$DEBUG" == "true" ]]; then echo "Script arguments: $@"; fi
+
+# Below is an example that works on my Mac.
+# Change this to match your source location.
+ROOT_DIR=/Users/sperry/home/development/projects/IBM-Developer/NcaaMarchMadness
+
+# Make sure ROOT_DIR is set or bail out
+if [[ -z "$ROOT_DIR" ]]
+then
+  echo "ROOT_DIR is not set! This variable should be set to the source root of your project."
+  exit 1
+fi
+
+if [[ "$DEBUG" == "true" ]]; then echo "ROOT_DIR = ${ROOT_DIR}"; fi
+
+# Fire up the benchmarks
+cd $ROOT_DIR && mvn -B -P benchmark verify -DskipTests -Dbenchmark.args="$*"
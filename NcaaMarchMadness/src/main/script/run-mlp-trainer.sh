@@ -13,9 +13,10 @@ DEBUG=true
 #EXAMPLE_JAVA_OPTS="-Dnetwork.properties.file=/Users/sperry/home/network.properties"
 
 function usage {
-  echo "Usage: $0 td_year [td_year2 ... td_yearN] v_year [,v_year2,...v_yearN]"
+  echo "Usage: $0 [--resume] td_year [td_year2 ... td_yearN] v_year [,v_year2,...v_yearN]"
   echo "Description: creates training data for the specified years"
   echo "Where:"
+  echo -e "\t--resume (optional) picks up an interrupted run (with the same years) from its checkpoint file."
   echo -e "\ttd_year1 is the first (and possibly only) year for which training data is to be used to train the network."
   echo -e "\tyear2 (optional) is the second year (if specified) for which training data is to be used to train the network."
   echo -e "\tyearN (optional) is the Nth year (if specified) for which training data is to be used to train the network."
@@ -26,6 +27,8 @@ function usage {
   echo -e "\t$0 2011 2012 2013 2014 2015,2016"
   echo "Train a network against data from 2010 through 2013 and validate against 2009, 2014, 2015 and 2016"
   echo -e "\t$0 2010 2011 2012 2013 2009,2014,2015,2016"
+  echo "Resume the first example after it was interrupted"
+  echo -e "\t$0 --resume 2011 2012 2013 2014 2015,2016"
   echo   
 }
 
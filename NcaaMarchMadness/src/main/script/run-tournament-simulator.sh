@@ -11,13 +11,16 @@ DEBUG=true
 #EXAMPLE_JAVA_OPTS="-Dnetwork.properties.file=/Users/sperry/home/network.properties"
 
 function usage {
-  echo "Usage: $0 year"
+  echo "Usage: $0 year [watch]"
   echo "Description: runs a tournament simulation for the specified year"
   echo "Where:"
   echo -e "\tyear is the year for which the tournament matrix is to be created."
+  echo -e "\twatch (optional) keeps running, and refreshes the matrix as networks are added or changed."
   echo "Examples:"
   echo "Create tournament simulation matrix for 2010:"
   echo -e "\t$0 2010"
+  echo "Create the 2010 matrix, then refresh it as the trainer saves new networks:"
+  echo -e "\t$0 2010 watch"
   echo   
 }
 
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.makotojava.ncaabb.model.SeasonData;
+
+/**
+ * Exercises the caching DAO using a fake (in-memory) delegate, so no database is needed.
+ */
+public class CachingSeasonDataDaoTest {
+
+  private FakeSeasonDataDao delegate;
+  private CachingSeasonDataDao classUnderTest;
+
+  @Before
+  public void setUp() throws Exception {
+    delegate = new FakeSeasonDataDao();
+    classUnderTest = new CachingSeasonDataDao(delegate, 4096);
+  }
+
+  @Test
+  public void testWholeYearIsPrefetched() {
+    SeasonData seasonData = classUnderTest.fetchByYearAndTeamName(2017, "Gonzaga");
+    assertNotNull(seasonData);
+    assertEquals("Gonzaga", seasonData.getTeamName());
+    assertSame(seasonData, classUnderTest.fetchByYearAndTeamName(2017, "Gonzaga"));
+    assertNotNull(classUnderTest.fetchByYearAndTeamName(2017, "North Carolina"));
+    assertEquals(3, classUnderTest.fetchAllByYear(2017).size());
+    assertEquals(1, delegate.queries);
+    assertEquals(2, classUnderTest.getMissCount());// The team, then its year
+    assertEquals(3, classUnderTest.getHitCount());
+  }
+
+  @Test
+  public void testSameTeamDifferentYears() {
+    SeasonData seasonData2016 = classUnderTest.fetchByYearAndTeamName(2016, "Gonzaga");
+    SeasonData seasonData2017 = classUnderTest.fetchByYearAndTeamName(2017, "Gonzaga");
+    assertEquals(Integer.valueOf(2016), seasonData2016.getYear());
+    assertEquals(Integer.valueOf(2017), seasonData2017.getYear());
+    assertEquals(2, delegate.queries);
+  }
+
+  @Test
+  public void testMissingTeam() {
+    assertNull(classUnderTest.fetchByYearAndTeamName(2017, "Makoto Tech"));
+    Map<String, SeasonData> seasonData = classUnderTest.fetchByYearAndTeamNames(2017,
+        Arrays.asList("Gonzaga", "Makoto Tech"));
+    assertEquals(1, seasonData.size());
+    assertEquals(1, delegate.queries);
+  }
+
+  @Test
+  public void testFetchAllByYearsOnlyFetchesWhatIsMissing() {
+    classUnderTest.fetchAllByYear(2016);
+    Map<Integer, Map<String, SeasonData>> seasonData = classUnderTest.fetchAllByYears(Arrays.asList(2016, 2017));
+    assertEquals(2, seasonData.size());
+    assertEquals(3, seasonData.get(2017).size());
+    assertEquals(Arrays.asList(2017), delegate.lastYearsFetched);
+    classUnderTest.fetchAllByYears(Arrays.asList(2016, 2017));
+    assertEquals(2, delegate.queries);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedYearIsEvicted() {
+    // Room for only one year's worth of teams
+    classUnderTest = new CachingSeasonDataDao(delegate, 1);
+    classUnderTest.fetchAllByYear(2016);
+    classUnderTest.fetchAllByYear(2017);
+    classUnderTest.fetchAllByYear(2017);
+    assertEquals(2, delegate.queries);
+    classUnderTest.fetchAllByYear(2016);
+    assertEquals(3, delegate.queries);
+  }
+
+  @Test
+  public void testReturnedListsAreCopies() {
+    classUnderTest.fetchAllByYear(2017).clear();
+    assertEquals(3, classUnderTest.fetchAllByYear(2017).size());
+  }
+
+  /**
+   * Serves up made up season data, and counts the number of "queries" run.
+   */
+  private static class FakeSeasonDataDao implements SeasonDataDao {
+
+    int queries;
+    List<Integer> lastYearsFetched;
+
+    @Override
+    public List<SeasonData> fetchAllByYear(Integer year) {
+      queries++;
+      List<SeasonData> ret = new ArrayList<>();
+      for (String teamName : new String[] { "Gonzaga", "North Carolina", "Oregon" }) {
+        SeasonData seasonData = new SeasonData();
+        seasonData.setYear(year);
+        seasonData.setTeamName(teamName);
+        ret.add(seasonData);
+      }
+      return ret;
+    }
+
+    @Override
+    public SeasonData fetchByYearAndTeamName(Integer year, String teamName) {
+      return fetchByYearAndTeamNames(year, Arrays.asList(teamName)).get(teamName);
+    }
+
+    @Override
+    public Map<String, SeasonData> fetchByYearAndTeamNames(Integer year, Collection<String> teamNames) {
+      Map<String, SeasonData> ret = new LinkedHashMap<>();
+      for (SeasonData seasonData : fetchAllByYear(year)) {
+        if (teamNames.contains(seasonData.getTeamName())) {
+          ret.put(seasonData.getTeamName(), seasonData);
+        }
+      }
+      return ret;
+    }
+
+    @Override
+    public Map<Integer, Map<String, SeasonData>> fetchAllByYears(Collection<Integer> years) {
+      lastYearsFetched = new ArrayList<>(years);
+      Map<Integer, Map<String, SeasonData>> ret = new LinkedHashMap<>();
+      for (Integer year : years) {
+        Map<String, SeasonData> seasonDataByTeamName = new LinkedHashMap<>();
+        for (SeasonData seasonData : fetchAllByYear(year)) {
+          seasonDataByTeamName.put(seasonData.getTeamName(), seasonData);
+        }
+        ret.put(year, seasonDataByTeamName);
+      }
+      // One query, no matter how many years
+      queries -= years.size() - 1;
+      return ret;
+    }
+
+  }
+
+}
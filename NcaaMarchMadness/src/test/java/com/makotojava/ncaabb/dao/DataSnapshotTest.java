@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.makotojava.ncaabb.model.SeasonAnalytics;
+import com.makotojava.ncaabb.model.SeasonData;
+import com.makotojava.ncaabb.model.TournamentAnalytics;
+import com.makotojava.ncaabb.model.TournamentResult;
+
+/**
+ * Writes snapshots to a temporary file and reads them back, so no database is needed.
+ */
+public class DataSnapshotTest {
+
+  private File snapshotFile;
+
+  @Before
+  public void setUp() throws Exception {
+    snapshotFile = File.createTempFile("DataSnapshotTest", ".snapshot");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    snapshotFile.delete();
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    DataSnapshot dataSnapshot = new DataSnapshot();
+    SeasonData gonzaga = createSeasonData(2017, "Gonzaga", new BigDecimal("87.4"));
+    SeasonData northCarolina = createSeasonData(2017, "North Carolina", new BigDecimal("85.1"));
+    gonzaga.setT3pPercentage(new BigDecimal("0.387"));
+    SeasonAnalytics seasonAnalytics = new SeasonAnalytics();
+    seasonAnalytics.setYear(2017);
+    seasonAnalytics.setMinAvgPointsPg(new BigDecimal("56.2"));
+    seasonAnalytics.setMaxNumDq(new BigDecimal("12"));
+    TournamentResult tournamentResult = new TournamentResult();
+    tournamentResult.setId(42);
+    tournamentResult.setYear(2017);
+    tournamentResult.setGameDate(Date.valueOf("2017-04-03"));
+    tournamentResult.setWinningTeamName("North Carolina");
+    tournamentResult.setWinningScore(71);
+    tournamentResult.setLosingTeamName("Gonzaga");
+    tournamentResult.setLosingScore(65);
+    TournamentAnalytics tournamentAnalytics = new TournamentAnalytics();
+    tournamentAnalytics.setYear(2017);
+    tournamentAnalytics.setMinScore(39);
+    tournamentAnalytics.setMaxScore(103);
+    dataSnapshot.addYear(2017, Arrays.asList(gonzaga, northCarolina), seasonAnalytics,
+        Arrays.asList(tournamentResult), tournamentAnalytics);
+    dataSnapshot.addYear(2016, Collections.<SeasonData> emptyList(), null, Collections.<TournamentResult> emptyList(),
+        null);
+    dataSnapshot.write(snapshotFile.getPath());
+
+    DataSnapshot loaded = DataSnapshot.load(snapshotFile.getPath());
+    assertEquals(Arrays.asList(2017, 2016), loaded.getYears());
+    Map<String, SeasonData> seasonData = loaded.getSeasonData(2017);
+    assertEquals(Arrays.asList("Gonzaga", "North Carolina"), Arrays.asList(seasonData.keySet().toArray()));
+    assertEquals(Integer.valueOf(2017), seasonData.get("Gonzaga").getYear());
+    assertEquals(new BigDecimal("87.40000"), seasonData.get("Gonzaga").getAvgPointsPerGame());
+    assertEquals(new BigDecimal("0.48710"), seasonData.get("Gonzaga").getFgPercentage());
+    assertEquals(new BigDecimal("-3.25000"), seasonData.get("Gonzaga").getReboundMargin());
+    assertEquals(new BigDecimal("0.38700"), seasonData.get("Gonzaga").getT3pPercentage());
+    assertNull(seasonData.get("North Carolina").getT3pPercentage());
+    assertEquals(new BigDecimal("56.2"), loaded.getSeasonAnalytics(2017).getMinAvgPointsPg());
+    assertEquals(new BigDecimal("12.00000"), loaded.getSeasonAnalytics(2017).getMaxNumDq());
+    assertNull(loaded.getSeasonAnalytics(2017).getMaxAvgPointsPg());
+    List<TournamentResult> tournamentResults = loaded.getTournamentResults(2017);
+    assertEquals(1, tournamentResults.size());
+    assertEquals(Integer.valueOf(42), tournamentResults.get(0).getId());
+    assertEquals(Date.valueOf("2017-04-03"), tournamentResults.get(0).getGameDate());
+    assertEquals("North Carolina", tournamentResults.get(0).getWinningTeamName());
+    assertEquals(Integer.valueOf(65), tournamentResults.get(0).getLosingScore());
+    assertEquals(Integer.valueOf(103), loaded.getTournamentAnalytics(2017).getMaxScore());
+    assertTrue(loaded.getSeasonData(2016).isEmpty());
+    assertNull(loaded.getSeasonAnalytics(2016));
+    assertNull(loaded.getTournamentAnalytics(2016));
+    // Not in the snapshot at all
+    assertTrue(loaded.getTournamentResults(2010).isEmpty());
+  }
+
+  @Test
+  public void testSnapshotDaos() throws Exception {
+    DataSnapshot dataSnapshot = new DataSnapshot();
+    dataSnapshot.addYear(2017, Arrays.asList(createSeasonData(2017, "Gonzaga", new BigDecimal("87.4"))), null,
+        Collections.<TournamentResult> emptyList(), null);
+    SeasonDataDao seasonDataDao = new SeasonDataSnapshotDao(dataSnapshot);
+    assertEquals("Gonzaga", seasonDataDao.fetchByYearAndTeamName(2017, "Gonzaga").getTeamName());
+    assertNull(seasonDataDao.fetchByYearAndTeamName(2016, "Gonzaga"));
+    assertEquals(1, seasonDataDao.fetchByYearAndTeamNames(2017, Arrays.asList("Gonzaga", "Makoto Tech")).size());
+    assertEquals(1, seasonDataDao.fetchAllByYears(Arrays.asList(2016, 2017)).size());
+    seasonDataDao.fetchAllByYear(2017).clear();
+    assertEquals(1, seasonDataDao.fetchAllByYear(2017).size());
+  }
+
+  @Test
+  public void testNotASnapshotFile() throws Exception {
+    try (FileOutputStream out = new FileOutputStream(snapshotFile)) {
+      out.write("year,team_name\n".getBytes("UTF-8"));
+    }
+    try {
+      DataSnapshot.load(snapshotFile.getPath());
+      fail("Should not have loaded");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  private static SeasonData createSeasonData(Integer year, String teamName, BigDecimal avgPointsPerGame) {
+    SeasonData ret = new SeasonData();
+    ret.setYear(year);
+    ret.setTeamName(teamName);
+    ret.setAvgPointsPerGame(avgPointsPerGame);
+    ret.setFgPercentage(new BigDecimal("0.4871"));
+    ret.setReboundMargin(new BigDecimal("-3.25"));
+    ret.setNumDq(new BigDecimal("2"));
+    return ret;
+  }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Exercises the pool using fake (in-memory) connections, so no database is needed.
+ */
+public class PooledDataSourceTest {
+
+  private FakeDataSource physicalDataSource;
+  private PooledDataSource classUnderTest;
+
+  @Before
+  public void setUp() throws Exception {
+    physicalDataSource = new FakeDataSource();
+    classUnderTest = new PooledDataSource(physicalDataSource, 2, 100, "SELECT 1", 0, 4);
+  }
+
+  @Test
+  public void testConnectionsAreReused() throws Exception {
+    Connection connection = classUnderTest.getConnection();
+    assertEquals(1, classUnderTest.getActiveCount());
+    connection.close();
+    assertEquals(0, classUnderTest.getActiveCount());
+    assertEquals(1, classUnderTest.getIdleCount());
+    assertTrue(connection.isClosed());
+    connection = classUnderTest.getConnection();
+    connection.close();
+    assertEquals(1, physicalDataSource.connectionsOpened.get());
+    assertEquals(2, classUnderTest.getAcquireCount());
+    // Idle connection was validated before it was handed out again
+    assertEquals(1, physicalDataSource.validationQueriesRun.get());
+  }
+
+  @Test
+  public void testPoolIsBounded() throws Exception {
+    Connection connection1 = classUnderTest.getConnection();
+    Connection connection2 = classUnderTest.getConnection();
+    try {
+      classUnderTest.getConnection();
+      fail("Pool should have been exhausted");
+    } catch (SQLException e) {
+      // Expected
+    }
+    assertEquals(2, classUnderTest.getActiveCount());
+    connection1.close();
+    connection1.close();// Closing twice must not free up two slots
+    Connection connection3 = classUnderTest.getConnection();
+    assertEquals(2, classUnderTest.getActiveCount());
+    connection2.close();
+    connection3.close();
+    assertEquals(2, physicalDataSource.connectionsOpened.get());
+  }
+
+  @Test
+  public void testPreparedStatementsAreCached() throws Exception {
+    String sql = "SELECT t.* FROM v_season_data t WHERE t.year = ?";
+    for (int aa = 0; aa < 3; aa++) {
+      try (Connection connection = classUnderTest.getConnection();
+          PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        preparedStatement.setInt(1, 2017);
+      }
+    }
+    assertEquals(1, physicalDataSource.statementsPrepared.get());
+    assertEquals(0, physicalDataSource.statementsClosed.get());
+    assertEquals(2, classUnderTest.getStatementCacheHits());
+    assertEquals(1, classUnderTest.getStatementCacheMisses());
+  }
+
+  @Test
+  public void testStatementInUseIsNotClosedWhenEvicted() throws Exception {
+    try (Connection connection = classUnderTest.getConnection()) {
+      PreparedStatement inUse = connection.prepareStatement("SELECT 0");
+      // Push it out of the cache (which holds 4) while it's still in use
+      for (int aa = 1; aa <= 4; aa++) {
+        connection.prepareStatement("SELECT " + aa).close();
+      }
+      assertFalse(inUse.isClosed());
+      assertEquals(0, physicalDataSource.statementsClosed.get());
+      inUse.close();
+      assertTrue(inUse.isClosed());
+      assertEquals(1, physicalDataSource.statementsClosed.get());
+      // Statements not in use are closed as soon as they're evicted
+      connection.prepareStatement("SELECT 5").close();
+      assertEquals(2, physicalDataSource.statementsClosed.get());
+    }
+  }
+
+  @Test
+  public void testNestedUseOfCachedStatement() throws Exception {
+    String sql = "SELECT t.* FROM v_season_data t WHERE t.year = ?";
+    try (Connection connection = classUnderTest.getConnection()) {
+      try (PreparedStatement outer = connection.prepareStatement(sql)) {
+        try (PreparedStatement inner = connection.prepareStatement(sql)) {
+          assertEquals(2, physicalDataSource.statementsPrepared.get());
+        }
+        // The inner one wasn't cached, so it was closed, and the outer one is still good
+        assertEquals(1, physicalDataSource.statementsClosed.get());
+        assertFalse(outer.isClosed());
+      }
+      connection.prepareStatement(sql).close();
+    }
+    assertEquals(2, physicalDataSource.statementsPrepared.get());
+    assertEquals(1, physicalDataSource.statementsClosed.get());
+    assertEquals(1, classUnderTest.getStatementCacheHits());
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    Connection connection = classUnderTest.getConnection();
+    connection.prepareStatement("SELECT 1").close();
+    connection.close();
+    classUnderTest.close();
+    assertEquals(0, classUnderTest.getIdleCount());
+    assertEquals(0, classUnderTest.getOpenCount());
+    assertEquals(1, physicalDataSource.statementsClosed.get());
+    try {
+      classUnderTest.getConnection();
+      fail("Pool is closed");
+    } catch (SQLException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testDeadConnectionsAreReplaced() throws Exception {
+    Connection connection = classUnderTest.getConnection();
+    connection.close();
+    physicalDataSource.failValidation = true;
+    connection = classUnderTest.getConnection();
+    assertFalse(connection.isClosed());
+    connection.close();
+    assertEquals(2, physicalDataSource.connectionsOpened.get());
+  }
+
+  /**
+   * Hands out fake connections, and counts what is done with them.
+   */
+  private static class FakeDataSource implements DataSource {
+
+    final AtomicInteger connectionsOpened = new AtomicInteger();
+    final AtomicInteger statementsPrepared = new AtomicInteger();
+    final AtomicInteger statementsClosed = new AtomicInteger();
+    final AtomicInteger validationQueriesRun = new AtomicInteger();
+    volatile boolean failValidation;
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      connectionsOpened.incrementAndGet();
+      boolean[] closed = new boolean[1];
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "close":
+              closed[0] = true;
+              return null;
+            case "isClosed":
+              return closed[0];
+            case "getAutoCommit":
+              return true;
+            case "prepareStatement":
+              statementsPrepared.incrementAndGet();
+              return fakeStatement(PreparedStatement.class);
+            case "createStatement":
+              return fakeStatement(Statement.class);
+            default:
+              return null;
+            }
+          });
+    }
+
+    private Object fakeStatement(Class<?> statementInterface) {
+      boolean[] closed = new boolean[1];
+      return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { statementInterface },
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "close":
+              if (statementInterface == PreparedStatement.class) {
+                statementsClosed.incrementAndGet();
+              }
+              closed[0] = true;
+              return null;
+            case "isClosed":
+              return closed[0];
+            case "execute":
+              validationQueriesRun.incrementAndGet();
+              if (failValidation) {
+                throw new SQLException("Connection reset");
+              }
+              return true;
+            default:
+              return null;
+            }
+          });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+      return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+      return 0;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+      throw new SQLException("Not a wrapper");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+      return false;
+    }
+
+  }
+
+}
@@ -16,9 +16,13 @@
 package com.makotojava.ncaabb.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.junit.Before;
@@ -181,4 +185,37 @@ public class SeasonDataJdbcDaoTest {
     log.info("*** END Test ***");
   }
 
+  @Test
+  public void testFetchByYearAndTeamNames_2013() {
+    log.info("*** BEGIN Test ***");
+    Integer year = 2013;
+    // Kentucky not in the big dance in 2013, so it should not be in the results
+    Map<String, SeasonData> results =
+        classUnderTest.fetchByYearAndTeamNames(year, Arrays.asList("Duke", "Kentucky", "Louisville"));
+    assertEquals(2, results.size());
+    assertEquals("Duke", results.get("Duke").getTeamName());
+    assertEquals("Louisville", results.get("Louisville").getTeamName());
+    assertFalse(results.containsKey("Kentucky"));
+    log.info("*** END Test ***");
+  }
+
+  @Test
+  public void testFetchByYearAndTeamNames_Empty() {
+    log.info("*** BEGIN Test ***");
+    Map<String, SeasonData> results = classUnderTest.fetchByYearAndTeamNames(2017, Arrays.<String> asList());
+    assertTrue(results.isEmpty());
+    log.info("*** END Test ***");
+  }
+
+  @Test
+  public void testFetchAllByYears() {
+    log.info("*** BEGIN Test ***");
+    Map<Integer, Map<String, SeasonData>> results = classUnderTest.fetchAllByYears(Arrays.asList(2011, 2017));
+    assertEquals(2, results.size());
+    assertEquals(68, results.get(2011).size());
+    assertEquals(68, results.get(2017).size());
+    assertEquals(Integer.valueOf(2017), results.get(2017).get("Kentucky").getYear());
+    log.info("*** END Test ***");
+  }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class ArchitectureEvolverTest {
+
+  private static final int NUMBER_OF_INPUTS = 23;
+  private static final int NUMBER_OF_OUTPUTS = 2;
+  private static final int MAX_HIDDEN_LAYERS = 4;
+
+  private final ArchitectureEvolver classUnderTest =
+      new ArchitectureEvolver(NUMBER_OF_INPUTS, NUMBER_OF_OUTPUTS, MAX_HIDDEN_LAYERS);
+
+  @Test
+  public void testMutate() {
+    Random random = new Random(1);
+    List<Integer> network = Arrays.asList(NUMBER_OF_INPUTS, 10, NUMBER_OF_OUTPUTS);
+    for (int aa = 0; aa < 1000; aa++) {
+      List<Integer> child = classUnderTest.mutate(network, random);
+      assertValid(child);
+      network = child;
+    }
+  }
+
+  @Test
+  public void testMutate_DoesNotChangeParent() {
+    List<Integer> network = Arrays.asList(NUMBER_OF_INPUTS, 10, 5, NUMBER_OF_OUTPUTS);
+    classUnderTest.mutate(network, new Random(1));
+    assertEquals(Arrays.asList(NUMBER_OF_INPUTS, 10, 5, NUMBER_OF_OUTPUTS), network);
+  }
+
+  @Test
+  public void testCrossover() {
+    Random random = new Random(1);
+    List<Integer> parent = Arrays.asList(NUMBER_OF_INPUTS, 40, 30, 20, 10, NUMBER_OF_OUTPUTS);
+    List<Integer> otherParent = Arrays.asList(NUMBER_OF_INPUTS, 4, 3, 5, 6, NUMBER_OF_OUTPUTS);
+    for (int aa = 0; aa < 1000; aa++) {
+      List<Integer> child = classUnderTest.crossover(parent, otherParent, random);
+      assertValid(child);
+      //
+      // Starts with the first parent, ends with the other one
+      assertEquals(parent.get(1), child.get(1));
+      assertEquals(otherParent.get(otherParent.size() - 2), child.get(child.size() - 2));
+    }
+  }
+
+  @Test
+  public void testBreed_SameSeedSameChildren() {
+    List<List<Integer>> population = Arrays.asList(
+        Arrays.asList(NUMBER_OF_INPUTS, 12, NUMBER_OF_OUTPUTS),
+        Arrays.asList(NUMBER_OF_INPUTS, 20, 8, NUMBER_OF_OUTPUTS),
+        Arrays.asList(NUMBER_OF_INPUTS, 30, 15, 6, NUMBER_OF_OUTPUTS));
+    Random random = new Random(42);
+    Random otherRandom = new Random(42);
+    for (int aa = 0; aa < 100; aa++) {
+      List<Integer> child = classUnderTest.breed(population, random);
+      assertValid(child);
+      assertEquals(child, classUnderTest.breed(population, otherRandom));
+    }
+  }
+
+  private void assertValid(List<Integer> network) {
+    assertEquals(NUMBER_OF_INPUTS, network.get(0).intValue());
+    assertEquals(NUMBER_OF_OUTPUTS, network.get(network.size() - 1).intValue());
+    int numberOfHiddenLayers = network.size() - 2;
+    assertTrue(numberOfHiddenLayers >= 1 && numberOfHiddenLayers <= MAX_HIDDEN_LAYERS, network.toString());
+    for (int layerIndex = 1; layerIndex < network.size() - 1; layerIndex++) {
+      int numberOfNeurons = network.get(layerIndex);
+      assertTrue(numberOfNeurons >= classUnderTest.getMinNeuronsPerLayer()
+          && numberOfNeurons <= classUnderTest.getMaxNeuronsPerLayer(), network.toString());
+    }
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import com.makotojava.ncaabb.dao.DataSnapshot;
+import com.makotojava.ncaabb.util.NetworkProperties;
+
+@RunWith(JUnitPlatform.class)
+public class DataSnapshotExporterTest {
+
+  private File baseDirectory;
+  private File snapshotFile;
+  private String previousPropertiesFileName;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    baseDirectory = Files.createTempDirectory("data-snapshot-exporter-test").toFile();
+    snapshotFile = new File(baseDirectory, "ncaabb-data.snapshot");
+    //
+    // Configured to read from the snapshot, which doesn't exist yet
+    Properties properties = new Properties();
+    properties.setProperty(NetworkProperties.BASE_DIRECTORY, baseDirectory.getPath());
+    properties.setProperty("dao.source", NetworkProperties.DAO_SOURCE_SNAPSHOT);
+    properties.setProperty("snapshot.file.name", snapshotFile.getName());
+    File propertiesFile = new File(baseDirectory, "network.properties");
+    try (OutputStream out = new FileOutputStream(propertiesFile)) {
+      properties.store(out, null);
+    }
+    previousPropertiesFileName = System.setProperty(NetworkProperties.NETWORK_PROPERTIES_FILE,
+        propertiesFile.getPath());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (previousPropertiesFileName == null) {
+      System.clearProperty(NetworkProperties.NETWORK_PROPERTIES_FILE);
+    } else {
+      System.setProperty(NetworkProperties.NETWORK_PROPERTIES_FILE, previousPropertiesFileName);
+    }
+    for (File file : baseDirectory.listFiles()) {
+      file.delete();
+    }
+    baseDirectory.delete();
+  }
+
+  @Test
+  public void testGo_SnapshotDaoSourceWithoutSnapshotFile() throws IOException {
+    assertFalse(snapshotFile.exists());
+    DataSnapshotExporter classUnderTest = new DataSnapshotExporter(new EmptyDataSource());
+    classUnderTest.go(new Integer[] { 2016, 2017 }, snapshotFile.getPath());
+    assertTrue(snapshotFile.exists());
+    DataSnapshot dataSnapshot = DataSnapshot.load(snapshotFile.getPath());
+    assertEquals(Arrays.asList(2016, 2017), dataSnapshot.getYears());
+    assertTrue(dataSnapshot.getSeasonData(2016).isEmpty());
+    assertNull(dataSnapshot.getSeasonAnalytics(2017));
+  }
+
+  /**
+   * A DB with every table empty: every query comes back with no rows.
+   */
+  private static class EmptyDataSource implements DataSource {
+
+    @Override
+    public Connection getConnection() {
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "prepareStatement":
+              return emptyStatement();
+            case "getAutoCommit":
+              return true;
+            default:
+              return defaultValue(method.getReturnType());
+            }
+          });
+    }
+
+    private PreparedStatement emptyStatement() {
+      return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+            if (method.getName().equals("executeQuery")) {
+              return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+                  (resultSet, resultSetMethod, resultSetArgs) -> defaultValue(resultSetMethod.getReturnType()));
+            }
+            return defaultValue(method.getReturnType());
+          });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+      if (type == boolean.class) {
+        return false;
+      }
+      if (type == int.class) {
+        return 0;
+      }
+      return null;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+      return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+      return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+      // Nothing to do
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+      // Nothing to do
+    }
+
+    @Override
+    public int getLoginTimeout() {
+      return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) {
+      return null;
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+      return false;
+    }
+
+  }
+
+}
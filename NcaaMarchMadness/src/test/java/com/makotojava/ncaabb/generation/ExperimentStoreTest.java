@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import com.makotojava.ncaabb.generation.ExperimentStore.ExperimentKey;
+import com.makotojava.ncaabb.generation.ExperimentStore.ExperimentRecord;
+import com.makotojava.ncaabb.generation.ExperimentStore.ExperimentSummary;
+import com.makotojava.ncaabb.util.NetworkConfiguration;
+
+@RunWith(JUnitPlatform.class)
+public class ExperimentStoreTest {
+
+  private static final List<Integer> NEURON_LAYER_DESCRIPTOR = Arrays.asList(46, 23, 2);
+  private static final Integer[] YEARS_FOR_TRAINING_DATA = { 2010, 2011, 2012 };
+  private static final Integer[] YEARS_TO_SIMULATE = { 2013 };
+
+  private File storeFile;
+  private NetworkConfiguration configuration;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    storeFile = File.createTempFile("experiment-store-test", ".store");
+    storeFile.delete();
+    configuration = new NetworkConfiguration(new Properties());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    storeFile.delete();
+  }
+
+  private ExperimentKey createKey(List<Integer> neuronLayerDescriptor) {
+    return ExperimentKey.create(neuronLayerDescriptor, YEARS_FOR_TRAINING_DATA, YEARS_TO_SIMULATE, configuration,
+        configuration.getMaxLearningIterations());
+  }
+
+  private static ExperimentRecord createRecord(ExperimentKey key, int ctvIterationIndex, double winPercentage,
+      boolean networkSaved) {
+    return new ExperimentRecord(key, 12345L, ctvIterationIndex, 100L + ctvIterationIndex, 200L + ctvIterationIndex,
+        System.currentTimeMillis(), new CtvIterationScore(winPercentage, winPercentage - 10.0, 0.005), false,
+        networkSaved, 1000L);
+  }
+
+  @Test
+  public void testAppendAndReopen() throws IOException {
+    ExperimentStore classUnderTest = ExperimentStore.open(storeFile);
+    assertEquals(0, classUnderTest.getNumberOfRecords());
+    assertNull(classUnderTest.getSummary(createKey(NEURON_LAYER_DESCRIPTOR)));
+    assertTrue(classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 0, 60.0, false)));
+    assertTrue(classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 1, 70.0, true)));
+    assertTrue(classUnderTest.append(createRecord(createKey(Arrays.asList(46, 10, 2)), 2, 50.0, false)));
+    //
+    // Everything comes back (by key) when the store is opened again
+    classUnderTest = ExperimentStore.open(storeFile);
+    assertEquals(3, classUnderTest.getNumberOfRecords());
+    assertEquals(2, classUnderTest.getSummaries().size());
+    ExperimentSummary summary = classUnderTest.getSummary(createKey(NEURON_LAYER_DESCRIPTOR));
+    assertEquals(2, summary.getNumberOfRuns());
+    assertEquals(1, summary.getNumberOfSavedNetworks());
+    assertEquals(0, summary.getNumberOfAbortedRuns());
+    assertEquals(65.0, summary.getAverageScore().getWinPercentage());
+    assertEquals(70.0, summary.getBestScore().getWinPercentage());
+    assertEquals(1, classUnderTest.getSummary(createKey(Arrays.asList(46, 10, 2))).getNumberOfRuns());
+  }
+
+  @Test
+  public void testAppend_SameCtvIterationRecordedOnce() throws IOException {
+    ExperimentStore classUnderTest = ExperimentStore.open(storeFile);
+    assertTrue(classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 0, 60.0, false)));
+    assertFalse(classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 0, 60.0, false)));
+    assertFalse(ExperimentStore.open(storeFile).append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 0, 60.0,
+        false)));
+    assertEquals(1, ExperimentStore.open(storeFile).getNumberOfRecords());
+  }
+
+  @Test
+  public void testOpen_PartialRecordCutOff() throws IOException {
+    ExperimentStore classUnderTest = ExperimentStore.open(storeFile);
+    classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 0, 60.0, false));
+    long lengthAfterFirstRecord = storeFile.length();
+    classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 1, 70.0, false));
+    try (RandomAccessFile file = new RandomAccessFile(storeFile, "rw")) {
+      file.setLength(file.length() - 3);
+    }
+    classUnderTest = ExperimentStore.open(storeFile);
+    assertEquals(1, classUnderTest.getNumberOfRecords());
+    assertEquals(lengthAfterFirstRecord, storeFile.length());
+    //
+    // And the store is good as new
+    classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 1, 70.0, false));
+    assertEquals(2, ExperimentStore.open(storeFile).getSummary(createKey(NEURON_LAYER_DESCRIPTOR)).getNumberOfRuns());
+  }
+
+  @Test
+  public void testOpen_DamagedRecordSkipped() throws IOException {
+    ExperimentStore classUnderTest = ExperimentStore.open(storeFile);
+    classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 0, 60.0, false));
+    long lengthAfterFirstRecord = storeFile.length();
+    classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 1, 70.0, false));
+    classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 2, 80.0, false));
+    long length = storeFile.length();
+    //
+    // Flip a byte in the middle of the second record
+    try (RandomAccessFile file = new RandomAccessFile(storeFile, "rw")) {
+      long position = lengthAfterFirstRecord + 10;
+      file.seek(position);
+      int value = file.read();
+      file.seek(position);
+      file.write(value ^ 0xFF);
+    }
+    classUnderTest = ExperimentStore.open(storeFile);
+    //
+    // The records on either side of it are still there, and nothing was cut off
+    assertEquals(2, classUnderTest.getNumberOfRecords());
+    assertEquals(70.0, classUnderTest.getSummary(createKey(NEURON_LAYER_DESCRIPTOR)).getAverageScore()
+        .getWinPercentage());
+    assertEquals(length, storeFile.length());
+    assertTrue(classUnderTest.append(createRecord(createKey(NEURON_LAYER_DESCRIPTOR), 3, 90.0, false)));
+    assertEquals(3, ExperimentStore.open(storeFile).getNumberOfRecords());
+  }
+
+  @Test
+  public void testOpen_PartialHeader() throws IOException {
+    byte[] header = ByteBuffer.allocate(2 * Integer.BYTES).putInt(ExperimentStore.MAGIC_NUMBER)
+        .putInt(ExperimentStore.FORMAT_VERSION).array();
+    for (int length = 1; length < header.length; length++) {
+      Files.write(storeFile.toPath(), Arrays.copyOf(header, length));
+      assertThrows(IOException.class, () -> ExperimentStore.open(storeFile));
+      // Left alone, not treated as an empty store
+      assertEquals(length, storeFile.length());
+    }
+  }
+
+  @Test
+  public void testOpen_NotAStoreFile() throws IOException {
+    Files.write(storeFile.toPath(), "Not an experiment store".getBytes(StandardCharsets.UTF_8));
+    assertThrows(IOException.class, () -> ExperimentStore.open(storeFile));
+  }
+
+  @Test
+  public void testExperimentKey() {
+    assertEquals(createKey(NEURON_LAYER_DESCRIPTOR), createKey(Arrays.asList(46, 23, 2)));
+    assertNotEquals(createKey(NEURON_LAYER_DESCRIPTOR), createKey(Arrays.asList(46, 24, 2)));
+    assertNotEquals(createKey(NEURON_LAYER_DESCRIPTOR), ExperimentKey.create(NEURON_LAYER_DESCRIPTOR,
+        YEARS_FOR_TRAINING_DATA, YEARS_TO_SIMULATE, configuration, 100));
+    assertNotEquals(createKey(NEURON_LAYER_DESCRIPTOR), ExperimentKey.create(NEURON_LAYER_DESCRIPTOR,
+        new Integer[] { 2010, 2011 }, YEARS_TO_SIMULATE, configuration, configuration.getMaxLearningIterations()));
+    Properties properties = new Properties();
+    properties.setProperty("learning.rule.learning.rate", "0.1");
+    assertNotEquals(createKey(NEURON_LAYER_DESCRIPTOR), ExperimentKey.create(NEURON_LAYER_DESCRIPTOR,
+        YEARS_FOR_TRAINING_DATA, YEARS_TO_SIMULATE, new NetworkConfiguration(properties),
+        configuration.getMaxLearningIterations()));
+  }
+
+}
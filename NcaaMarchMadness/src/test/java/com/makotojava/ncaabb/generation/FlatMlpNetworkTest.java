@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.core.data.DataSet;
+import org.neuroph.core.data.DataSetRow;
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.neuroph.nnet.learning.MomentumBackpropagation;
+
+import com.makotojava.ncaabb.util.NetworkUtils;
+
+@RunWith(JUnitPlatform.class)
+public class FlatMlpNetworkTest {
+
+  private static double[] randomInput(Random random, int size) {
+    double[] ret = new double[size];
+    for (int aa = 0; aa < size; aa++) {
+      ret[aa] = random.nextDouble();
+    }
+    return ret;
+  }
+
+  @Test
+  public void testCalculate_MatchesNeuroph() {
+    List<Integer> neuronLayerDescriptor = Arrays.asList(46, 23, 12, 2);
+    MultiLayerPerceptron network = NeurophTestNetworks.createNeurophNetwork(neuronLayerDescriptor, true,
+        new Random(2016));
+    FlatMlpNetwork classUnderTest = FlatMlpNetwork.fromNetwork(network);
+    assertArrayEquals(new int[] { 46, 23, 12, 2 }, classUnderTest.getLayerSizes());
+    Random random = new Random(2017);
+    double[] output = new double[2];
+    for (int aa = 0; aa < 100; aa++) {
+      double[] input = randomInput(random, 46);
+      double[] expected = NetworkUtils.runNetwork(network, input);
+      assertArrayEquals(expected, classUnderTest.calculate(input, output), 1.0e-12);
+    }
+  }
+
+  @Test
+  public void testCalculate_MatchesNeuroph_NoBias() {
+    List<Integer> neuronLayerDescriptor = Arrays.asList(46, 23, 2);
+    MultiLayerPerceptron network = NeurophTestNetworks.createNeurophNetwork(neuronLayerDescriptor, false,
+        new Random(2017));
+    FlatMlpNetwork classUnderTest = FlatMlpNetwork.fromNetwork(network);
+    Random random = new Random(2018);
+    double[] output = new double[2];
+    for (int aa = 0; aa < 100; aa++) {
+      double[] input = randomInput(random, 46);
+      double[] expected = NetworkUtils.runNetwork(network, input);
+      assertArrayEquals(expected, classUnderTest.calculate(input, output), 1.0e-12);
+    }
+  }
+
+  @Test
+  public void testCopyWeightsTo() {
+    List<Integer> neuronLayerDescriptor = Arrays.asList(46, 30, 2);
+    MultiLayerPerceptron network = NeurophTestNetworks.createNeurophNetwork(neuronLayerDescriptor, true,
+        new Random(2018));
+    FlatMlpNetwork classUnderTest = FlatMlpNetwork.fromNetwork(network);
+    classUnderTest.randomizeWeights(-1.0, 1.0, new Random(2019));
+    classUnderTest.copyWeightsTo(network);
+    //
+    // Round trip: the weights in the Neuroph network should now be ours
+    assertArrayEquals(classUnderTest.getWeights(), FlatMlpNetwork.fromNetwork(network).getWeights());
+    Random random = new Random(2020);
+    double[] output = new double[2];
+    for (int aa = 0; aa < 10; aa++) {
+      double[] input = randomInput(random, 46);
+      double[] expected = NetworkUtils.runNetwork(network, input);
+      assertArrayEquals(expected, classUnderTest.calculate(input, output), 1.0e-12);
+    }
+  }
+
+  @Test
+  public void testRandomizeWeights_NoBias() {
+    FlatMlpNetwork classUnderTest = new FlatMlpNetwork(Arrays.asList(4, 3, 2), false);
+    classUnderTest.randomizeWeights(-1.0, 1.0, new Random(2021));
+    double[] weights = classUnderTest.getWeights();
+    // The last column of each row is the bias weight, which must stay zero
+    for (int row = 0; row < 3; row++) {
+      assertEquals(0.0, weights[classUnderTest.getWeightOffset(1) + row * 5 + 4]);
+    }
+    for (int row = 0; row < 2; row++) {
+      assertEquals(0.0, weights[classUnderTest.getWeightOffset(2) + row * 4 + 3]);
+    }
+  }
+
+  @Test
+  public void testLearn_ReducesNetworkError() {
+    FlatMlpNetwork network = new FlatMlpNetwork(Arrays.asList(2, 4, 2), true);
+    network.randomizeWeights(-0.7, 0.7, new Random(2022));
+    DataSet trainingData = new DataSet(2, 2);
+    trainingData.addRow(new DataSetRow(new double[] { 0.0, 0.0 }, new double[] { 0.0, 1.0 }));
+    trainingData.addRow(new DataSetRow(new double[] { 0.0, 1.0 }, new double[] { 1.0, 0.0 }));
+    trainingData.addRow(new DataSetRow(new double[] { 1.0, 0.0 }, new double[] { 1.0, 0.0 }));
+    trainingData.addRow(new DataSetRow(new double[] { 1.0, 1.0 }, new double[] { 0.0, 1.0 }));
+    FlatMomentumBackpropagation classUnderTest = new FlatMomentumBackpropagation(network);
+    classUnderTest.setLearningRate(0.2);
+    classUnderTest.setMomentum(0.25);
+    classUnderTest.setMaxError(0.001);
+    classUnderTest.setMaxIterations(5000);
+    double[] firstEpochNetworkError = new double[1];
+    int[] numberOfStops = new int[1];
+    classUnderTest.setEpochListener((learningRule, learningStopped) -> {
+      if (learningRule.getCurrentIteration() == 1 && !learningStopped) {
+        firstEpochNetworkError[0] = learningRule.getTotalNetworkError();
+      }
+      if (learningStopped) {
+        numberOfStops[0]++;
+      }
+    });
+    classUnderTest.learn(trainingData);
+    assertEquals(1, numberOfStops[0]);
+    assertTrue(classUnderTest.getCurrentIteration() <= 5000);
+    assertTrue(classUnderTest.getTotalNetworkError() < firstEpochNetworkError[0]);
+  }
+
+  @Test
+  public void testLearn_MatchesNeuroph() {
+    List<Integer> neuronLayerDescriptor = Arrays.asList(6, 5, 2);
+    MultiLayerPerceptron network = NeurophTestNetworks.createNeurophNetwork(neuronLayerDescriptor, true,
+        new Random(2023));
+    //
+    // Same starting weights for both engines
+    FlatMlpNetwork flatNetwork = FlatMlpNetwork.fromNetwork(network);
+    Random random = new Random(2024);
+    DataSet trainingData = new DataSet(6, 2);
+    for (int aa = 0; aa < 20; aa++) {
+      double[] input = randomInput(random, 6);
+      double[] desiredOutput = random.nextBoolean() ? new double[] { 1.0, 0.0 } : new double[] { 0.0, 1.0 };
+      trainingData.addRow(new DataSetRow(input, desiredOutput));
+    }
+    int numberOfEpochs = 25;
+    MomentumBackpropagation learningRule = new MomentumBackpropagation();
+    learningRule.setLearningRate(0.2);
+    learningRule.setMomentum(0.25);
+    learningRule.setMaxError(0.0);
+    learningRule.setMaxIterations(numberOfEpochs);
+    network.setLearningRule(learningRule);
+    network.learn(trainingData);
+    FlatMomentumBackpropagation classUnderTest = new FlatMomentumBackpropagation(flatNetwork);
+    classUnderTest.setLearningRate(0.2);
+    classUnderTest.setMomentum(0.25);
+    classUnderTest.setMaxError(0.0);
+    classUnderTest.setMaxIterations(numberOfEpochs);
+    classUnderTest.learn(trainingData);
+    assertEquals(numberOfEpochs, classUnderTest.getCurrentIteration());
+    assertEquals(learningRule.getTotalNetworkError(), classUnderTest.getTotalNetworkError(), 1.0e-12);
+    assertArrayEquals(FlatMlpNetwork.fromNetwork(network).getWeights(), flatNetwork.getWeights(), 1.0e-9);
+  }
+
+}
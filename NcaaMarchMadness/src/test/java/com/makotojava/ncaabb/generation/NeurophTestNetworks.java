@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import java.util.List;
+import java.util.Random;
+
+import org.neuroph.core.Connection;
+import org.neuroph.core.Layer;
+import org.neuroph.core.Neuron;
+import org.neuroph.core.input.WeightedSum;
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.neuroph.util.NeuronProperties;
+
+/**
+ * FlatMlpNetworkTest and BatchNetworkEvaluatorTest both check our network code against
+ * Neuroph, and both need a Neuroph MultiLayerPerceptron set up the way the trainer sets
+ * one up. Neuroph's own randomizeWeights() can't be given a seed, which made those tests
+ * run against a different network every time, so the weights are filled in here instead.
+ *
+ * @author J Steven Perry
+ *
+ */
+public final class NeurophTestNetworks {
+
+  private NeurophTestNetworks() {
+    // Can't touch this
+  }
+
+  /**
+   * Creates a (Sigmoid, WeightedSum) MultiLayerPerceptron, drawing every weight from the
+   * specified Random, in [-0.7, 0.7).
+   *
+   * @param neuronLayerDescriptor
+   *          The number of neurons in each layer.
+   * @param useBias
+   *          Whether or not the layers get a bias neuron.
+   * @param random
+   *          Where the weights come from.
+   *
+   * @return MultiLayerPerceptron - the network.
+   */
+  public static MultiLayerPerceptron createNeurophNetwork(List<Integer> neuronLayerDescriptor, boolean useBias,
+      Random random) {
+    NeuronProperties neuronProperties = new NeuronProperties();
+    neuronProperties.setProperty("transferFunction", MlpNetworkTrainer.NEURON_PROPERTY_TRANSFER_FUNCTION);
+    neuronProperties.setProperty("inputFunction", WeightedSum.class);
+    neuronProperties.setProperty("useBias", useBias);
+    MultiLayerPerceptron ret = new MultiLayerPerceptron(neuronLayerDescriptor, neuronProperties);
+    for (Layer layer : ret.getLayers()) {
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronsCount(); neuronIndex++) {
+        Neuron neuron = layer.getNeuronAt(neuronIndex);
+        for (Connection connection : neuron.getInputConnections()) {
+          connection.getWeight().setValue(-0.7 + 1.4 * random.nextDouble());
+        }
+      }
+    }
+    return ret;
+  }
+
+}
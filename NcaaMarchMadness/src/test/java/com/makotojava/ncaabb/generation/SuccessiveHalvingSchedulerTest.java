@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class SuccessiveHalvingSchedulerTest {
+
+  @Test
+  public void testSchedule() {
+    SuccessiveHalvingScheduler classUnderTest = new SuccessiveHalvingScheduler(9, 3, 10, 20000);
+    assertEquals(3, classUnderTest.getNumberOfRounds());
+    assertEquals(9, classUnderTest.computeNumberOfCandidates(0));
+    assertEquals(3, classUnderTest.computeNumberOfCandidates(1));
+    assertEquals(1, classUnderTest.computeNumberOfCandidates(2));
+    assertEquals(1, classUnderTest.computeNumberOfIterations(0));
+    assertEquals(3, classUnderTest.computeNumberOfIterations(1));
+    assertEquals(10, classUnderTest.computeNumberOfIterations(2));
+    assertEquals(2222, classUnderTest.computeMaxLearningIterations(0));
+    assertEquals(6666, classUnderTest.computeMaxLearningIterations(1));
+    assertEquals(20000, classUnderTest.computeMaxLearningIterations(2));
+  }
+
+  @Test
+  public void testSchedule_UnevenNumberOfCandidates() {
+    SuccessiveHalvingScheduler classUnderTest = new SuccessiveHalvingScheduler(5, 2, 10, 20000);
+    // 5 -> 3 -> 2 -> 1
+    assertEquals(4, classUnderTest.getNumberOfRounds());
+    assertEquals(3, classUnderTest.computeNumberOfCandidates(1));
+    assertEquals(2, classUnderTest.computeNumberOfCandidates(2));
+    assertEquals(1, classUnderTest.computeNumberOfCandidates(3));
+    assertEquals(1, classUnderTest.computeNumberOfIterations(0));
+    assertEquals(2500, classUnderTest.computeMaxLearningIterations(0));
+  }
+
+  @Test
+  public void testSchedule_OneCandidate() {
+    SuccessiveHalvingScheduler classUnderTest = new SuccessiveHalvingScheduler(1, 3, 10, 20000);
+    assertEquals(1, classUnderTest.getNumberOfRounds());
+    assertEquals(10, classUnderTest.computeNumberOfIterations(0));
+    assertEquals(20000, classUnderTest.computeMaxLearningIterations(0));
+  }
+
+  @Test
+  public void testSchedule_BadArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new SuccessiveHalvingScheduler(0, 3, 10, 20000));
+    assertThrows(IllegalArgumentException.class, () -> new SuccessiveHalvingScheduler(9, 1, 10, 20000));
+  }
+
+  @Test
+  public void testSelectSurvivors() {
+    SuccessiveHalvingScheduler classUnderTest = new SuccessiveHalvingScheduler(6, 2, 10, 20000);
+    List<String> candidates = Arrays.asList("A", "B", "C", "D", "E", "F");
+    List<List<CtvIterationScore>> scores = new ArrayList<>();
+    // A: never validated, error too high
+    scores.add(Collections.singletonList(new CtvIterationScore(0.0, 0.0, 0.5)));
+    // B: best on average
+    scores.add(Arrays.asList(new CtvIterationScore(70.0, 60.0, 0.1), new CtvIterationScore(72.0, 62.0, 0.1)));
+    // C and D: same win percentage, D is more symmetric
+    scores.add(Collections.singletonList(new CtvIterationScore(68.0, 50.0, 0.1)));
+    scores.add(Collections.singletonList(new CtvIterationScore(68.0, 58.0, 0.1)));
+    // E and F: same as C, but F has the lower network error
+    scores.add(Collections.singletonList(new CtvIterationScore(68.0, 50.0, 0.2)));
+    scores.add(Collections.singletonList(new CtvIterationScore(68.0, 50.0, 0.05)));
+    assertEquals(Arrays.asList("B", "D", "F"), classUnderTest.selectSurvivors(candidates, scores, 0));
+  }
+
+  @Test
+  public void testSelectSurvivors_TiesGoToFirstCandidate() {
+    SuccessiveHalvingScheduler classUnderTest = new SuccessiveHalvingScheduler(3, 3, 10, 20000);
+    List<String> candidates = Arrays.asList("A", "B", "C");
+    List<List<CtvIterationScore>> scores = new ArrayList<>();
+    for (int aa = 0; aa < candidates.size(); aa++) {
+      scores.add(Collections.singletonList(new CtvIterationScore(60.0, 50.0, 0.1)));
+    }
+    assertEquals(Collections.singletonList("A"), classUnderTest.selectSurvivors(candidates, scores, 0));
+  }
+
+  @Test
+  public void testSelectSurvivors_ByValidationScore() {
+    SuccessiveHalvingScheduler classUnderTest = new SuccessiveHalvingScheduler(3, 3, 10, 20000);
+    List<String> candidates = Arrays.asList("A", "B", "C");
+    List<List<CtvIterationScore>> scores = new ArrayList<>();
+    // A: trained down to a low error, but doesn't validate well
+    scores.add(Collections.singletonList(createScore(0.05, 200, 120, 100, false)));
+    // B: error still above the max when the short round cut it off (aborted), but validates best
+    scores.add(Collections.singletonList(createScore(0.3, 200, 140, 130, true)));
+    // C: lowest error of all, middling in validation
+    scores.add(Collections.singletonList(createScore(0.01, 200, 130, 110, false)));
+    assertEquals(Collections.singletonList("B"), classUnderTest.selectSurvivors(candidates, scores, 0));
+  }
+
+  /**
+   * @return CtvIterationScore - the score of a (validated) CTV iteration with the specified metrics.
+   */
+  private static CtvIterationScore createScore(double networkError, int numberOfGames, int numberOfWins,
+      int numberOfSymmetricWins, boolean aborted) {
+    NetworkMetrics iterationMetrics = new NetworkMetrics();
+    iterationMetrics.setNetworkError(networkError);
+    iterationMetrics.setNumberOfGamesThisIteration(numberOfGames);
+    iterationMetrics.setNumberOfWinsThisIteration(numberOfWins);
+    iterationMetrics.setNumberOfSymmetricWinsThisIteration(numberOfSymmetricWins);
+    iterationMetrics.setNumberOfAbortedRuns(aborted ? 1 : 0);
+    return CtvIterationScore.fromMetrics(iterationMetrics);
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import com.makotojava.ncaabb.generation.TrainingCheckpoint.EpochSnapshot;
+
+@RunWith(JUnitPlatform.class)
+public class TrainingCheckpointTest {
+
+  private static final List<Integer> NEURON_LAYER_DESCRIPTOR = Arrays.asList(4, 5, 2);
+  private static final int NUMBER_OF_ROWS = 20;
+
+  private File checkpointFile;
+  private double[][] inputs;
+  private double[][] desiredOutputs;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    checkpointFile = File.createTempFile("training-checkpoint-test", ".checkpoint");
+    Random random = new Random(17L);
+    inputs = new double[NUMBER_OF_ROWS][NEURON_LAYER_DESCRIPTOR.get(0)];
+    desiredOutputs = new double[NUMBER_OF_ROWS][];
+    for (int rowIndex = 0; rowIndex < NUMBER_OF_ROWS; rowIndex++) {
+      for (int inputIndex = 0; inputIndex < inputs[rowIndex].length; inputIndex++) {
+        inputs[rowIndex][inputIndex] = random.nextDouble();
+      }
+      desiredOutputs[rowIndex] = (random.nextBoolean()) ? new double[] { 1.0, 0.0 } : new double[] { 0.0, 1.0 };
+    }
+  }
+
+  @AfterEach
+  public void tearDown() {
+    checkpointFile.delete();
+  }
+
+  private static FlatMomentumBackpropagation createLearningRule(int maxIterations) {
+    FlatMlpNetwork network = new FlatMlpNetwork(NEURON_LAYER_DESCRIPTOR, true);
+    network.randomizeWeights(-0.7, 0.7, new Random(29L));
+    FlatMomentumBackpropagation ret = new FlatMomentumBackpropagation(network);
+    ret.setLearningRate(0.1);
+    ret.setMomentum(0.5);
+    ret.setMaxError(0.0);
+    ret.setMaxIterations(maxIterations);
+    return ret;
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    NetworkMetrics metrics = new NetworkMetrics();
+    metrics.setLayerStructure("4x5x2");
+    metrics.setSimulationYears(new Integer[] { 2015, 2016 });
+    metrics.setNumberOfIterationsSoFar(3);
+    metrics.setNumberOfAcceptableNetworks(1);
+    metrics.setBestNetworkWinPercentage(71.5);
+    metrics.setTotalNumberOfWins(250);
+    metrics.setIterationLearnTime(1234L);
+    metrics.setNetworkError(0.125);
+    Map<List<Integer>, NetworkMetrics> layerStructureMetrics = new LinkedHashMap<>();
+    layerStructureMetrics.put(NEURON_LAYER_DESCRIPTOR, metrics);
+    FlatMomentumBackpropagation learningRule = createLearningRule(3);
+    learningRule.learn(inputs, desiredOutputs);
+    Map<Integer, EpochSnapshot> epochSnapshots = new TreeMap<>();
+    epochSnapshots.put(4, EpochSnapshot.take(learningRule, 0.25, 500L, new Random(7L)));
+    List<CtvIterationScore> ctvIterationScores = Arrays.asList(new CtvIterationScore(65.0, 55.0, 0.1),
+        new CtvIterationScore(0.0, 0.0, 0.4), new CtvIterationScore(70.0, 60.0, 0.09),
+        new CtvIterationScore(62.5, 50.0, 0.11));
+    new TrainingCheckpoint(42L, new Integer[] { 2011, 2012 }, new Integer[] { 2015, 2016 }, "flat", "halving",
+        Collections.singletonList(NEURON_LAYER_DESCRIPTOR), ctvIterationScores, layerStructureMetrics,
+        epochSnapshots).write(checkpointFile);
+
+    TrainingCheckpoint checkpoint = TrainingCheckpoint.read(checkpointFile);
+    assertEquals(42L, checkpoint.getRunSeed());
+    assertArrayEquals(new Integer[] { 2011, 2012 }, checkpoint.getYearsForTrainingData());
+    assertArrayEquals(new Integer[] { 2015, 2016 }, checkpoint.getYearsToSimulate());
+    assertEquals("flat", checkpoint.getNetworkEngine());
+    assertEquals("halving", checkpoint.getSearchStrategy());
+    assertEquals(Collections.singletonList(NEURON_LAYER_DESCRIPTOR), checkpoint.getNetworks());
+    assertEquals(4, checkpoint.getNumberOfCompletedIterations());
+    CtvIterationScore ctvIterationScore = checkpoint.getCtvIterationScores().get(2);
+    assertEquals(70.0, ctvIterationScore.getWinPercentage());
+    assertEquals(60.0, ctvIterationScore.getSymmetricWinPercentage());
+    assertEquals(0.09, ctvIterationScore.getNetworkError());
+    NetworkMetrics readMetrics = checkpoint.getLayerStructureMetrics().get(NEURON_LAYER_DESCRIPTOR);
+    assertEquals("4x5x2", readMetrics.getLayerStructure());
+    assertArrayEquals(new Integer[] { 2015, 2016 }, readMetrics.getSimulationYears());
+    assertEquals(3, readMetrics.getNumberOfIterationsSoFar());
+    assertEquals(1, readMetrics.getNumberOfAcceptableNetworks());
+    assertEquals(71.5, readMetrics.getBestNetworkWinPercentage());
+    assertEquals(250, readMetrics.getTotalNumberOfWins());
+    assertEquals(1234L, readMetrics.getIterationLearnTime());
+    assertEquals(1234L, readMetrics.getBestLearnTime());
+    assertEquals(0.125, readMetrics.getNetworkError());
+    EpochSnapshot epochSnapshot = checkpoint.getEpochSnapshots().get(4);
+    assertEquals(3, epochSnapshot.getCompletedEpochs());
+    assertEquals(0.25, epochSnapshot.getPreviousEpochBreakNetworkError());
+    assertEquals(500L, epochSnapshot.getLearnTime());
+    assertEquals(new Random(7L).nextLong(), epochSnapshot.restoreRandom().nextLong());
+    assertFalse(new File(checkpointFile.getPath() + ".tmp").exists());
+  }
+
+  @Test
+  public void testEpochSnapshot_ResumesExactly() {
+    //
+    // Train straight through...
+    FlatMomentumBackpropagation uninterrupted = createLearningRule(10);
+    uninterrupted.learn(inputs, desiredOutputs);
+    //
+    // ...and again, but stop part way, snapshot, and pick it up with a brand new learning rule
+    FlatMomentumBackpropagation interrupted = createLearningRule(4);
+    interrupted.learn(inputs, desiredOutputs);
+    EpochSnapshot epochSnapshot = EpochSnapshot.take(interrupted, 0.0, 0L, new Random(7L));
+    FlatMomentumBackpropagation resumed = createLearningRule(10);
+    resumed.getNetwork().randomizeWeights(-0.7, 0.7, new Random(31L));
+    epochSnapshot.restore(resumed);
+    resumed.setMaxIterations(10);
+    resumed.learn(inputs, desiredOutputs, epochSnapshot.getCompletedEpochs());
+
+    assertEquals(10, resumed.getCurrentIteration());
+    assertArrayEquals(uninterrupted.getNetwork().getWeights(), resumed.getNetwork().getWeights());
+    assertArrayEquals(uninterrupted.getPreviousWeightChanges(), resumed.getPreviousWeightChanges());
+    assertEquals(uninterrupted.getTotalNetworkError(), resumed.getTotalNetworkError());
+  }
+
+  @Test
+  public void testWrite_ReplacesPreviousCheckpoint() throws IOException {
+    Map<List<Integer>, NetworkMetrics> noMetrics = new LinkedHashMap<>();
+    Map<Integer, EpochSnapshot> noSnapshots = new TreeMap<>();
+    List<List<Integer>> networks = Collections.singletonList(NEURON_LAYER_DESCRIPTOR);
+    CtvIterationScore ctvIterationScore = new CtvIterationScore(50.0, 40.0, 0.2);
+    new TrainingCheckpoint(1L, new Integer[] { 2011 }, new Integer[] { 2015 }, "neuroph", "exhaustive", networks,
+        Collections.emptyList(), noMetrics, noSnapshots).write(checkpointFile);
+    new TrainingCheckpoint(1L, new Integer[] { 2011 }, new Integer[] { 2015 }, "neuroph", "exhaustive", networks,
+        Arrays.asList(ctvIterationScore, ctvIterationScore), noMetrics, noSnapshots).write(checkpointFile);
+    assertEquals(2, TrainingCheckpoint.read(checkpointFile).getNumberOfCompletedIterations());
+  }
+
+  @Test
+  public void testRead_NotACheckpoint() throws IOException {
+    Files.write(checkpointFile.toPath(), "not really a checkpoint".getBytes(StandardCharsets.UTF_8));
+    assertThrows(IOException.class, () -> TrainingCheckpoint.read(checkpointFile));
+  }
+
+  @Test
+  public void testRead_Truncated() throws IOException {
+    new TrainingCheckpoint(1L, new Integer[] { 2011 }, new Integer[] { 2015 }, "neuroph", "exhaustive",
+        Collections.singletonList(NEURON_LAYER_DESCRIPTOR), Collections.emptyList(), new LinkedHashMap<>(),
+        new TreeMap<>()).write(checkpointFile);
+    byte[] bytes = Files.readAllBytes(checkpointFile.toPath());
+    Files.write(checkpointFile.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+    assertThrows(IOException.class, () -> TrainingCheckpoint.read(checkpointFile));
+  }
+
+}
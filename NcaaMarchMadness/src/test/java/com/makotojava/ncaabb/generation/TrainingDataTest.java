@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.generation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.core.data.DataSet;
+import org.neuroph.core.data.DataSetRow;
+
+@RunWith(JUnitPlatform.class)
+public class TrainingDataTest {
+
+  private static final int INPUT_SIZE = 4;
+  private static final int OUTPUT_SIZE = 2;
+
+  private File trainingDataFile;
+  private File otherTrainingDataFile;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    trainingDataFile = File.createTempFile("training-data-test", ".tdc");
+    otherTrainingDataFile = File.createTempFile("training-data-test", ".tdc");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    trainingDataFile.delete();
+    otherTrainingDataFile.delete();
+  }
+
+  private static DataSet createDataSet(int numberOfRows, long seed) {
+    Random random = new Random(seed);
+    DataSet ret = new DataSet(INPUT_SIZE, OUTPUT_SIZE);
+    for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
+      double[] input = new double[INPUT_SIZE];
+      for (int inputIndex = 0; inputIndex < INPUT_SIZE; inputIndex++) {
+        input[inputIndex] = random.nextDouble();
+      }
+      ret.addRow(new DataSetRow(input, (random.nextBoolean()) ? new double[] { 1.0, 0.0 } : new double[] { 0.0, 1.0 }));
+    }
+    return ret;
+  }
+
+  private static void assertSameRows(List<DataSetRow> expectedRows, TrainingData trainingData) {
+    assertEquals(expectedRows.size(), trainingData.size());
+    double[] input = new double[INPUT_SIZE];
+    double[] desiredOutput = new double[OUTPUT_SIZE];
+    for (int rowIndex = 0; rowIndex < expectedRows.size(); rowIndex++) {
+      trainingData.readInput(rowIndex, input);
+      trainingData.readDesiredOutput(rowIndex, desiredOutput);
+      assertArrayEquals(expectedRows.get(rowIndex).getInput(), input);
+      assertArrayEquals(expectedRows.get(rowIndex).getDesiredOutput(), desiredOutput);
+    }
+  }
+
+  @Test
+  public void testWriteAndMap() throws IOException {
+    DataSet dataSet = createDataSet(25, 1L);
+    TrainingData.write(trainingDataFile, dataSet);
+    TrainingData classUnderTest = TrainingData.map(trainingDataFile);
+    assertEquals(INPUT_SIZE, classUnderTest.getInputSize());
+    assertEquals(OUTPUT_SIZE, classUnderTest.getOutputSize());
+    assertSameRows(dataSet.getRows(), classUnderTest);
+    assertSameRows(dataSet.getRows(), TrainingData.fromDataSet(dataSet));
+  }
+
+  @Test
+  public void testConcatenate() throws IOException {
+    DataSet dataSet = createDataSet(25, 1L);
+    DataSet otherDataSet = createDataSet(10, 2L);
+    TrainingData.write(trainingDataFile, dataSet);
+    TrainingData.write(otherTrainingDataFile, otherDataSet);
+    TrainingData classUnderTest = TrainingData.concatenate(Arrays.asList(TrainingData.map(trainingDataFile),
+        TrainingData.fromDataSet(new DataSet(INPUT_SIZE, OUTPUT_SIZE)), TrainingData.map(otherTrainingDataFile)));
+    List<DataSetRow> expectedRows = new ArrayList<>(dataSet.getRows());
+    expectedRows.addAll(otherDataSet.getRows());
+    assertSameRows(expectedRows, classUnderTest);
+    assertThrows(IndexOutOfBoundsException.class, () -> classUnderTest.readInput(35, new double[INPUT_SIZE]));
+    assertThrows(IllegalArgumentException.class, () -> TrainingData.concatenate(Arrays.asList(classUnderTest,
+        TrainingData.fromDataSet(new DataSet(INPUT_SIZE + 1, OUTPUT_SIZE)))));
+  }
+
+  @Test
+  public void testComputeShuffledOrder() {
+    TrainingData classUnderTest = TrainingData.fromDataSet(createDataSet(50, 1L));
+    List<Integer> expectedOrder = new ArrayList<>();
+    for (int rowIndex = 0; rowIndex < classUnderTest.size(); rowIndex++) {
+      expectedOrder.add(rowIndex);
+    }
+    Collections.shuffle(expectedOrder, new Random(99L));
+    int[] rowOrder = classUnderTest.computeShuffledOrder(new Random(99L));
+    for (int rowIndex = 0; rowIndex < rowOrder.length; rowIndex++) {
+      assertEquals(expectedOrder.get(rowIndex).intValue(), rowOrder[rowIndex]);
+    }
+  }
+
+  @Test
+  public void testLearn_SameAsArrays() throws IOException {
+    DataSet dataSet = createDataSet(30, 1L);
+    TrainingData.write(trainingDataFile, dataSet);
+    TrainingData trainingData = TrainingData.map(trainingDataFile);
+    int[] rowOrder = trainingData.computeShuffledOrder(new Random(5L));
+    double[][] inputs = new double[rowOrder.length][];
+    double[][] desiredOutputs = new double[rowOrder.length][];
+    for (int rowIndex = 0; rowIndex < rowOrder.length; rowIndex++) {
+      inputs[rowIndex] = dataSet.getRows().get(rowOrder[rowIndex]).getInput();
+      desiredOutputs[rowIndex] = dataSet.getRows().get(rowOrder[rowIndex]).getDesiredOutput();
+    }
+    FlatMomentumBackpropagation expected = createLearningRule();
+    expected.learn(inputs, desiredOutputs);
+    FlatMomentumBackpropagation actual = createLearningRule();
+    actual.learn(trainingData, rowOrder, 0);
+    assertArrayEquals(expected.getNetwork().getWeights(), actual.getNetwork().getWeights());
+    assertEquals(expected.getTotalNetworkError(), actual.getTotalNetworkError());
+  }
+
+  private static FlatMomentumBackpropagation createLearningRule() {
+    FlatMlpNetwork network = new FlatMlpNetwork(Arrays.asList(INPUT_SIZE, 5, OUTPUT_SIZE), true);
+    network.randomizeWeights(-0.7, 0.7, new Random(29L));
+    FlatMomentumBackpropagation ret = new FlatMomentumBackpropagation(network);
+    ret.setLearningRate(0.1);
+    ret.setMomentum(0.5);
+    ret.setMaxError(0.0);
+    ret.setMaxIterations(20);
+    return ret;
+  }
+
+  @Test
+  public void testToDataSet_SharesRows() throws IOException {
+    DataSet dataSet = createDataSet(30, 1L);
+    TrainingData.write(trainingDataFile, dataSet);
+    TrainingData classUnderTest = TrainingData.map(trainingDataFile);
+    int[] rowOrder = classUnderTest.computeShuffledOrder(new Random(5L));
+    DataSet shuffled = classUnderTest.toDataSet(rowOrder);
+    List<DataSetRow> expectedRows = new ArrayList<>();
+    for (int rowIndex : rowOrder) {
+      expectedRows.add(dataSet.getRows().get(rowIndex));
+    }
+    assertSameRows(expectedRows, TrainingData.fromDataSet(shuffled));
+    //
+    // Same seed, same order. And no matter the order, the rows are the same objects.
+    DataSet shuffledAgain = classUnderTest.toDataSet(classUnderTest.computeShuffledOrder(new Random(5L)));
+    DataSet reshuffled = classUnderTest.toDataSet(classUnderTest.computeShuffledOrder(new Random(6L)));
+    for (int rowIndex = 0; rowIndex < rowOrder.length; rowIndex++) {
+      assertSame(shuffled.getRows().get(rowIndex), shuffledAgain.getRows().get(rowIndex));
+    }
+    assertTrue(reshuffled.getRows().containsAll(shuffled.getRows()));
+  }
+
+  @Test
+  public void testMap_NotATrainingDataFile() throws IOException {
+    Files.write(trainingDataFile.toPath(), "Not a training data file".getBytes(StandardCharsets.UTF_8));
+    assertThrows(IOException.class, () -> TrainingData.map(trainingDataFile));
+  }
+
+  @Test
+  public void testMap_Truncated() throws IOException {
+    TrainingData.write(trainingDataFile, createDataSet(25, 1L));
+    try (RandomAccessFile file = new RandomAccessFile(trainingDataFile, "rw")) {
+      file.setLength(file.length() - Double.BYTES);
+    }
+    assertThrows(IOException.class, () -> TrainingData.map(trainingDataFile));
+  }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import com.makotojava.ncaabb.util.StatsUtils;
+
+/**
+ * Checks the primitive normalization against the BigDecimal normalization it replaced
+ * (StatsUtils.normalize()/normalizeInverted(), rounded to StatsUtils.SCALE).
+ */
+@RunWith(JUnitPlatform.class)
+public class FeatureNormalizerTest {
+
+  private static final int NUMBER_OF_INPUTS = 2 * FeatureNormalizer.NUMBER_OF_FEATURES;
+
+  /**
+   * Which features are inverted, in network input order
+   */
+  private static final boolean[] INVERTED = {
+      true, false, true, true, true, true, true, false, false,
+      true, true, false,
+      false, false, false, false, false, false, false, false, false, false, false
+  };
+
+  private static final int NUM_DQ_INDEX = 10;
+
+  @Test
+  public void testMatchesBigDecimalNormalization() {
+    Random random = new Random(2017);
+    for (int analyticsScale : new int[] { 1, 3, 5, 7, 20 }) {
+      BigDecimal min = new BigDecimal("12.3456789012345678901234").setScale(analyticsScale, RoundingMode.HALF_UP);
+      BigDecimal max = new BigDecimal("87.6543210987654321098765").setScale(analyticsScale, RoundingMode.HALF_UP);
+      SeasonAnalytics seasonAnalytics = createSeasonAnalytics(min, max);
+      FeatureNormalizer classUnderTest = new FeatureNormalizer(seasonAnalytics);
+      for (int aa = 0; aa < 2000; aa++) {
+        // Some values out of range on both ends, to check the clamping
+        SeasonData team1 = createSeasonData(random, 0, 100);
+        SeasonData team2 = createSeasonData(random, 0, 100);
+        double[] expected = normalizeWithBigDecimal(seasonAnalytics, min, max, team1, team2);
+        double[] actual = new double[NUMBER_OF_INPUTS + 2];
+        classUnderTest.writeInputs(team1, team2, actual);
+        assertArrayEquals(expected, actual, "Analytics scale " + analyticsScale);
+        assertArrayEquals(expected, new NormalizedData(seasonAnalytics, team1, team2).asInputAndOutput());
+      }
+    }
+  }
+
+  @Test
+  public void testClamping() {
+    SeasonAnalytics seasonAnalytics = createSeasonAnalytics(new BigDecimal("10"), new BigDecimal("20"));
+    FeatureNormalizer classUnderTest = new FeatureNormalizer(seasonAnalytics);
+    double[] low = classUnderTest.normalize(createSeasonData(new BigDecimal("5")));
+    double[] atMin = classUnderTest.normalize(createSeasonData(new BigDecimal("10")));
+    double[] high = classUnderTest.normalize(createSeasonData(new BigDecimal("25")));
+    double[] atMax = classUnderTest.normalize(createSeasonData(new BigDecimal("20")));
+    double[] middle = classUnderTest.normalize(createSeasonData(new BigDecimal("12.5")));
+    for (int aa = 0; aa < FeatureNormalizer.NUMBER_OF_FEATURES; aa++) {
+      double lowValue = INVERTED[aa] ? StatsUtils.MAX_ALLOWABLE_VALUE : StatsUtils.MIN_ALLOWABLE_VALUE;
+      double highValue = INVERTED[aa] ? StatsUtils.MIN_ALLOWABLE_VALUE : StatsUtils.MAX_ALLOWABLE_VALUE;
+      assertEquals(lowValue, low[aa]);
+      assertEquals(lowValue, atMin[aa]);
+      assertEquals(highValue, high[aa]);
+      assertEquals(highValue, atMax[aa]);
+      assertEquals(INVERTED[aa] ? 0.75 : 0.25, middle[aa]);
+    }
+  }
+
+  @Test
+  public void testTiesRoundHalfUp() {
+    // (64.6 - 61.3) / (67.7 - 61.3) = 0.515625 exactly, but 0.51562499999... in doubles
+    assertTie("61.3", "67.7", "64.6", 0.51563);
+    // (44.60032 - 38.2) / (51.0 - 38.2) = 0.5000250 exactly, 0.5000250000000002 in doubles
+    assertTie("38.2", "51.0", "44.60032", 0.50003);
+  }
+
+  @Test
+  public void testMatchesBigDecimalNormalizationForOneDecimalPlaceStats() {
+    // The stats (and so the min/max) mostly have one decimal place, which is where the ties are
+    String[][] minAndMax = { { "61.3", "67.7" }, { "38.2", "51.0" }, { "-7.3", "8.9" }, { "0.7", "1.3" },
+        { "2.1", "6.5" }, { "12.4", "19.6" } };
+    for (String[] pair : minAndMax) {
+      BigDecimal min = new BigDecimal(pair[0]);
+      BigDecimal max = new BigDecimal(pair[1]);
+      SeasonAnalytics seasonAnalytics = createSeasonAnalytics(min, max);
+      FeatureNormalizer classUnderTest = new FeatureNormalizer(seasonAnalytics);
+      for (BigDecimal value = min.subtract(BigDecimal.ONE); value.compareTo(max.add(BigDecimal.ONE)) <= 0;
+          value = value.add(new BigDecimal("0.1"))) {
+        SeasonData team = createSeasonData(value);
+        double[] expected = normalizeWithBigDecimal(seasonAnalytics, min, max, team, team);
+        double[] actual = new double[NUMBER_OF_INPUTS + 2];
+        classUnderTest.writeInputs(team, team, actual);
+        assertArrayEquals(expected, actual, "Value " + value + " between " + min + " and " + max);
+      }
+    }
+  }
+
+  @Test
+  public void testMaxEqualToMinFails() {
+    SeasonAnalytics seasonAnalytics = createSeasonAnalytics(new BigDecimal("10"), new BigDecimal("10"));
+    FeatureNormalizer classUnderTest = new FeatureNormalizer(seasonAnalytics);
+    SeasonData seasonData = createSeasonData(new BigDecimal("10"));
+    assertThrows(ArithmeticException.class, () -> classUnderTest.normalize(seasonData));
+    // Just like the BigDecimal code
+    assertThrows(ArithmeticException.class,
+        () -> StatsUtils.normalize(seasonData.getAvgPointsPerGame(), new BigDecimal("10"), new BigDecimal("10")));
+  }
+
+  @Test
+  public void testWriteInputsInterleaves() {
+    SeasonAnalytics seasonAnalytics = createSeasonAnalytics(new BigDecimal("10"), new BigDecimal("20"));
+    FeatureNormalizer classUnderTest = new FeatureNormalizer(seasonAnalytics);
+    double[] left = classUnderTest.normalize(createSeasonData(new BigDecimal("12.5")));
+    double[] right = classUnderTest.normalize(createSeasonData(new BigDecimal("17.5")));
+    double[] inputAndOutput = { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1 };
+    FeatureNormalizer.writeInputs(left, right, inputAndOutput);
+    for (int aa = 0; aa < FeatureNormalizer.NUMBER_OF_FEATURES; aa++) {
+      assertEquals(left[aa], inputAndOutput[2 * aa]);
+      assertEquals(right[aa], inputAndOutput[2 * aa + 1]);
+    }
+    // Outputs are left alone
+    assertEquals(-1, inputAndOutput[NUMBER_OF_INPUTS]);
+    assertEquals(-1, inputAndOutput[NUMBER_OF_INPUTS + 1]);
+  }
+
+  private static void assertTie(String min, String max, String value, double expected) {
+    SeasonAnalytics seasonAnalytics = createSeasonAnalytics(new BigDecimal(min), new BigDecimal(max));
+    double[] actual = new FeatureNormalizer(seasonAnalytics).normalize(createSeasonData(new BigDecimal(value)));
+    for (int aa = 0; aa < FeatureNormalizer.NUMBER_OF_FEATURES; aa++) {
+      double expectedValue = INVERTED[aa] ? BigDecimal.ONE.subtract(BigDecimal.valueOf(expected)).doubleValue()
+          : expected;
+      assertEquals(expectedValue, actual[aa], "Feature " + aa);
+      assertEquals(expectedValue, normalizeWithBigDecimal(createSeasonData(new BigDecimal(value)).getAvgPointsPerGame(),
+          new BigDecimal(min), new BigDecimal(max), INVERTED[aa]));
+    }
+  }
+
+  /**
+   * The way NormalizedData used to do it: StatsUtils, then round to SCALE (the SeasonData setters).
+   */
+  private static double[] normalizeWithBigDecimal(SeasonAnalytics seasonAnalytics, BigDecimal min, BigDecimal max,
+      SeasonData team1, SeasonData team2) {
+    double[] ret = new double[NUMBER_OF_INPUTS + 2];
+    BigDecimal[] team1Values = values(team1);
+    BigDecimal[] team2Values = values(team2);
+    for (int aa = 0; aa < FeatureNormalizer.NUMBER_OF_FEATURES; aa++) {
+      // The num DQ setters change the scale
+      BigDecimal featureMin = (aa == NUM_DQ_INDEX) ? seasonAnalytics.getMinNumDq() : min;
+      BigDecimal featureMax = (aa == NUM_DQ_INDEX) ? seasonAnalytics.getMaxNumDq() : max;
+      ret[2 * aa] = normalizeWithBigDecimal(team1Values[aa], featureMin, featureMax, INVERTED[aa]);
+      ret[2 * aa + 1] = normalizeWithBigDecimal(team2Values[aa], featureMin, featureMax, INVERTED[aa]);
+    }
+    return ret;
+  }
+
+  private static double normalizeWithBigDecimal(BigDecimal value, BigDecimal min, BigDecimal max,
+      boolean inverted) {
+    BigDecimal normalized = inverted ? StatsUtils.normalizeInverted(value, min, max)
+        : StatsUtils.normalize(value, min, max);
+    return normalized.setScale(StatsUtils.SCALE, RoundingMode.HALF_UP).doubleValue();
+  }
+
+  /**
+   * The SeasonData values, in network input order
+   */
+  private static BigDecimal[] values(SeasonData seasonData) {
+    return new BigDecimal[] {
+        seasonData.getAvgOpponentPointsPerGame(), seasonData.getBlocksPerGame(),
+        seasonData.getNumOpp3pAttemptsPerGame(), seasonData.getOpp3pPercentage(),
+        seasonData.getNumOppFgAttemptsPerGame(), seasonData.getOppFgPercentage(), seasonData.getTurnoversPerGame(),
+        seasonData.getReboundMargin(), seasonData.getStealsPerGame(),
+        seasonData.getFoulsPerGame(), seasonData.getNumDq(), seasonData.getOppTurnoversPerGame(),
+        seasonData.getAvgPointsPerGame(), seasonData.getScoringMarginPerGame(), seasonData.getNumFgAttemptsPerGame(),
+        seasonData.getFgPercentage(), seasonData.getNumFtAttemptsPerGame(), seasonData.getFtPercentage(),
+        seasonData.getNum3pAttemptsPerGame(), seasonData.getNum3pPerGame(), seasonData.getT3pPercentage(),
+        seasonData.getAssistsPerGame(), seasonData.getAtoRatio()
+    };
+  }
+
+  private static SeasonData createSeasonData(Random random, double min, double max) {
+    SeasonData ret = new SeasonData();
+    for (BiConsumer<SeasonData, BigDecimal> setter : seasonDataSetters()) {
+      double value = min + random.nextDouble() * (max - min);
+      setter.accept(ret, BigDecimal.valueOf(value));
+    }
+    return ret;
+  }
+
+  private static SeasonData createSeasonData(BigDecimal value) {
+    SeasonData ret = new SeasonData();
+    for (BiConsumer<SeasonData, BigDecimal> setter : seasonDataSetters()) {
+      setter.accept(ret, value);
+    }
+    return ret;
+  }
+
+  private static List<BiConsumer<SeasonData, BigDecimal>> seasonDataSetters() {
+    return Arrays.<BiConsumer<SeasonData, BigDecimal>> asList(
+        SeasonData::setAvgPointsPerGame,
+        SeasonData::setScoringMarginPerGame,
+        SeasonData::setNumFgAttemptsPerGame,
+        SeasonData::setFgPercentage,
+        SeasonData::setNum3pPerGame,
+        SeasonData::setNum3pAttemptsPerGame,
+        SeasonData::setT3pPercentage,
+        SeasonData::setNumFtAttemptsPerGame,
+        SeasonData::setFtPercentage,
+        SeasonData::setReboundMargin,
+        SeasonData::setAssistsPerGame,
+        SeasonData::setAtoRatio,
+        SeasonData::setAvgOpponentPointsPerGame,
+        SeasonData::setNumOppFgAttemptsPerGame,
+        SeasonData::setOppFgPercentage,
+        SeasonData::setNumOpp3pAttemptsPerGame,
+        SeasonData::setOpp3pPercentage,
+        SeasonData::setBlocksPerGame,
+        SeasonData::setStealsPerGame,
+        SeasonData::setOppTurnoversPerGame,
+        SeasonData::setTurnoversPerGame,
+        SeasonData::setFoulsPerGame,
+        SeasonData::setNumDq);
+  }
+
+  /**
+   * Same min and max for every feature keeps things simple.
+   */
+  private static SeasonAnalytics createSeasonAnalytics(BigDecimal min, BigDecimal max) {
+    SeasonAnalytics ret = new SeasonAnalytics();
+    ret.setMinAvgPointsPg(min);
+    ret.setMaxAvgPointsPg(max);
+    ret.setMinScoringMarginPg(min);
+    ret.setMaxScoringMarginPg(max);
+    ret.setMinNumFgAttemptsPg(min);
+    ret.setMaxNumFgAttemptsPg(max);
+    ret.setMinFgPercentage(min);
+    ret.setMaxFgPercentage(max);
+    ret.setMinNum3pPerGame(min);
+    ret.setMaxNum3pPerGame(max);
+    ret.setMinNum3pAttemptsPg(min);
+    ret.setMaxNum3pAttemptsPg(max);
+    ret.setMinT3pPercentage(min);
+    ret.setMaxT3pPercentage(max);
+    ret.setMinNumFtAttemptsPg(min);
+    ret.setMaxNumFtAttemptsPg(max);
+    ret.setMinFtPercentage(min);
+    ret.setMaxFtPercentage(max);
+    ret.setMinReboundMargin(min);
+    ret.setMaxReboundMargin(max);
+    ret.setMinAssistsPg(min);
+    ret.setMaxAssistsPg(max);
+    ret.setMinAtoRatio(min);
+    ret.setMaxAtoRatio(max);
+    ret.setMinAvgOpponentPointsPg(min);
+    ret.setMaxAvgOpponentPointsPg(max);
+    ret.setMinNumOppFgAttemptsPg(min);
+    ret.setMaxNumOppFgAttemptsPg(max);
+    ret.setMinOppFgPercentage(min);
+    ret.setMaxOppFgPercentage(max);
+    ret.setMinNumOpp3pAttemptsPg(min);
+    ret.setMaxNumOpp3pAttemptsPg(max);
+    ret.setMinOpp3pPercentage(min);
+    ret.setMaxOpp3pPercentage(max);
+    ret.setMinBlocksPg(min);
+    ret.setMaxBlocksPg(max);
+    ret.setMinStealsPg(min);
+    ret.setMaxStealsPg(max);
+    ret.setMinOppTurnoversPg(min);
+    ret.setMaxOppTurnoversPg(max);
+    ret.setMinTurnoversPg(min);
+    ret.setMaxTurnoversPg(max);
+    ret.setMinFoulsPg(min);
+    ret.setMaxFoulsPg(max);
+    ret.setMinNumDq(min.setScale(StatsUtils.SCALE, RoundingMode.HALF_UP));
+    ret.setMaxNumDq(max.setScale(StatsUtils.SCALE, RoundingMode.HALF_UP));
+    return ret;
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.generation.NeurophTestNetworks;
+import com.makotojava.ncaabb.util.NetworkUtils;
+
+@RunWith(JUnitPlatform.class)
+public class BatchNetworkEvaluatorTest {
+
+
+  private static double[][] randomFeatures(Random random, int numberOfRows, int size) {
+    double[][] ret = new double[numberOfRows][size];
+    for (int row = 0; row < numberOfRows; row++) {
+      for (int aa = 0; aa < size; aa++) {
+        ret[row][aa] = random.nextDouble();
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * More networks and rows than fit in a block, with three architectures mixed together,
+   * so every blocking path gets exercised.
+   */
+  private static List<FlatMlpNetwork> createEnsemble(Random random) {
+    List<FlatMlpNetwork> ret = new ArrayList<>();
+    for (int aa = 0; aa < 2 * BatchNetworkEvaluator.NETWORK_BLOCK_SIZE + 3; aa++) {
+      FlatMlpNetwork network;
+      switch (aa % 3) {
+      case 0:
+        network = new FlatMlpNetwork(Arrays.asList(46, 23, 12, 2), true);
+        break;
+      case 1:
+        network = new FlatMlpNetwork(Arrays.asList(46, 30, 2), true);
+        break;
+      default:
+        network = new FlatMlpNetwork(Arrays.asList(46, 23, 12, 2), false);
+        break;
+      }
+      network.randomizeWeights(-0.7, 0.7, random);
+      ret.add(network);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testEvaluate_MatchesFlatMlpNetwork() {
+    Random random = new Random(17L);
+    List<FlatMlpNetwork> networks = createEnsemble(random);
+    BatchNetworkEvaluator classUnderTest = new BatchNetworkEvaluator(networks);
+    assertEquals(networks.size(), classUnderTest.getNumberOfNetworks());
+    assertEquals(3, classUnderTest.getNumberOfArchitectureGroups());
+    double[][] features = randomFeatures(random, 2 * BatchNetworkEvaluator.ROW_BLOCK_SIZE + 7, 46);
+    double[][][] outputs = classUnderTest.evaluate(features);
+    assertEquals(networks.size(), outputs.length);
+    for (int networkIndex = 0; networkIndex < networks.size(); networkIndex++) {
+      assertEquals(features.length, outputs[networkIndex].length);
+      for (int row = 0; row < features.length; row++) {
+        double[] expected = networks.get(networkIndex).calculate(features[row], new double[2]);
+        assertArrayEquals(expected, outputs[networkIndex][row]);
+      }
+    }
+  }
+
+  @Test
+  public void testEvaluate_MatchesNeuroph() {
+    Random random = new Random(42L);
+    List<MultiLayerPerceptron> networks = new ArrayList<>();
+    for (int aa = 0; aa < 5; aa++) {
+      networks.add(NeurophTestNetworks.createNeurophNetwork(Arrays.asList(46, 23, 12, 2), aa % 2 == 0, random));
+    }
+    BatchNetworkEvaluator classUnderTest = BatchNetworkEvaluator.fromNetworks(networks);
+    assertEquals(2, classUnderTest.getNumberOfArchitectureGroups());
+    double[][] features = randomFeatures(random, 10, 46);
+    double[][][] outputs = classUnderTest.evaluate(features);
+    for (int networkIndex = 0; networkIndex < networks.size(); networkIndex++) {
+      for (int row = 0; row < features.length; row++) {
+        double[] expected = NetworkUtils.runNetwork(networks.get(networkIndex), features[row]);
+        assertArrayEquals(expected, outputs[networkIndex][row], 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testEvaluate_NoRows() {
+    BatchNetworkEvaluator classUnderTest = new BatchNetworkEvaluator(createEnsemble(new Random(1L)));
+    double[][][] outputs = classUnderTest.evaluate(new double[0][]);
+    assertEquals(classUnderTest.getNumberOfNetworks(), outputs.length);
+    assertEquals(0, outputs[0].length);
+  }
+
+  @Test
+  public void testEvaluate_WrongNumberOfFeatures() {
+    BatchNetworkEvaluator classUnderTest = new BatchNetworkEvaluator(createEnsemble(new Random(1L)));
+    assertThrows(IllegalArgumentException.class, () -> classUnderTest.evaluate(new double[1][45]));
+  }
+
+  @Test
+  public void testConstructor_MismatchedInputs() {
+    List<FlatMlpNetwork> networks = Arrays.asList(new FlatMlpNetwork(Arrays.asList(46, 23, 2), true),
+        new FlatMlpNetwork(Arrays.asList(40, 23, 2), true));
+    assertThrows(IllegalArgumentException.class, () -> new BatchNetworkEvaluator(networks));
+  }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+
+/**
+ * A BatchNetworkEvaluator that holds whoever calls it (i.e., the batching thread) until
+ * the test releases it, so the test can control when batches finish.
+ *
+ * @author J Steven Perry
+ *
+ */
+class GatedBatchNetworkEvaluator extends BatchNetworkEvaluator {
+
+  /**
+   * Counted down as soon as the first batch is being evaluated
+   */
+  final CountDownLatch started = new CountDownLatch(1);
+
+  /**
+   * Count down to let the batches go
+   */
+  final CountDownLatch release = new CountDownLatch(1);
+
+  GatedBatchNetworkEvaluator(List<FlatMlpNetwork> networks) {
+    super(networks);
+  }
+
+  @Override
+  public double[][][] evaluate(double[][] features) {
+    started.countDown();
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted", e);
+    }
+    return super.evaluate(features);
+  }
+
+}
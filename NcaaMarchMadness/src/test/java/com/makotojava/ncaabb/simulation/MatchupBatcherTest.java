@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+
+@RunWith(JUnitPlatform.class)
+public class MatchupBatcherTest {
+
+  private static final List<String> TEAM_NAMES = Arrays.asList("Duke", "Gonzaga", "Michigan St", "Virginia");
+
+  private List<FlatMlpNetwork> flatNetworks;
+  private List<MultiLayerPerceptron> networks;
+  private Map<String, double[]> normalizedDataByTeamName;
+  private MatchupEvaluator matchupEvaluator;
+  private MatchupBatcher classUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    Random random = new Random(17L);
+    flatNetworks = new ArrayList<>();
+    networks = new ArrayList<>();
+    for (int aa = 0; aa < 7; aa++) {
+      FlatMlpNetwork network = new FlatMlpNetwork(Arrays.asList(46, 23, 2), true);
+      network.randomizeWeights(-0.7, 0.7, random);
+      flatNetworks.add(network);
+      networks.add(null);
+    }
+    normalizedDataByTeamName = new HashMap<>();
+    for (String teamName : TEAM_NAMES) {
+      double[] normalizedData = new double[FeatureNormalizer.NUMBER_OF_FEATURES];
+      for (int aa = 0; aa < normalizedData.length; aa++) {
+        normalizedData[aa] = random.nextDouble();
+      }
+      normalizedDataByTeamName.put(teamName, normalizedData);
+    }
+    BatchNetworkEvaluator batchNetworkEvaluator = new BatchNetworkEvaluator(flatNetworks);
+    matchupEvaluator = new MatchupEvaluator(networks, batchNetworkEvaluator, normalizedDataByTeamName);
+    classUnderTest = new MatchupBatcher(networks, batchNetworkEvaluator, normalizedDataByTeamName, 256);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    classUnderTest.close();
+  }
+
+  @Test
+  public void testEvaluate_MatchesMatchupEvaluator() {
+    for (String teamName : TEAM_NAMES) {
+      for (String opponentName : TEAM_NAMES) {
+        assertSameResult(matchupEvaluator.evaluate(teamName, opponentName),
+            classUnderTest.evaluate(teamName, opponentName));
+      }
+    }
+    // Only one of each pair (plus the self matchups) is actually simulated
+    assertEquals(10, classUnderTest.getNumberOfMatchupsSimulated());
+  }
+
+  @Test
+  public void testSubmit_IsMemoized() {
+    CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> result = classUnderTest.submit("Virginia", "Duke");
+    assertSame(result, classUnderTest.submit("Virginia", "Duke"));
+    result.join();
+    classUnderTest.evaluate("Duke", "Virginia");
+    assertEquals(1, classUnderTest.getNumberOfMatchupsSimulated());
+  }
+
+  @Test
+  public void testSubmit_UnknownTeam() {
+    assertThrows(IllegalArgumentException.class, () -> classUnderTest.submit("Duke", "Kentucky"));
+    assertThrows(IllegalArgumentException.class, () -> classUnderTest.submit(null, "Duke"));
+  }
+
+  @Test
+  public void testEvaluate_ConcurrentRequestsAreBatched() throws Exception {
+    GatedBatchNetworkEvaluator gatedBatchNetworkEvaluator = new GatedBatchNetworkEvaluator(flatNetworks);
+    int numberOfThreads = 8;
+    ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+    try (MatchupBatcher matchupBatcher = new MatchupBatcher(networks, gatedBatchNetworkEvaluator,
+        normalizedDataByTeamName, 256)) {
+      //
+      // Hold the batching thread in the first batch, so everything asked for in the meantime piles up
+      CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> first = matchupBatcher.submit("Duke", "Duke");
+      gatedBatchNetworkEvaluator.started.await();
+      CountDownLatch ready = new CountDownLatch(numberOfThreads);
+      List<Future<List<CompletableFuture<GameSimulationResult<MultiLayerPerceptron>>>>> futures = new ArrayList<>();
+      for (int aa = 0; aa < numberOfThreads; aa++) {
+        int offset = aa;
+        futures.add(executorService.submit(() -> {
+          ready.countDown();
+          ready.await();
+          List<CompletableFuture<GameSimulationResult<MultiLayerPerceptron>>> ret = new ArrayList<>();
+          for (int bb = 0; bb < TEAM_NAMES.size() * TEAM_NAMES.size(); bb++) {
+            int index = (bb + offset) % (TEAM_NAMES.size() * TEAM_NAMES.size());
+            ret.add(matchupBatcher.submit(TEAM_NAMES.get(index / TEAM_NAMES.size()),
+                TEAM_NAMES.get(index % TEAM_NAMES.size())));
+          }
+          return ret;
+        }));
+      }
+      List<List<CompletableFuture<GameSimulationResult<MultiLayerPerceptron>>>> results = new ArrayList<>();
+      for (Future<List<CompletableFuture<GameSimulationResult<MultiLayerPerceptron>>>> future : futures) {
+        results.add(future.get());
+      }
+      assertEquals(0, matchupBatcher.getNumberOfBatches());
+      gatedBatchNetworkEvaluator.release.countDown();
+      first.join();
+      for (int aa = 0; aa < numberOfThreads; aa++) {
+        for (int bb = 0; bb < TEAM_NAMES.size() * TEAM_NAMES.size(); bb++) {
+          int index = (bb + aa) % (TEAM_NAMES.size() * TEAM_NAMES.size());
+          String teamName = TEAM_NAMES.get(index / TEAM_NAMES.size());
+          String opponentName = TEAM_NAMES.get(index % TEAM_NAMES.size());
+          assertSameResult(matchupEvaluator.evaluate(teamName, opponentName), results.get(aa).get(bb).join());
+        }
+      }
+      // The first batch (Duke vs Duke), then everything that piled up behind it, all at once
+      assertEquals(10, matchupBatcher.getNumberOfMatchupsSimulated());
+      assertEquals(2, matchupBatcher.getNumberOfBatches());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testSubmit_FailedBatchIsForgottenOnBothSides() {
+    FailingOnceBatchNetworkEvaluator failingOnceBatchNetworkEvaluator = new FailingOnceBatchNetworkEvaluator(
+        flatNetworks);
+    try (MatchupBatcher matchupBatcher = new MatchupBatcher(networks, failingOnceBatchNetworkEvaluator,
+        normalizedDataByTeamName, 256)) {
+      CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> failed = matchupBatcher.submit("Virginia",
+          "Duke");
+      assertThrows(IllegalStateException.class, () -> matchupBatcher.evaluate("Virginia", "Duke"));
+      assertTrue(failed.isCompletedExceptionally());
+      //
+      // Neither side of the game remembers the failure
+      assertSameResult(matchupEvaluator.evaluate("Virginia", "Duke"), matchupBatcher.evaluate("Virginia", "Duke"));
+      assertSameResult(matchupEvaluator.evaluate("Duke", "Virginia"), matchupBatcher.evaluate("Duke", "Virginia"));
+      assertEquals(1, matchupBatcher.getNumberOfMatchupsSimulated());
+    }
+  }
+
+  @Test
+  public void testClose_FailsQueuedMatchups() throws Exception {
+    GatedBatchNetworkEvaluator gatedBatchNetworkEvaluator = new GatedBatchNetworkEvaluator(flatNetworks);
+    MatchupBatcher matchupBatcher = new MatchupBatcher(networks, gatedBatchNetworkEvaluator,
+        normalizedDataByTeamName, 256);
+    matchupBatcher.submit("Duke", "Gonzaga");
+    gatedBatchNetworkEvaluator.started.await();
+    CompletableFuture<GameSimulationResult<MultiLayerPerceptron>> queued = matchupBatcher.submit("Virginia", "Duke");
+    matchupBatcher.close();
+    assertTrue(queued.isCompletedExceptionally());
+    assertThrows(IllegalStateException.class, () -> matchupBatcher.evaluate("Virginia", "Duke"));
+    assertThrows(IllegalStateException.class, () -> matchupBatcher.submit("Duke", "Michigan St"));
+    gatedBatchNetworkEvaluator.release.countDown();
+  }
+
+  private static void assertSameResult(GameSimulationResult<MultiLayerPerceptron> expected,
+      GameSimulationResult<MultiLayerPerceptron> actual) {
+    assertEquals(expected.getTeamName(), actual.getTeamName());
+    assertEquals(expected.getOpponentName(), actual.getOpponentName());
+    assertEquals(expected.getTeamHomeResults(), actual.getTeamHomeResults());
+    assertEquals(expected.getTeamAwayResults(), actual.getTeamAwayResults());
+    assertEquals(expected.getOpponentHomeResults(), actual.getOpponentHomeResults());
+    assertEquals(expected.getOpponentAwayResults(), actual.getOpponentAwayResults());
+    assertEquals(expected.getNetworkPredictions(), actual.getNetworkPredictions());
+  }
+
+  /**
+   * Fails the first batch.
+   */
+  private static class FailingOnceBatchNetworkEvaluator extends BatchNetworkEvaluator {
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    FailingOnceBatchNetworkEvaluator(List<FlatMlpNetwork> networks) {
+      super(networks);
+    }
+
+    @Override
+    public double[][][] evaluate(double[][] features) {
+      if (failed.compareAndSet(false, true)) {
+        throw new IllegalStateException("Batch failed");
+      }
+      return super.evaluate(features);
+    }
+  }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+
+@RunWith(JUnitPlatform.class)
+public class MatchupEvaluatorTest {
+
+  private static final List<String> TEAM_NAMES = Arrays.asList("Duke", "Gonzaga", "Michigan St", "Virginia");
+
+  private List<FlatMlpNetwork> flatNetworks;
+  private List<MultiLayerPerceptron> networks;
+  private Map<String, double[]> normalizedDataByTeamName;
+  private MatchupEvaluator classUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    Random random = new Random(17L);
+    flatNetworks = new ArrayList<>();
+    // The evaluator only hangs on to the networks themselves (the batch evaluator runs them)
+    networks = new ArrayList<>();
+    for (int aa = 0; aa < 7; aa++) {
+      FlatMlpNetwork network = new FlatMlpNetwork(Arrays.asList(46, 23, 2), true);
+      network.randomizeWeights(-0.7, 0.7, random);
+      flatNetworks.add(network);
+      networks.add(null);
+    }
+    normalizedDataByTeamName = new HashMap<>();
+    for (String teamName : TEAM_NAMES) {
+      double[] normalizedData = new double[FeatureNormalizer.NUMBER_OF_FEATURES];
+      for (int aa = 0; aa < normalizedData.length; aa++) {
+        normalizedData[aa] = random.nextDouble();
+      }
+      normalizedDataByTeamName.put(teamName, normalizedData);
+    }
+    classUnderTest = new MatchupEvaluator(networks, new BatchNetworkEvaluator(flatNetworks),
+        normalizedDataByTeamName);
+  }
+
+  @Test
+  public void testEvaluate_IsMemoized() {
+    GameSimulationResult<MultiLayerPerceptron> result = classUnderTest.evaluate("Duke", "Virginia");
+    assertEquals(1, classUnderTest.getNumberOfMatchupsSimulated());
+    assertSame(result, classUnderTest.evaluate("Duke", "Virginia"));
+    // The other way around is derived, not simulated
+    classUnderTest.evaluate("Virginia", "Duke");
+    assertEquals(1, classUnderTest.getNumberOfMatchupsSimulated());
+    // Asking for the other way around first still only simulates one of them
+    classUnderTest.evaluate("Michigan St", "Gonzaga");
+    classUnderTest.evaluate("Gonzaga", "Michigan St");
+    assertEquals(2, classUnderTest.getNumberOfMatchupsSimulated());
+  }
+
+  @Test
+  public void testEvaluate_MatchesNetworks() {
+    GameSimulationResult<MultiLayerPerceptron> result = classUnderTest.evaluate("Virginia", "Duke");
+    assertEquals("Virginia", result.getTeamName());
+    assertEquals("Duke", result.getOpponentName());
+    assertEquals(flatNetworks.size(), result.getNumberOfNetworks().intValue());
+    GameSimulationResult<MultiLayerPerceptron> expected = classUnderTest.evaluate("Duke", "Virginia");
+    for (int aa = 0; aa < flatNetworks.size(); aa++) {
+      assertEquals(expected.getOpponentHomeResults().get(aa), result.getTeamHomeResults().get(aa));
+      assertEquals(expected.getOpponentAwayResults().get(aa), result.getTeamAwayResults().get(aa));
+      assertEquals(expected.getTeamHomeResults().get(aa), result.getOpponentHomeResults().get(aa));
+      assertEquals(expected.getTeamAwayResults().get(aa), result.getOpponentAwayResults().get(aa));
+    }
+    assertEquals(expected.getPercentWins(), result.getPercentLosses());
+    assertEquals(expected.getPercentPushes(), result.getPercentPushes());
+  }
+
+  /**
+   * Runs the specified matchup through the networks directly (team on the LHS, then opponent on
+   * the LHS), the way it would be if it were never derived from the other way around.
+   */
+  private GameSimulationResult<MultiLayerPerceptron> simulateDirectly(String teamName, String opponentName) {
+    double[][] features = new double[2][2 * FeatureNormalizer.NUMBER_OF_FEATURES];
+    FeatureNormalizer.writeInputs(normalizedDataByTeamName.get(teamName), normalizedDataByTeamName.get(opponentName),
+        features[0]);
+    FeatureNormalizer.writeInputs(normalizedDataByTeamName.get(opponentName), normalizedDataByTeamName.get(teamName),
+        features[1]);
+    double[][][] outputs = new BatchNetworkEvaluator(flatNetworks).evaluate(features);
+    GameSimulationResult<MultiLayerPerceptron> ret = new GameSimulationResult<>(teamName, opponentName, networks);
+    for (int aa = 0; aa < flatNetworks.size(); aa++) {
+      MatchupEvaluator.recordNetworkSimulationResult(aa, outputs[aa][0], outputs[aa][1], ret);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testCreateMirroredResult_SameAsSimulating() {
+    for (String teamName : TEAM_NAMES) {
+      for (String opponentName : TEAM_NAMES) {
+        if (teamName.compareTo(opponentName) <= 0) {
+          continue;
+        }
+        // The evaluator only ever simulates the alphabetical way around
+        GameSimulationResult<MultiLayerPerceptron> result = MatchupEvaluator
+            .createMirroredResult(classUnderTest.evaluate(opponentName, teamName));
+        GameSimulationResult<MultiLayerPerceptron> expected = simulateDirectly(teamName, opponentName);
+        assertEquals(expected.getTeamName(), result.getTeamName());
+        assertEquals(expected.getOpponentName(), result.getOpponentName());
+        assertEquals(expected.getTeamHomeResults(), result.getTeamHomeResults());
+        assertEquals(expected.getTeamAwayResults(), result.getTeamAwayResults());
+        assertEquals(expected.getOpponentHomeResults(), result.getOpponentHomeResults());
+        assertEquals(expected.getOpponentAwayResults(), result.getOpponentAwayResults());
+        assertEquals(expected.getNetworkPredictions(), result.getNetworkPredictions());
+        assertEquals(expected.getNumberOfWins(), result.getNumberOfWins());
+        assertEquals(expected.getNumberOfLosses(), result.getNumberOfLosses());
+        assertEquals(expected.getNumberOfPushes(), result.getNumberOfPushes());
+      }
+    }
+  }
+
+  @Test
+  public void testEvaluate_SelfMatchup() {
+    GameSimulationResult<MultiLayerPerceptron> result = classUnderTest.evaluate("Gonzaga", "Gonzaga");
+    for (int aa = 0; aa < flatNetworks.size(); aa++) {
+      assertEquals(GameSimulationResult.PUSH, result.getNetworkPredictions().get(aa));
+    }
+  }
+
+  @Test
+  public void testEvaluate_UnknownTeam() {
+    assertThrows(RuntimeException.class, () -> classUnderTest.evaluate("Duke", "Kentucky"));
+  }
+
+  @Test
+  public void testEvaluate_Concurrently() throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<GameSimulationResult<MultiLayerPerceptron>>> futures = new ArrayList<>();
+      for (int aa = 0; aa < 50; aa++) {
+        for (String teamName : TEAM_NAMES) {
+          for (String opponentName : TEAM_NAMES) {
+            futures.add(executorService.submit(() -> classUnderTest.evaluate(teamName, opponentName)));
+          }
+        }
+      }
+      for (Future<GameSimulationResult<MultiLayerPerceptron>> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+    // 4 self matchups, plus 6 pairs
+    assertEquals(10, classUnderTest.getNumberOfMatchupsSimulated());
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+
+@RunWith(JUnitPlatform.class)
+public class MatrixFileTest {
+
+  private static final List<String> TEAM_NAMES = Arrays.asList("Duke", "Gonzaga", "Michigan St", "Virginia");
+  private static final List<String> NETWORK_DESCRIPTIONS = Arrays.asList("46x23x2", "46x23x2", "46x12x2",
+      "46x12x2", "46x40x2");
+
+  private MatchupEvaluator matchupEvaluator;
+  private File file;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    Random random = new Random(23L);
+    List<FlatMlpNetwork> flatNetworks = new ArrayList<>();
+    List<MultiLayerPerceptron> networks = new ArrayList<>();
+    for (String networkDescription : NETWORK_DESCRIPTIONS) {
+      List<Integer> layerSizes = new ArrayList<>();
+      for (String layerSize : networkDescription.split("x")) {
+        layerSizes.add(Integer.valueOf(layerSize));
+      }
+      FlatMlpNetwork network = new FlatMlpNetwork(layerSizes, true);
+      network.randomizeWeights(-0.7, 0.7, random);
+      flatNetworks.add(network);
+      networks.add(null);
+    }
+    Map<String, double[]> normalizedDataByTeamName = new HashMap<>();
+    for (String teamName : TEAM_NAMES) {
+      double[] normalizedData = new double[FeatureNormalizer.NUMBER_OF_FEATURES];
+      for (int aa = 0; aa < normalizedData.length; aa++) {
+        normalizedData[aa] = random.nextDouble();
+      }
+      normalizedDataByTeamName.put(teamName, normalizedData);
+    }
+    matchupEvaluator = new MatchupEvaluator(networks, new BatchNetworkEvaluator(flatNetworks),
+        normalizedDataByTeamName);
+    file = File.createTempFile("matrix-file-test", ".matrix");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void testWriteAndOpen_RoundTrip() throws IOException {
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix = new TreeMap<>();
+    for (String teamName : TEAM_NAMES) {
+      List<GameSimulationResult<MultiLayerPerceptron>> row = new ArrayList<>();
+      for (String opponentName : TEAM_NAMES) {
+        if (!teamName.equals(opponentName)) {
+          row.add(matchupEvaluator.evaluate(teamName, opponentName));
+        }
+      }
+      matrix.put(teamName, row);
+    }
+    MatrixFile.write(file.getPath(), 2019, matrix, NETWORK_DESCRIPTIONS);
+
+    MatrixFile matrixFile = MatrixFile.open(file.getPath());
+    assertEquals(2019, matrixFile.getYear());
+    assertEquals(TEAM_NAMES, matrixFile.getTeamNames());
+    assertEquals(NETWORK_DESCRIPTIONS, matrixFile.getNetworkDescriptions());
+    assertEquals(-1, matrixFile.getTeamIndex("Kansas"));
+    for (String teamName : TEAM_NAMES) {
+      int teamIndex = matrixFile.getTeamIndex(teamName);
+      assertFalse(matrixFile.hasMatchup(teamIndex, teamIndex));
+      for (GameSimulationResult<MultiLayerPerceptron> gsr : matrix.get(teamName)) {
+        int opponentIndex = matrixFile.getTeamIndex(gsr.getOpponentName());
+        assertTrue(matrixFile.hasMatchup(teamIndex, opponentIndex));
+        assertEquals(gsr.getNumberOfWins(), matrixFile.getNumberOfWins(teamIndex, opponentIndex));
+        assertEquals(gsr.getNumberOfLosses(), matrixFile.getNumberOfLosses(teamIndex, opponentIndex));
+        assertEquals(gsr.getNumberOfPushes(), matrixFile.getNumberOfPushes(teamIndex, opponentIndex));
+        assertEquals(gsr.getPercentWins(), matrixFile.getPercentWins(teamIndex, opponentIndex));
+        assertEquals(gsr.getPercentLosses(), matrixFile.getPercentLosses(teamIndex, opponentIndex));
+        assertEquals(gsr.getPercentPushes(), matrixFile.getPercentPushes(teamIndex, opponentIndex));
+        for (int networkIndex = 0; networkIndex < NETWORK_DESCRIPTIONS.size(); networkIndex++) {
+          String networkPrediction = gsr.getNetworkPredictions().get(networkIndex);
+          byte expectedPrediction = GameSimulationResult.PUSH.equals(networkPrediction) ? MatrixFile.PREDICTION_PUSH
+              : teamName.equals(networkPrediction) ? MatrixFile.PREDICTION_WIN : MatrixFile.PREDICTION_LOSS;
+          assertEquals(expectedPrediction, matrixFile.getPrediction(teamIndex, opponentIndex, networkIndex));
+          assertEquals(gsr.getTeamHomeResults().get(networkIndex).floatValue(),
+              matrixFile.getTeamHomeResult(teamIndex, opponentIndex, networkIndex));
+          assertEquals(gsr.getTeamAwayResults().get(networkIndex).floatValue(),
+              matrixFile.getTeamAwayResult(teamIndex, opponentIndex, networkIndex));
+          assertEquals(gsr.getOpponentHomeResults().get(networkIndex).floatValue(),
+              matrixFile.getOpponentHomeResult(teamIndex, opponentIndex, networkIndex));
+          assertEquals(gsr.getOpponentAwayResults().get(networkIndex).floatValue(),
+              matrixFile.getOpponentAwayResult(teamIndex, opponentIndex, networkIndex));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testWriteAndOpen_SparseMatrix() throws IOException {
+    // Bracket mode: only the games that get played are in the matrix
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix = new TreeMap<>();
+    for (String teamName : TEAM_NAMES) {
+      matrix.put(teamName, new ArrayList<>());
+    }
+    matrix.get("Duke").add(matchupEvaluator.evaluate("Duke", "Virginia"));
+    matrix.get("Virginia").add(matchupEvaluator.evaluate("Virginia", "Duke"));
+    MatrixFile.write(file.getPath(), 2019, matrix, NETWORK_DESCRIPTIONS);
+
+    MatrixFile matrixFile = MatrixFile.open(file.getPath());
+    assertTrue(matrixFile.hasMatchup(0, 3));
+    assertTrue(matrixFile.hasMatchup(3, 0));
+    assertFalse(matrixFile.hasMatchup(0, 1));
+    assertEquals(MatrixFile.PREDICTION_NONE, matrixFile.getPrediction(1, 2, 0));
+    assertTrue(Float.isNaN(matrixFile.getTeamHomeResult(1, 2, 0)));
+    String[] row = MatrixCsvExporter.generateRow(matrixFile, 0, 3, true);
+    assertEquals("Duke", row[0]);
+    assertEquals("Virginia", row[1]);
+    assertEquals(matchupEvaluator.evaluate("Duke", "Virginia").getPercentWins().toPlainString() + "%", row[2]);
+    assertEquals(matchupEvaluator.evaluate("Duke", "Virginia").getNetworkPredictions(),
+        Arrays.asList(row).subList(5, row.length));
+  }
+
+  @Test
+  public void testOpen_Truncated() throws IOException {
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix = new TreeMap<>();
+    matrix.put("Duke", Collections.singletonList(matchupEvaluator.evaluate("Duke", "Virginia")));
+    matrix.put("Virginia", Collections.singletonList(matchupEvaluator.evaluate("Virginia", "Duke")));
+    MatrixFile.write(file.getPath(), 2019, matrix, NETWORK_DESCRIPTIONS);
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.setLength(randomAccessFile.length() - 1);
+    }
+    assertThrows(IOException.class, () -> MatrixFile.open(file.getPath()));
+  }
+
+  @Test
+  public void testOpen_NotAMatrixFile() throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.writeBytes("TEAM,OPPONENT,WIN %");
+    }
+    assertThrows(IOException.class, () -> MatrixFile.open(file.getPath()));
+  }
+
+}
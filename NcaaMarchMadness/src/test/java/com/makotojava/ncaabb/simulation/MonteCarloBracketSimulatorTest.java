@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+@RunWith(JUnitPlatform.class)
+public class MonteCarloBracketSimulatorTest {
+
+  private static List<String> createTeamNames(int numberOfTeams) {
+    List<String> ret = new ArrayList<>();
+    for (int aa = 0; aa < numberOfTeams; aa++) {
+      ret.add("Team " + aa);
+    }
+    return ret;
+  }
+
+  /**
+   * Every team beats every team after it in the List with the specified probability.
+   */
+  private static WinProbabilityTable createWinProbabilityTable(List<String> teamNames, double probability) {
+    double[][] probabilities = new double[teamNames.size()][teamNames.size()];
+    for (int aa = 0; aa < teamNames.size(); aa++) {
+      for (int bb = 0; bb < teamNames.size(); bb++) {
+        probabilities[aa][bb] = (aa == bb) ? 0.5 : ((aa < bb) ? probability : 1.0 - probability);
+      }
+    }
+    return new WinProbabilityTable(teamNames, probabilities);
+  }
+
+  @Test
+  public void testLoadBracket() throws Exception {
+    File file = File.createTempFile("tourney_teams_file_", ".txt");
+    file.deleteOnExit();
+    List<String> lines = new ArrayList<>(Arrays.asList("NCAA Men's Basketball", "DivisionITournament Participants",
+        "Through Games 1/1/2019", "", ""));
+    lines.addAll(createTeamNames(68));
+    lines.set(6, "Gardner\u2013Webb ");
+    Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    Bracket bracket = Bracket.load(file.getPath());
+    assertEquals(68, bracket.getNumberOfTeams());
+    assertEquals("Team 0", bracket.getTeamNames().get(0));
+    assertEquals("Gardner\u2013Webb", bracket.getTeamNames().get(1));
+    assertEquals(64, bracket.getNumberOfSlots());
+    assertEquals(6, bracket.getNumberOfRounds());
+    assertEquals(4, bracket.getNumberOfPlayInGames());
+    // The last 8 teams play their way into the last 4 slots
+    assertEquals(59, bracket.getSlotTeam(59));
+    assertEquals(-1, bracket.getSlotPlayInOpponent(59));
+    assertEquals(60, bracket.getSlotTeam(60));
+    assertEquals(61, bracket.getSlotPlayInOpponent(60));
+    assertEquals(66, bracket.getSlotTeam(63));
+    assertEquals(67, bracket.getSlotPlayInOpponent(63));
+  }
+
+  @Test
+  public void testIsInAlphabeticalOrder() {
+    // How the tournament teams files list the teams...
+    assertTrue(Bracket.isInAlphabeticalOrder(Arrays.asList("Abilene Christian", "Arizona St", "auburn", "Baylor")));
+    // ...and how a real bracket never does
+    assertFalse(Bracket.isInAlphabeticalOrder(Arrays.asList("Duke", "North Dakota St", "VCU", "UCF")));
+    assertFalse(Bracket.isInAlphabeticalOrder(createTeamNames(68)));
+  }
+
+  @Test
+  public void testBracket_DuplicateTeam() {
+    assertThrows(IllegalArgumentException.class, () -> new Bracket(Arrays.asList("A", "B", "A")));
+  }
+
+  @Test
+  public void testComputeWinProbability() {
+    GameSimulationResult<MultiLayerPerceptron> gameSimulationResult = new GameSimulationResult<>("A", "B",
+        Collections.<MultiLayerPerceptron> nCopies(4, null));
+    gameSimulationResult.setPrediction(0, GameSimulationResult.PREDICTION_WIN);
+    gameSimulationResult.setPrediction(1, GameSimulationResult.PREDICTION_WIN);
+    gameSimulationResult.setPrediction(2, GameSimulationResult.PREDICTION_PUSH);
+    gameSimulationResult.setPrediction(3, GameSimulationResult.PREDICTION_LOSS);
+    assertEquals(0.625, WinProbabilityTable.computeWinProbability(gameSimulationResult), 1e-12);
+  }
+
+  @Test
+  public void testSimulate_FourTeams() {
+    List<String> teamNames = createTeamNames(4);
+    Bracket bracket = new Bracket(teamNames);
+    AdvancementOdds advancementOdds = MonteCarloBracketSimulator.simulate(bracket,
+        createWinProbabilityTable(teamNames, 0.75), 400000, 1, 17L);
+    assertEquals(3, advancementOdds.getNumberOfLevels());
+    assertEquals("CHAMPION", advancementOdds.getLevelName(2));
+    assertEquals("CHAMPIONSHIP", advancementOdds.getLevelName(1));
+    // Team 0 beats team 1 75% of the time, then beats whoever comes out of the other game 75% of the time
+    assertEquals(1.0, advancementOdds.getProbability(0, 0));
+    assertEquals(0.75, advancementOdds.getProbability(0, 1), 0.005);
+    assertEquals(0.75 * 0.75, advancementOdds.getChampionshipProbability(0), 0.005);
+    // Team 3 beats team 2 25% of the time, then beats team 0 or team 1 25% of the time
+    assertEquals(0.25 * 0.25, advancementOdds.getChampionshipProbability(3), 0.005);
+    double totalChampionshipProbability = 0.0;
+    for (int teamIndex = 0; teamIndex < teamNames.size(); teamIndex++) {
+      totalChampionshipProbability += advancementOdds.getChampionshipProbability(teamIndex);
+    }
+    assertEquals(1.0, totalChampionshipProbability, 1e-12);
+  }
+
+  @Test
+  public void testSimulate_PlayInGames() {
+    List<String> teamNames = createTeamNames(6);
+    Bracket bracket = new Bracket(teamNames);
+    AdvancementOdds advancementOdds = MonteCarloBracketSimulator.simulate(bracket,
+        createWinProbabilityTable(teamNames, 1.0), 1000, 1, 17L);
+    // The favorite always wins, so teams 3 and 5 never make it out of the play-in games
+    assertEquals(1.0, advancementOdds.getProbability(2, 0));
+    assertEquals(0.0, advancementOdds.getProbability(3, 0));
+    assertEquals(0.0, advancementOdds.getProbability(5, 0));
+    assertEquals(1.0, advancementOdds.getChampionshipProbability(0));
+  }
+
+  @Test
+  public void testSimulate_SameResultForAnyNumberOfWorkers() {
+    List<String> teamNames = createTeamNames(68);
+    Bracket bracket = new Bracket(teamNames);
+    WinProbabilityTable winProbabilityTable = createWinProbabilityTable(teamNames, 0.6);
+    long numberOfTournaments = 2 * MonteCarloBracketSimulator.TOURNAMENTS_PER_CHUNK + 123;
+    AdvancementOdds serialOdds = MonteCarloBracketSimulator.simulate(bracket, winProbabilityTable,
+        numberOfTournaments, 1, 42L);
+    AdvancementOdds parallelOdds = MonteCarloBracketSimulator.simulate(bracket, winProbabilityTable,
+        numberOfTournaments, 4, 42L);
+    long[] serialCounts = new long[teamNames.size() * serialOdds.getNumberOfLevels()];
+    long[] parallelCounts = new long[serialCounts.length];
+    long champions = 0;
+    for (int teamIndex = 0; teamIndex < teamNames.size(); teamIndex++) {
+      for (int level = 0; level < serialOdds.getNumberOfLevels(); level++) {
+        serialCounts[teamIndex * serialOdds.getNumberOfLevels() + level] = serialOdds.getCount(teamIndex, level);
+        parallelCounts[teamIndex * serialOdds.getNumberOfLevels() + level] = parallelOdds.getCount(teamIndex, level);
+      }
+      champions += serialOdds.getCount(teamIndex, serialOdds.getNumberOfLevels() - 1);
+    }
+    assertArrayEquals(serialCounts, parallelCounts);
+    assertEquals(numberOfTournaments, champions);
+  }
+
+}
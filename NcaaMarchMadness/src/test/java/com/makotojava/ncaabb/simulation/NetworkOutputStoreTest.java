@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+import com.makotojava.ncaabb.simulation.NetworkOutputStore.NetworkOutputs;
+import com.makotojava.ncaabb.util.NetworkFileFingerprint;
+
+@RunWith(JUnitPlatform.class)
+public class NetworkOutputStoreTest {
+
+  private static final List<String> TEAM_NAMES = Arrays.asList("Duke", "Gonzaga", "Michigan St", "Virginia");
+  private static final int NUMBER_OF_NETWORKS = 5;
+
+  private Map<String, double[]> normalizedDataByTeamName;
+  private MatchupEvaluator matchupEvaluator;
+  private File directory;
+  private NetworkOutputStore classUnderTest;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    Random random = new Random(31L);
+    List<FlatMlpNetwork> flatNetworks = new ArrayList<>();
+    for (int aa = 0; aa < NUMBER_OF_NETWORKS; aa++) {
+      FlatMlpNetwork network = new FlatMlpNetwork(Arrays.asList(46, 17, 2), true);
+      network.randomizeWeights(-0.7, 0.7, random);
+      flatNetworks.add(network);
+    }
+    normalizedDataByTeamName = new HashMap<>();
+    for (String teamName : TEAM_NAMES) {
+      double[] normalizedData = new double[FeatureNormalizer.NUMBER_OF_FEATURES];
+      for (int aa = 0; aa < normalizedData.length; aa++) {
+        normalizedData[aa] = random.nextDouble();
+      }
+      normalizedDataByTeamName.put(teamName, normalizedData);
+    }
+    matchupEvaluator = new MatchupEvaluator(Collections.nCopies(NUMBER_OF_NETWORKS, null),
+        new BatchNetworkEvaluator(flatNetworks), normalizedDataByTeamName);
+    directory = Files.createTempDirectory("network-output-store-test").toFile();
+    classUnderTest = new NetworkOutputStore(directory.getPath());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    File networkFile = createNetworkFile("network-1.ann");
+    NetworkFileFingerprint fingerprint = NetworkFileFingerprint.compute(networkFile);
+    long featureVersion = NetworkOutputStore.computeFeatureVersion(TEAM_NAMES, normalizedDataByTeamName);
+    NetworkOutputs networkOutputs = createNetworkOutputs(networkFile, fingerprint, 2);
+    classUnderTest.write(networkOutputs, 2019, featureVersion);
+
+    NetworkOutputs storedNetworkOutputs = classUnderTest.read(networkFile, fingerprint, 2019, featureVersion);
+    assertNotNull(storedNetworkOutputs);
+    assertEquals("46x17x2", storedNetworkOutputs.getNetworkDescription());
+    assertEquals(NetworkOutputStore.computeNumberOfMatchups(TEAM_NAMES.size()),
+        storedNetworkOutputs.getNumberOfMatchups());
+    for (int matchupIndex = 0; matchupIndex < networkOutputs.getNumberOfMatchups(); matchupIndex++) {
+      assertEquals(networkOutputs.getTeamHomeResult(matchupIndex),
+          storedNetworkOutputs.getTeamHomeResult(matchupIndex));
+      assertEquals(networkOutputs.getOpponentAwayResult(matchupIndex),
+          storedNetworkOutputs.getOpponentAwayResult(matchupIndex));
+      assertEquals(networkOutputs.getTeamAwayResult(matchupIndex),
+          storedNetworkOutputs.getTeamAwayResult(matchupIndex));
+      assertEquals(networkOutputs.getOpponentHomeResult(matchupIndex),
+          storedNetworkOutputs.getOpponentHomeResult(matchupIndex));
+    }
+    // Anything different, and the stored outputs are no good
+    assertNull(classUnderTest.read(networkFile, fingerprint, 2018, featureVersion));
+    assertNull(classUnderTest.read(networkFile, fingerprint, 2019, featureVersion + 1));
+    assertNull(classUnderTest.read(networkFile, new NetworkFileFingerprint(fingerprint.getSize(),
+        fingerprint.getLastModified(), fingerprint.getChecksum() + 1), 2019, featureVersion));
+    assertNull(classUnderTest.read(createNetworkFile("network-2.ann"), fingerprint, 2019, featureVersion));
+  }
+
+  @Test
+  public void testRead_CorruptLengths() throws IOException {
+    File networkFile = createNetworkFile("network-1.ann");
+    NetworkFileFingerprint fingerprint = NetworkFileFingerprint.compute(networkFile);
+    long featureVersion = NetworkOutputStore.computeFeatureVersion(TEAM_NAMES, normalizedDataByTeamName);
+    NetworkOutputs networkOutputs = createNetworkOutputs(networkFile, fingerprint, 0);
+    File outputFile = classUnderTest.computeOutputFile(networkFile);
+    // The network description length comes after the magic number, format version, fingerprint
+    /// (3 longs), year and feature version, and the number of matchups after the description
+    int networkDescriptionLengthOffset = 3 * Integer.BYTES + 4 * Long.BYTES;
+    int numberOfMatchupsOffset = networkDescriptionLengthOffset + Integer.BYTES + "46x17x2".length();
+    int[][] corruptions = {
+        { networkDescriptionLengthOffset, -1 },
+        { networkDescriptionLengthOffset, Integer.MAX_VALUE },
+        { numberOfMatchupsOffset, -1 },
+        { numberOfMatchupsOffset, Integer.MAX_VALUE },
+        { numberOfMatchupsOffset, networkOutputs.getNumberOfMatchups() + 1 }
+    };
+    for (int[] corruption : corruptions) {
+      classUnderTest.write(networkOutputs, 2019, featureVersion);
+      byte[] bytes = Files.readAllBytes(outputFile.toPath());
+      ByteBuffer.wrap(bytes).putInt(corruption[0], corruption[1]);
+      Files.write(outputFile.toPath(), bytes);
+      assertNull(classUnderTest.read(networkFile, fingerprint, 2019, featureVersion));
+    }
+  }
+
+  @Test
+  public void testComputeFeatureVersion() {
+    long featureVersion = NetworkOutputStore.computeFeatureVersion(TEAM_NAMES, normalizedDataByTeamName);
+    assertEquals(featureVersion, NetworkOutputStore.computeFeatureVersion(TEAM_NAMES, normalizedDataByTeamName));
+    normalizedDataByTeamName.get("Gonzaga")[3] += 1e-9;
+    assertTrue(featureVersion != NetworkOutputStore.computeFeatureVersion(TEAM_NAMES, normalizedDataByTeamName));
+  }
+
+  @Test
+  public void testRemoveAllExcept() throws IOException {
+    File networkFile1 = createNetworkFile("network-1.ann");
+    File networkFile2 = createNetworkFile("network-2.ann");
+    classUnderTest.write(createNetworkOutputs(networkFile1, NetworkFileFingerprint.compute(networkFile1), 0), 2019, 0L);
+    classUnderTest.write(createNetworkOutputs(networkFile2, NetworkFileFingerprint.compute(networkFile2), 1), 2019, 0L);
+    assertEquals(1, classUnderTest.removeAllExcept(Collections.singletonList(networkFile2)));
+    assertFalse(classUnderTest.computeOutputFile(networkFile1).exists());
+    assertTrue(classUnderTest.computeOutputFile(networkFile2).exists());
+  }
+
+  @Test
+  public void testComputeMatrixRows_SameAsSimulated() {
+    List<NetworkOutputs> networkOutputs = new ArrayList<>();
+    for (int networkIndex = 0; networkIndex < NUMBER_OF_NETWORKS; networkIndex++) {
+      networkOutputs.add(createNetworkOutputs(new File("network-" + networkIndex + ".ann"), null, networkIndex));
+    }
+    List<List<GameSimulationResult<MultiLayerPerceptron>>> rows = TournamentMatrixPredictor
+        .computeMatrixRows(TEAM_NAMES, networkOutputs);
+    assertEquals(TEAM_NAMES.size(), rows.size());
+    for (int teamIndex = 0; teamIndex < TEAM_NAMES.size(); teamIndex++) {
+      List<GameSimulationResult<MultiLayerPerceptron>> row = rows.get(teamIndex);
+      assertEquals(TEAM_NAMES.size() - teamIndex, row.size());
+      for (GameSimulationResult<MultiLayerPerceptron> result : row) {
+        GameSimulationResult<MultiLayerPerceptron> expected = matchupEvaluator.evaluate(result.getTeamName(),
+            result.getOpponentName());
+        assertEquals(expected.getNetworkPredictions(), result.getNetworkPredictions());
+        assertEquals(expected.getPercentWins(), result.getPercentWins());
+        assertEquals(expected.getPercentLosses(), result.getPercentLosses());
+        assertEquals(expected.getPercentPushes(), result.getPercentPushes());
+        assertEquals(expected.getTeamHomeResults(), result.getTeamHomeResults());
+        assertEquals(expected.getOpponentHomeResults(), result.getOpponentHomeResults());
+      }
+    }
+  }
+
+  private File createNetworkFile(String name) throws IOException {
+    File ret = new File(directory, name);
+    Files.write(ret.toPath(), name.getBytes());
+    return ret;
+  }
+
+  /**
+   * The outputs of the specified network for every matchup, in matrix row order.
+   */
+  private NetworkOutputs createNetworkOutputs(File networkFile, NetworkFileFingerprint fingerprint,
+      int networkIndex) {
+    NetworkOutputs ret = new NetworkOutputs(networkFile, fingerprint, "46x17x2",
+        NetworkOutputStore.computeNumberOfMatchups(TEAM_NAMES.size()));
+    int matchupIndex = 0;
+    for (int teamIndex = 0; teamIndex < TEAM_NAMES.size(); teamIndex++) {
+      for (int opponentIndex = teamIndex; opponentIndex < TEAM_NAMES.size(); opponentIndex++) {
+        GameSimulationResult<MultiLayerPerceptron> result = matchupEvaluator.evaluate(TEAM_NAMES.get(teamIndex),
+            TEAM_NAMES.get(opponentIndex));
+        ret.setResults(matchupIndex++, result.getTeamHomeResult(networkIndex),
+            result.getOpponentAwayResult(networkIndex), result.getTeamAwayResult(networkIndex),
+            result.getOpponentHomeResult(networkIndex));
+      }
+    }
+    return ret;
+  }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+
+@RunWith(JUnitPlatform.class)
+public class PredictionServerTest {
+
+  private static final List<String> TEAM_NAMES = Arrays.asList("Duke", "Gonzaga", "Michigan St", "Virginia");
+
+  private List<FlatMlpNetwork> flatNetworks;
+  private List<MultiLayerPerceptron> networks;
+  private Map<String, double[]> normalizedDataByTeamName;
+  private PredictionServer classUnderTest;
+  private int port;
+
+  @BeforeEach
+  public void setUp() {
+    Random random = new Random(17L);
+    flatNetworks = new ArrayList<>();
+    networks = new ArrayList<>();
+    for (int aa = 0; aa < 5; aa++) {
+      FlatMlpNetwork network = new FlatMlpNetwork(Arrays.asList(46, 23, 2), true);
+      network.randomizeWeights(-0.7, 0.7, random);
+      flatNetworks.add(network);
+      networks.add(null);
+    }
+    normalizedDataByTeamName = new HashMap<>();
+    for (String teamName : TEAM_NAMES) {
+      double[] normalizedData = new double[FeatureNormalizer.NUMBER_OF_FEATURES];
+      for (int aa = 0; aa < normalizedData.length; aa++) {
+        normalizedData[aa] = random.nextDouble();
+      }
+      normalizedDataByTeamName.put(teamName, normalizedData);
+    }
+    MatchupBatcher matchupBatcher = new MatchupBatcher(networks, new BatchNetworkEvaluator(flatNetworks),
+        normalizedDataByTeamName, 256);
+    classUnderTest = new PredictionServer(matchupBatcher, new Bracket(TEAM_NAMES), 1000, 4, 1);
+    port = classUnderTest.start(0);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    classUnderTest.stop();
+  }
+
+  @Test
+  public void testMatchup() throws Exception {
+    String body = get("/matchup?team=Michigan+St&opponent=Duke", 200);
+    assertTrue(body.startsWith("{\"team\":\"Michigan St\",\"opponent\":\"Duke\",\"numberOfNetworks\":5,"), body);
+    assertTrue(body.contains("\"winProbability\":"), body);
+  }
+
+  @Test
+  public void testMatchup_BadRequests() throws Exception {
+    assertTrue(get("/matchup?team=Duke&opponent=Kentucky", 400).contains("Kentucky"));
+    assertTrue(get("/matchup?team=Duke", 400).contains("opponent"));
+  }
+
+  @Test
+  public void testBracketOdds() throws Exception {
+    classUnderTest.computeAdvancementOdds().join();
+    String body = get("/bracket-odds", 200);
+    assertTrue(body.startsWith("{\"numberOfTournaments\":1000,\"levels\":["), body);
+    for (String teamName : TEAM_NAMES) {
+      assertTrue(body.contains("{\"team\":\"" + teamName + "\",\"probabilities\":[1.0,"), body);
+    }
+    body = get("/bracket-odds?team=Gonzaga", 200);
+    assertTrue(body.contains("\"Gonzaga\""), body);
+    assertTrue(!body.contains("\"Duke\""), body);
+    get("/bracket-odds?team=Kentucky", 404);
+  }
+
+  @Test
+  public void testBracketOdds_NotReadyYet() throws Exception {
+    //
+    // Hold the batching thread, so the bracket odds can't be finished
+    GatedBatchNetworkEvaluator gatedBatchNetworkEvaluator = new GatedBatchNetworkEvaluator(flatNetworks);
+    PredictionServer predictionServer = new PredictionServer(new MatchupBatcher(networks, gatedBatchNetworkEvaluator,
+        normalizedDataByTeamName, 256), new Bracket(TEAM_NAMES), 1000, 4, 1);
+    try {
+      int predictionServerPort = predictionServer.start(0);
+      gatedBatchNetworkEvaluator.started.await();
+      HttpURLConnection connection = open(predictionServerPort, "/bracket-odds");
+      try {
+        assertEquals(503, connection.getResponseCode());
+        assertEquals("1", connection.getHeaderField("Retry-After"));
+      } finally {
+        connection.disconnect();
+      }
+      gatedBatchNetworkEvaluator.release.countDown();
+      predictionServer.computeAdvancementOdds().join();
+      assertTrue(get(predictionServerPort, "/bracket-odds", 200).startsWith("{\"numberOfTournaments\":1000,"));
+    } finally {
+      gatedBatchNetworkEvaluator.release.countDown();
+      predictionServer.stop();
+    }
+  }
+
+  @Test
+  public void testStats() throws Exception {
+    get("/matchup?team=Duke&opponent=Virginia", 200);
+    String body = get("/stats", 200);
+    assertTrue(body.contains("\"/matchup\":{\"count\":1,"), body);
+    assertTrue(body.contains("\"p99Millis\":"), body);
+  }
+
+  @Test
+  public void testQuote() {
+    assertEquals("\"St. Mary's \\\"CA\\\"\\\\\\n\"", PredictionServer.quote("St. Mary's \"CA\"\\\n"));
+  }
+
+  @Test
+  public void testParseQuery() {
+    Map<String, String> parameters = PredictionServer.parseQuery("team=Texas+A%26M&opponent=&flag");
+    assertEquals("Texas A&M", parameters.get("team"));
+    assertEquals("", parameters.get("opponent"));
+    assertEquals("", parameters.get("flag"));
+  }
+
+  private String get(String pathAndQuery, int expectedStatus) throws IOException {
+    return get(port, pathAndQuery, expectedStatus);
+  }
+
+  private static HttpURLConnection open(int port, String pathAndQuery) throws IOException {
+    return (HttpURLConnection) new URL("http://127.0.0.1:" + port + pathAndQuery).openConnection();
+  }
+
+  private static String get(int port, String pathAndQuery, int expectedStatus) throws IOException {
+    HttpURLConnection connection = open(port, pathAndQuery);
+    try {
+      assertEquals(expectedStatus, connection.getResponseCode());
+      try (InputStream inputStream = (expectedStatus < 400) ? connection.getInputStream()
+          : connection.getErrorStream()) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int length; (length = inputStream.read(buffer)) > 0;) {
+          bytes.write(buffer, 0, length);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+import org.neuroph.nnet.MultiLayerPerceptron;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+import com.makotojava.ncaabb.model.FeatureNormalizer;
+
+@RunWith(JUnitPlatform.class)
+public class TournamentMatrixPredictorTest {
+
+  /**
+   * 10 teams: 8 slots, the last two of them filled by play-in games
+   */
+  private static final List<String> TEAM_NAMES = Arrays.asList("Duke", "Gonzaga", "Michigan St", "Virginia",
+      "Kentucky", "North Carolina", "Texas Tech", "Auburn", "Purdue", "Tennessee");
+
+  private List<FlatMlpNetwork> flatNetworks;
+  private List<MultiLayerPerceptron> networks;
+  private Map<String, double[]> normalizedDataByTeamName;
+  private MatchupEvaluator matchupEvaluator;
+
+  @BeforeEach
+  public void setUp() {
+    Random random = new Random(17L);
+    flatNetworks = new ArrayList<>();
+    networks = new ArrayList<>();
+    for (int aa = 0; aa < 5; aa++) {
+      FlatMlpNetwork network = new FlatMlpNetwork(Arrays.asList(46, 23, 2), true);
+      network.randomizeWeights(-0.7, 0.7, random);
+      flatNetworks.add(network);
+      networks.add(null);
+    }
+    normalizedDataByTeamName = new HashMap<>();
+    for (String teamName : TEAM_NAMES) {
+      double[] normalizedData = new double[FeatureNormalizer.NUMBER_OF_FEATURES];
+      for (int aa = 0; aa < normalizedData.length; aa++) {
+        normalizedData[aa] = random.nextDouble();
+      }
+      normalizedDataByTeamName.put(teamName, normalizedData);
+    }
+    matchupEvaluator = new MatchupEvaluator(networks, new BatchNetworkEvaluator(flatNetworks),
+        normalizedDataByTeamName);
+  }
+
+  @Test
+  public void testComputeBracketMatrix_EveryPossibleGame() {
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix = TournamentMatrixPredictor
+        .computeBracketMatrix(new Bracket(TEAM_NAMES), matchupEvaluator);
+    assertEquals(TEAM_NAMES.size(), matrix.size());
+    for (String teamName : TEAM_NAMES) {
+      List<GameSimulationResult<MultiLayerPerceptron>> row = matrix.get(teamName);
+      // Any two teams can meet somewhere in the bracket
+      assertEquals(TEAM_NAMES.size() - 1, row.size(), teamName);
+      for (int aa = 0; aa < row.size(); aa++) {
+        assertEquals(teamName, row.get(aa).getTeamName());
+        if (aa > 0) {
+          assertTrue(row.get(aa - 1).getOpponentName().compareTo(row.get(aa).getOpponentName()) < 0);
+        }
+      }
+    }
+    // Each game is only simulated once
+    assertEquals(TEAM_NAMES.size() * (TEAM_NAMES.size() - 1) / 2, matchupEvaluator.getNumberOfMatchupsSimulated());
+  }
+
+  @Test
+  public void testComputeBracketMatrix_UnderdogCanMeetLaterOpponents() {
+    Bracket bracket = new Bracket(TEAM_NAMES);
+    Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix = TournamentMatrixPredictor
+        .computeBracketMatrix(bracket, matchupEvaluator);
+    //
+    // The team that isn't favored in the very first game...
+    String teamName = TEAM_NAMES.get(bracket.getSlotTeam(0));
+    String opponentName = TEAM_NAMES.get(bracket.getSlotTeam(1));
+    String underdog = (WinProbabilityTable.computeWinProbability(matchupEvaluator.evaluate(teamName,
+        opponentName)) >= 0.5) ? opponentName : teamName;
+    //
+    // ...could still meet anybody from the other half of its region (round two) and the other
+    /// half of the bracket, play-in teams included (the final)
+    for (int slot = 2; slot < bracket.getNumberOfSlots(); slot++) {
+      assertPlayed(matrix, underdog, TEAM_NAMES.get(bracket.getSlotTeam(slot)));
+      if (bracket.getSlotPlayInOpponent(slot) >= 0) {
+        assertPlayed(matrix, underdog, TEAM_NAMES.get(bracket.getSlotPlayInOpponent(slot)));
+      }
+    }
+  }
+
+  @Test
+  public void testSimulateMatrixRows_ConcurrentSameAsSerial() {
+    List<String> sortedTeamNames = new ArrayList<>(TEAM_NAMES);
+    Collections.sort(sortedTeamNames);
+    BatchNetworkEvaluator batchNetworkEvaluator = new BatchNetworkEvaluator(flatNetworks);
+    List<List<GameSimulationResult<MultiLayerPerceptron>>> expectedRows = TournamentMatrixPredictor
+        .simulateMatrixRows(1, sortedTeamNames, normalizedDataByTeamName, networks, batchNetworkEvaluator);
+    List<List<GameSimulationResult<MultiLayerPerceptron>>> rows = TournamentMatrixPredictor
+        .simulateMatrixRows(4, sortedTeamNames, normalizedDataByTeamName, networks, batchNetworkEvaluator);
+    assertEquals(sortedTeamNames.size(), rows.size());
+    for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+      List<GameSimulationResult<MultiLayerPerceptron>> expectedRow = expectedRows.get(rowIndex);
+      List<GameSimulationResult<MultiLayerPerceptron>> row = rows.get(rowIndex);
+      // The team against itself, and every team after it
+      assertEquals(sortedTeamNames.size() - rowIndex, row.size());
+      for (int aa = 0; aa < row.size(); aa++) {
+        GameSimulationResult<MultiLayerPerceptron> expected = expectedRow.get(aa);
+        GameSimulationResult<MultiLayerPerceptron> result = row.get(aa);
+        assertEquals(sortedTeamNames.get(rowIndex), result.getTeamName());
+        assertEquals(expected.getOpponentName(), result.getOpponentName());
+        assertEquals(expected.getTeamHomeResults(), result.getTeamHomeResults());
+        assertEquals(expected.getTeamAwayResults(), result.getTeamAwayResults());
+        assertEquals(expected.getOpponentHomeResults(), result.getOpponentHomeResults());
+        assertEquals(expected.getOpponentAwayResults(), result.getOpponentAwayResults());
+        assertEquals(expected.getNetworkPredictions(), result.getNetworkPredictions());
+      }
+    }
+  }
+
+  private static void assertPlayed(Map<String, List<GameSimulationResult<MultiLayerPerceptron>>> matrix,
+      String teamName, String opponentName) {
+    assertTrue(matrix.get(teamName).stream().anyMatch(result -> result.getOpponentName().equals(opponentName)),
+        teamName + " vs " + opponentName);
+    assertTrue(matrix.get(opponentName).stream().anyMatch(result -> result.getOpponentName().equals(teamName)),
+        opponentName + " vs " + teamName);
+  }
+
+}
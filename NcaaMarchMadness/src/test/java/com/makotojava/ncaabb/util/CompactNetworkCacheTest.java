@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import com.makotojava.ncaabb.generation.FlatMlpNetwork;
+
+@RunWith(JUnitPlatform.class)
+public class CompactNetworkCacheTest {
+
+  private File networkFile;
+  private File cacheFile;
+  private FlatMlpNetwork network;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    networkFile = File.createTempFile("compact-network-cache-test", ".ann");
+    Files.write(networkFile.toPath(), "not really a network".getBytes(StandardCharsets.UTF_8));
+    cacheFile = CompactNetworkCache.computeCacheFile(networkFile);
+    network = new FlatMlpNetwork(Arrays.asList(46, 23, 11, 2), true);
+    network.randomizeWeights(-0.7, 0.7, new Random(29L));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    networkFile.delete();
+    cacheFile.delete();
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    NetworkFileFingerprint fingerprint = NetworkFileFingerprint.compute(networkFile);
+    CompactNetworkCache.write(cacheFile, fingerprint, network);
+    FlatMlpNetwork cachedNetwork = CompactNetworkCache.read(cacheFile, fingerprint);
+    assertArrayEquals(network.getLayerSizes(), cachedNetwork.getLayerSizes());
+    assertTrue(cachedNetwork.layerHasBias(0));
+    assertArrayEquals(network.getWeights(), cachedNetwork.getWeights());
+  }
+
+  @Test
+  public void testRead_NoCacheFile() throws IOException {
+    assertNull(CompactNetworkCache.read(cacheFile, NetworkFileFingerprint.compute(networkFile)));
+  }
+
+  @Test
+  public void testRead_NetworkFileChanged() throws IOException {
+    CompactNetworkCache.write(cacheFile, NetworkFileFingerprint.compute(networkFile), network);
+    // Same size, same timestamp, different contents
+    long lastModified = networkFile.lastModified();
+    Files.write(networkFile.toPath(), "not really a netw0rk".getBytes(StandardCharsets.UTF_8));
+    networkFile.setLastModified(lastModified);
+    NetworkFileFingerprint fingerprint = NetworkFileFingerprint.compute(networkFile);
+    assertEquals(lastModified, fingerprint.getLastModified());
+    assertNull(CompactNetworkCache.read(cacheFile, fingerprint));
+  }
+
+  @Test
+  public void testRead_Truncated() throws IOException {
+    NetworkFileFingerprint fingerprint = NetworkFileFingerprint.compute(networkFile);
+    CompactNetworkCache.write(cacheFile, fingerprint, network);
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(cacheFile, "rw")) {
+      randomAccessFile.setLength(randomAccessFile.length() - 8);
+    }
+    assertThrows(IOException.class, () -> CompactNetworkCache.read(cacheFile, fingerprint));
+  }
+
+  @Test
+  public void testFingerprint() throws IOException {
+    NetworkFileFingerprint fingerprint = NetworkFileFingerprint.compute(networkFile);
+    assertEquals(networkFile.length(), fingerprint.getSize());
+    assertEquals(fingerprint, NetworkFileFingerprint.compute(networkFile));
+    assertNotEquals(fingerprint, new NetworkFileFingerprint(fingerprint.getSize(), fingerprint.getLastModified(),
+        fingerprint.getChecksum() + 1));
+  }
+
+}
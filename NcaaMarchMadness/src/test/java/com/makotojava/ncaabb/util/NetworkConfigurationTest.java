@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Makoto Consulting Group, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.makotojava.ncaabb.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class NetworkConfigurationTest {
+
+  @Test
+  public void testDefaults() {
+    NetworkConfiguration classUnderTest = new NetworkConfiguration(new Properties());
+    assertEquals(".", classUnderTest.getBaseDirectory());
+    assertEquals(46, classUnderTest.getNumberOfInputs());
+    assertEquals(2, classUnderTest.getNumberOfOutputs());
+    assertEquals(0.0075, classUnderTest.getMaxNetworkError());
+    assertEquals(-0.001, classUnderTest.getMaxNetworkErrorUptrend());
+    assertEquals(3000, classUnderTest.getEpochBreakIterationCount());
+    assertEquals(BigDecimal.valueOf(70), classUnderTest.getPerformanceThreshold());
+    assertEquals(BigDecimal.valueOf(60), classUnderTest.getSymmetricPerformanceThreshold());
+    assertTrue(classUnderTest.getRandomizeMomentum());
+    assertTrue(classUnderTest.getUseBiasNeurons());
+    assertFalse(classUnderTest.getLearningRuleIsBatchMode());
+    assertEquals(NetworkConfiguration.NETWORK_ENGINE_NEUROPH, classUnderTest.getNetworkEngine());
+    assertFalse(classUnderTest.useFlatNetworkEngine());
+    assertEquals(NetworkConfiguration.MATRIX_MODE_FULL, classUnderTest.getSimulationMatrixMode());
+    assertEquals(1, classUnderTest.getSimulationWorkerThreads());
+    assertEquals(10000000, classUnderTest.getBracketSimulationTournaments());
+  }
+
+  @Test
+  public void testOverrides() {
+    Properties properties = new Properties();
+    properties.setProperty("network.engine", "FLAT");
+    properties.setProperty("simulation.matrix.mode", "Bracket");
+    properties.setProperty("randomize.momentum", "False");
+    properties.setProperty("training.worker.threads", " 8 ");
+    properties.setProperty("max.network.error", "0.01");
+    properties.setProperty("performance.threshold", "67");
+    NetworkConfiguration classUnderTest = new NetworkConfiguration(properties);
+    assertEquals(NetworkConfiguration.NETWORK_ENGINE_FLAT, classUnderTest.getNetworkEngine());
+    assertTrue(classUnderTest.useFlatNetworkEngine());
+    assertEquals(NetworkConfiguration.MATRIX_MODE_BRACKET, classUnderTest.getSimulationMatrixMode());
+    assertFalse(classUnderTest.getRandomizeMomentum());
+    assertEquals(8, classUnderTest.getTrainingWorkerThreads());
+    assertEquals(0.01, classUnderTest.getMaxNetworkError());
+    assertEquals(BigDecimal.valueOf(67), classUnderTest.getPerformanceThreshold());
+  }
+
+  @Test
+  public void testBadValues_AllReportedAtOnce() {
+    Properties properties = new Properties();
+    properties.setProperty("max.network.iterations", "ten");
+    properties.setProperty("randomize.momentum", "no");
+    properties.setProperty("network.engine", "tensorflow");
+    properties.setProperty("learning.rule.momentum.max", "1.5");
+    properties.setProperty("training.worker.threads", "0");
+    properties.setProperty("performance.threshold", "101");
+    RuntimeException e = assertThrows(RuntimeException.class, () -> new NetworkConfiguration(properties));
+    for (String propertyName : new String[] { "max.network.iterations", "randomize.momentum", "network.engine",
+        "learning.rule.momentum.max", "training.worker.threads", "performance.threshold" }) {
+      assertTrue(e.getMessage().contains(propertyName), e.getMessage());
+    }
+  }
+
+  @Test
+  public void testBadValues_Inconsistent() {
+    Properties properties = new Properties();
+    properties.setProperty("learning.rule.momentum.min", "0.3");
+    properties.setProperty("learning.rule.momentum.max", "0.2");
+    RuntimeException e = assertThrows(RuntimeException.class, () -> new NetworkConfiguration(properties));
+    assertTrue(e.getMessage().contains("learning.rule.momentum.min"), e.getMessage());
+    properties.clear();
+    properties.setProperty("min.min.weight", "0.8");
+    e = assertThrows(RuntimeException.class, () -> new NetworkConfiguration(properties));
+    assertTrue(e.getMessage().contains("min.min.weight"), e.getMessage());
+    properties.clear();
+    properties.setProperty("number.of.inputs", "40");
+    e = assertThrows(RuntimeException.class, () -> new NetworkConfiguration(properties));
+    assertTrue(e.getMessage().contains("number.of.inputs"), e.getMessage());
+  }
+
+}